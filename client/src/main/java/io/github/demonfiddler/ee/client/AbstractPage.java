@@ -120,6 +120,14 @@ public abstract class AbstractPage<T extends IGraphQLObject> extends AbstractGra
 		listDepth = 0)
 	Boolean hasPrevious;
 
+	/**
+	 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}. Only set by
+	 * queries that support seeking.
+	 */
+	@JsonProperty("endCursor")
+	@GraphQLScalar(fieldName = "endCursor", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
+	String endCursor;
+
 	/**
 	 * Dummy ID required for @Entity classes
 	 */
@@ -324,6 +332,24 @@ public abstract class AbstractPage<T extends IGraphQLObject> extends AbstractGra
 		return this.hasPrevious;
 	}
 
+	/**
+	 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}. Only set by
+	 * queries that support seeking.
+	 */
+	@JsonProperty("endCursor")
+	public final void setEndCursor(String endCursor) {
+		this.endCursor = endCursor;
+	}
+
+	/**
+	 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}. Only set by
+	 * queries that support seeking.
+	 */
+	@JsonProperty("endCursor")
+	public final String getEndCursor() {
+		return this.endCursor;
+	}
+
 	public final String toString() {
 		return getClass().getSimpleName() //
 			+ " {" //
@@ -353,6 +379,8 @@ public abstract class AbstractPage<T extends IGraphQLObject> extends AbstractGra
 			+ ", " //
 			+ "hasPrevious: " + this.getHasPrevious() //
 			+ ", " //
+			+ "endCursor: " + this.getEndCursor() //
+			+ ", " //
 			+ "__typename: " + this.get__typename() //
 			+ "}";
 	}
@@ -374,6 +402,7 @@ public abstract class AbstractPage<T extends IGraphQLObject> extends AbstractGra
 		result = prime * result + ((getIsLast() == null) ? 0 : getIsLast().hashCode());
 		result = prime * result + ((getHasNext() == null) ? 0 : getHasNext().hashCode());
 		result = prime * result + ((getHasPrevious() == null) ? 0 : getHasPrevious().hashCode());
+		result = prime * result + ((getEndCursor() == null) ? 0 : getEndCursor().hashCode());
 		return result;
 	}
 
@@ -448,6 +477,11 @@ public abstract class AbstractPage<T extends IGraphQLObject> extends AbstractGra
 				return false;
 		} else if (!getHasPrevious().equals(other.getHasPrevious()))
 			return false;
+		if (getEndCursor() == null) {
+			if (other.getEndCursor() != null)
+				return false;
+		} else if (!getEndCursor().equals(other.getEndCursor()))
+			return false;
 		return true;
 	}
 
@@ -472,6 +506,7 @@ public abstract class AbstractPage<T extends IGraphQLObject> extends AbstractGra
 		private Boolean isLast;
 		private Boolean hasNext;
 		private Boolean hasPrevious;
+		private String endCursor;
 
 		Builder() {
 		}
@@ -580,6 +615,15 @@ public abstract class AbstractPage<T extends IGraphQLObject> extends AbstractGra
 			return (B)this;
 		}
 
+		/**
+		 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}. Only set
+		 * by queries that support seeking.
+		 */
+		public final B withEndCursor(String endCursorParam) {
+			this.endCursor = endCursorParam;
+			return (B)this;
+		}
+
 		public final P build() {
 			P _object = build(createPage());
 			_object.setDummy(this.dummy);
@@ -595,6 +639,7 @@ public abstract class AbstractPage<T extends IGraphQLObject> extends AbstractGra
 			_object.setIsLast(this.isLast);
 			_object.setHasNext(this.hasNext);
 			_object.setHasPrevious(this.hasPrevious);
+			_object.setEndCursor(this.endCursor);
 			return _object;
 		}
 
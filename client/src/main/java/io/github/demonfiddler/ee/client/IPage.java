@@ -157,4 +157,12 @@ public interface IPage extends IGraphQLEntity {
 		listDepth = 0)
 	public Boolean getHasPrevious();
 
+	@JsonProperty("endCursor")
+	@GraphQLScalar(fieldName = "endCursor", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
+	public void setEndCursor(String endCursor);
+
+	@JsonProperty("endCursor")
+	@GraphQLScalar(fieldName = "endCursor", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
+	public String getEndCursor();
+
 }
@@ -39,14 +39,14 @@ public class OrderInput extends AbstractGraphQLObject {
 	}
 
 	/**
-	 * The field name.
+	 * The field name, or ```relevance``` to sort text-filtered linkable entities by full text match score.
 	 */
 	@JsonProperty("property")
 	@GraphQLScalar(fieldName = "property", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
 	String property;
 
 	/**
-	 * The sort direction.
+	 * The sort direction. If omitted, ```relevance``` sorts ```DESC``` (best match first) and other fields ```ASC```.
 	 */
 	@JsonProperty("direction")
 	@GraphQLScalar(fieldName = "direction", graphQLTypeSimpleName = "DirectionKind", javaClass = DirectionKind.class,
@@ -70,7 +70,7 @@ public class OrderInput extends AbstractGraphQLObject {
 	NullHandlingKind nullHandling;
 
 	/**
-	 * The field name.
+	 * The field name, or ```relevance``` to sort text-filtered linkable entities by full text match score.
 	 */
 	@JsonProperty("property")
 	public void setProperty(String property) {
@@ -78,7 +78,7 @@ public class OrderInput extends AbstractGraphQLObject {
 	}
 
 	/**
-	 * The field name.
+	 * The field name, or ```relevance``` to sort text-filtered linkable entities by full text match score.
 	 */
 	@JsonProperty("property")
 	public String getProperty() {
@@ -86,7 +86,7 @@ public class OrderInput extends AbstractGraphQLObject {
 	}
 
 	/**
-	 * The sort direction.
+	 * The sort direction. If omitted, ```relevance``` sorts ```DESC``` (best match first) and other fields ```ASC```.
 	 */
 	@JsonProperty("direction")
 	public void setDirection(DirectionKind direction) {
@@ -94,7 +94,7 @@ public class OrderInput extends AbstractGraphQLObject {
 	}
 
 	/**
-	 * The sort direction.
+	 * The sort direction. If omitted, ```relevance``` sorts ```DESC``` (best match first) and other fields ```ASC```.
 	 */
 	@JsonProperty("direction")
 	public DirectionKind getDirection() {
@@ -161,7 +161,7 @@ public class OrderInput extends AbstractGraphQLObject {
 		private NullHandlingKind nullHandling;
 
 		/**
-		 * The field name.
+		 * The field name, or ```relevance``` to sort text-filtered linkable entities by full text match score.
 		 */
 		public Builder withProperty(String propertyParam) {
 			this.property = propertyParam;
@@ -169,7 +169,7 @@ public class OrderInput extends AbstractGraphQLObject {
 		}
 
 		/**
-		 * The sort direction.
+		 * The sort direction. If omitted, ```relevance``` sorts ```DESC``` (best match first) and other fields ```ASC```.
 		 */
 		public Builder withDirection(DirectionKind directionParam) {
 			this.direction = directionParam;
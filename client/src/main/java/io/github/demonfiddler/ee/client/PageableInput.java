@@ -68,6 +68,14 @@ public class PageableInput extends AbstractGraphQLObject {
 	@GraphQLScalar( fieldName = "requestCount", graphQLTypeSimpleName = "Boolean", javaClass = Boolean.class, listDepth = 0)
 	Boolean requestCount;
 
+	/**
+	 * An opaque cursor, as returned in the {@code endCursor} of the preceding page. When set, linkable entity queries
+	 * seek directly past the cursor's record instead of skipping {@code pageNumber * pageSize} records.
+	 */
+	@JsonProperty("after")
+	@GraphQLScalar(fieldName = "after", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
+	String after;
+
 	/**
 	 * 0-based page number, must be >= 0. Omit or set to 0 for first page.
 	 */
@@ -132,6 +140,24 @@ public class PageableInput extends AbstractGraphQLObject {
 		return this.requestCount;
 	}
 
+	/**
+	 * An opaque cursor, as returned in the {@code endCursor} of the preceding page. When set, linkable entity queries
+	 * seek directly past the cursor's record instead of skipping {@code pageNumber * pageSize} records.
+	 */
+	@JsonProperty("after")
+	public void setAfter(String after) {
+		this.after = after;
+	}
+
+	/**
+	 * An opaque cursor, as returned in the {@code endCursor} of the preceding page. When set, linkable entity queries
+	 * seek directly past the cursor's record instead of skipping {@code pageNumber * pageSize} records.
+	 */
+	@JsonProperty("after")
+	public String getAfter() {
+		return this.after;
+	}
+
 	public String toString() {
 		return "PageableInput {" //
 			+ "pageNumber: " + this.pageNumber //
@@ -141,6 +167,8 @@ public class PageableInput extends AbstractGraphQLObject {
 			+ "sort: " + this.sort //
 			+ ", " //
 			+ "requestCount: " + this.requestCount //
+			+ ", " //
+			+ "after: " + this.after //
 			+ "}";
 	}
 
@@ -158,6 +186,7 @@ public class PageableInput extends AbstractGraphQLObject {
 		private Integer pageSize;
 		private SortInput sort;
 		private Boolean requestCount;
+		private String after;
 
 		/**
 		 * 0-based page number, must be >= 0. Omit or set to 0 for first page.
@@ -191,12 +220,21 @@ public class PageableInput extends AbstractGraphQLObject {
 			return this;
 		}
 
+		/**
+		 * An opaque cursor, as returned in the {@code endCursor} of the preceding page.
+		 */
+		public Builder withAfter(String afterParam) {
+			this.after = afterParam;
+			return this;
+		}
+
 		public PageableInput build() {
 			PageableInput _object = new PageableInput();
 			_object.setPageNumber(this.pageNumber);
 			_object.setPageSize(this.pageSize);
 			_object.setSort(this.sort);
 			_object.setRequestCount(this.requestCount);
+			_object.setAfter(this.after);
 			return _object;
 		}
 
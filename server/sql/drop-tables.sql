@@ -13,6 +13,7 @@ CALL FT_DROP_INDEX('PUBLIC', 'user');
 DROP TABLE "log";
 DROP TABLE "comment";
 DROP TABLE "entity_link";
+DROP TABLE "entity_person_name";
 DROP TABLE "claim";
 DROP TABLE "declaration";
 DROP TABLE "person";
@@ -20,6 +21,7 @@ DROP TABLE "publication";
 DROP TABLE "journal";
 DROP TABLE "publisher";
 DROP TABLE "quotation";
+DROP TABLE "topic_closure";
 DROP TABLE "topic";
 DROP TABLE "group_authority";
 DROP TABLE "user_authority";
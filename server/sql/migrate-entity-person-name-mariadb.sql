@@ -0,0 +1,9 @@
+-- Adds the entity_person_name table to an existing database. Parsing person names requires the server, which populates
+-- the table at startup if it is empty and maintains it thereafter; a restore rebuilds it.
+CREATE TABLE IF NOT EXISTS "entity_person_name" (
+  "entity_id" BIGINT(20) UNSIGNED NOT NULL COMMENT 'The ID of a person, or of a declaration, publication or quotation that names a person',
+  "last_name_norm" VARCHAR(50) NOT NULL COLLATE utf8mb4_bin COMMENT 'The person''s last name, in lower case without diacritics',
+  PRIMARY KEY ("entity_id","last_name_norm"),
+  KEY "entity_person_name_last_name_norm" ("last_name_norm","entity_id"),
+  CONSTRAINT "FK_entity_person_name_entity" FOREIGN KEY ("entity_id") REFERENCES "entity" ("id") ON UPDATE CASCADE ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='The normalised last names of persons and of the persons named by declarations, publications and quotations';
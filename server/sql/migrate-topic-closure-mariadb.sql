@@ -0,0 +1,27 @@
+-- Adds the topic_closure table to an existing database and populates it from the topic hierarchy.
+-- The server maintains the table thereafter; a restore rebuilds it.
+CREATE TABLE IF NOT EXISTS "topic_closure" (
+  "ancestor_id" BIGINT(20) UNSIGNED NOT NULL COMMENT 'The ancestor topic ID',
+  "descendant_id" BIGINT(20) UNSIGNED NOT NULL COMMENT 'The descendant topic ID',
+  "depth" INT(11) UNSIGNED NOT NULL COMMENT 'The number of levels between ancestor and descendant, zero for self',
+  PRIMARY KEY ("ancestor_id","descendant_id"),
+  KEY "topic_closure_descendant" ("descendant_id","depth"),
+  CONSTRAINT "FK_topic_closure_ancestor" FOREIGN KEY ("ancestor_id") REFERENCES "topic" ("id") ON UPDATE CASCADE ON DELETE CASCADE,
+  CONSTRAINT "FK_topic_closure_descendant" FOREIGN KEY ("descendant_id") REFERENCES "topic" ("id") ON UPDATE CASCADE ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='The transitive closure of the topic hierarchy, one row per ancestor-or-self/descendant pair';
+
+DELETE FROM "topic_closure";
+
+INSERT INTO "topic_closure" ("ancestor_id", "descendant_id", "depth")
+WITH RECURSIVE "path" ("ancestor_id", "descendant_id", "depth")
+AS (
+    SELECT t."id", t."id", 0
+    FROM "topic" t
+    UNION ALL
+    SELECT p."ancestor_id", t."id", p."depth" + 1
+    FROM "topic" t
+    JOIN "path" p
+    ON p."descendant_id" = t."parent_id"
+)
+SELECT "ancestor_id", "descendant_id", "depth"
+FROM "path";
@@ -36,6 +36,7 @@ import org.springframework.context.annotation.FilterType;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.graphql.execution.ClassNameTypeResolver;
 import org.springframework.graphql.execution.GraphQlSource;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.graphql_java_generator.server.util.GraphqlServerUtils;
 
@@ -57,6 +58,7 @@ import com.graphql_java_generator.server.util.GraphqlServerUtils;
 @EnableJpaRepositories(basePackages = { "io.github.demonfiddler.ee.server.repository", "com.graphql_java_generator" })
 @EntityScan(basePackages = { "io.github.demonfiddler.ee.server.model", "com.graphql_java_generator" })
 @EnableConfigurationProperties
+@EnableScheduling
 public class EvidenceEngineServer extends SpringBootServletInitializer {
 
 	@Autowired
@@ -31,6 +31,7 @@ import com.graphql_java_generator.server.util.GraphqlServerUtils;
 import graphql.schema.DataFetchingEnvironment;
 import io.github.demonfiddler.ee.server.datafetcher.DataFetchersDelegateQuery;
 import io.github.demonfiddler.ee.server.model.CommentQueryFilter;
+import io.github.demonfiddler.ee.server.model.EntityKind;
 import io.github.demonfiddler.ee.server.model.EntityLinkQueryFilter;
 import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
 import io.github.demonfiddler.ee.server.model.LogQueryFilter;
@@ -909,4 +910,28 @@ public class QueryController {
 		return this.dataFetchersDelegateQuery.audit(dataFetchingEnvironment, id);
 	}
 
+	/**
+	 * This method loads the data for Query.audits. It returns an Object: the data fetcher implementation may return
+	 * any type that is accepted by a spring-graphql controller<BR/>
+	 * @param dataFetchingEnvironment The GraphQL {@link DataFetchingEnvironment}. It gives you access to the full
+	 * GraphQL context for this DataFetcher
+	 * @throws NoSuchElementException This method may return a {@link NoSuchElementException} exception. In this case,
+	 * the exception is trapped by the calling method, and the return is consider as null. This allows to use the
+	 * {@link Optional#get()} method directly, without caring of whether or not there is a value. The generated code
+	 * will take care of the {@link NoSuchElementException} exception.
+	 * @param entityKind The parameter that will receive the field argument of the same name for the current data to
+	 * fetch
+	 * @param filter The parameter that will receive the field argument of the same name for the current data to fetch
+	 * @param pageSort The parameter that will receive the field argument of the same name for the current data to
+	 * fetch
+	 * @return It may return any value that is valid for a spring-graphql controller, annotated by the
+	 * <code>@SchemaMapping</code> annotation
+	 */
+	@SchemaMapping(field = "audits")
+	public Object audits(DataFetchingEnvironment dataFetchingEnvironment, @Argument("entityKind") EntityKind entityKind,
+		@Argument("filter") LinkableEntityQueryFilter filter, @Argument("pageSort") PageableInput pageSort) {
+
+		return this.dataFetchersDelegateQuery.audits(dataFetchingEnvironment, entityKind, filter, pageSort);
+	}
+
 }
@@ -19,19 +19,19 @@
 
 package io.github.demonfiddler.ee.server.datafetcher.impl;
 
-import java.util.List;
-
 import org.dataloader.DataLoader;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import graphql.schema.DataFetchingEnvironment;
+import io.github.demonfiddler.ee.server.datafetcher.impl.PageLoaders.PageKey;
 import io.github.demonfiddler.ee.server.model.EntityLink;
 import io.github.demonfiddler.ee.server.model.EntityLinkPage;
+import io.github.demonfiddler.ee.server.model.EntityLinkQueryFilter;
 import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
 import io.github.demonfiddler.ee.server.model.ILinkableEntity;
 import io.github.demonfiddler.ee.server.model.PageableInput;
-import io.github.demonfiddler.ee.server.model.StatusKind;
+import io.github.demonfiddler.ee.server.model.SeekRequest;
 import io.github.demonfiddler.ee.server.repository.CommentRepository;
 import io.github.demonfiddler.ee.server.repository.EntityLinkRepository;
 import io.github.demonfiddler.ee.server.repository.LogRepository;
@@ -59,7 +59,7 @@ abstract class DataFetchersDelegateILinkableEntityBaseImpl<T extends ILinkableEn
     /**
      * Outbound links for which {@code origin} is the 'linked-from' entity.
      * @param dataFetchingEnvironment
-	 * @param dataLoader
+     * @param dataLoader Unused, because it is keyed on the origin ID alone; see {@link PageLoaders}.
      * @param origin
      * @param filter
      * @param pageSort
@@ -69,13 +69,13 @@ abstract class DataFetchersDelegateILinkableEntityBaseImpl<T extends ILinkableEn
         DataLoader<Long, EntityLinkPage> dataLoader, T origin, LinkableEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityLinks(dataFetchingEnvironment, dataLoader, origin, filter, pageSort, true);
+        return entityLinks(dataFetchingEnvironment, origin, filter, pageSort, true);
     }
 
     /**
      * Inbound links for which {@code origin} is the 'linked-to' entity.
      * @param dataFetchingEnvironment
-	 * @param dataLoader
+     * @param dataLoader Unused, because it is keyed on the origin ID alone; see {@link PageLoaders}.
      * @param origin
      * @param filter
      * @param pageSort
@@ -85,30 +85,54 @@ abstract class DataFetchersDelegateILinkableEntityBaseImpl<T extends ILinkableEn
         DataLoader<Long, EntityLinkPage> dataLoader, T origin, LinkableEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityLinks(dataFetchingEnvironment, dataLoader, origin, filter, pageSort, false);
+        return entityLinks(dataFetchingEnvironment, origin, filter, pageSort, false);
     }
 
-    private Object entityLinks(DataFetchingEnvironment dataFetchingEnvironment,
-        DataLoader<Long, EntityLinkPage> dataLoader, T origin, LinkableEntityQueryFilter filter, PageableInput pageSort,
-        boolean fromEntityLinks) {
+    private Object entityLinks(DataFetchingEnvironment dataFetchingEnvironment, T origin,
+        LinkableEntityQueryFilter filter, PageableInput pageSort, boolean fromEntityLinks) {
 
-        filter = fixFilter(origin, filter, fromEntityLinks);
+        filter = fixFilter(filter);
         Pageable pageable = entityUtils.toPageable(pageSort);
-        Page<EntityLink> page = entityLinkRepository.findByFilter(filter, pageable);
-        return entityUtils.toEntityPage(page, EntityLinkPage::new);
+        boolean countTotal = entityUtils.isTotalRequested(dataFetchingEnvironment);
+
+        // A cursor denotes a position within a single origin's links, so a seek request cannot be batched.
+        if (pageable instanceof SeekRequest) {
+            // The caller's filter is a GraphQL argument, so restrict a copy of it to the origin.
+            filter = copyFilter(filter);
+            if (fromEntityLinks)
+                filter.setFromEntityId(origin.getId());
+            else
+                filter.setToEntityId(origin.getId());
+            Page<EntityLink> page = entityLinkRepository.findByFilter(filter, pageable, countTotal);
+            return entityUtils.toEntityPage(page, EntityLinkPage::new);
+        }
+
+        // Otherwise defer to a DataLoader, which fetches the links for all origins in a single pair of queries.
+        DataLoader<PageKey<EntityLinkQueryFilter>, EntityLinkPage> linksLoader = dataFetchingEnvironment
+            .getDataLoader(fromEntityLinks ? PageLoaders.FROM_ENTITY_LINKS : PageLoaders.TO_ENTITY_LINKS);
+        return linksLoader.load(PageKey.of(origin.getId(), filter, pageable, countTotal));
+    }
+
+    private LinkableEntityQueryFilter fixFilter(LinkableEntityQueryFilter filter) {
+        // N.B. EntityLinkRepository restricts an unauthenticated user's query to published links.
+        return filter != null ? filter : new LinkableEntityQueryFilter();
     }
 
-    private LinkableEntityQueryFilter fixFilter(T origin, LinkableEntityQueryFilter filter, boolean fromEntityLinks) {
-        if (filter == null)
-            filter = new LinkableEntityQueryFilter();
-        // Unauthenticated queries should only return published links.
-        if (securityUtils.getCurrentUsername().equals("anonymousUser"))
-            filter.setStatus(List.of(StatusKind.PUB));
-        if (fromEntityLinks)
-            filter.setFromEntityId(origin.getId());
-        else
-            filter.setToEntityId(origin.getId());
-        return filter;
+    private LinkableEntityQueryFilter copyFilter(LinkableEntityQueryFilter filter) {
+        return LinkableEntityQueryFilter.builderForLinkableEntityQueryFilter() //
+            .withStatus(filter.getStatus()) //
+            .withText(filter.getText()) //
+            .withAdvancedSearch(filter.getAdvancedSearch()) //
+            .withRecordId(filter.getRecordId()) //
+            .withFromEntityKind(filter.getFromEntityKind()) //
+            .withFromEntityId(filter.getFromEntityId()) //
+            .withToEntityKind(filter.getToEntityKind()) //
+            .withToEntityId(filter.getToEntityId()) //
+            .withFromEntityFuzzy(filter.getFromEntityFuzzy()) //
+            .withToEntityFuzzy(filter.getToEntityFuzzy()) //
+            .withTopicId(filter.getTopicId()) //
+            .withRecursive(filter.getRecursive()) //
+            .build();
     }
 
 }
@@ -19,15 +19,20 @@
 
 package io.github.demonfiddler.ee.server.datafetcher.impl;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.dataloader.BatchLoaderEnvironment;
 import org.dataloader.DataLoader;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 
 import graphql.GraphQLContext;
 import graphql.schema.DataFetchingEnvironment;
+import io.github.demonfiddler.ee.server.datafetcher.impl.PageLoaders.PageKey;
 import io.github.demonfiddler.ee.server.model.CommentPage;
 import io.github.demonfiddler.ee.server.model.CommentQueryFilter;
 import io.github.demonfiddler.ee.server.model.EntityKind;
@@ -36,6 +41,7 @@ import io.github.demonfiddler.ee.server.model.ITrackedEntity;
 import io.github.demonfiddler.ee.server.model.LogPage;
 import io.github.demonfiddler.ee.server.model.LogQueryFilter;
 import io.github.demonfiddler.ee.server.model.PageableInput;
+import io.github.demonfiddler.ee.server.model.SeekRequest;
 import io.github.demonfiddler.ee.server.model.StatusKind;
 import io.github.demonfiddler.ee.server.model.User;
 import io.github.demonfiddler.ee.server.repository.CommentRepository;
@@ -43,6 +49,7 @@ import io.github.demonfiddler.ee.server.repository.LogRepository;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.FormatUtils;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
+import io.github.demonfiddler.ee.server.util.UserCache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
@@ -59,6 +66,8 @@ abstract class DataFetchersDelegateITrackedEntityBaseImpl<T extends ITrackedEnti
     protected final SecurityUtils securityUtils;
     @PersistenceContext
     EntityManager em;
+    @Autowired
+    UserCache userCache;
 
     public DataFetchersDelegateITrackedEntityBaseImpl(CommentRepository commentRepository, LogRepository logRepository,
         EntityUtils entityUtils, FormatUtils formatUtils, SecurityUtils securityUtils) {
@@ -95,7 +104,7 @@ abstract class DataFetchersDelegateITrackedEntityBaseImpl<T extends ITrackedEnti
         // return securityUtils.hasAuthority(AuthorityKind.ADM) //
         // ? entityUtils.getValuesMap(keys, ITrackedEntity::getCreatedByUser) //
         // : Collections.emptyMap();
-        return entityUtils.getValuesMap(keys, ITrackedEntity::getCreatedByUser);
+        return getUsers(keys, ITrackedEntity::getCreatedByUser);
     }
 
     @SuppressWarnings("null")
@@ -104,51 +113,135 @@ abstract class DataFetchersDelegateITrackedEntityBaseImpl<T extends ITrackedEnti
 
         // return securityUtils.hasAuthority(AuthorityKind.ADM) //
         // ? entityUtils.getValuesMap(keys, ITrackedEntity::getUpdatedByUser) : Collections.emptyMap();
-        return entityUtils.getValuesMap(keys, ITrackedEntity::getUpdatedByUser);
+        return getUsers(keys, ITrackedEntity::getUpdatedByUser);
     }
 
-    public final LogPage log(DataFetchingEnvironment dataFetchingEnvironment, DataLoader<Long, LogPage> dataLoader,
+    /**
+     * Returns the users referenced by a batch of entities, fetching from the database in one query only those which
+     * are not already cached. The entities' user references are typically uninitialised proxies, which are not
+     * initialised individually.
+     * @param keys The entities.
+     * @param accessor Returns an entity's user reference.
+     * @return The users keyed on entity. Entities without a user reference are absent.
+     */
+    private Map<T, User> getUsers(List<T> keys, Function<T, User> accessor) {
+        Map<T, Long> userIds = HashMap.newHashMap(keys.size());
+        for (T key : keys) {
+            User user = accessor.apply(key);
+            if (user != null)
+                userIds.put(key, entityUtils.getId(user));
+        }
+        Map<Long, User> users = userCache.findAllById(new HashSet<>(userIds.values()));
+        Map<T, User> values = HashMap.newHashMap(userIds.size());
+        userIds.forEach((key, userId) -> {
+            User user = users.get(userId);
+            if (user != null)
+                values.put(key, user);
+        });
+        return values;
+    }
+
+    public final Object log(DataFetchingEnvironment dataFetchingEnvironment, DataLoader<Long, LogPage> dataLoader,
         T origin, LogQueryFilter filter, PageableInput pageSort) {
 
-        filter = fixFilter(origin, filter);
         Pageable pageable = entityUtils.toPageable(pageSort);
-        return entityUtils.toEntityPage(logRepository.findByFilter(filter, pageable), LogPage::new);
+        boolean countTotal = entityUtils.isTotalRequested(dataFetchingEnvironment);
+
+        // A cursor denotes a position within a single entity's log, so a seek request cannot be batched.
+        if (pageable instanceof SeekRequest) {
+            filter = fixFilter(origin, filter);
+            return entityUtils.toEntityPage(logRepository.findByFilter(filter, pageable, countTotal), LogPage::new);
+        }
+
+        // Otherwise defer to a DataLoader, which fetches the logs for all origins in a single pair of queries. The
+        // entity ID implies the entity kind, so the shared filter specifies neither.
+        filter = copyFilter(filter, null, null);
+        DataLoader<PageKey<LogQueryFilter>, LogPage> logLoader = dataFetchingEnvironment.getDataLoader(PageLoaders.LOG);
+        return logLoader.load(PageKey.of(origin.getId(), filter, pageable, countTotal));
     }
 
     /**
-     * Adds {@code entityKind} and {@code entityId} to a {@code filter} (creating it if necessary).
+     * Returns a copy of a {@code filter} (or a new filter) restricted to an entity.
      * @param entity The entity (must not be null).
      * @param filter The log query filter (can be null).
-     * @return A new or updated log query filter.
+     * @return A new log query filter.
      */
     protected LogQueryFilter fixFilter(ITrackedEntity entity, LogQueryFilter filter) {
-        if (filter == null)
-            filter = new LogQueryFilter();
-        EntityKind entityKind = entityUtils.getEntityKind(entity);
-        filter.setEntityId(entity.getId());
-        filter.setEntityKind(entityKind);
-        return filter;
+        return copyFilter(filter, entity.getId(), entityUtils.getEntityKind(entity));
+    }
+
+    /**
+     * Copies a log query filter, replacing its entity restriction. The caller's filter is a GraphQL argument which may
+     * be shared with other fields, and it also determines the DataLoader key, so it must not be modified.
+     * @param filter The log query filter (can be null).
+     * @param entityId The entity ID to set (can be null).
+     * @param entityKind The entity kind to set (can be null).
+     * @return A new log query filter.
+     */
+    private LogQueryFilter copyFilter(LogQueryFilter filter, Long entityId, EntityKind entityKind) {
+        LogQueryFilter.Builder builder = LogQueryFilter.builder() //
+            .withEntityId(entityId) //
+            .withEntityKind(entityKind);
+        if (filter != null) {
+            builder.withUserId(filter.getUserId()) //
+                .withTransactionKinds(filter.getTransactionKinds()) //
+                .withFrom(filter.getFrom()) //
+                .withTo(filter.getTo());
+        }
+        return builder.build();
     }
 
     public final Object comments(DataFetchingEnvironment dataFetchingEnvironment,
         DataLoader<Long, CommentPage> dataLoader, T origin, CommentQueryFilter filter, PageableInput pageSort) {
 
-        filter = fixFilter(origin, filter);
         Pageable pageable = entityUtils.toPageable(pageSort);
-        return entityUtils.toEntityPage(commentRepository.findByFilter(filter, pageable), CommentPage::new);
+        boolean countTotal = entityUtils.isTotalRequested(dataFetchingEnvironment);
+
+        // A cursor denotes a position within a single entity's comments, so a seek request cannot be batched.
+        if (pageable instanceof SeekRequest) {
+            filter = fixFilter(origin, filter);
+            return entityUtils.toEntityPage(commentRepository.findByFilter(filter, pageable, countTotal),
+                CommentPage::new);
+        }
+
+        // Otherwise defer to a DataLoader, which fetches the comments for all origins in a single pair of queries.
+        filter = copyFilter(filter, null);
+        DataLoader<PageKey<CommentQueryFilter>, CommentPage> commentsLoader =
+            dataFetchingEnvironment.getDataLoader(PageLoaders.COMMENTS);
+        return commentsLoader.load(PageKey.of(origin.getId(), filter, pageable, countTotal));
     }
 
     /**
-     * Adds {@code entityKind} and {@code entityId} to a {@code filter} (creating it if necessary).
+     * Returns a copy of a {@code filter} (or a new filter) restricted to an entity.
      * @param entity The entity (must not be null).
      * @param filter The comment query filter (can be null).
-     * @return A new or updated comment query filter.
+     * @return A new comment query filter.
      */
     protected CommentQueryFilter fixFilter(ITrackedEntity entity, CommentQueryFilter filter) {
-        if (filter == null)
-            filter = new CommentQueryFilter();
-        filter.setTargetId(entity.getId());
-        return filter;
+        return copyFilter(filter, entity.getId());
+    }
+
+    /**
+     * Copies a comment query filter, replacing its target ID. The caller's filter must not be modified, for the same
+     * reasons as a log query filter.
+     * @param filter The comment query filter (can be null).
+     * @param targetId The target ID to set (can be null).
+     * @return A new comment query filter.
+     */
+    private CommentQueryFilter copyFilter(CommentQueryFilter filter, Long targetId) {
+        CommentQueryFilter.Builder builder = CommentQueryFilter.builderForCommentQueryFilter().withTargetId(targetId);
+        if (filter != null) {
+            builder.withStatus(filter.getStatus()) //
+                .withText(filter.getText()) //
+                .withAdvancedSearch(filter.getAdvancedSearch()) //
+                .withRecordId(filter.getRecordId()) //
+                .withTargetKind(filter.getTargetKind()) //
+                .withParentId(filter.getParentId()) //
+                .withUserId(filter.getUserId()) //
+                .withFrom(filter.getFrom()) //
+                .withTo(filter.getTo());
+        }
+        return builder.build();
     }
 
 }
@@ -22,7 +22,6 @@ package io.github.demonfiddler.ee.server.datafetcher.impl;
 import static io.github.demonfiddler.ee.common.util.StringUtils.countLines;
 
 import java.time.OffsetDateTime;
-import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
@@ -41,6 +40,7 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import graphql.schema.DataFetchingEnvironment;
 import io.github.demonfiddler.ee.server.datafetcher.DataFetchersDelegateMutation;
@@ -99,8 +99,14 @@ import io.github.demonfiddler.ee.server.repository.TrackedEntityRepository;
 import io.github.demonfiddler.ee.server.repository.UserRepository;
 import io.github.demonfiddler.ee.server.security.jwt.JwtUtils;
 import io.github.demonfiddler.ee.server.util.CollectionUtils;
+import io.github.demonfiddler.ee.server.util.DataVersion;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
+import io.github.demonfiddler.ee.server.util.PersonNameIndex;
+import io.github.demonfiddler.ee.server.util.SearchIndex;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
+import io.github.demonfiddler.ee.server.util.TopicTree;
+import io.github.demonfiddler.ee.server.util.TopicTreeCache;
+import io.github.demonfiddler.ee.server.util.UserCache;
 import jakarta.persistence.EntityNotFoundException;
 
 @Component
@@ -127,6 +133,11 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
     private final GroupRepository groupRepository;
     private final EntityUtils entityUtils;
     private final SecurityUtils securityUtils;
+    private final TopicTreeCache topicTreeCache;
+    private final UserCache userCache;
+    private final DataVersion dataVersion;
+    private final SearchIndex searchIndex;
+    private final PersonNameIndex personNameIndex;
     private final JwtUtils jwtUtils;
     private final AuthenticationManager authManager;
     private final PasswordEncoder passwordEncoder;
@@ -137,8 +148,10 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         LogRepository logRepository, PersonRepository personRepository, PublicationRepository publicationRepository,
         PublisherRepository publisherRepository, QuotationRepository quotationRepository,
         TopicRepository topicRepository, TrackedEntityRepository trackedEntityRepository, UserRepository userRepository,
-        GroupRepository groupRepository, EntityUtils entityUtils, SecurityUtils securityUtils, JwtUtils jwtUtils,
-        AuthenticationManager authManager, PasswordEncoder passwordEncoder) {
+        GroupRepository groupRepository, EntityUtils entityUtils, SecurityUtils securityUtils,
+        TopicTreeCache topicTreeCache, UserCache userCache, DataVersion dataVersion, SearchIndex searchIndex,
+        PersonNameIndex personNameIndex, JwtUtils jwtUtils, AuthenticationManager authManager,
+        PasswordEncoder passwordEncoder) {
 
         this.claimRepository = claimRepository;
         this.commentRepository = commentRepository;
@@ -157,6 +170,11 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         this.groupRepository = groupRepository;
         this.entityUtils = entityUtils;
         this.securityUtils = securityUtils;
+        this.topicTreeCache = topicTreeCache;
+        this.userCache = userCache;
+        this.dataVersion = dataVersion;
+        this.searchIndex = searchIndex;
+        this.personNameIndex = personNameIndex;
         this.jwtUtils = jwtUtils;
         this.authManager = authManager;
         this.passwordEncoder = passwordEncoder;
@@ -192,6 +210,12 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         if (linkedEntity != null)
             log.setLinkedEntity((AbstractLinkableEntity)linkedEntity);
         logRepository.save(log);
+
+        // Every data change is logged, so this is where to signal that cached exports are stale and to reindex any text
+        // that may have changed. Reindexing a hard-deleted entity removes it from the full text index.
+        dataVersion.increment();
+        if (txnKind == TransactionKind.CRE || txnKind == TransactionKind.UPD || txnKind == TransactionKind.DEL)
+            searchIndex.update(entity.getEntityKind(), List.of(entity.getId()));
     }
 
     private <T extends ITrackedEntity> void logCreated(T entity) {
@@ -405,6 +429,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
     @Override
     @PreAuthorize("hasAuthority('CRE')")
+    @Transactional
     public Object createDeclaration(DataFetchingEnvironment dataFetchingEnvironment, DeclarationInput input) {
         Declaration declaration = new Declaration();
         declaration.setRating(input.getRating());
@@ -420,6 +445,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         setCreatedFields(declaration);
 
         declaration = declarationRepository.save(declaration);
+        personNameIndex.update(declaration);
 
         logCreated(declaration);
 
@@ -428,6 +454,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
     @Override
     @PreAuthorize("hasAuthority('UPD')")
+    @Transactional
     public Object updateDeclaration(DataFetchingEnvironment dataFetchingEnvironment, DeclarationInput input) {
         Declaration declaration = declarationRepository.findById(input.getId())
             .orElseThrow(() -> createEntityNotFoundException("Declaration", input.getId()));
@@ -444,6 +471,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         setUpdatedFields(declaration);
 
         declaration = declarationRepository.save(declaration);
+        personNameIndex.update(declaration);
 
         logUpdated(declaration);
 
@@ -533,22 +561,8 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 	 * @throws IllegalArgumentException if the entities are the wrong way round or cannot be linked.
 	 */
 	private void checkLinkageRules(ILinkableEntity fromEntity, ILinkableEntity toEntity) {
-		EntityKind fromEntityKind = entityUtils.getEntityKind(fromEntity);
-		EntityKind toEntityKind = entityUtils.getEntityKind(toEntity);
-
-        if (fromEntity.getId().equals(toEntity.getId())) {
-			throw new IllegalArgumentException(
-				"Cannot link an entity to itself: " + fromEntityKind.label() + '#' + fromEntity.getId());
-		}
-
-        if (fromEntityKind == toEntityKind)
-			throw new IllegalArgumentException("Cannot link two entities of the same kind: " + fromEntityKind.label());
-
-        Collection<EntityKind> toEntityKinds = entityUtils.getToEntityKinds(fromEntityKind);
-		if (!toEntityKinds.contains(toEntityKind)) {
-			throw new IllegalArgumentException(toEntityKind.label() + " must be the 'from' entity and "
-				+ fromEntityKind.label() + " must be the 'to' entity");
-		}
+		entityUtils.checkLinkageRules(entityUtils.getEntityKind(fromEntity), fromEntity.getId(),
+			entityUtils.getEntityKind(toEntity), toEntity.getId());
 	}
 
 	/**
@@ -572,13 +586,13 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
                     .build();
             List<EntityLink> entityLinks = entityLinkRepository.findByFilter(filter, Pageable.unpaged()).getContent();
             if (!entityLinks.isEmpty()) {
+                TopicTree tree = topicTreeCache.get();
                 Set<Long> topicAxis = new LinkedHashSet<>();
-                Topic parent = topic;
-                while (parent != null) {
-                    topicAxis.add(parent.getId());
-                    parent = parent.getParent();
-                }
-                addDescendantIds(topicAxis, topic.getChildren());
+                topicAxis.add(topic.getId());
+                for (long ancestorId : tree.getAncestorIds(topic.getId()))
+                    topicAxis.add(ancestorId);
+                for (long descendantId : tree.getDescendantIds(topic.getId()))
+                    topicAxis.add(descendantId);
 
                 for (EntityLink entityLink : entityLinks) {
                     // Ignore any existing entity link that we are going to update.
@@ -597,13 +611,6 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         }
     }
 
-	private void addDescendantIds(Set<Long> topicAxis, Collection<Topic> descendants) {
-		for (Topic descendant : descendants) {
-			topicAxis.add(descendant.getId());
-			addDescendantIds(topicAxis, descendant.getChildren());
-		}
-	}
-
     @Override
     @PreAuthorize("hasAuthority('LNK')")
     public Object deleteEntityLink(DataFetchingEnvironment dataFetchingEnvironment, Long entityLinkId, Boolean hard) {
@@ -685,6 +692,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
     @Override
     @PreAuthorize("hasAuthority('CRE')")
+    @Transactional
     public Object createPerson(DataFetchingEnvironment dataFetchingEnvironment, PersonInput input) {
         Person person = new Person();
         person.setRating(input.getRating());
@@ -703,6 +711,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         setCreatedFields(person);
 
         person = personRepository.save(person);
+        personNameIndex.update(person);
 
         logCreated(person);
 
@@ -711,6 +720,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
     @Override
     @PreAuthorize("hasAuthority('UPD')")
+    @Transactional
     public Object updatePerson(DataFetchingEnvironment dataFetchingEnvironment, PersonInput input) {
         Person person = personRepository.findById(input.getId())
             .orElseThrow(() -> createEntityNotFoundException("Person", input.getId()));
@@ -730,6 +740,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         setUpdatedFields(person);
 
         person = personRepository.save(person);
+        personNameIndex.update(person);
 
         logUpdated(person);
 
@@ -744,6 +755,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
     @Override
     @PreAuthorize("hasAuthority('CRE')")
+    @Transactional
     public Object createPublication(DataFetchingEnvironment dataFetchingEnvironment, PublicationInput input) {
         Journal journal = null;
         if (input.getJournalId() != null) {
@@ -790,6 +802,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         setCreatedFields(publication);
 
         publication = publicationRepository.save(publication);
+        personNameIndex.update(publication);
 
         logCreated(publication);
 
@@ -798,6 +811,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
     @Override
     @PreAuthorize("hasAuthority('UPD')")
+    @Transactional
     public Object updatePublication(DataFetchingEnvironment dataFetchingEnvironment, PublicationInput input) {
         Publication publication = publicationRepository.findById(input.getId())
             .orElseThrow(() -> createEntityNotFoundException("Publication", input.getId()));
@@ -845,6 +859,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         setUpdatedFields(publication);
 
         publication = publicationRepository.save(publication);
+        personNameIndex.update(publication);
 
         logUpdated(publication);
 
@@ -906,6 +921,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
     @Override
     @PreAuthorize("hasAuthority('CRE')")
+    @Transactional
     public Object createQuotation(DataFetchingEnvironment dataFetchingEnvironment, QuotationInput input) {
         Quotation quotation = new Quotation();
         quotation.setRating(input.getRating());
@@ -918,6 +934,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         setCreatedFields(quotation);
 
         quotation = quotationRepository.save(quotation);
+        personNameIndex.update(quotation);
 
         logCreated(quotation);
 
@@ -926,6 +943,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
     @Override
     @PreAuthorize("hasAuthority('UPD')")
+    @Transactional
     public Object updateQuotation(DataFetchingEnvironment dataFetchingEnvironment, QuotationInput input) {
         Quotation quotation = quotationRepository.findById(input.getId())
             .orElseThrow(() -> createEntityNotFoundException("Quotation", input.getId()));
@@ -939,6 +957,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         setUpdatedFields(quotation);
 
         quotation = quotationRepository.save(quotation);
+        personNameIndex.update(quotation);
 
         logUpdated(quotation);
 
@@ -953,6 +972,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
     @Override
     @PreAuthorize("hasAuthority('CRE')")
+    @Transactional
     public Object createTopic(DataFetchingEnvironment dataFetchingEnvironment, TopicInput input) {
         Topic topic = new Topic();
         topic.setRating(input.getRating());
@@ -967,6 +987,8 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         setCreatedFields(topic);
 
         topic = topicRepository.save(topic);
+        topicRepository.insertClosure(topic.getId(), parentId);
+        topicTreeCache.invalidate();
 
         logCreated(topic);
 
@@ -975,17 +997,18 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
     @Override
     @PreAuthorize("hasAuthority('UPD')")
+    @Transactional
     public Object updateTopic(DataFetchingEnvironment dataFetchingEnvironment, TopicInput input) {
         Topic topic = topicRepository.findById(input.getId())
             .orElseThrow(() -> createEntityNotFoundException("Topic", input.getId()));
 
+        Long oldParentId = topic.getParent() != null ? topic.getParent().getId() : null;
         Long parentId = input.getParentId();
         if (parentId == null) {
             topic.setParent(null);
         } else {
             // Prevent Topic cycles.
-            Set<Long> descendantIds = gatherDescendantIds(new LinkedHashSet<>(), topic.getChildren());
-            if (descendantIds.contains(parentId))
+            if (parentId.equals(topic.getId()) || topicTreeCache.get().isDescendant(parentId, topic.getId()))
                 throw new IllegalArgumentException("A Topic cannot have one of its descendants as its parent");
 
             Topic parentTopic =
@@ -998,26 +1021,26 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
         setUpdatedFields(topic);
 
         topic = topicRepository.save(topic);
+        if (!Objects.equals(parentId, oldParentId)) {
+            topicRepository.updateClosure(topic.getId(), parentId);
+            topicTreeCache.invalidate();
+        }
 
         logUpdated(topic);
 
         return topic;
     }
 
-    private Set<Long> gatherDescendantIds(Set<Long> descendantIds, Collection<Topic> descendants) {
-        for (Topic descendant : descendants) {
-            descendantIds.add(descendant.getId());
-            gatherDescendantIds(descendantIds, descendant.getChildren());
-        }
-        return descendantIds;
-    }
-
     @Override
     @PreAuthorize("hasAuthority('CHG')")
     public Object deleteTopic(DataFetchingEnvironment dataFetchingEnvironment, Long topicId) {
         // TODO: consider the fate of the descendants of a deleted Topic.
         // (They become unreachable to unauthenticated users.)
-        return delete(topicId, topicRepository);
+        // N.B. Deletion is logical, so the Topic retains its place in the topic closure table; recursive queries that
+        // filter by status exclude it and its descendants. Physically deleting a Topic cascades to its closure rows.
+        Topic topic = delete(topicId, topicRepository);
+        topicTreeCache.invalidate();
+        return topic;
     }
 
     @Override
@@ -1040,6 +1063,8 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
         logCreated(user);
 
+        userCache.invalidate();
+
         return user;
     }
 
@@ -1064,6 +1089,8 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
         logUpdated(user);
 
+        userCache.invalidate();
+
         return user;
     }
 
@@ -1086,6 +1113,8 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
         logUpdated(user);
 
+        userCache.invalidate();
+
         return user;
     }
 
@@ -1121,13 +1150,17 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
 
         logUpdated(user);
 
+        userCache.invalidate();
+
         return user;
     }
 
     @Override
     @PreAuthorize("hasAuthority('ADM')")
     public Object deleteUser(DataFetchingEnvironment dataFetchingEnvironment, Long userId) {
-        return delete(userId, userRepository);
+        User user = delete(userId, userRepository);
+        userCache.invalidate();
+        return user;
     }
 
     @Override
@@ -1140,6 +1173,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
             setUpdatedFields(user);
             user = userRepository.save(user);
             logUpdated(user);
+            userCache.invalidate();
         }
         return user;
     }
@@ -1154,6 +1188,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
             setUpdatedFields(user);
             user = userRepository.save(user);
             logUpdated(user);
+            userCache.invalidate();
         }
         return user;
     }
@@ -1240,6 +1275,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
             setUpdatedFields(group);
             group = groupRepository.save(group);
             logUpdated(group);
+            userCache.invalidate();
         }
         return group;
     }
@@ -1255,6 +1291,7 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
             setUpdatedFields(group);
             group = groupRepository.save(group);
             logUpdated(group);
+            userCache.invalidate();
         }
         return group;
     }
@@ -1264,7 +1301,12 @@ public class DataFetchersDelegateMutationImpl implements DataFetchersDelegateMut
     public Object setEntityStatus(DataFetchingEnvironment dataFetchingEnvironment, Long entityId, StatusKind status) {
         AbstractTrackedEntity entity = trackedEntityRepository.findById(entityId)
             .orElseThrow(() -> createEntityNotFoundException("ITrackedEntity", entityId));
-        return setEntityStatus(dataFetchingEnvironment, entity, status);
+        Object result = setEntityStatus(dataFetchingEnvironment, entity, status);
+        if (entityUtils.hasEntityKind(entity, EntityKind.TOP))
+            topicTreeCache.invalidate();
+        else if (entityUtils.hasEntityKind(entity, EntityKind.USR))
+            userCache.invalidate();
+        return result;
     }
 
     private Object setEntityStatus(DataFetchingEnvironment dataFetchingEnvironment, AbstractTrackedEntity entity,
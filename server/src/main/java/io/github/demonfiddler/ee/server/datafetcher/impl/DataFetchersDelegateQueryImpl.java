@@ -21,7 +21,6 @@ package io.github.demonfiddler.ee.server.datafetcher.impl;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -35,10 +34,13 @@ import io.github.demonfiddler.ee.server.model.CommentPage;
 import io.github.demonfiddler.ee.server.model.CommentQueryFilter;
 import io.github.demonfiddler.ee.server.model.Declaration;
 import io.github.demonfiddler.ee.server.model.DeclarationPage;
+import io.github.demonfiddler.ee.server.model.EntityAuditPage;
+import io.github.demonfiddler.ee.server.model.EntityKind;
 import io.github.demonfiddler.ee.server.model.EntityLinkPage;
 import io.github.demonfiddler.ee.server.model.EntityLinkQueryFilter;
 import io.github.demonfiddler.ee.server.model.EntityStatistics;
 import io.github.demonfiddler.ee.server.model.GroupPage;
+import io.github.demonfiddler.ee.server.model.IBaseEntityPage;
 import io.github.demonfiddler.ee.server.model.ITrackedEntity;
 import io.github.demonfiddler.ee.server.model.JournalPage;
 import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
@@ -54,7 +56,6 @@ import io.github.demonfiddler.ee.server.model.Quotation;
 import io.github.demonfiddler.ee.server.model.QuotationPage;
 import io.github.demonfiddler.ee.server.model.StatisticsQueryFilter;
 import io.github.demonfiddler.ee.server.model.StatusKind;
-import io.github.demonfiddler.ee.server.model.Topic;
 import io.github.demonfiddler.ee.server.model.TopicPage;
 import io.github.demonfiddler.ee.server.model.TopicQueryFilter;
 import io.github.demonfiddler.ee.server.model.TopicStatistics;
@@ -78,6 +79,8 @@ import io.github.demonfiddler.ee.server.repository.TrackedEntityRepository;
 import io.github.demonfiddler.ee.server.repository.UserRepository;
 import io.github.demonfiddler.ee.server.util.AuditUtils;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
+import io.github.demonfiddler.ee.server.util.TopicTree;
+import io.github.demonfiddler.ee.server.util.TopicTreeCache;
 import jakarta.persistence.EntityNotFoundException;
 
 @Component
@@ -100,6 +103,7 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     private final UserRepository userRepository;
     private final EntityUtils entityUtils;
     private final AuditUtils auditUtils;
+    private final TopicTreeCache topicTreeCache;
 
     public DataFetchersDelegateQueryImpl(ClaimRepository claimRepository, CommentRepository commentRepository,
         DeclarationRepository declarationRepository, EntityLinkRepository entityLinkRepository,
@@ -108,7 +112,7 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
         PublisherRepository publisherRepository, QuotationRepository quotationRepository,
         StatisticsRepository statisticsRepository, TopicRepository topicRepository,
         TrackedEntityRepository trackedEntityRepository, UserRepository userRepository, EntityUtils entityUtils,
-        AuditUtils auditUtils) {
+        AuditUtils auditUtils, TopicTreeCache topicTreeCache) {
 
         this.claimRepository = claimRepository;
         this.commentRepository = commentRepository;
@@ -127,6 +131,7 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
         this.userRepository = userRepository;
         this.entityUtils = entityUtils;
         this.auditUtils = auditUtils;
+        this.topicTreeCache = topicTreeCache;
     }
 
     @Override
@@ -138,7 +143,7 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     public Object claims(DataFetchingEnvironment dataFetchingEnvironment, LinkableEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, claimRepository, ClaimPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, claimRepository, ClaimPage::new);
     }
 
     @Override
@@ -150,7 +155,7 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     public Object comments(DataFetchingEnvironment dataFetchingEnvironment, CommentQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, commentRepository, CommentPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, commentRepository, CommentPage::new);
     }
 
     @Override
@@ -162,14 +167,16 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     public Object declarations(DataFetchingEnvironment dataFetchingEnvironment, LinkableEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, declarationRepository, DeclarationPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, declarationRepository,
+            DeclarationPage::new);
     }
 
     @Override
     public Object entityLinks(DataFetchingEnvironment dataFetchingEnvironment, EntityLinkQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, entityLinkRepository, EntityLinkPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, entityLinkRepository,
+            EntityLinkPage::new);
     }
 
     @Override
@@ -193,12 +200,12 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     public Object journals(DataFetchingEnvironment dataFetchingEnvironment, TrackedEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, journalRepository, JournalPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, journalRepository, JournalPage::new);
     }
 
     @Override
     public Object log(DataFetchingEnvironment dataFetchingEnvironment, LogQueryFilter filter, PageableInput pageSort) {
-        return entityUtils.findByFilter(filter, pageSort, logRepository, LogPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, logRepository, LogPage::new);
     }
 
     @Override
@@ -210,7 +217,7 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     public Object persons(DataFetchingEnvironment dataFetchingEnvironment, LinkableEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, personRepository, PersonPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, personRepository, PersonPage::new);
     }
 
     @Override
@@ -222,7 +229,8 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     public Object publications(DataFetchingEnvironment dataFetchingEnvironment, LinkableEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, publicationRepository, PublicationPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, publicationRepository,
+            PublicationPage::new);
     }
 
     @Override
@@ -234,7 +242,8 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     public Object publishers(DataFetchingEnvironment dataFetchingEnvironment, TrackedEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, publisherRepository, PublisherPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, publisherRepository,
+            PublisherPage::new);
     }
 
     @Override
@@ -246,7 +255,8 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     public Object quotations(DataFetchingEnvironment dataFetchingEnvironment, LinkableEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, quotationRepository, QuotationPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, quotationRepository,
+            QuotationPage::new);
     }
 
     @Override
@@ -258,14 +268,14 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     public Object topics(DataFetchingEnvironment dataFetchingEnvironment, TopicQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, topicRepository, TopicPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, topicRepository, TopicPage::new);
     }
 
     @Override
     public Object users(DataFetchingEnvironment dataFetchingEnvironment, TrackedEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, userRepository, UserPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, userRepository, UserPage::new);
     }
 
     @Override
@@ -287,7 +297,7 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
     public Object groups(DataFetchingEnvironment dataFetchingEnvironment, TrackedEntityQueryFilter filter,
         PageableInput pageSort) {
 
-        return entityUtils.findByFilter(filter, pageSort, groupRepository, GroupPage::new);
+        return entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, groupRepository, GroupPage::new);
     }
 
     @Override
@@ -305,9 +315,9 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
         return statisticsRepository.getEntityStatistics(filter);
     }
 
-    private boolean matchesFilter(Topic topic, StatisticsQueryFilter filter) {
+    private boolean matchesFilter(String status, StatisticsQueryFilter filter) {
         return filter == null || filter.getStatus() == null
-            || filter.getStatus().contains(StatusKind.fromGraphQlValue(topic.getStatus()));
+            || filter.getStatus().contains(StatusKind.fromGraphQlValue(status));
     }
 
     private EntityNotFoundException createEntityNotFoundException(String type, Long id) {
@@ -316,46 +326,47 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
 
     @Override
     public Object topicStatistics(DataFetchingEnvironment dataFetchingEnvironment, StatisticsQueryFilter filter) {
-        // First create a TopicStatistics object for every topic.
+        // First create a TopicStatistics object for every topic that matches the filter. The topic tree supplies the
+        // statuses and hierarchy, so only the matching topics themselves need to be fetched.
+        TopicTree tree = topicTreeCache.get();
+        List<Long> topicIds = new ArrayList<>();
+        for (long topicId : tree.getIds()) {
+            if (matchesFilter(tree.getStatus(topicId), filter))
+                topicIds.add(topicId);
+        }
         Map<Long, TopicStatistics> stats = new HashMap<>();
-        List<Topic> topics = topicRepository.findAll();
-        topics.forEach(topic -> {
-            // if (filter.getStatus() == null ||
-            // filter.getStatus().contains(StatusKind.fromGraphQlValue(topic.getStatus()))) {
+        topicRepository.findAllById(topicIds).forEach(topic -> {
             TopicStatistics stat = new TopicStatistics();
             stat.setTopic(topic);
             stat.setEntityStatistics(new ArrayList<>());
             stat.setChildren(new ArrayList<>());
             stats.put(topic.getId(), stat);
-            // }
         });
 
         // Then populate the TopicStatistics objects with the actual figures.
         List<TopicStatisticsDto> rawStats = statisticsRepository.getTopicStatistics(filter);
         for (TopicStatisticsDto dto : rawStats) {
             TopicStatistics stat = stats.get(dto.getTopicId());
-            stat.getEntityStatistics().add(new EntityStatistics(dto.getEntityKind(), dto.getCount()));
+            if (stat != null)
+                stat.getEntityStatistics().add(new EntityStatistics(dto.getEntityKind(), dto.getCount()));
         }
 
-        // Transform the TopicStatistics objects into a tree reflective of the topic hierarchy.
-        for (TopicStatistics stat : stats.values()) {
-            if (matchesFilter(stat.getTopic(), filter)) {
-                Topic parent = stat.getTopic().getParent();
-                if (parent != null && matchesFilter(parent, filter)) {
-                    Long parentId = parent.getId();
-                    stats.get(parentId).getChildren().add(stat);
-                }
-            }
+        // Transform the TopicStatistics objects into a tree reflective of the topic hierarchy. Sub-topics whose parent
+        // does not match the filter are omitted, as are their descendants.
+        for (Long topicId : topicIds) {
+            TopicStatistics stat = stats.get(topicId);
+            TopicStatistics parentStat = stats.get(tree.getParentId(topicId));
+            if (stat != null && parentStat != null)
+                parentStat.getChildren().add(stat);
         }
-        // Trim sub-topic stats from the top level.
-        Iterator<TopicStatistics> itr = stats.values().iterator();
-        while (itr.hasNext()) {
-            TopicStatistics stat = itr.next();
-            if (!matchesFilter(stat.getTopic(), filter) || stat.getTopic().getParent() != null)
-                itr.remove();
+        List<TopicStatistics> rootStats = new ArrayList<>();
+        for (long rootId : tree.getRootIds()) {
+            TopicStatistics stat = stats.get(rootId);
+            if (stat != null)
+                rootStats.add(stat);
         }
 
-        return stats.values();
+        return rootStats;
     }
 
     @Override
@@ -368,4 +379,50 @@ public class DataFetchersDelegateQueryImpl implements DataFetchersDelegateQuery
         return auditUtils.audit(entity);
     }
 
+    @Override
+    public Object audits(DataFetchingEnvironment dataFetchingEnvironment, EntityKind entityKind,
+        LinkableEntityQueryFilter filter, PageableInput pageSort) {
+
+        IBaseEntityPage<? extends ITrackedEntity> page = switch (entityKind) {
+            case CLA -> entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, claimRepository,
+                ClaimPage::new);
+            case DEC -> entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, declarationRepository,
+                DeclarationPage::new);
+            case JOU -> entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, journalRepository,
+                JournalPage::new);
+            case PER -> entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, personRepository,
+                PersonPage::new);
+            case PUB -> entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, publicationRepository,
+                PublicationPage::new);
+            case PBR -> entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, publisherRepository,
+                PublisherPage::new);
+            case QUO -> entityUtils.findByFilter(dataFetchingEnvironment, filter, pageSort, quotationRepository,
+                QuotationPage::new);
+            case TOP -> entityUtils.findByFilter(dataFetchingEnvironment, toTopicQueryFilter(filter), pageSort,
+                topicRepository, TopicPage::new);
+            default -> throw new IllegalArgumentException("Unsupported entityKind: " + entityKind);
+        };
+        // Audit the whole page at once, so that link counts are fetched in bulk.
+        return EntityAuditPage.of(page, auditUtils.audit(page.getContent()));
+    }
+
+    /**
+     * Converts a linkable entity query filter to the equivalent topic query filter.
+     * @param filter The linkable entity query filter, can be {@code null}.
+     * @return The equivalent topic query filter, or {@code null} if {@code filter} is {@code null}.
+     */
+    private TopicQueryFilter toTopicQueryFilter(LinkableEntityQueryFilter filter) {
+        if (filter == null)
+            return null;
+
+        return TopicQueryFilter.builderForTopicQueryFilter() //
+            .withRecordId(filter.getRecordId()) //
+            .withText(filter.getText()) //
+            .withAdvancedSearch(filter.getAdvancedSearch()) //
+            .withStatus(filter.getStatus()) //
+            .withParentId(filter.getTopicId()) //
+            .withRecursive(filter.getRecursive()) //
+            .build();
+    }
+
 }
@@ -19,8 +19,12 @@
 
 package io.github.demonfiddler.ee.server.datafetcher.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.dataloader.BatchLoaderEnvironment;
 import org.springframework.stereotype.Component;
@@ -35,19 +39,23 @@ import io.github.demonfiddler.ee.server.repository.TopicRepository;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.FormatUtils;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
+import io.github.demonfiddler.ee.server.util.TopicTree;
+import io.github.demonfiddler.ee.server.util.TopicTreeCache;
 
 @Component
 public class DataFetchersDelegateTopicImpl extends DataFetchersDelegateILinkableEntityBaseImpl<Topic>
     implements DataFetchersDelegateTopic {
 
     private final TopicRepository topicRepository;
+    private final TopicTreeCache topicTreeCache;
 
     public DataFetchersDelegateTopicImpl(CommentRepository commentRepository, LogRepository logRepository,
         EntityUtils entityUtils, FormatUtils formatUtils, SecurityUtils securityUtils,
-        EntityLinkRepository entityLinkRepository, TopicRepository topicRepository) {
+        EntityLinkRepository entityLinkRepository, TopicRepository topicRepository, TopicTreeCache topicTreeCache) {
 
         super(commentRepository, logRepository, entityUtils, formatUtils, securityUtils, entityLinkRepository);
         this.topicRepository = topicRepository;
+        this.topicTreeCache = topicTreeCache;
     }
 
     @Override
@@ -55,20 +63,81 @@ public class DataFetchersDelegateTopicImpl extends DataFetchersDelegateILinkable
         return topicRepository.findAllById(keys);
     }
 
-    @SuppressWarnings("null")
     @Override
     public Map<Topic, Topic> parent(BatchLoaderEnvironment batchLoaderEnvironment, GraphQLContext graphQLContext,
         List<Topic> keys) {
 
-        return entityUtils.getValuesMap(keys, Topic::getParent);
+        // Resolve the parent IDs from the topic tree, then fetch all the parents in a single query.
+        TopicTree tree = topicTreeCache.get();
+        Map<Topic, Long> parentIds = new HashMap<>();
+        for (Topic key : keys) {
+            long parentId = tree.contains(key.getId()) ? tree.getParentId(key.getId()) : getParentId(key);
+            if (parentId != TopicTree.NO_ID)
+                parentIds.put(key, parentId);
+        }
+        Map<Long, Topic> parents = findAllById(parentIds.values());
+
+        Map<Topic, Topic> values = new HashMap<>();
+        parentIds.forEach((key, parentId) -> {
+            Topic parent = parents.get(parentId);
+            if (parent != null)
+                values.put(key, parent);
+        });
+        return values;
     }
 
-    @SuppressWarnings("null")
     @Override
     public Map<Topic, List<Topic>> children(BatchLoaderEnvironment batchLoaderEnvironment,
         GraphQLContext graphQLContext, List<Topic> keys) {
 
-        return entityUtils.getListValuesMap(keys, Topic::getChildren);
+        // Resolve the child IDs from the topic tree, then fetch all the children in a single query.
+        TopicTree tree = topicTreeCache.get();
+        Map<Topic, long[]> childIds = new HashMap<>();
+        Set<Long> allChildIds = new LinkedHashSet<>();
+        for (Topic key : keys) {
+            long[] ids = tree.contains(key.getId()) ? tree.getChildIds(key.getId()) : getChildIds(key);
+            childIds.put(key, ids);
+            for (long id : ids)
+                allChildIds.add(id);
+        }
+        Map<Long, Topic> children = findAllById(allChildIds);
+
+        Map<Topic, List<Topic>> values = new HashMap<>(keys.size());
+        childIds.forEach((key, ids) -> {
+            List<Topic> list = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                Topic child = children.get(id);
+                if (child != null)
+                    list.add(child);
+            }
+            values.put(key, list);
+        });
+        return values;
+    }
+
+    /**
+     * Returns a topic's parent ID from the entity, for topics created since the topic tree was last refreshed.
+     * @param topic The topic.
+     * @return The parent topic ID, or {@link TopicTree#NO_ID} if {@code topic} is a root topic.
+     */
+    private long getParentId(Topic topic) {
+        return topic.getParent() != null ? topic.getParent().getId() : TopicTree.NO_ID;
+    }
+
+    /**
+     * Returns a topic's child IDs from the entity, for topics created since the topic tree was last refreshed.
+     * @param topic The topic.
+     * @return The child topic IDs.
+     */
+    private long[] getChildIds(Topic topic) {
+        return topic.getChildren().stream().mapToLong(Topic::getId).toArray();
+    }
+
+    private Map<Long, Topic> findAllById(Iterable<Long> ids) {
+        Map<Long, Topic> topics = new HashMap<>();
+        for (Topic topic : topicRepository.findAllById(ids))
+            topics.put(topic.getId(), topic);
+        return topics;
     }
 
 }
@@ -0,0 +1,259 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.datafetcher.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
+import org.springframework.stereotype.Component;
+
+import io.github.demonfiddler.ee.server.model.CommentPage;
+import io.github.demonfiddler.ee.server.model.CommentQueryFilter;
+import io.github.demonfiddler.ee.server.model.EntityLinkPage;
+import io.github.demonfiddler.ee.server.model.EntityLinkQueryFilter;
+import io.github.demonfiddler.ee.server.model.IBaseEntity;
+import io.github.demonfiddler.ee.server.model.IBaseEntityPage;
+import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
+import io.github.demonfiddler.ee.server.model.LogPage;
+import io.github.demonfiddler.ee.server.model.LogQueryFilter;
+import io.github.demonfiddler.ee.server.model.TrackedEntityQueryFilter;
+import io.github.demonfiddler.ee.server.repository.CommentRepository;
+import io.github.demonfiddler.ee.server.repository.EntityLinkRepository;
+import io.github.demonfiddler.ee.server.repository.LogRepository;
+import io.github.demonfiddler.ee.server.util.EntityUtils;
+import reactor.core.publisher.Mono;
+
+/**
+ * Registers the named DataLoaders that fetch a page of associated entities for each of several owners at once, thus
+ * avoiding a pair of queries per owner when a list of owners selects a paged association. The generated
+ * {@code DataLoader<Long, XPage>} parameters cannot serve this purpose because they are keyed on the owner ID alone,
+ * whereas the page also depends on the association and the field arguments.
+ */
+@Component
+class PageLoaders {
+
+    /** The name of the DataLoader for {@code ILinkableEntity.fromEntityLinks}. */
+    static final String FROM_ENTITY_LINKS = "ILinkableEntity.fromEntityLinks";
+    /** The name of the DataLoader for {@code ILinkableEntity.toEntityLinks}. */
+    static final String TO_ENTITY_LINKS = "ILinkableEntity.toEntityLinks";
+    /** The name of the DataLoader for {@code ITrackedEntity.log}. */
+    static final String LOG = "ITrackedEntity.log";
+    /** The name of the DataLoader for {@code ITrackedEntity.comments}. */
+    static final String COMMENTS = "ITrackedEntity.comments";
+
+    /**
+     * Identifies a page of an owner's associated entities. Keys which differ only in their owner ID are loaded
+     * together. The generated filter classes implement neither {@code equals()} nor {@code hashCode()}, so keys compare
+     * a copy of the filter's field values instead of the filter itself.
+     * @param <F> The filter type.
+     * @param ownerId The owner ID.
+     * @param filter The query filter, which must not specify the owner ID.
+     * @param filterFields The values of every field of {@code filter}.
+     * @param pageable Specifies sorting and pagination, applied to each owner's associated entities.
+     * @param countTotal Whether the page must report accurate totals.
+     */
+    record PageKey<F>(Long ownerId, F filter, List<Object> filterFields, Pageable pageable, boolean countTotal) {
+
+        /**
+         * Returns a key for a page of an owner's entity links.
+         * @param ownerId The owner ID.
+         * @param filter The entity link query filter, which must not specify the owner ID.
+         * @param pageable Specifies sorting and pagination.
+         * @param countTotal Whether the page must report accurate totals.
+         * @return A new key.
+         */
+        static PageKey<EntityLinkQueryFilter> of(Long ownerId, EntityLinkQueryFilter filter, Pageable pageable,
+            boolean countTotal) {
+
+            List<Object> fields = trackedEntityFields(filter);
+            fields.addAll(Arrays.asList(filter.getFromEntityKind(), filter.getFromEntityId(),
+                filter.getToEntityKind(), filter.getToEntityId()));
+            if (filter instanceof LinkableEntityQueryFilter lf) {
+                fields.addAll(Arrays.asList(lf.getFromEntityFuzzy(), lf.getToEntityFuzzy(), lf.getTopicId(),
+                    lf.getRecursive()));
+            }
+            return new PageKey<>(ownerId, filter, fields, pageable, countTotal);
+        }
+
+        /**
+         * Returns a key for a page of an owner's log entries.
+         * @param ownerId The owner ID.
+         * @param filter The log query filter, which must not specify the owner ID.
+         * @param pageable Specifies sorting and pagination.
+         * @param countTotal Whether the page must report accurate totals.
+         * @return A new key.
+         */
+        static PageKey<LogQueryFilter> of(Long ownerId, LogQueryFilter filter, Pageable pageable, boolean countTotal) {
+            List<Object> fields = Arrays.asList(filter.getEntityKind(), filter.getEntityId(), filter.getUserId(),
+                filter.getTransactionKinds(), filter.getFrom(), filter.getTo());
+            return new PageKey<>(ownerId, filter, fields, pageable, countTotal);
+        }
+
+        /**
+         * Returns a key for a page of an owner's comments.
+         * @param ownerId The owner ID.
+         * @param filter The comment query filter, which must not specify the owner ID.
+         * @param pageable Specifies sorting and pagination.
+         * @param countTotal Whether the page must report accurate totals.
+         * @return A new key.
+         */
+        static PageKey<CommentQueryFilter> of(Long ownerId, CommentQueryFilter filter, Pageable pageable,
+            boolean countTotal) {
+
+            List<Object> fields = trackedEntityFields(filter);
+            fields.addAll(Arrays.asList(filter.getTargetKind(), filter.getTargetId(), filter.getParentId(),
+                filter.getUserId(), filter.getFrom(), filter.getTo()));
+            return new PageKey<>(ownerId, filter, fields, pageable, countTotal);
+        }
+
+        /**
+         * Returns the values of the fields that a filter inherits from {@code TrackedEntityQueryFilter}.
+         * @param filter The filter.
+         * @return A new, modifiable list of field values.
+         */
+        private static List<Object> trackedEntityFields(TrackedEntityQueryFilter filter) {
+            return new ArrayList<>(Arrays.asList(filter.getStatus(), filter.getText(), filter.getAdvancedSearch(),
+                filter.getRecordId()));
+        }
+
+        /**
+         * Returns a key for another owner that shares this key's arguments.
+         * @param ownerId The owner ID.
+         * @return This key with the specified owner ID.
+         */
+        PageKey<F> withOwnerId(Long ownerId) {
+            return new PageKey<>(ownerId, filter, filterFields, pageable, countTotal);
+        }
+
+        /**
+         * Returns the arguments that this key shares with the other members of its batch.
+         * @return This key without its owner ID.
+         */
+        PageKey<F> withoutOwnerId() {
+            return withOwnerId(null);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof PageKey<?> other && Objects.equals(ownerId, other.ownerId)
+                && filterFields.equals(other.filterFields) && Objects.equals(pageable, other.pageable)
+                && countTotal == other.countTotal;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ownerId, filterFields, pageable, countTotal);
+        }
+
+    }
+
+    /**
+     * Fetches a page of associated entities for each of several owners.
+     * @param <F> The filter type.
+     * @param <T> The associated entity type.
+     */
+    @FunctionalInterface
+    interface PageQuery<F, T> {
+
+        /**
+         * Fetches a page of associated entities for each of several owners.
+         * @param filter The query filter.
+         * @param ownerIds The owner IDs.
+         * @param pageable Specifies sorting and pagination, applied to each owner's associated entities.
+         * @param countTotal Whether the returned pages must report accurate totals.
+         * @return The pages keyed on owner ID, with an entry for every ID in {@code ownerIds}.
+         */
+        Map<Long, Page<T>> find(F filter, Collection<Long> ownerIds, Pageable pageable, boolean countTotal);
+
+    }
+
+    private final EntityUtils entityUtils;
+
+    PageLoaders(BatchLoaderRegistry registry, EntityUtils entityUtils, EntityLinkRepository entityLinkRepository,
+        LogRepository logRepository, CommentRepository commentRepository) {
+
+        this.entityUtils = entityUtils;
+
+        register(registry, FROM_ENTITY_LINKS, EntityLinkPage::new,
+            (EntityLinkQueryFilter f, Collection<Long> ids, Pageable p, boolean c) -> entityLinkRepository
+                .findByFilterPerEntity(f, ids, true, p, c));
+        register(registry, TO_ENTITY_LINKS, EntityLinkPage::new,
+            (EntityLinkQueryFilter f, Collection<Long> ids, Pageable p, boolean c) -> entityLinkRepository
+                .findByFilterPerEntity(f, ids, false, p, c));
+        register(registry, LOG, LogPage::new,
+            (LogQueryFilter f, Collection<Long> ids, Pageable p, boolean c) -> logRepository
+                .findByFilterPerEntity(f, ids, p, c));
+        register(registry, COMMENTS, CommentPage::new,
+            (CommentQueryFilter f, Collection<Long> ids, Pageable p, boolean c) -> commentRepository
+                .findByFilterPerTarget(f, ids, p, c));
+    }
+
+    /**
+     * Registers a named DataLoader which groups its keys by shared arguments and executes one batch query per group.
+     * @param <F> The filter type.
+     * @param <T> The associated entity type.
+     * @param <P> The page type.
+     * @param registry The registry with which to register the DataLoader.
+     * @param name The DataLoader name.
+     * @param ctor The page constructor.
+     * @param query The batch query.
+     */
+    private <F, T extends IBaseEntity, P extends IBaseEntityPage<T>> void register(BatchLoaderRegistry registry,
+        String name, Supplier<P> ctor, PageQuery<F, T> query) {
+
+        registry.<PageKey<F>, P>forName(name).registerMappedBatchLoader((keys, _) -> Mono.fromCallable(() -> {
+            Map<PageKey<F>, List<Long>> batches = groupByArguments(keys);
+            Map<PageKey<F>, P> pages = HashMap.newHashMap(keys.size());
+            batches.forEach((args, ownerIds) -> {
+                Map<Long, Page<T>> results =
+                    query.find(args.filter(), ownerIds, args.pageable(), args.countTotal());
+                for (Long ownerId : ownerIds) {
+                    pages.put(args.withOwnerId(ownerId), entityUtils.toEntityPage(results.get(ownerId), ctor));
+                }
+            });
+            return pages;
+        }));
+    }
+
+    /**
+     * Groups a set of keys by their shared arguments.
+     * @param <F> The filter type.
+     * @param keys The keys to group.
+     * @return The owner IDs keyed on shared arguments.
+     */
+    private static <F> Map<PageKey<F>, List<Long>> groupByArguments(Set<PageKey<F>> keys) {
+        Map<PageKey<F>, List<Long>> batches = new LinkedHashMap<>();
+        for (PageKey<F> key : keys)
+            batches.computeIfAbsent(key.withoutOwnerId(), _ -> new ArrayList<>()).add(key.ownerId());
+        return batches;
+    }
+
+}
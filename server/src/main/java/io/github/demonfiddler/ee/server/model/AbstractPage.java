@@ -107,6 +107,13 @@ public abstract class AbstractPage<T extends IBaseEntity> implements IBaseEntity
 		listDepth = 0)
 	Boolean hasPrevious;
 
+	/**
+	 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}. Only set by
+	 * queries that support seeking.
+	 */
+	@GraphQLScalar(fieldName = "endCursor", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
+	String endCursor;
+
 	/**
 	 * Dummy ID required for @Entity classes
 	 */
@@ -275,6 +282,22 @@ public abstract class AbstractPage<T extends IBaseEntity> implements IBaseEntity
 		return this.hasPrevious;
 	}
 
+	/**
+	 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}. Only set by
+	 * queries that support seeking.
+	 */
+	public final void setEndCursor(String endCursor) {
+		this.endCursor = endCursor;
+	}
+
+	/**
+	 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}. Only set by
+	 * queries that support seeking.
+	 */
+	public final String getEndCursor() {
+		return this.endCursor;
+	}
+
 	public final String toString() {
 		return getClass().getSimpleName() + " {" //
 			+ "dummy: " + this.dummy //
@@ -302,6 +325,8 @@ public abstract class AbstractPage<T extends IBaseEntity> implements IBaseEntity
 			+ "hasNext: " + this.hasNext //
 			+ ", " //
 			+ "hasPrevious: " + this.hasPrevious //
+			+ ", " //
+			+ "endCursor: " + this.endCursor //
 			+ "}"; //
 	}
 
@@ -324,6 +349,7 @@ public abstract class AbstractPage<T extends IBaseEntity> implements IBaseEntity
 		private Boolean isLast;
 		private Boolean hasNext;
 		private Boolean hasPrevious;
+		private String endCursor;
 
 		/**
 		 * Dummy ID required for @Entity classes
@@ -429,6 +455,15 @@ public abstract class AbstractPage<T extends IBaseEntity> implements IBaseEntity
 			return (B)this;
 		}
 
+		/**
+		 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}. Only set
+		 * by queries that support seeking.
+		 */
+		public final B withEndCursor(String endCursorParam) {
+			this.endCursor = endCursorParam;
+			return (B)this;
+		}
+
 		P build(P _object) {
 			_object.setDummy(this.dummy);
 			_object.setContent(this.content);
@@ -443,6 +478,7 @@ public abstract class AbstractPage<T extends IBaseEntity> implements IBaseEntity
 			_object.setIsLast(this.isLast);
 			_object.setHasNext(this.hasNext);
 			_object.setHasPrevious(this.hasPrevious);
+			_object.setEndCursor(this.endCursor);
 			return _object;
 		}
 
@@ -0,0 +1,381 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.model;
+
+import java.util.List;
+
+import com.graphql_java_generator.annotation.GraphQLNonScalar;
+import com.graphql_java_generator.annotation.GraphQLObjectType;
+import com.graphql_java_generator.annotation.GraphQLScalar;
+
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+
+/**
+ * Returns paginated entity audit results.
+ * @author generated by graphql-java-generator
+ * @see <a href=
+ * "https://github.com/graphql-java-generator/graphql-java-generator">https://github.com/graphql-java-generator/graphql-java-generator</a>
+ */
+@GraphQLObjectType("EntityAuditPage")
+public class EntityAuditPage implements IPage {
+
+	/**
+	 * Dummy ID required for @Entity classes
+	 */
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GraphQLScalar(fieldName = "dummy", graphQLTypeSimpleName = "ID", javaClass = Long.class, listDepth = 0)
+	Long dummy;
+
+	/**
+	 * Whether the page has content.
+	 */
+	@GraphQLScalar(fieldName = "hasContent", graphQLTypeSimpleName = "Boolean", javaClass = Boolean.class,
+		listDepth = 0)
+	Boolean hasContent;
+
+	/**
+	 * Whether the page is empty (no content).
+	 */
+	@GraphQLScalar(fieldName = "isEmpty", graphQLTypeSimpleName = "Boolean", javaClass = Boolean.class, listDepth = 0)
+	Boolean isEmpty;
+
+	/**
+	 * The current page number.
+	 */
+	@GraphQLScalar(fieldName = "number", graphQLTypeSimpleName = "Int", javaClass = Integer.class, listDepth = 0)
+	Integer number;
+
+	/**
+	 * The page size.
+	 */
+	@GraphQLScalar(fieldName = "size", graphQLTypeSimpleName = "Int", javaClass = Integer.class, listDepth = 0)
+	Integer size;
+
+	/**
+	 * The number of elements on this page.
+	 */
+	@GraphQLScalar(fieldName = "numberOfElements", graphQLTypeSimpleName = "Int", javaClass = Integer.class,
+		listDepth = 0)
+	Integer numberOfElements;
+
+	/**
+	 * The total number of pages available.
+	 */
+	@GraphQLScalar(fieldName = "totalPages", graphQLTypeSimpleName = "Int", javaClass = Integer.class, listDepth = 0)
+	Integer totalPages;
+
+	/**
+	 * The total number of records.
+	 */
+	@GraphQLScalar(fieldName = "totalElements", graphQLTypeSimpleName = "Long", javaClass = Long.class, listDepth = 0)
+	Long totalElements;
+
+	/**
+	 * Whether this is the first page.
+	 */
+	@GraphQLScalar(fieldName = "isFirst", graphQLTypeSimpleName = "Boolean", javaClass = Boolean.class, listDepth = 0)
+	Boolean isFirst;
+
+	/**
+	 * Whether this is the last page.
+	 */
+	@GraphQLScalar(fieldName = "isLast", graphQLTypeSimpleName = "Boolean", javaClass = Boolean.class, listDepth = 0)
+	Boolean isLast;
+
+	/**
+	 * Whether there is next page.
+	 */
+	@GraphQLScalar(fieldName = "hasNext", graphQLTypeSimpleName = "Boolean", javaClass = Boolean.class, listDepth = 0)
+	Boolean hasNext;
+
+	/**
+	 * Whether there is previous page.
+	 */
+	@GraphQLScalar(fieldName = "hasPrevious", graphQLTypeSimpleName = "Boolean", javaClass = Boolean.class,
+		listDepth = 0)
+	Boolean hasPrevious;
+
+	/**
+	 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}.
+	 */
+	@GraphQLScalar(fieldName = "endCursor", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
+	String endCursor;
+
+	/**
+	 * The requested pageful of audit results.
+	 */
+	@GraphQLNonScalar(fieldName = "content", graphQLTypeSimpleName = "EntityAudit", javaClass = EntityAudit.class,
+		listDepth = 1)
+	List<EntityAudit> content;
+
+	/**
+	 * Dummy ID required for @Entity classes
+	 */
+	public void setDummy(Long dummy) {
+		this.dummy = dummy;
+	}
+
+	/**
+	 * Dummy ID required for @Entity classes
+	 */
+	public Long getDummy() {
+		return this.dummy;
+	}
+
+	/**
+	 * Whether the page has content.
+	 */
+	public void setHasContent(Boolean hasContent) {
+		this.hasContent = hasContent;
+	}
+
+	/**
+	 * Whether the page has content.
+	 */
+	public Boolean getHasContent() {
+		return this.hasContent;
+	}
+
+	/**
+	 * Whether the page is empty (no content).
+	 */
+	public void setIsEmpty(Boolean isEmpty) {
+		this.isEmpty = isEmpty;
+	}
+
+	/**
+	 * Whether the page is empty (no content).
+	 */
+	public Boolean getIsEmpty() {
+		return this.isEmpty;
+	}
+
+	/**
+	 * The current page number.
+	 */
+	public void setNumber(Integer number) {
+		this.number = number;
+	}
+
+	/**
+	 * The current page number.
+	 */
+	public Integer getNumber() {
+		return this.number;
+	}
+
+	/**
+	 * The page size.
+	 */
+	public void setSize(Integer size) {
+		this.size = size;
+	}
+
+	/**
+	 * The page size.
+	 */
+	public Integer getSize() {
+		return this.size;
+	}
+
+	/**
+	 * The number of elements on this page.
+	 */
+	public void setNumberOfElements(Integer numberOfElements) {
+		this.numberOfElements = numberOfElements;
+	}
+
+	/**
+	 * The number of elements on this page.
+	 */
+	public Integer getNumberOfElements() {
+		return this.numberOfElements;
+	}
+
+	/**
+	 * The total number of pages available.
+	 */
+	public void setTotalPages(Integer totalPages) {
+		this.totalPages = totalPages;
+	}
+
+	/**
+	 * The total number of pages available.
+	 */
+	public Integer getTotalPages() {
+		return this.totalPages;
+	}
+
+	/**
+	 * The total number of records.
+	 */
+	public void setTotalElements(Long totalElements) {
+		this.totalElements = totalElements;
+	}
+
+	/**
+	 * The total number of records.
+	 */
+	public Long getTotalElements() {
+		return this.totalElements;
+	}
+
+	/**
+	 * Whether this is the first page.
+	 */
+	public void setIsFirst(Boolean isFirst) {
+		this.isFirst = isFirst;
+	}
+
+	/**
+	 * Whether this is the first page.
+	 */
+	public Boolean getIsFirst() {
+		return this.isFirst;
+	}
+
+	/**
+	 * Whether this is the last page.
+	 */
+	public void setIsLast(Boolean isLast) {
+		this.isLast = isLast;
+	}
+
+	/**
+	 * Whether this is the last page.
+	 */
+	public Boolean getIsLast() {
+		return this.isLast;
+	}
+
+	/**
+	 * Whether there is next page.
+	 */
+	public void setHasNext(Boolean hasNext) {
+		this.hasNext = hasNext;
+	}
+
+	/**
+	 * Whether there is next page.
+	 */
+	public Boolean getHasNext() {
+		return this.hasNext;
+	}
+
+	/**
+	 * Whether there is previous page.
+	 */
+	public void setHasPrevious(Boolean hasPrevious) {
+		this.hasPrevious = hasPrevious;
+	}
+
+	/**
+	 * Whether there is previous page.
+	 */
+	public Boolean getHasPrevious() {
+		return this.hasPrevious;
+	}
+
+	/**
+	 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}.
+	 */
+	public void setEndCursor(String endCursor) {
+		this.endCursor = endCursor;
+	}
+
+	/**
+	 * An opaque cursor identifying the last record on this page, for use as {@code PageableInput.after}.
+	 */
+	public String getEndCursor() {
+		return this.endCursor;
+	}
+
+	/**
+	 * The requested pageful of audit results.
+	 */
+	public void setContent(List<EntityAudit> content) {
+		this.content = content;
+	}
+
+	/**
+	 * The requested pageful of audit results.
+	 */
+	public List<EntityAudit> getContent() {
+		return this.content;
+	}
+
+	public String toString() {
+		return "EntityAuditPage {" //
+			+ "dummy: " + this.dummy //
+			+ ", " //
+			+ "content: " + this.content //
+			+ ", " //
+			+ "hasContent: " + this.hasContent //
+			+ ", " //
+			+ "isEmpty: " + this.isEmpty //
+			+ ", " //
+			+ "number: " + this.number //
+			+ ", " //
+			+ "size: " + this.size //
+			+ ", " //
+			+ "numberOfElements: " + this.numberOfElements //
+			+ ", " //
+			+ "totalPages: " + this.totalPages //
+			+ ", " //
+			+ "totalElements: " + this.totalElements //
+			+ ", " //
+			+ "isFirst: " + this.isFirst //
+			+ ", " //
+			+ "isLast: " + this.isLast //
+			+ ", " //
+			+ "hasNext: " + this.hasNext //
+			+ ", " //
+			+ "hasPrevious: " + this.hasPrevious //
+			+ ", " //
+			+ "endCursor: " + this.endCursor //
+			+ "}"; //
+	}
+
+	/**
+	 * Creates an audit page having the same pagination details as another page.
+	 * @param page The page of entities that were audited.
+	 * @param content The audit results for the entities in {@code page}.
+	 * @return A new audit page.
+	 */
+	public static EntityAuditPage of(IPage page, List<EntityAudit> content) {
+		EntityAuditPage auditPage = new EntityAuditPage();
+		auditPage.setContent(content);
+		auditPage.setHasContent(page.getHasContent());
+		auditPage.setIsEmpty(page.getIsEmpty());
+		auditPage.setHasNext(page.getHasNext());
+		auditPage.setHasPrevious(page.getHasPrevious());
+		auditPage.setIsFirst(page.getIsFirst());
+		auditPage.setIsLast(page.getIsLast());
+		auditPage.setNumber(page.getNumber());
+		auditPage.setNumberOfElements(page.getNumberOfElements());
+		auditPage.setSize(page.getSize());
+		auditPage.setTotalElements(page.getTotalElements());
+		auditPage.setTotalPages(page.getTotalPages());
+		auditPage.setEndCursor(page.getEndCursor());
+		return auditPage;
+	}
+
+}
@@ -118,4 +118,10 @@ public interface IPage {
 	@GraphQLScalar(fieldName = "hasPrevious", graphQLTypeSimpleName = "Boolean", javaClass = Boolean.class, listDepth = 0)
 	Boolean getHasPrevious();
 
+	@GraphQLScalar(fieldName = "endCursor", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
+	void setEndCursor(String endCursor);
+
+	@GraphQLScalar(fieldName = "endCursor", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
+	String getEndCursor();
+
 }
@@ -32,13 +32,13 @@ import com.graphql_java_generator.annotation.GraphQLScalar;
 public class OrderInput {
 
 	/**
-	 * The field name.
+	 * The field name, or ```relevance``` to sort text-filtered linkable entities by full text match score.
 	 */
 	@GraphQLScalar(fieldName = "property", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
 	String property;
 
 	/**
-	 * The sort direction.
+	 * The sort direction. If omitted, ```relevance``` sorts ```DESC``` (best match first) and other fields ```ASC```.
 	 */
 	@GraphQLScalar(fieldName = "direction", graphQLTypeSimpleName = "DirectionKind", javaClass = DirectionKind.class,
 		listDepth = 0)
@@ -59,28 +59,28 @@ public class OrderInput {
 	NullHandlingKind nullHandling;
 
 	/**
-	 * The field name.
+	 * The field name, or ```relevance``` to sort text-filtered linkable entities by full text match score.
 	 */
 	public void setProperty(String property) {
 		this.property = property;
 	}
 
 	/**
-	 * The field name.
+	 * The field name, or ```relevance``` to sort text-filtered linkable entities by full text match score.
 	 */
 	public String getProperty() {
 		return this.property;
 	}
 
 	/**
-	 * The sort direction.
+	 * The sort direction. If omitted, ```relevance``` sorts ```DESC``` (best match first) and other fields ```ASC```.
 	 */
 	public void setDirection(DirectionKind direction) {
 		this.direction = direction;
 	}
 
 	/**
-	 * The sort direction.
+	 * The sort direction. If omitted, ```relevance``` sorts ```DESC``` (best match first) and other fields ```ASC```.
 	 */
 	public DirectionKind getDirection() {
 		return this.direction;
@@ -142,7 +142,7 @@ public class OrderInput {
 		private NullHandlingKind nullHandling;
 
 		/**
-		 * The field name.
+		 * The field name, or ```relevance``` to sort text-filtered linkable entities by full text match score.
 		 */
 		public Builder withProperty(String propertyParam) {
 			this.property = propertyParam;
@@ -150,7 +150,7 @@ public class OrderInput {
 		}
 
 		/**
-		 * The sort direction.
+		 * The sort direction. If omitted, ```relevance``` sorts ```DESC``` (best match first) and other fields ```ASC```.
 		 */
 		public Builder withDirection(DirectionKind directionParam) {
 			this.direction = directionParam;
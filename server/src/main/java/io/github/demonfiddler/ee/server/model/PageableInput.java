@@ -57,6 +57,13 @@ public class PageableInput {
 	@GraphQLScalar( fieldName = "requestCount", graphQLTypeSimpleName = "Boolean", javaClass = Boolean.class, listDepth = 0)
 	Boolean requestCount;
 
+	/**
+	 * An opaque cursor, as returned in the {@code endCursor} of the preceding page. When set, linkable entity queries
+	 * seek directly past the cursor's record instead of skipping {@code pageNumber * pageSize} records.
+	 */
+	@GraphQLScalar(fieldName = "after", graphQLTypeSimpleName = "String", javaClass = String.class, listDepth = 0)
+	String after;
+
 	/**
 	 * 0-based page number, must be >= 0. Omit or set to 0 for first page.
 	 */
@@ -113,6 +120,22 @@ public class PageableInput {
 		return this.requestCount;
 	}
 
+	/**
+	 * An opaque cursor, as returned in the {@code endCursor} of the preceding page. When set, linkable entity queries
+	 * seek directly past the cursor's record instead of skipping {@code pageNumber * pageSize} records.
+	 */
+	public void setAfter(String after) {
+		this.after = after;
+	}
+
+	/**
+	 * An opaque cursor, as returned in the {@code endCursor} of the preceding page. When set, linkable entity queries
+	 * seek directly past the cursor's record instead of skipping {@code pageNumber * pageSize} records.
+	 */
+	public String getAfter() {
+		return this.after;
+	}
+
 	public String toString() {
 		return "PageableInput {" //
 			+ "pageNumber: " + this.pageNumber //
@@ -122,6 +145,8 @@ public class PageableInput {
 			+ "sort: " + this.sort //
 			+ ", " //
 			+ "requestCount: " + this.requestCount //
+			+ ", " //
+			+ "after: " + this.after //
 			+ "}"; //
 	}
 
@@ -139,6 +164,7 @@ public class PageableInput {
 		private Integer pageSize;
 		private SortInput sort;
 		private Boolean requestCount;
+		private String after;
 
 		/**
 		 * 0-based page number, must be >= 0. Omit or set to 0 for first page.
@@ -172,12 +198,22 @@ public class PageableInput {
 			return this;
 		}
 
+		/**
+		 * An opaque cursor, as returned in the {@code endCursor} of the preceding page. When set, linkable entity queries
+		 * seek directly past the cursor's record instead of skipping {@code pageNumber * pageSize} records.
+		 */
+		public Builder withAfter(String afterParam) {
+			this.after = afterParam;
+			return this;
+		}
+
 		public PageableInput build() {
 			PageableInput _object = new PageableInput();
 			_object.setPageNumber(this.pageNumber);
 			_object.setPageSize(this.pageSize);
 			_object.setSort(this.sort);
 			_object.setRequestCount(this.requestCount);
+			_object.setAfter(this.after);
 			return _object;
 		}
 
@@ -0,0 +1,89 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.model;
+
+import java.util.Objects;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * A page request that continues from a known record (the 'seek' or 'keyset' method). Repositories that support it
+ * select the rows that sort after the anchor record instead of skipping {@code offset} rows; other repositories simply
+ * treat it as a normal {@code PageRequest}.
+ */
+public class SeekRequest extends PageRequest {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The ID of the last record on the preceding page. */
+	private final Long afterId;
+
+	/**
+	 * Creates a new seek request.
+	 * @param pageNumber Zero-based page index, must not be negative.
+	 * @param pageSize The size of the page to be returned, must be greater than 0.
+	 * @param sort Must not be {@code null}, use {@code Sort.unsorted()} instead.
+	 * @param afterId The ID of the last record on the preceding page, must not be {@code null}.
+	 * @return The new seek request.
+	 */
+	public static SeekRequest of(int pageNumber, int pageSize, Sort sort, Long afterId) {
+		return new SeekRequest(pageNumber, pageSize, sort, afterId);
+	}
+
+	protected SeekRequest(int pageNumber, int pageSize, Sort sort, Long afterId) {
+		super(pageNumber, pageSize, sort);
+		this.afterId = Objects.requireNonNull(afterId, "afterId");
+	}
+
+	/**
+	 * Returns the ID of the anchor record after which to seek.
+	 * @return The ID of the last record on the preceding page.
+	 */
+	public Long getAfterId() {
+		return afterId;
+	}
+
+	@Override
+	public SeekRequest withSort(Sort sort) {
+		return new SeekRequest(getPageNumber(), getPageSize(), sort, afterId);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof SeekRequest that))
+			return false;
+		return super.equals(that) && afterId.equals(that.afterId);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * super.hashCode() + afterId.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Seek request [number: %d, size %d, sort: %s, afterId: %d]", getPageNumber(),
+			getPageSize(), getSort(), afterId);
+	}
+
+}
@@ -21,7 +21,6 @@ package io.github.demonfiddler.ee.server.repository;
 
 import java.util.List;
 
-import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -30,27 +29,6 @@ import io.github.demonfiddler.ee.server.model.Abbreviation;
 
 public interface AbbreviationRepository extends ListCrudRepository<Abbreviation, String> {
 
-    /**
-     * Retrieves all abbreviations matching a given word. The list includes exact matches, prefix matches and suffix matches.
-     * Compare with {@code findById()}, which only returns exact matches.
-     * @param word The word whose abbreviations are required.
-     * @return The registered abbreviations if any exist, otherwise an empty list.
-     */
-    @NativeQuery("SELECT * FROM \"abbreviation\"\n" //
-        + "WHERE LOWER(\"word\") = :word\n" //
-        + "OR \"is_prefix\" AND LOWER(:word) LIKE CONCAT(LOWER(SUBSTRING(\"word\", 1, LENGTH(\"word\") - 1)), '%')\n" //
-        + "OR \"is_suffix\" AND LOWER(:word) LIKE CONCAT('%', LOWER(SUBSTRING(\"word\", 2)));")
-    List<Abbreviation> findByWord(@Param("word") String word);
-
-    // TODO: handle prefixes and suffixes
-    /**
-     * Tests whether a given string is an ISO 4 abbreviation (per ISSN LTWA).
-     * @param abbrev The abbreviation, which should include a trailing period.
-     * @return {@code true} if {@code s} is a registered abbreviation.
-     */
-    @Query("SELECT COUNT(*) <> 0 FROM Abbreviation a WHERE LOWER(a.abbreviation) = LOWER(:abbrev)")
-    boolean existsByAbbreviation(@Param("abbrev") String abbrev);
-
     // TODO: handle prefixes and suffixes
     /**
      * Returns the specified ISO 4 abbreviation (per ISSN LTWA).
@@ -19,13 +19,30 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import io.github.demonfiddler.ee.server.model.CountPageImpl;
+import io.github.demonfiddler.ee.server.model.Countable;
+import io.github.demonfiddler.ee.server.model.EntityKind;
+import io.github.demonfiddler.ee.server.model.StatusKind;
 
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.ProfileUtils;
+import io.github.demonfiddler.ee.server.util.SearchIndex;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
@@ -39,17 +56,32 @@ abstract class AbstractCustomRepositoryImpl {
 
     /** Platform-dependent line separator. */
     static final String NL = System.lineSeparator();
+    /** The name of the per-owner row number column in a windowed batch SELECT query. */
+    static final String ROW_NUM = "row_num";
+    /** The {@code status} parameter value that restricts an anonymous user's query to published records. */
+    static final List<String> PUBLISHED_STATUS = List.of(StatusKind.PUB.name());
+    /** Counts the records that can anchor a seek request, which must be of the repository's entity kind. */
+    private static final String COUNT_ANCHOR = """
+        SELECT COUNT(*)
+        FROM "entity"
+        WHERE "id" = :afterId
+            AND "dtype" = :dtype
+            AND ("status" IN (:status) OR :isPublishedOnly = FALSE)""";
 
     @PersistenceContext
     EntityManager em;
     final EntityUtils entityUtils;
     final ProfileUtils profileUtils;
     final SecurityUtils securityUtils;
-    /**
-     * Keeps track of which named queries have been registered in JPA. N.B. Requires external synchronisation: access is
-     * typically synchronized in the findByXxx() methods of subclasses.
-     */
-    final Set<String> queryNames = new HashSet<>();
+    /** Keeps track of which named queries have been registered in JPA. */
+    @Autowired
+    NamedQueryRegistry queryRegistry;
+    /** The embedded full text index, which when enabled supersedes the database's full text search. */
+    @Autowired
+    SearchIndex searchIndex;
+    /** The number of rows to fetch from the database at a time when streaming query results. */
+    @Value("${export.fetch-size:500}")
+    int fetchSize;
 
     AbstractCustomRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils, SecurityUtils securityUtils) {
         this.entityUtils = entityUtils;
@@ -59,6 +91,63 @@ abstract class AbstractCustomRepositoryImpl {
 
     abstract Logger getLogger();
 
+    /**
+     * Returns whether the current user's queries are restricted to published records, as is the case for an
+     * unauthenticated user. Such a restriction is bound as the {@code status} parameter without modifying the caller's
+     * filter. Within a GraphQL execution, this reads the access context resolved once for the whole execution.
+     * @return {@code true} if queries must return only published records.
+     */
+    final boolean isPublishedOnly() {
+        return securityUtils.getAccessContext().isAnonymous();
+    }
+
+    /**
+     * Returns the value of the {@code textHits} parameter for a text filter resolved by the full text index.
+     * @param table The table to search.
+     * @param text The filter text.
+     * @param isAdvanced Whether {@code text} uses boolean mode syntax.
+     * @return The IDs of the matching rows in descending order of relevance, as a JSON array.
+     */
+    final String findTextHits(String table, String text, Boolean isAdvanced) {
+        return SearchIndex.formatHits(searchIndex.search(table, text, Boolean.TRUE.equals(isAdvanced)));
+    }
+
+    /**
+     * Appends a join with the rows matched by the full text index, which are bound as the {@code textHits} parameter.
+     * The hits are bound as a single JSON array rather than as a list of IDs, which could otherwise run to thousands of
+     * query parameters. The joined table {@code th} has columns {@code "id"} and {@code "rank"}, the latter being the
+     * one-based position of the ID in descending order of relevance.
+     * @param buf The buffer to which to append the join.
+     * @param idColumn The qualified ID column to join on.
+     */
+    final void appendTextHitsJoin(StringBuilder buf, String idColumn) {
+        buf.append(NL).append("JOIN ");
+        if (profileUtils.isIntegrationTesting())
+            buf.append("UNNEST(TEXT_HITS(:textHits)) WITH ORDINALITY th(\"id\", \"rank\")");
+        else
+            buf.append("JSON_TABLE(:textHits, '$[*]' COLUMNS (\"rank\" FOR ORDINALITY, \"id\" BIGINT PATH '$')) th");
+        buf.append(NL).append("ON th.\"id\" = ").append(idColumn);
+    }
+
+    /**
+     * Checks that a seek request's anchor record exists, is of the specified entity kind and is visible to the current
+     * user. The seek predicate joins the anchor row, so an unknown anchor would otherwise silently yield an empty page.
+     * @param afterId The ID of the anchor record.
+     * @param entityKind The repository's entity kind.
+     * @param isPublishedOnly Whether the query is restricted to published records.
+     * @throws IllegalArgumentException if there is no such anchor record.
+     */
+    final void checkAnchor(Long afterId, EntityKind entityKind, boolean isPublishedOnly) {
+        Number count = (Number)em.createNativeQuery(COUNT_ANCHOR) //
+            .setParameter("afterId", afterId) //
+            .setParameter("dtype", entityKind.name()) //
+            .setParameter("status", PUBLISHED_STATUS) //
+            .setParameter("isPublishedOnly", isPublishedOnly) //
+            .getSingleResult();
+        if (count.longValue() == 0)
+            throw new IllegalArgumentException("Invalid cursor: no " + entityKind.label() + " with id " + afterId);
+    }
+
     /**
      * Appends a string to the specified {@code StringBuilder}s.
      * @param s The string to append.
@@ -70,16 +159,16 @@ abstract class AbstractCustomRepositoryImpl {
     }
 
     /**
-     * Defines a JPA named native query. N.B. This method requires external synchronisation.
+     * Defines a JPA named native query. N.B. This method should only be called from a {@link NamedQueryRegistry}
+     * definer, which guarantees that each query is defined exactly once.
      * @param queryName The query name.
      * @param sql The native SQL.
-     * @param resultClass The class that the query returns.
+     * @param resultClass The class that the query returns, or {@code null} if it returns {@code Object[]} rows.
      * @return The prepared query.
      */
     Query defineNamedQuery(String queryName, String sql, Class<?> resultClass) {
-        Query query = em.createNativeQuery(sql, resultClass);
+        Query query = resultClass != null ? em.createNativeQuery(sql, resultClass) : em.createNativeQuery(sql);
         em.getEntityManagerFactory().addNamedQuery(queryName, query);
-        queryNames.add(queryName);
 
         if (getLogger().isTraceEnabled())
             getLogger().trace("Defined query '{}' as:\n{}", queryName, sql);
@@ -89,6 +178,228 @@ abstract class AbstractCustomRepositoryImpl {
         return query;
     }
 
+    /**
+     * Returns the pair of named COUNT and SELECT queries described by a query plan, defining each of them first if
+     * necessary. The queries are registered separately because SELECT queries that differ only in their ORDER BY
+     * clause share the same COUNT query, which must only be defined once.
+     * @param plan The query plan.
+     * @param resultClass The class that the SELECT query returns.
+     * @return The named queries.
+     */
+    final QueryPair getNamedQueries(QueryPlan<?> plan, Class<?> resultClass) {
+        queryRegistry.define(plan.countQueryName(),
+            () -> defineNamedQuery(plan.countQueryName(), plan.countSql(), Long.class));
+        queryRegistry.define(plan.selectQueryName(),
+            () -> defineNamedQuery(plan.selectQueryName(), plan.selectSql(), resultClass));
+        Query countQuery = em.createNamedQuery(plan.countQueryName(), Long.class);
+        Query selectQuery = em.createNamedQuery(plan.selectQueryName(), resultClass);
+        return new QueryPair(countQuery, selectQuery);
+    }
+
+    /**
+     * Returns the column definition that numbers each owner's records in a windowed batch SELECT query.
+     * @param ownerColumn The qualified owner ID column.
+     * @param orderByClause The single-line ORDER BY clause that determines the numbering, possibly empty.
+     * @return The {@link #ROW_NUM} column definition.
+     */
+    static String rowNumberColumn(String ownerColumn, CharSequence orderByClause) {
+        return "ROW_NUMBER() OVER (PARTITION BY " + ownerColumn + orderByClause + ") AS \"" + ROW_NUM + '"';
+    }
+
+    /**
+     * Renders a windowed batch SELECT query, which selects each owner's page of records by row number.
+     * @param innerSql The unterminated inner SELECT query, which must include the {@link #rowNumberColumn} and must not
+     * include an ORDER BY clause.
+     * @return The SQL of the windowed query, whose row number bounds are the {@code firstRow} and {@code lastRow}
+     * parameters.
+     */
+    static String windowedSelectSql(CharSequence innerSql) {
+        return String.format("""
+            SELECT *
+            FROM (
+            %s
+            ) x
+            WHERE x."%s" BETWEEN :firstRow AND :lastRow
+            ORDER BY x."%s";""", innerSql, ROW_NUM, ROW_NUM);
+    }
+
+    /**
+     * Returns the pair of named COUNT and SELECT queries described by a batch query plan, defining each of them first
+     * if necessary. A batch query fetches records for several owners at once: its COUNT query returns an (owner ID,
+     * count) row per owner and its SELECT query, if paged, numbers each owner's records in the {@link #ROW_NUM} column.
+     * @param plan The batch query plan.
+     * @param resultClass The class that the SELECT query returns.
+     * @return The named queries.
+     */
+    final QueryPair getBatchNamedQueries(QueryPlan<?> plan, Class<?> resultClass) {
+        queryRegistry.define(plan.countQueryName(),
+            () -> defineNamedQuery(plan.countQueryName(), plan.countSql(), null));
+        queryRegistry.define(plan.selectQueryName(),
+            () -> defineNamedQuery(plan.selectQueryName(), plan.selectSql(), resultClass));
+        Query countQuery = em.createNamedQuery(plan.countQueryName());
+        Query selectQuery = em.createNamedQuery(plan.selectQueryName(), resultClass);
+        return new QueryPair(countQuery, selectQuery);
+    }
+
+    /**
+     * Executes a pair of named COUNT and SELECT queries, returning the results as a page. The COUNT query is only
+     * executed if it is needed: for a paged query whose totals are not required, the SELECT query instead fetches one
+     * record more than the page size to establish whether there is a next page. Since an unpaged SELECT returns every
+     * matching record, its total is simply the number of records returned.
+     * @param <T> The entity type.
+     * @param queries The queries to execute, with parameters and (for the SELECT query) pagination already set.
+     * @param countQueryName The COUNT query name (for logging).
+     * @param selectQueryName The SELECT query name (for logging).
+     * @param params The query parameters (for logging).
+     * @param pageable How the results are paginated.
+     * @param countTotal Whether the returned page must report accurate totals.
+     * @return The requested page.
+     */
+    @SuppressWarnings("unchecked")
+    final <T> Page<T> executeQueries(QueryPair queries, String countQueryName, String selectQueryName,
+        Map<String, Object> params, Pageable pageable, boolean countTotal) {
+
+        boolean isCountRequest = pageable instanceof Countable;
+        boolean isPaged = pageable.isPaged();
+        long total = -1;
+        if (isCountRequest || isPaged && countTotal) {
+            if (getLogger().isTraceEnabled())
+                getLogger().trace("Executing query '{}' with parameters {}", countQueryName, params);
+            else
+                getLogger().debug("Executing query '{}'", countQueryName);
+            total = (Long)queries.countQuery().getSingleResult();
+
+            if (isCountRequest)
+                return CountPageImpl.of(total);
+        } else if (isPaged) {
+            queries.selectQuery().setMaxResults(pageable.getPageSize() + 1);
+        }
+
+        if (getLogger().isTraceEnabled())
+            getLogger().trace("Executing query '{}' with parameters {}", selectQueryName, params);
+        else
+            getLogger().debug("Executing query '{}'", selectQueryName);
+        List<T> content = queries.selectQuery().getResultList();
+
+        return newPage(content, pageable, total);
+    }
+
+    /**
+     * Executes a named SELECT query, returning the results as a stream that is read from a JDBC cursor as it is
+     * consumed, rather than materialised as a list. Each entity is detached from the persistence context once the
+     * next one has been read, so the persistence context does not grow with the result set. The stream must be
+     * consumed within the transaction in which this method is called, and closed afterwards.
+     * @param <T> The entity type.
+     * @param selectQuery The query to execute, with parameters and pagination already set.
+     * @param selectQueryName The SELECT query name (for logging).
+     * @param params The query parameters (for logging).
+     * @return A stream of the matching entities.
+     */
+    @SuppressWarnings("unchecked")
+    final <T> Stream<T> executeStreamingQuery(Query selectQuery, String selectQueryName, Map<String, Object> params) {
+        if (getLogger().isTraceEnabled())
+            getLogger().trace("Streaming query '{}' with parameters {}", selectQueryName, params);
+        else
+            getLogger().debug("Streaming query '{}'", selectQueryName);
+
+        selectQuery.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        selectQuery.setHint(HibernateHints.HINT_READ_ONLY, true);
+        Object[] previous = new Object[1];
+        return ((Stream<T>)selectQuery.getResultStream()).map(entity -> {
+            // The consumer has finished with the previous entity by the time it asks for the next.
+            if (previous[0] != null)
+                em.detach(previous[0]);
+            previous[0] = entity;
+            return entity;
+        });
+    }
+
+    /**
+     * Executes a pair of named batch COUNT and SELECT queries, returning the results as a page per owner. The pagination
+     * applies to each owner's records separately and, as for {@link #executeQueries executeQueries()}, the COUNT query
+     * is only executed if it is needed.
+     * @param <T> The entity type.
+     * @param queries The queries to execute, as returned by {@link #getBatchNamedQueries getBatchNamedQueries()}, with
+     * parameters already set.
+     * @param countQueryName The COUNT query name (for logging).
+     * @param selectQueryName The SELECT query name (for logging).
+     * @param params The query parameters (for logging).
+     * @param ownerIds The IDs of the owners whose records are to be fetched.
+     * @param ownerId Extracts the owner ID from a record.
+     * @param pageable How each owner's results are paginated.
+     * @param countTotal Whether the returned pages must report accurate totals.
+     * @return The requested pages keyed on owner ID, with an entry for every ID in {@code ownerIds}.
+     */
+    @SuppressWarnings("unchecked")
+    final <T> Map<Long, Page<T>> executeBatchQueries(QueryPair queries, String countQueryName,
+        String selectQueryName, Map<String, Object> params, Collection<Long> ownerIds, Function<T, Long> ownerId,
+        Pageable pageable, boolean countTotal) {
+
+        boolean isCountRequest = pageable instanceof Countable;
+        boolean isPaged = pageable.isPaged();
+        Map<Long, Long> totals = null;
+        if (isCountRequest || isPaged && countTotal) {
+            if (getLogger().isTraceEnabled())
+                getLogger().trace("Executing query '{}' with parameters {}", countQueryName, params);
+            else
+                getLogger().debug("Executing query '{}'", countQueryName);
+            totals = HashMap.newHashMap(ownerIds.size());
+            for (Object[] row : (List<Object[]>)queries.countQuery().getResultList())
+                totals.put(((Number)row[0]).longValue(), ((Number)row[1]).longValue());
+
+            if (isCountRequest) {
+                Map<Long, Page<T>> pages = HashMap.newHashMap(ownerIds.size());
+                for (Long id : ownerIds)
+                    pages.put(id, CountPageImpl.of(totals.getOrDefault(id, 0L)));
+                return pages;
+            }
+        }
+        if (isPaged) {
+            // Select each owner's page by row number, plus its next record if the totals are not known.
+            long firstRow = pageable.getOffset() + 1;
+            long lastRow = pageable.getOffset() + pageable.getPageSize() + (totals == null ? 1 : 0);
+            queries.selectQuery().setParameter("firstRow", firstRow).setParameter("lastRow", lastRow);
+        }
+
+        if (getLogger().isTraceEnabled())
+            getLogger().trace("Executing query '{}' with parameters {}", selectQueryName, params);
+        else
+            getLogger().debug("Executing query '{}'", selectQueryName);
+        Map<Long, List<T>> contents = new HashMap<>();
+        for (T result : (List<T>)queries.selectQuery().getResultList())
+            contents.computeIfAbsent(ownerId.apply(result), _ -> new ArrayList<>()).add(result);
+
+        Map<Long, Page<T>> pages = HashMap.newHashMap(ownerIds.size());
+        for (Long id : ownerIds) {
+            long total = totals != null ? totals.getOrDefault(id, 0L) : -1;
+            pages.put(id, newPage(contents.getOrDefault(id, List.of()), pageable, total));
+        }
+        return pages;
+    }
+
+    /**
+     * Returns a page of results. If the total is not known, it is inferred from the page content, which for a paged
+     * query may include one record more than the page size to indicate that there is a next page.
+     * @param <T> The entity type.
+     * @param content The page content.
+     * @param pageable How the results are paginated.
+     * @param total The total number of matching records, or -1 if not known.
+     * @return The page.
+     */
+    private <T> Page<T> newPage(List<T> content, Pageable pageable, long total) {
+        boolean isPaged = pageable.isPaged();
+        if (total == -1) {
+            if (isPaged && content.size() > pageable.getPageSize()) {
+                // There is at least one more record, so report a total that makes the page aware of its successor.
+                content = content.subList(0, pageable.getPageSize());
+                total = pageable.getOffset() + content.size() + 1;
+            } else {
+                total = (isPaged ? pageable.getOffset() : 0) + content.size();
+            }
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
     EntityNotFoundException createEntityNotFoundException(String type, Long id) {
         return new EntityNotFoundException(type + " not found with id: " + id);
     }
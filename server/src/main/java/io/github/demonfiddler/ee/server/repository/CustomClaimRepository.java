@@ -22,5 +22,6 @@ package io.github.demonfiddler.ee.server.repository;
 import io.github.demonfiddler.ee.server.model.Claim;
 import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
 
-public interface CustomClaimRepository extends CustomRepository<Claim, LinkableEntityQueryFilter> {
+public interface CustomClaimRepository
+    extends CustomRepository<Claim, LinkableEntityQueryFilter>, SeekableRepository {
 }
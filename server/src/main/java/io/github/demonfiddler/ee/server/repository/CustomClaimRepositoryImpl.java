@@ -27,10 +27,10 @@ import io.github.demonfiddler.ee.server.util.SecurityUtils;
 public class CustomClaimRepositoryImpl extends CustomLinkableEntityRepositoryImpl<Claim>
     implements CustomClaimRepository {
 
-    protected CustomClaimRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils, SecurityUtils securityUtils,
-        LinkableEntityRepository linkableEntityRepository) {
+    protected CustomClaimRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils,
+        SecurityUtils securityUtils) {
 
-        super(entityUtils, profileUtils, securityUtils, linkableEntityRepository);
+        super(entityUtils, profileUtils, securityUtils);
     }
 
     @Override
@@ -19,6 +19,12 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
 import io.github.demonfiddler.ee.server.model.Comment;
 import io.github.demonfiddler.ee.server.model.CommentQueryFilter;
 
@@ -26,4 +32,17 @@ import io.github.demonfiddler.ee.server.model.CommentQueryFilter;
  * A custom Comment repository that supports arbitrary filtering and pagination.
  */
 public interface CustomCommentRepository extends CustomRepository<Comment, CommentQueryFilter> {
+
+    /**
+     * Returns a page of comments for each of several targets, using a single pair of queries. The filter and pagination
+     * apply to each target's comments separately.
+     * @param filter The query filter, can be {@code null}. Its {@code recordId} and {@code targetId} are ignored.
+     * @param targetIds The IDs of the entities whose comments are required.
+     * @param pageable Specifies sorting and pagination, applied to each target's comments.
+     * @param countTotal Whether the returned pages must report accurate totals.
+     * @return The pages of comments keyed on target ID, with an entry for every ID in {@code targetIds}.
+     */
+    Map<Long, Page<Comment>> findByFilterPerTarget(CommentQueryFilter filter, Collection<Long> targetIds,
+        Pageable pageable, boolean countTotal);
+
 }
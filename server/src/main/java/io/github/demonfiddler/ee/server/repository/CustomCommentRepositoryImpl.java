@@ -19,30 +19,26 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
-import java.util.HashMap;
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
 import io.github.demonfiddler.ee.server.model.Comment;
 import io.github.demonfiddler.ee.server.model.CommentQueryFilter;
-import io.github.demonfiddler.ee.server.model.CountPageImpl;
-import io.github.demonfiddler.ee.server.model.Countable;
 import io.github.demonfiddler.ee.server.model.IBaseEntity;
-import io.github.demonfiddler.ee.server.model.StatusKind;
+import io.github.demonfiddler.ee.server.repository.QueryPlan.Binders;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.ProfileUtils;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
-import jakarta.persistence.Query;
 
 /**
  * An implementation of the {@code CustomCommentRepository} interface.
@@ -50,16 +46,22 @@ import jakarta.persistence.Query;
  */
 public class CustomCommentRepositoryImpl extends AbstractCustomRepositoryImpl implements CustomCommentRepository {
 
-    /** Describes the elements of a query. */
-    private static record QueryMetaData(@Nullable CommentQueryFilter filter, @NonNull Pageable pageable,
-        String countQueryName, String selectQueryName, boolean hasStatus, boolean hasText, boolean hasTextH2,
-        boolean hasTextMariaDB, boolean isAdvanced, boolean hasRecordId, boolean hasTargetKind, boolean hasTargetId,
-        boolean hasParentId, boolean hasUserId, boolean hasFrom, boolean hasTo, boolean isPaged, boolean isSorted,
+    /**
+     * Describes the shape of a query; also serves as the query plan cache key. If {@code hasTargetIds} is set, the
+     * query is a batch query for the comments on several targets.
+     */
+    private static record QueryMetaData(boolean hasStatus, boolean isPublishedOnly, boolean hasText,
+        boolean hasTextIndex, boolean hasTextH2, boolean hasTextMariaDB, boolean isAdvanced, boolean hasRecordId,
+        boolean hasTargetKind, boolean hasTargetId, boolean hasTargetIds, boolean hasParentId, boolean hasUserId,
+        boolean hasFrom, boolean hasTo, boolean isPaged, boolean isSorted, Sort sort,
         boolean isSortedOnCreatedByUsername, boolean isSortedOnUpdatedByUsername) {
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomCommentRepositoryImpl.class);
 
+    /** Query plans keyed on query shape. */
+    private final Map<QueryMetaData, QueryPlan<CommentQueryFilter>> queryPlans = new ConcurrentHashMap<>();
+
     CustomCommentRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils, SecurityUtils securityUtils) {
         super(entityUtils, profileUtils, securityUtils);
     }
@@ -70,98 +72,105 @@ public class CustomCommentRepositoryImpl extends AbstractCustomRepositoryImpl im
     }
 
     /**
-     * Returns metadata about a query and paging/sorting specification.
-     * @param filter The query filter.
+     * Returns metadata about a query and paging/sorting specification. N.B. an anonymous user's query is restricted to
+     * published records without modifying the filter.
+     * @param filter The query filter, must not be {@code null}.
      * @param pageable Specifies sorting and pagination, must not be {@code null}.
+     * @param batch Whether this is a batch query, for the comments on several targets at once.
      * @return Query metadata.
      */
-    @SuppressWarnings("null")
-    private QueryMetaData getQueryMetaData(@Nullable CommentQueryFilter filter, @NonNull Pageable pageable) {
-        boolean hasFilter = filter != null;
-        boolean hasRecordId = hasFilter && filter.getRecordId() != null;
-        boolean hasText = !hasRecordId && hasFilter && filter.getText() != null && !filter.getText().isEmpty();
-        boolean hasTextH2 = hasText && profileUtils.isIntegrationTesting();
-        boolean hasTextMariaDB = hasText && !profileUtils.isIntegrationTesting();
+    private QueryMetaData getQueryMetaData(@NonNull CommentQueryFilter filter, @NonNull Pageable pageable,
+        boolean batch) {
+
+        boolean hasRecordId = !batch && filter.getRecordId() != null;
+        boolean hasText = !hasRecordId && filter.getText() != null && !filter.getText().isEmpty();
+        boolean hasTextIndex = hasText && searchIndex.isIndexed("comment");
+        boolean hasTextH2 = hasText && !hasTextIndex && profileUtils.isIntegrationTesting();
+        boolean hasTextMariaDB = hasText && !hasTextIndex && !profileUtils.isIntegrationTesting();
         boolean isAdvanced = hasText && filter.getAdvancedSearch() != null && filter.getAdvancedSearch();
-        boolean hasStatus = !hasRecordId && hasFilter && filter.getStatus() != null && !filter.getStatus().isEmpty();
-        boolean hasTargetKind = !hasRecordId && hasFilter && filter.getTargetKind() != null;
-        boolean hasTargetId = !hasRecordId && hasFilter && filter.getTargetId() != null;
-        boolean hasParentId = !hasRecordId && hasFilter && filter.getParentId() != null;
-        boolean hasUserId = !hasRecordId && hasFilter && filter.getUserId() != null;
-        boolean hasFrom = !hasRecordId && hasFilter && filter.getFrom() != null;
-        boolean hasTo = !hasRecordId && hasFilter && filter.getTo() != null;
+        boolean hasStatus = !hasRecordId && filter.getStatus() != null && !filter.getStatus().isEmpty();
+        boolean hasTargetKind = !hasRecordId && filter.getTargetKind() != null;
+        boolean hasTargetId = !hasRecordId && !batch && filter.getTargetId() != null;
+        boolean hasParentId = !hasRecordId && filter.getParentId() != null;
+        boolean hasUserId = !hasRecordId && filter.getUserId() != null;
+        boolean hasFrom = !hasRecordId && filter.getFrom() != null;
+        boolean hasTo = !hasRecordId && filter.getTo() != null;
         boolean isPaged = !hasRecordId && pageable.isPaged();
-        boolean isSorted = !hasRecordId && pageable.getSort().isSorted();
+        Sort sort = hasRecordId ? Sort.unsorted() : pageable.getSort();
+        boolean isSorted = sort.isSorted();
         boolean isSortedOnCreatedByUsername = false;
         boolean isSortedOnUpdatedByUsername = false;
 
         // Unauthenticated queries should only return published results.
         // Consider whether this is the best place to enforce the 'anonymous = Published only' policy.
-        if (securityUtils.getCurrentUsername().equals("anonymousUser")) {
-            if (filter == null)
-                filter = new CommentQueryFilter();
-            filter.setStatus(List.of(StatusKind.PUB));
-            hasFilter = hasStatus = true;
-        }
+        boolean isPublishedOnly = isPublishedOnly();
+        if (isPublishedOnly)
+            hasStatus = true;
 
         // For paged queries involving an H2 full text filter, we need to ensure that the sort order includes "id"
         // because otherwise the join with FT_SEARCH_DATA can result in records duplicated across successive pages.
-        if (hasTextH2 && isPaged && pageable.getSort().filter(o -> o.getProperty().equals("id")).isEmpty()) {
-            Sort sort = pageable.getSort().and(Sort.by(IBaseEntity::getId));
-            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        // The same goes for windowed batch queries, which select each target's page by row number.
+        if ((hasTextH2 || batch) && isPaged && sort.filter(o -> o.getProperty().equals("id")).isEmpty()) {
+            sort = sort.and(Sort.by(IBaseEntity::getId));
             isSorted = true;
         }
         if (isSorted) {
-            isSortedOnCreatedByUsername =
-                !pageable.getSort().filter(o -> o.getProperty().equals("createdByUsername")).isEmpty();
-            isSortedOnUpdatedByUsername =
-                !pageable.getSort().filter(o -> o.getProperty().equals("updatedByUsername")).isEmpty();
+            isSortedOnCreatedByUsername = !sort.filter(o -> o.getProperty().equals("createdByUsername")).isEmpty();
+            isSortedOnUpdatedByUsername = !sort.filter(o -> o.getProperty().equals("updatedByUsername")).isEmpty();
         }
 
+        return new QueryMetaData(hasStatus, isPublishedOnly, hasText, hasTextIndex, hasTextH2, hasTextMariaDB,
+            isAdvanced, hasRecordId, hasTargetKind, hasTargetId, batch, hasParentId, hasUserId, hasFrom, hasTo, isPaged,
+            isSorted, sort, isSortedOnCreatedByUsername, isSortedOnUpdatedByUsername);
+    }
+
+    /**
+     * Creates a query plan: the query names, the rendered SQL of the pair of COUNT and SELECT queries and the query
+     * parameter binders.
+     * @param m Query metadata.
+     * @return The query plan.
+     */
+    private QueryPlan<CommentQueryFilter> createQueryPlan(QueryMetaData m) {
         StringBuilder countQueryName = new StringBuilder();
         StringBuilder selectQueryName = new StringBuilder();
         StringBuilder[] queryNames = { countQueryName, selectQueryName };
         append("comment", queryNames);
         countQueryName.append(".countBy");
         selectQueryName.append(".findBy");
-        if (hasRecordId)
+        if (m.hasRecordId)
             append("Id", queryNames);
-        if (hasStatus)
+        if (m.hasStatus)
             append("Status", queryNames);
-        if (hasText) {
+        if (m.hasText) {
             append("Text", queryNames);
-            if (isAdvanced)
+            if (m.hasTextIndex)
+                append("Indexed", queryNames);
+            else if (m.isAdvanced)
                 append("Advanced", queryNames);
         }
-        if (hasTargetKind || hasTargetId) {
+        if (m.hasTargetKind || m.hasTargetId || m.hasTargetIds) {
             append("Target", queryNames);
-            if (hasTargetKind)
+            if (m.hasTargetKind)
                 append("Kind", queryNames);
-            if (hasTargetId)
+            if (m.hasTargetId)
                 append("Id", queryNames);
+            if (m.hasTargetIds)
+                append("Ids", queryNames);
         }
-        if (hasParentId)
+        if (m.hasParentId)
             append("Parent", queryNames);
-        if (hasUserId)
+        if (m.hasUserId)
             append("User", queryNames);
-        if (hasFrom)
+        if (m.hasFrom)
             append("From", queryNames);
-        if (hasTo)
+        if (m.hasTo)
             append("To", queryNames);
-        if (isSorted)
-            entityUtils.appendOrderByToQueryName(selectQueryName, pageable);
-
-        return new QueryMetaData(filter, pageable, countQueryName.toString(), selectQueryName.toString(), hasStatus,
-            hasText, hasTextH2, hasTextMariaDB, isAdvanced, hasRecordId, hasTargetKind, hasTargetId, hasParentId,
-            hasUserId, hasFrom, hasTo, isPaged, isSorted, isSortedOnCreatedByUsername, isSortedOnUpdatedByUsername);
-    }
+        boolean isWindowed = m.hasTargetIds && m.isPaged;
+        if (isWindowed)
+            selectQueryName.append("Windowed");
+        if (m.isSorted)
+            entityUtils.appendOrderByToQueryName(selectQueryName, m.sort);
 
-    /**
-     * Defines and registers a pair of COUNT and SELECT named queries with the {@code EntityManagerFactory}.
-     * @param m Query metadata.
-     * @return An executable query pair.
-     */
-    private QueryPair defineNamedQueries(QueryMetaData m) {
         /*
         SELECT COUNT(*) | e."dtype", e."status", e."rating", e."created", e."created_by_user_id", e."updated", e."updated_by_user_id", ee.*
         FROM "entity" e
@@ -180,12 +189,16 @@ public class CustomCommentRepositoryImpl extends AbstractCustomRepositoryImpl im
         ON ft.\"TABLE\" = 'comment'
             AND ft.\"KEYS\"[1] = e.\"id\"
         -- }
+        -- if (m.hasTextIndex) { -- H2 unnests TEXT_HITS(:textHits) WITH ORDINALITY instead
+        JOIN JSON_TABLE(:textHits, '$[*]' COLUMNS ("rank" FOR ORDINALITY, "id" BIGINT PATH '$')) th
+        ON th."id" = e."id"
+        -- }
         -- if (m.hasTargetKind) {
         JOIN "entity" te
         ON te."id" = ee."target_id"
         -- }
-        -- if (m.hasStatus || m.hasTextMariaDB || m.hasRecordId || m.hasTargetKind || m.hasTargetId || m.hasParentId ||
-            m.hasUserId || m.hasFrom || m.hasTo) {
+        -- if (m.hasStatus || m.hasTextMariaDB || m.hasRecordId || m.hasTargetKind || m.hasTargetId ||
+            m.hasParentId || m.hasUserId || m.hasFrom || m.hasTo) {
         WHERE
         -- if (m.hasRecordId) {
             e."id" = :recordId
@@ -202,6 +215,9 @@ public class CustomCommentRepositoryImpl extends AbstractCustomRepositoryImpl im
         -- if (m.hasTargetId) {
             AND ee."target_id" = :targetId
         -- }
+        -- if (m.hasTargetIds) {
+            AND ee."target_id" IN (:targetIds)
+        -- }
         -- if (m.hasParentId) {
             AND ee."parent_id" = :parentId
         -- }
@@ -215,9 +231,13 @@ public class CustomCommentRepositoryImpl extends AbstractCustomRepositoryImpl im
             AND (e."created" <= :to OR e."updated" IS NOT NULL AND e."updated" <= :to)
         -- }
         -- if (m.isSorted) {
-        ORDER BY ${m.pageable.getSort()}
+        ORDER BY ${m.sort}
         -- }
         -- }
+
+        A batch COUNT query selects ee."target_id", COUNT(*) ... GROUP BY ee."target_id". A paged batch SELECT query
+        numbers each target's comments with ROW_NUMBER() OVER (PARTITION BY ee."target_id" ORDER BY ${m.sort}) and
+        selects the requested window of row numbers from each.
         */
         StringBuilder selectBuf = new StringBuilder();
         selectBuf.append(NL) //
@@ -240,13 +260,15 @@ public class CustomCommentRepositoryImpl extends AbstractCustomRepositoryImpl im
                 .append("ON ft.\"TABLE\" = 'comment'").append(NL) //
                 .append("    AND ft.\"KEYS\"[1] = e.\"id\"");
         }
+        if (m.hasTextIndex)
+            appendTextHitsJoin(selectBuf, "e.\"id\"");
         if (m.hasTargetKind) {
             selectBuf.append(NL) //
                 .append("JOIN \"entity\" te").append(NL) //
                 .append("ON te.\"id\" = e.\"id\"");
         }
-        if (m.hasStatus || m.hasTextMariaDB || m.hasRecordId || m.hasTargetKind || m.hasTargetId || m.hasParentId
-            || m.hasUserId || m.hasFrom || m.hasTo) {
+        if (m.hasStatus || m.hasTextMariaDB || m.hasRecordId || m.hasTargetKind || m.hasTargetId
+            || m.hasTargetIds || m.hasParentId || m.hasUserId || m.hasFrom || m.hasTo) {
 
             selectBuf.append(NL) //
                 .append("WHERE");
@@ -287,6 +309,14 @@ public class CustomCommentRepositoryImpl extends AbstractCustomRepositoryImpl im
                 selectBuf.append("ee.\"target_id\" = :targetId");
                 needsAnd = true;
             }
+            if (m.hasTargetIds) {
+                selectBuf.append(NL) //
+                    .append("    ");
+                if (needsAnd)
+                    selectBuf.append("AND ");
+                selectBuf.append("ee.\"target_id\" IN (:targetIds)");
+                needsAnd = true;
+            }
             if (m.hasParentId) {
                 selectBuf.append(NL) //
                     .append("    ");
@@ -321,81 +351,112 @@ public class CustomCommentRepositoryImpl extends AbstractCustomRepositoryImpl im
             }
         }
         StringBuffer countBuf = new StringBuffer(selectBuf);
-        countBuf.insert(0, "SELECT COUNT(*)");
+        if (m.hasTargetIds) {
+            countBuf.insert(0, "SELECT ee.\"target_id\", COUNT(*)");
+            countBuf.append(NL) //
+                .append("GROUP BY ee.\"target_id\"");
+        } else {
+            countBuf.insert(0, "SELECT COUNT(*)");
+        }
         countBuf.append(';');
-        selectBuf.insert(0,
-            "SELECT e.\"dtype\", e.\"status\", e.\"rating\", e.\"created\", e.\"created_by_user_id\", e.\"updated\", e.\"updated_by_user_id\", ee.*");
-        if (m.isSorted)
-            entityUtils.appendOrderByClause(selectBuf, m.pageable, "e.", "ee.", "cbu.", "ubu.", true);
-        selectBuf.append(';');
+        String selectFields =
+            "e.\"dtype\", e.\"status\", e.\"rating\", e.\"created\", e.\"created_by_user_id\", e.\"updated\", e.\"updated_by_user_id\", ee.*";
+        if (isWindowed) {
+            StringBuilder orderByClause = new StringBuilder();
+            entityUtils.appendOrderByClause(orderByClause, m.sort, "e.", "ee.", "cbu.", "ubu.", false);
+            selectBuf.insert(0, "SELECT " + selectFields + ", " + rowNumberColumn("ee.\"target_id\"", orderByClause));
+            selectBuf.replace(0, selectBuf.length(), windowedSelectSql(selectBuf));
+        } else {
+            selectBuf.insert(0, "SELECT " + selectFields);
+            if (m.isSorted)
+                entityUtils.appendOrderByClause(selectBuf, m.sort, "e.", "ee.", "cbu.", "ubu.", true);
+            selectBuf.append(';');
+        }
 
-        // NOTE: since the COUNT query does not include an ORDER BY clause, multiple executions of the same SELECT query
-        // with different ORDER BY clauses will result in the registration of multiple identical COUNT queries, each of
-        // which will simply overwrite the previous definition. This is not a problem, but it is somewhat inefficient.
+        // NOTE: since the COUNT query does not include an ORDER BY clause, SELECT queries that differ only in their
+        // ORDER BY clause share the same COUNT query, which getNamedQueries() defines only once.
         String countSql = countBuf.toString();
-        Query countQuery = defineNamedQuery(m.countQueryName, countSql, Long.class);
-
         String selectSql = selectBuf.toString();
-        Query selectQuery = defineNamedQuery(m.selectQueryName, selectSql, Comment.class);
-
-        return new QueryPair(countQuery, selectQuery);
-    }
 
-    @Override
-    @SuppressWarnings("unchecked")
-    public Page<Comment> findByFilter(@Nullable CommentQueryFilter filter, Pageable pageable) {
-        QueryMetaData m = getQueryMetaData(filter, pageable);
-
-        QueryPair queries = null;
-        synchronized (queryNames) {
-            if (!queryNames.contains(m.countQueryName) || !queryNames.contains(m.selectQueryName))
-                queries = defineNamedQueries(m);
-        }
-        if (queries == null) {
-            Query countQuery = em.createNamedQuery(m.countQueryName, Long.class);
-            Query selectQuery = em.createNamedQuery(m.selectQueryName, Comment.class);
-            queries = new QueryPair(countQuery, selectQuery);
-        }
-
-        Map<String, Object> params = new HashMap<>();
-        if (m.hasStatus)
-            params.put("status", m.filter.getStatus().stream().map(s -> s.name()).toList());
-        if (m.hasText)
-            params.put("text", m.filter.getText());
+        Binders<CommentQueryFilter> binders = new Binders<>();
+        if (m.isPublishedOnly)
+            binders.bind("status", _ -> PUBLISHED_STATUS);
+        else if (m.hasStatus)
+            binders.bind("status", f -> f.getStatus().stream().map(s -> s.name()).toList());
+        if (m.hasTextIndex)
+            binders.bind("textHits", f -> findTextHits("comment", f.getText(), f.getAdvancedSearch()));
+        else if (m.hasText)
+            binders.bind("text", f -> f.getText());
         if (m.hasRecordId)
-            params.put("recordId", m.filter.getRecordId());
+            binders.bind("recordId", f -> f.getRecordId());
         if (m.hasTargetKind)
-            params.put("targetKind", m.filter.getTargetKind());
+            binders.bind("targetKind", f -> f.getTargetKind());
         if (m.hasTargetId)
-            params.put("targetId", m.filter.getTargetId());
+            binders.bind("targetId", f -> f.getTargetId());
         if (m.hasParentId)
-            params.put("parentId", m.filter.getParentId());
+            binders.bind("parentId", f -> f.getParentId());
         if (m.hasUserId)
-            params.put("userId", m.filter.getUserId());
+            binders.bind("userId", f -> f.getUserId());
         if (m.hasFrom)
-            params.put("from", m.filter.getFrom());
+            binders.bind("from", f -> f.getFrom());
         if (m.hasTo)
-            params.put("to", m.filter.getTo());
+            binders.bind("to", f -> f.getTo());
+
+        return new QueryPlan<>(countQueryName.toString(), countSql, selectQueryName.toString(), selectSql,
+            binders.toList());
+    }
+
+    @Override
+    public Page<Comment> findByFilter(@Nullable CommentQueryFilter filter, Pageable pageable, boolean countTotal) {
+        // The query metadata and parameter binders require a filter.
+        if (filter == null)
+            filter = new CommentQueryFilter();
+        QueryMetaData m = getQueryMetaData(filter, pageable, false);
+        QueryPlan<CommentQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, Comment.class);
+
+        Map<String, Object> params = plan.bind(filter);
+        entityUtils.setQueryParameters(queries, params);
+        if (m.isPaged)
+            entityUtils.setQueryPagination(queries.selectQuery(), pageable);
+
+        return executeQueries(queries, plan.countQueryName(), plan.selectQueryName(), params, pageable, countTotal);
+    }
+
+    @Override
+    public Stream<Comment> streamByFilter(@Nullable CommentQueryFilter filter, @NonNull Pageable pageable) {
+        // The query metadata and parameter binders require a filter.
+        if (filter == null)
+            filter = new CommentQueryFilter();
+        QueryMetaData m = getQueryMetaData(filter, pageable, false);
+        QueryPlan<CommentQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, Comment.class);
+
+        Map<String, Object> params = plan.bind(filter);
         entityUtils.setQueryParameters(queries, params);
         if (m.isPaged)
-            entityUtils.setQueryPagination(queries.selectQuery(), m.pageable);
+            entityUtils.setQueryPagination(queries.selectQuery(), pageable);
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.countQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.countQueryName);
-        long total = (Long)queries.countQuery().getSingleResult();
+        return executeStreamingQuery(queries.selectQuery(), plan.selectQueryName(), params);
+    }
 
-        if (pageable instanceof Countable)
-            return CountPageImpl.of(total);
+    @Override
+    public Map<Long, Page<Comment>> findByFilterPerTarget(@Nullable CommentQueryFilter filter,
+        Collection<Long> targetIds, Pageable pageable, boolean countTotal) {
+
+        // The query metadata and parameter binders require a filter.
+        if (filter == null)
+            filter = new CommentQueryFilter();
+        QueryMetaData m = getQueryMetaData(filter, pageable, true);
+        QueryPlan<CommentQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getBatchNamedQueries(plan, Comment.class);
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.selectQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.selectQueryName);
-        List<Comment> content = queries.selectQuery().getResultList();
+        Map<String, Object> params = plan.bind(filter);
+        params.put("targetIds", targetIds);
+        entityUtils.setQueryParameters(queries, params);
 
-        return new PageImpl<>(content, m.pageable, total);
+        return executeBatchQueries(queries, plan.countQueryName(), plan.selectQueryName(), params, targetIds,
+            c -> c.getTarget().getId(), pageable, countTotal);
     }
 
 }
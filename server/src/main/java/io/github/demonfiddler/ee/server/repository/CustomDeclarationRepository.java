@@ -22,5 +22,6 @@ package io.github.demonfiddler.ee.server.repository;
 import io.github.demonfiddler.ee.server.model.Declaration;
 import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
 
-public interface CustomDeclarationRepository extends CustomRepository<Declaration, LinkableEntityQueryFilter> {
+public interface CustomDeclarationRepository
+    extends CustomRepository<Declaration, LinkableEntityQueryFilter>, SeekableRepository {
 }
@@ -28,9 +28,9 @@ public class CustomDeclarationRepositoryImpl extends CustomLinkableEntityReposit
     implements CustomDeclarationRepository {
 
     protected CustomDeclarationRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils,
-        SecurityUtils securityUtils, LinkableEntityRepository linkableEntityRepository) {
+        SecurityUtils securityUtils) {
 
-        super(entityUtils, profileUtils, securityUtils, linkableEntityRepository);
+        super(entityUtils, profileUtils, securityUtils);
     }
 
     @Override
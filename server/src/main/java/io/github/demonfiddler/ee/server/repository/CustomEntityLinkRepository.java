@@ -19,8 +19,13 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
 import io.github.demonfiddler.ee.server.model.EntityLink;
 import io.github.demonfiddler.ee.server.model.EntityLinkQueryFilter;
 
@@ -28,4 +33,26 @@ public interface CustomEntityLinkRepository extends CustomRepository<EntityLink,
 
     Optional<EntityLink> findByEntityIds(Long fromEntityId, Long toEntityId);
 
+    /**
+     * Returns a page of entity links for each of several from- or to-entities, using a single pair of queries. The
+     * filter and pagination apply to each entity's links separately.
+     * @param filter The query filter. Its {@code fromEntityId} (if {@code fromEntity}) or {@code toEntityId} (otherwise)
+     * is ignored.
+     * @param entityIds The IDs of the entities whose links are required.
+     * @param fromEntity {@code true} to fetch the links from the entities, {@code false} for the links to them.
+     * @param pageable Specifies sorting and pagination, applied to each entity's links.
+     * @param countTotal Whether the returned pages must report accurate totals.
+     * @return The pages of entity links keyed on entity ID, with an entry for every ID in {@code entityIds}.
+     */
+    Map<Long, Page<EntityLink>> findByFilterPerEntity(EntityLinkQueryFilter filter, Collection<Long> entityIds,
+        boolean fromEntity, Pageable pageable, boolean countTotal);
+
+    /**
+     * Counts the links from and to each of several entities, grouped by the kind of the entity at the other end of the
+     * link, using a single query.
+     * @param entityIds The IDs of the entities whose links are to be counted.
+     * @return The link counts keyed on entity ID then on other entity kind. Entities without links are absent.
+     */
+    Map<Long, Map<String, Integer>> countLinksByEntityKind(Collection<Long> entityIds);
+
 }
@@ -19,27 +19,26 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.jspecify.annotations.NonNull;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import io.github.demonfiddler.ee.server.model.CountPageImpl;
-import io.github.demonfiddler.ee.server.model.Countable;
 import io.github.demonfiddler.ee.server.model.EntityLink;
 import io.github.demonfiddler.ee.server.model.EntityLinkQueryFilter;
 import io.github.demonfiddler.ee.server.model.IBaseEntity;
+import io.github.demonfiddler.ee.server.repository.QueryPlan.Binders;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.ProfileUtils;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
@@ -54,15 +53,27 @@ import jakarta.persistence.Query;
 @Transactional
 public class CustomEntityLinkRepositoryImpl extends AbstractCustomRepositoryImpl implements CustomEntityLinkRepository {
 
-    /** Describes the elements of a findByFilter() query. */
-    private static record QueryMetaData(EntityLinkQueryFilter filter, Pageable pageable, String countQueryName,
-        String selectQueryName, boolean hasFromEntityKind, boolean hasFromEntityId, boolean hasToEntityKind,
-        boolean hasToEntityId, boolean hasStatus, boolean hasText, boolean hasTextH2, boolean hasTextMariaDB,
-        boolean isAdvanced, boolean isPaged, boolean isSorted) {
+    /**
+     * Describes the shape of a findByFilter() or findByFilterPerEntity() query; also serves as the query plan cache
+     * key. At most one of {@code hasFromEntityIds} and {@code hasToEntityIds} is set, in which case the query is a batch
+     * query for several from- or to-entities respectively.
+     */
+    private static record QueryMetaData(boolean hasFromEntityKind, boolean hasFromEntityId, boolean hasFromEntityIds,
+        boolean hasToEntityKind, boolean hasToEntityId, boolean hasToEntityIds, boolean hasStatus,
+        boolean isPublishedOnly, boolean hasText, boolean hasTextIndex, boolean hasTextH2, boolean hasTextMariaDB,
+        boolean isAdvanced, boolean isPaged, boolean isSorted, Sort sort) {
+
+        boolean isBatch() {
+            return hasFromEntityIds || hasToEntityIds;
+        }
+
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomEntityLinkRepositoryImpl.class);
 
+    /** Query plans keyed on query shape. */
+    private final Map<QueryMetaData, QueryPlan<EntityLinkQueryFilter>> queryPlans = new ConcurrentHashMap<>();
+
     CustomEntityLinkRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils, SecurityUtils securityUtils) {
         super(entityUtils, profileUtils, securityUtils);
     }
@@ -73,75 +84,97 @@ public class CustomEntityLinkRepositoryImpl extends AbstractCustomRepositoryImpl
     }
 
     /**
-     * Returns metadata about a query and paging/sorting specification.
+     * Returns metadata about a query and paging/sorting specification. N.B. an anonymous user's query is restricted to
+     * published records without modifying the filter.
      * @param filter The query filter, must not be {@code null}.
      * @param pageable Specifies sorting and pagination, must not be {@code null}.
+     * @param batch Whether this is a batch query, for several from- or to-entities at once.
+     * @param fromEntity For a batch query, whether the batch entity IDs are from- rather than to-entity IDs.
      * @return Query metadata.
      */
     @SuppressWarnings("null")
-    private QueryMetaData getQueryMetaData(@NonNull EntityLinkQueryFilter filter, @NonNull Pageable pageable) {
+    private QueryMetaData getQueryMetaData(@NonNull EntityLinkQueryFilter filter, @NonNull Pageable pageable,
+        boolean batch, boolean fromEntity) {
+
         boolean hasFilter = filter != null;
         boolean hasFromEntityKind = hasFilter && filter.getFromEntityKind() != null;
-        boolean hasFromEntityId = hasFilter && filter.getFromEntityId() != null;
+        boolean hasFromEntityIds = batch && fromEntity;
+        boolean hasFromEntityId = hasFilter && filter.getFromEntityId() != null && !hasFromEntityIds;
         boolean hasToEntityKind = hasFilter && filter.getToEntityKind() != null;
-        boolean hasToEntityId = hasFilter && filter.getToEntityId() != null;
+        boolean hasToEntityIds = batch && !fromEntity;
+        boolean hasToEntityId = hasFilter && filter.getToEntityId() != null && !hasToEntityIds;
         boolean hasStatus = hasFilter && filter.getStatus() != null && !filter.getStatus().isEmpty();
         boolean hasText = hasFilter && filter.getText() != null;
-        boolean hasTextH2 = hasText && profileUtils.isIntegrationTesting();
-        boolean hasTextMariaDB = hasText && !profileUtils.isIntegrationTesting();
+        boolean hasTextIndex = hasText && searchIndex.isIndexed("entity_link");
+        boolean hasTextH2 = hasText && !hasTextIndex && profileUtils.isIntegrationTesting();
+        boolean hasTextMariaDB = hasText && !hasTextIndex && !profileUtils.isIntegrationTesting();
         boolean isAdvanced = hasText && filter.getAdvancedSearch();
         boolean isPaged = pageable.isPaged();
-        boolean isSorted = pageable.getSort().isSorted();
+        Sort sort = pageable.getSort();
+        boolean isSorted = sort.isSorted();
+
+        // Unauthenticated queries should only return published results.
+        boolean isPublishedOnly = isPublishedOnly();
+        if (isPublishedOnly)
+            hasStatus = true;
 
         // For paged queries involving an H2 full text filter, we need to ensure that the sort order includes "id"
         // because otherwise the join with FT_SEARCH_DATA can result in records duplicated across successive pages.
-        if (/*hasTextH2 && */isPaged && pageable.getSort().filter(o -> o.getProperty().equals("id")).isEmpty()) {
-            Sort sort = pageable.getSort().and(Sort.by(IBaseEntity::getId));
-            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        if (/*hasTextH2 && */isPaged && sort.filter(o -> o.getProperty().equals("id")).isEmpty()) {
+            sort = sort.and(Sort.by(IBaseEntity::getId));
             isSorted = true;
         }
 
+        return new QueryMetaData(hasFromEntityKind, hasFromEntityId, hasFromEntityIds, hasToEntityKind, hasToEntityId,
+            hasToEntityIds, hasStatus, isPublishedOnly, hasText, hasTextIndex, hasTextH2, hasTextMariaDB, isAdvanced,
+            isPaged, isSorted, sort);
+    }
+
+    /**
+     * Creates a query plan: the query names, the rendered SQL of the pair of COUNT and SELECT queries and the query
+     * parameter binders.
+     * @param m Query metadata.
+     * @return The query plan.
+     */
+    private QueryPlan<EntityLinkQueryFilter> createQueryPlan(QueryMetaData m) {
         StringBuilder countQueryName = new StringBuilder();
         StringBuilder selectQueryName = new StringBuilder();
         StringBuilder[] queryNames = { countQueryName, selectQueryName };
         append("entityLink.", queryNames);
         countQueryName.append("countBy");
         selectQueryName.append("findBy");
-        if (hasFromEntityKind || hasFromEntityId) {
+        if (m.hasFromEntityKind || m.hasFromEntityId || m.hasFromEntityIds) {
             append("FromEntity", queryNames);
-            if (hasFromEntityKind)
+            if (m.hasFromEntityKind)
                 append("Kind", queryNames);
-            if (hasFromEntityId)
+            if (m.hasFromEntityId)
                 append("Id", queryNames);
+            if (m.hasFromEntityIds)
+                append("Ids", queryNames);
         }
-        if (hasToEntityKind || hasToEntityId) {
+        if (m.hasToEntityKind || m.hasToEntityId || m.hasToEntityIds) {
             append("ToEntity", queryNames);
-            if (hasToEntityKind)
+            if (m.hasToEntityKind)
                 append("Kind", queryNames);
-            if (hasToEntityId)
+            if (m.hasToEntityId)
                 append("Id", queryNames);
+            if (m.hasToEntityIds)
+                append("Ids", queryNames);
         }
-        if (hasStatus)
+        if (m.hasStatus)
             append("Status", queryNames);
-        if (hasText) {
+        if (m.hasText) {
             append("Text", queryNames);
-            if (isAdvanced)
+            if (m.hasTextIndex)
+                append("Indexed", queryNames);
+            else if (m.isAdvanced)
                 append("Advanced", queryNames);
         }
-        if (isSorted)
-            entityUtils.appendOrderByToQueryName(selectQueryName, pageable);
-
-        return new QueryMetaData(filter, pageable, countQueryName.toString(), selectQueryName.toString(),
-            hasFromEntityKind, hasFromEntityId, hasToEntityKind, hasToEntityId, hasStatus, hasText, hasTextH2,
-            hasTextMariaDB, isAdvanced, isPaged, isSorted);
-    }
+        if (m.isBatch() && m.isPaged)
+            selectQueryName.append("Windowed");
+        if (m.isSorted)
+            entityUtils.appendOrderByToQueryName(selectQueryName, m.sort);
 
-    /**
-     * Defines and registers a pair of named queries with the {@code EntityManagerFactory}.
-     * @param m Query metadata.
-     * @return An executable query pair.
-     */
-    private QueryPair defineNamedQueries(QueryMetaData m) {
         /*
         A new and secondary use for this query is to fetch all records, of either a specific kind or all kinds, which
         are linked from or to a specific record. This is used by the filtered ILinkableEntity.fromEntityLinks and
@@ -168,6 +201,10 @@ public class CustomEntityLinkRepositoryImpl extends AbstractCustomRepositoryImpl
             ft."TABLE" = 'entity_link'
             AND ft."KEYS"[1] = el."id"
         -- }
+        -- if (m.hasTextIndex) { -- H2 unnests TEXT_HITS(:textHits) WITH ORDINALITY instead
+        JOIN JSON_TABLE(:textHits, '$[*]' COLUMNS ("rank" FOR ORDINALITY, "id" BIGINT PATH '$')) th
+        ON th."id" = el."id"
+        -- }
         WHERE
             -- if (m.hasFromEntityKind) {
             fe."dtype" = :fromEntityKind
@@ -175,18 +212,42 @@ public class CustomEntityLinkRepositoryImpl extends AbstractCustomRepositoryImpl
             -- if (m.hasFromEntityId) {
             AND el."from_entity_id" = :fromEntityId
             --}
+            -- if (m.hasFromEntityIds) {
+            AND el."from_entity_id" IN (:fromEntityIds)
+            --}
             -- if (m.hasToEntityKind) {
             AND te."dtype" = :toEntityKind
             -- }
             -- if (m.hasToEntityId) {
             AND el."to_entity_id" = :toEntityId
             -- }
+            -- if (m.hasToEntityIds) {
+            AND el."to_entity_id" IN (:toEntityIds)
+            -- }
             -- if (m.hasStatus) {
             AND se."status" IN (:status)
             -- }
             -- if (m.hasTextMariaDB) {
             AND MATCH("from_entity_locations", "to_entity_locations" IN BOOLEAN MODE) AGAINST (:text);
             -- }
+
+        A batch query fetches the links from (or to) several entities at once. Its COUNT query returns a count per
+        entity:
+
+        SELECT el."from_entity_id", COUNT(*)
+        ...
+        GROUP BY el."from_entity_id";
+
+        and, if paged, its SELECT query numbers each entity's links in sort order and selects the requested window of
+        row numbers, so that every entity gets its own page:
+
+        SELECT *
+        FROM (
+        SELECT e."dtype", ..., el.*, ROW_NUMBER() OVER (PARTITION BY el."from_entity_id" ORDER BY ...) AS "row_num"
+        ...
+        ) x
+        WHERE x."row_num" BETWEEN :firstRow AND :lastRow
+        ORDER BY x."row_num";
          */
 
         StringBuilder feJoinClause = new StringBuilder();
@@ -213,8 +274,10 @@ public class CustomEntityLinkRepositoryImpl extends AbstractCustomRepositoryImpl
                 .append("    ft.\"TABLE\" = 'entity_link'").append(NL) //
                 .append("    AND ft.\"KEYS\"[1] = el.\"id\"");
         }
-        if (m.hasFromEntityKind || m.hasFromEntityId || m.hasToEntityKind || m.hasToEntityId() || m.hasStatus
-            || m.hasTextMariaDB) {
+        if (m.hasTextIndex)
+            appendTextHitsJoin(ftJoinClause, "el.\"id\"");
+        if (m.hasFromEntityKind || m.hasFromEntityId || m.hasFromEntityIds || m.hasToEntityKind || m.hasToEntityId
+            || m.hasToEntityIds || m.hasStatus || m.hasTextMariaDB) {
 
             boolean needsAnd = false;
             whereClause.append(NL) //
@@ -232,6 +295,14 @@ public class CustomEntityLinkRepositoryImpl extends AbstractCustomRepositoryImpl
                 whereClause.append("el.\"from_entity_id\" = :fromEntityId");
                 needsAnd = true;
             }
+            if (m.hasFromEntityIds) {
+                whereClause.append(NL) //
+                    .append("    ");
+                if (needsAnd)
+                    whereClause.append("AND ");
+                whereClause.append("el.\"from_entity_id\" IN (:fromEntityIds)");
+                needsAnd = true;
+            }
             if (m.hasToEntityKind) {
                 whereClause.append(NL) //
                     .append("    ");
@@ -248,6 +319,14 @@ public class CustomEntityLinkRepositoryImpl extends AbstractCustomRepositoryImpl
                 whereClause.append("el.\"to_entity_id\" = :toEntityId");
                 needsAnd = true;
             }
+            if (m.hasToEntityIds) {
+                whereClause.append(NL) //
+                    .append("    ");
+                if (needsAnd)
+                    whereClause.append("AND ");
+                whereClause.append("el.\"to_entity_id\" IN (:toEntityIds)");
+                needsAnd = true;
+            }
             if (m.hasStatus) {
                 whereClause.append(NL) //
                     .append("    ");
@@ -268,31 +347,80 @@ public class CustomEntityLinkRepositoryImpl extends AbstractCustomRepositoryImpl
                 needsAnd = true;
             }
         }
+        // For a windowed batch query the sort order applies within each entity's partition rather than to the results.
+        boolean isWindowed = m.isBatch() && m.isPaged;
         if (m.isSorted)
-            entityUtils.appendOrderByClause(orderByClause, m.pageable, "e.", "el.", "cbu.", "ubu.", true);
+            entityUtils.appendOrderByClause(orderByClause, m.sort, "e.", "el.", "cbu.", "ubu.", !isWindowed);
 
         String template = """
             SELECT %s
             FROM "entity_link" el
             JOIN "entity" e
-            ON e."id" = el."id"%s%s%s%s%s%s;
-            """;
+            ON e."id" = el."id"%s%s%s%s%s%s""";
 
-        // NOTE: since the COUNT query does not include an ORDER BY clause, multiple executions of the same SELECT
-        // query with different ORDER BY clauses will result in the registration of multiple identical COUNT queries,
-        // each of which will simply overwrite the previous definition. This is not a problem, but it is somewhat
-        // inefficient.
-        String countSql = String.format(template, "COUNT(*)", feJoinClause, teJoinClause, seJoinClause, ftJoinClause,
-            whereClause, "");
-        Query countQuery = defineNamedQuery(m.countQueryName, countSql, Long.class);
+        // NOTE: since the COUNT query does not include an ORDER BY clause, SELECT queries that differ only in their
+        // ORDER BY clause share the same COUNT query, which getNamedQueries() defines only once.
+        String batchColumn = m.hasFromEntityIds ? "el.\"from_entity_id\"" : "el.\"to_entity_id\"";
+        String countFields = m.isBatch() ? batchColumn + ", COUNT(*)" : "COUNT(*)";
+        String groupByClause = m.isBatch() ? NL + "GROUP BY " + batchColumn : "";
+        String countSql = String.format(template, countFields, feJoinClause, teJoinClause, seJoinClause,
+            ftJoinClause, whereClause, groupByClause) + ';';
 
         String selectFields =
             "e.\"dtype\", e.\"status\", e.\"rating\", e.\"created\", e.\"created_by_user_id\", e.\"updated\", e.\"updated_by_user_id\", el.*";
-        String selectSql = String.format(template, selectFields, feJoinClause, teJoinClause, seJoinClause, ftJoinClause,
-            whereClause, orderByClause);
-        Query selectQuery = defineNamedQuery(m.selectQueryName, selectSql, EntityLink.class);
+        String selectSql;
+        if (isWindowed) {
+            String windowFields = selectFields + ", " + rowNumberColumn(batchColumn, orderByClause);
+            selectSql = windowedSelectSql(String.format(template, windowFields, feJoinClause, teJoinClause,
+                seJoinClause, ftJoinClause, whereClause, ""));
+        } else {
+            selectSql = String.format(template, selectFields, feJoinClause, teJoinClause, seJoinClause, ftJoinClause,
+                whereClause, orderByClause) + ';';
+        }
 
-        return new QueryPair(countQuery, selectQuery);
+        Binders<EntityLinkQueryFilter> binders = new Binders<>();
+        if (m.hasFromEntityKind)
+            binders.bind("fromEntityKind", f -> f.getFromEntityKind().name());
+        if (m.hasFromEntityId)
+            binders.bind("fromEntityId", f -> f.getFromEntityId());
+        if (m.hasToEntityKind)
+            binders.bind("toEntityKind", f -> f.getToEntityKind().name());
+        if (m.hasToEntityId)
+            binders.bind("toEntityId", f -> f.getToEntityId());
+        if (m.isPublishedOnly)
+            binders.bind("status", _ -> PUBLISHED_STATUS);
+        else if (m.hasStatus)
+            binders.bind("status", f -> f.getStatus().stream().map(s -> s.name()).toList());
+        if (m.hasTextIndex)
+            binders.bind("textHits", f -> findTextHits("entity_link", f.getText(), f.getAdvancedSearch()));
+        else if (m.hasText)
+            binders.bind("text", f -> f.getText());
+
+        return new QueryPlan<>(countQueryName.toString(), countSql, selectQueryName.toString(), selectSql,
+            binders.toList());
+    }
+
+    private Query defineCountByEntityKindQuery(String queryName) {
+        // Since a link counts towards both of the entities it connects, the outer query sums over both directions.
+        String sql = """
+            SELECT x."entity_id", x."entity_kind", COUNT(*)
+            FROM (
+                SELECT el."from_entity_id" AS "entity_id", te."dtype" AS "entity_kind"
+                FROM "entity_link" el
+                JOIN "entity" te
+                ON te."id" = el."to_entity_id"
+                WHERE el."from_entity_id" IN (:entityIds)
+                UNION ALL
+                SELECT el."to_entity_id" AS "entity_id", fe."dtype" AS "entity_kind"
+                FROM "entity_link" el
+                JOIN "entity" fe
+                ON fe."id" = el."from_entity_id"
+                WHERE el."to_entity_id" IN (:entityIds)
+            ) x
+            GROUP BY x."entity_id", x."entity_kind";
+            """;
+
+        return defineNamedQuery(queryName, sql, null);
     }
 
     private Query defineFindByEntityIdQuery(String queryName) {
@@ -310,67 +438,57 @@ public class CustomEntityLinkRepositoryImpl extends AbstractCustomRepositoryImpl
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public Page<EntityLink> findByFilter(EntityLinkQueryFilter filter, Pageable pageable) {
-        QueryMetaData m = getQueryMetaData(filter, pageable);
-
-        QueryPair queries = null;
-        synchronized (queryNames) {
-            if (!queryNames.contains(m.countQueryName) || !queryNames.contains(m.selectQueryName))
-                queries = defineNamedQueries(m);
-        }
-        if (queries == null) {
-            Query countQuery = em.createNamedQuery(m.countQueryName, Long.class);
-            Query selectQuery = em.createNamedQuery(m.selectQueryName, EntityLink.class);
-            queries = new QueryPair(countQuery, selectQuery);
-        }
+    public Page<EntityLink> findByFilter(EntityLinkQueryFilter filter, Pageable pageable, boolean countTotal) {
+        QueryMetaData m = getQueryMetaData(filter, pageable, false, false);
+        QueryPlan<EntityLinkQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, EntityLink.class);
 
-        Map<String, Object> params = new HashMap<>();
-        if (m.hasFromEntityKind)
-            params.put("fromEntityKind", m.filter.getFromEntityKind().name());
-        if (m.hasFromEntityId)
-            params.put("fromEntityId", m.filter.getFromEntityId());
-        if (m.hasToEntityKind)
-            params.put("toEntityKind", m.filter.getToEntityKind().name());
-        if (m.hasToEntityId)
-            params.put("toEntityId", m.filter.getToEntityId());
-        if (m.hasStatus)
-            params.put("status", m.filter.getStatus().stream().map(s -> s.name()).toList());
-        if (m.hasText)
-            params.put("text", m.filter.getText());
+        Map<String, Object> params = plan.bind(filter);
         entityUtils.setQueryParameters(queries, params);
         if (m.isPaged)
-            entityUtils.setQueryPagination(queries.selectQuery(), m.pageable);
+            entityUtils.setQueryPagination(queries.selectQuery(), pageable);
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.countQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.countQueryName);
-        long total = (Long)queries.countQuery().getSingleResult();
+        return executeQueries(queries, plan.countQueryName(), plan.selectQueryName(), params, pageable, countTotal);
+    }
 
-        if (pageable instanceof Countable)
-            return CountPageImpl.of(total);
+    @Override
+    public Map<Long, Page<EntityLink>> findByFilterPerEntity(EntityLinkQueryFilter filter, Collection<Long> entityIds,
+        boolean fromEntity, Pageable pageable, boolean countTotal) {
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.selectQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.selectQueryName);
-        List<EntityLink> content = queries.selectQuery().getResultList();
+        QueryMetaData m = getQueryMetaData(filter, pageable, true, fromEntity);
+        QueryPlan<EntityLinkQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getBatchNamedQueries(plan, EntityLink.class);
 
-        return new PageImpl<>(content, m.pageable, total);
+        Map<String, Object> params = plan.bind(filter);
+        params.put(fromEntity ? "fromEntityIds" : "toEntityIds", entityIds);
+        entityUtils.setQueryParameters(queries, params);
+
+        return executeBatchQueries(queries, plan.countQueryName(), plan.selectQueryName(), params, entityIds,
+            fromEntity ? l -> l.getFromEntity().getId() : l -> l.getToEntity().getId(), pageable, countTotal);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, Map<String, Integer>> countLinksByEntityKind(Collection<Long> entityIds) {
+        String queryName = "entityLink.countByEntityIdsGroupByEntityKind";
+
+        queryRegistry.define(queryName, () -> defineCountByEntityKindQuery(queryName));
+        Query query = em.createNamedQuery(queryName);
+        query.setParameter("entityIds", entityIds);
+        Map<Long, Map<String, Integer>> counts = HashMap.newHashMap(entityIds.size());
+        for (Object[] row : (List<Object[]>)query.getResultList()) {
+            counts.computeIfAbsent(((Number)row[0]).longValue(), _ -> new HashMap<>()) //
+                .put((String)row[1], ((Number)row[2]).intValue());
+        }
+        return counts;
     }
 
     @Override
     public Optional<EntityLink> findByEntityIds(Long fromEntityId, Long toEntityId) {
         String queryName = "entityLink.findByEntityIds";
 
-        Query query = null;
-        synchronized (queryNames) {
-            if (!queryNames.contains(queryName))
-                query = defineFindByEntityIdQuery(queryName);
-        }
-        if (query == null)
-            query = em.createNamedQuery(queryName, EntityLink.class);
+        queryRegistry.define(queryName, () -> defineFindByEntityIdQuery(queryName));
+        Query query = em.createNamedQuery(queryName, EntityLink.class);
         query.setParameter("fromEntityId", fromEntityId) //
             .setParameter("toEntityId", toEntityId);
         try {
@@ -25,5 +25,6 @@ import io.github.demonfiddler.ee.server.model.Group;
 /**
  * A custom group repository that supports arbitrary filtering and group authority administration.
  */
-public interface CustomGroupRepository extends CustomRepository<Group, TrackedEntityQueryFilter> {
+public interface CustomGroupRepository
+    extends CustomRepository<Group, TrackedEntityQueryFilter>, SeekableRepository {
 }
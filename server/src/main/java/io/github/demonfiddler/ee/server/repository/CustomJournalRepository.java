@@ -22,5 +22,6 @@ package io.github.demonfiddler.ee.server.repository;
 import io.github.demonfiddler.ee.server.model.Journal;
 import io.github.demonfiddler.ee.server.model.TrackedEntityQueryFilter;
 
-public interface CustomJournalRepository extends CustomRepository<Journal, TrackedEntityQueryFilter> {
+public interface CustomJournalRepository
+    extends CustomRepository<Journal, TrackedEntityQueryFilter>, SeekableRepository {
 }
@@ -23,42 +23,31 @@ import static io.github.demonfiddler.ee.server.model.EntityKind.DEC;
 import static io.github.demonfiddler.ee.server.model.EntityKind.PER;
 import static io.github.demonfiddler.ee.server.model.EntityKind.PUB;
 import static io.github.demonfiddler.ee.server.model.EntityKind.QUO;
+import static io.github.demonfiddler.ee.server.util.EntityUtils.RELEVANCE;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
-import java.util.function.Function;
-import java.util.function.Supplier;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Order;
 
-import io.github.demonfiddler.ee.server.model.CountPageImpl;
-import io.github.demonfiddler.ee.server.model.Countable;
-import io.github.demonfiddler.ee.server.model.Declaration;
 import io.github.demonfiddler.ee.server.model.EntityKind;
 import io.github.demonfiddler.ee.server.model.IBaseEntity;
 import io.github.demonfiddler.ee.server.model.ILinkableEntity;
 import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
-import io.github.demonfiddler.ee.server.model.Name;
-import io.github.demonfiddler.ee.server.model.Person;
-import io.github.demonfiddler.ee.server.model.Publication;
-import io.github.demonfiddler.ee.server.model.Quotation;
-import io.github.demonfiddler.ee.server.model.StatusKind;
+import io.github.demonfiddler.ee.server.model.SeekRequest;
+import io.github.demonfiddler.ee.server.repository.QueryPlan.Binders;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.ProfileUtils;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
-import jakarta.persistence.Query;
 
 /**
  * An abstract base implementation of the {@code CustomRepository} interface.
@@ -67,71 +56,53 @@ import jakarta.persistence.Query;
 public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEntity> extends AbstractCustomRepositoryImpl
     implements CustomRepository<T, LinkableEntityQueryFilter> {
 
-    /** Describes the elements of a query. */
-    private static record QueryMetaData(LinkableEntityQueryFilter filter, Pageable pageable, String entityName,
-        String countQueryName, String selectQueryName, boolean hasRecordId, boolean hasTopic, boolean isRecursive,
-        boolean hasFromEntityId, boolean hasFromEntityKind, boolean hasFromEntityFuzzy, String fromEntityName,
-        boolean hasToEntityId, boolean hasToEntityKind, boolean hasToEntityFuzzy, String toEntityName,
-        boolean hasStatus, boolean hasText, boolean hasTextH2, boolean hasTextMariaDB, boolean isAdvanced,
-        boolean isPaged, boolean isSorted, boolean isSortedOnCreatedByUsername, boolean isSortedOnUpdatedByUsername) {
-    }
-
-    private static record FuzzySearch(Supplier<String> predicate, Function<ILinkableEntity, Object> param) {
+    /** Describes the shape of a query; also serves as the query plan cache key. */
+    private static record QueryMetaData(boolean hasRecordId, boolean hasTopic, boolean isRecursive,
+        boolean hasFromEntityId, boolean hasFromEntityKind, boolean hasFromEntityFuzzy,
+        @Nullable EntityKind fromEntityKind, boolean hasToEntityId, boolean hasToEntityKind, boolean hasToEntityFuzzy,
+        @Nullable EntityKind toEntityKind, boolean hasStatus, boolean isPublishedOnly, boolean hasText,
+        boolean hasTextIndex, boolean hasTextH2, boolean hasTextMariaDB, boolean isAdvanced, boolean isPaged,
+        boolean isSeek, boolean isSorted, Sort sort, boolean isSortedOnRelevance, boolean isSortedOnCreatedByUsername,
+        boolean isSortedOnUpdatedByUsername) {
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomLinkableEntityRepositoryImpl.class);
 
-    private static final FuzzySearch DEFAULT_FUZZY_SEARCH = new FuzzySearch(() -> "", rec -> "");
-
-    /** Maps contextual entity kind to other entity kind to a predicate/param factory. */
-    private static final Map<EntityKind, Map<EntityKind, FuzzySearch>> FUZZY_SEARCHES = Map.of( //
-        DEC, Map.of( //
-            PER, new FuzzySearch(() -> "last_name IN :fuzzyParam", //
-                rec -> lastNames(((Declaration)rec).getSignatories())) //
-        ), //
-        PER, Map.of( //
-            DEC, new FuzzySearch(() -> "signatories LIKE :fuzzyParam", //
-                rec -> "%" + ((Person)rec).getLastName() + '%'), //
-            PUB, new FuzzySearch(() -> "authors LIKE :fuzzyParam", //
-                rec -> "%" + ((Person)rec).getLastName() + '%'), //
-            QUO, new FuzzySearch(() -> "quotee LIKE :fuzzyParam", //
-                rec -> "%" + ((Person)rec).getLastName() + '%') //
-        ), //
-        PUB, Map.of( //
-            PER, new FuzzySearch(() -> "last_name IN :fuzzyParam", //
-                rec -> lastNames(((Publication)rec).getAuthors())) //
-        ), //
-        QUO, Map.of( //
-            PER, new FuzzySearch(() -> "last_name = :fuzzyParam", //
-                rec -> lastName(((Quotation)rec).getQuotee())), //
-            PUB, new FuzzySearch(() -> "authors LIKE :fuzzyParam", //
-                rec -> "%" + lastName(((Quotation)rec).getQuotee()) + '%') //
-        ) //
+    /**
+     * Maps contextual entity kind to the other entity kinds that support fuzzy searches. Each pair matches on the names
+     * that the two kinds record: a person's last name, a declaration's signatories, a publication's authors or a
+     * quotation's quotee. So the predicate needs no direction of its own: the contextual entity's names are joined with
+     * those of the queried kind, which the enclosing query selects from.
+     */
+    static final Map<EntityKind, Set<EntityKind>> FUZZY_SEARCHES = Map.of( //
+        DEC, Set.of(PER), //
+        PER, Set.of(DEC, PUB, QUO), //
+        PUB, Set.of(PER), //
+        QUO, Set.of(PER, PUB) //
     );
 
-    private static final List<String> lastNames(String names) {
-        StringTokenizer tok = new StringTokenizer(names, "\r\n");
-        List<String> lastNames = new ArrayList<>(tok.countTokens());
-        while (tok.hasMoreTokens()) {
-            String lastName = lastName(tok.nextToken());
-            if (lastName != null)
-                lastNames.add(lastName);
-        }
-        return lastNames;
-    }
-
-    private static final String lastName(String namestr) {
-        Name name = Name.parse(namestr);
-        return name != null ? name.getLastName() : null;
-    }
-
-    private LinkableEntityRepository linkableEntityRepository;
+    /**
+     * Matches the records that share a normalised person last name with the contextual entity, as recorded in the
+     * {@code entity_person_name} table when the records were saved. This matches whole last names. The former
+     * {@code LIKE '%lastName%'} scans of the signatories, authors and quotee columns also matched a name embedded in a
+     * longer word, such as "Smith" in "Smithson".
+     */
+    static final String FUZZY_PREDICATE = """
+        e."id" IN (
+                SELECT epn."entity_id"
+                FROM "entity_person_name" cpn
+                JOIN "entity_person_name" epn
+                ON epn."last_name_norm" = cpn."last_name_norm"
+                WHERE cpn."entity_id" = :fuzzyEntityId
+            )""";
+
+    /** Query plans keyed on query shape. */
+    private final Map<QueryMetaData, QueryPlan<LinkableEntityQueryFilter>> queryPlans = new ConcurrentHashMap<>();
 
     protected CustomLinkableEntityRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils,
-        SecurityUtils securityUtils, LinkableEntityRepository linkableEntityRepository) {
+        SecurityUtils securityUtils) {
 
         super(entityUtils, profileUtils, securityUtils);
-        this.linkableEntityRepository = linkableEntityRepository;
     }
 
     @Override
@@ -156,35 +127,37 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
     protected abstract String getFulltextColumns();
 
     /**
-     * Returns metadata about a query and paging/sorting specification.
+     * Returns metadata about a query and paging/sorting specification. N.B. an anonymous user's query is restricted to
+     * published records without modifying the filter.
      * @param filter The query filter, must not be {@code null}.
      * @param pageable Specifies sorting and pagination, must not be {@code null}.
      * @return Query metadata.
      */
     @SuppressWarnings({ "null" })
-    private QueryMetaData getQueryMetaData(@Nullable LinkableEntityQueryFilter filter, @NonNull Pageable pageable) {
-        boolean hasFilter = filter != null;
-        boolean hasRecordId = hasFilter && filter.getRecordId() != null;
-        boolean hasTopic = hasFilter && !hasRecordId && filter.getTopicId() != null;
+    private QueryMetaData getQueryMetaData(@NonNull LinkableEntityQueryFilter filter, @NonNull Pageable pageable) {
+        boolean hasRecordId = filter.getRecordId() != null;
+        boolean hasTopic = !hasRecordId && filter.getTopicId() != null;
         boolean isRecursive = hasTopic && filter.getRecursive() != null && filter.getRecursive();
-        boolean hasFromEntityId = hasFilter && !hasRecordId && filter.getFromEntityId() != null;
-        boolean hasFromEntityKind = hasFilter && !hasRecordId && filter.getFromEntityKind() != null;
-        boolean hasFromEntityFuzzy = hasFilter && !hasRecordId && Boolean.TRUE.equals(filter.getFromEntityFuzzy());
-        boolean hasToEntityId = hasFilter && !hasRecordId && filter.getToEntityId() != null;
-        boolean hasToEntityKind = hasFilter && !hasRecordId && filter.getToEntityKind() != null;
-        boolean hasToEntityFuzzy = hasFilter && !hasRecordId && Boolean.TRUE.equals(filter.getToEntityFuzzy());
-        boolean hasStatus = hasFilter && !hasRecordId && filter.getStatus() != null && !filter.getStatus().isEmpty();
-        boolean hasText = hasFilter && !hasRecordId && filter.getText() != null && !filter.getText().isBlank();
-        boolean hasTextH2 = hasText && profileUtils.isIntegrationTesting();
-        boolean hasTextMariaDB = hasText && !profileUtils.isIntegrationTesting();
+        boolean hasFromEntityId = !hasRecordId && filter.getFromEntityId() != null;
+        boolean hasFromEntityKind = !hasRecordId && filter.getFromEntityKind() != null;
+        boolean hasFromEntityFuzzy = !hasRecordId && Boolean.TRUE.equals(filter.getFromEntityFuzzy());
+        boolean hasToEntityId = !hasRecordId && filter.getToEntityId() != null;
+        boolean hasToEntityKind = !hasRecordId && filter.getToEntityKind() != null;
+        boolean hasToEntityFuzzy = !hasRecordId && Boolean.TRUE.equals(filter.getToEntityFuzzy());
+        boolean hasStatus = !hasRecordId && filter.getStatus() != null && !filter.getStatus().isEmpty();
+        boolean hasText = !hasRecordId && filter.getText() != null && !filter.getText().isBlank();
+        boolean hasTextIndex = hasText && searchIndex.isIndexed(entityUtils.getEntityName(getEntityClass()));
+        boolean hasTextH2 = hasText && !hasTextIndex && profileUtils.isIntegrationTesting();
+        boolean hasTextMariaDB = hasText && !hasTextIndex && !profileUtils.isIntegrationTesting();
         boolean isAdvanced = hasText && filter.getAdvancedSearch() != null && filter.getAdvancedSearch();
         boolean isPaged = pageable.isPaged();
-        boolean isSorted = pageable.getSort().isSorted();
+        boolean isSeek = pageable instanceof SeekRequest;
+        Sort sort = pageable.getSort();
+        boolean isSorted = sort.isSorted();
         boolean isSortedOnCreatedByUsername = false;
         boolean isSortedOnUpdatedByUsername = false;
-        String entityName = entityUtils.getEntityName(getEntityClass());
-        String fromEntityName = hasFromEntityKind ? entityUtils.getEntityName(filter.getFromEntityKind()) : "";
-        String toEntityName = hasToEntityKind ? entityUtils.getEntityName(filter.getToEntityKind()) : "";
+        EntityKind fromEntityKind = hasFromEntityKind ? filter.getFromEntityKind() : null;
+        EntityKind toEntityKind = hasToEntityKind ? filter.getToEntityKind() : null;
 
         if (hasFromEntityFuzzy && hasToEntityFuzzy) {
             throw new IllegalArgumentException("fromEntityFuzzy and toEntityFuzzy cannot both be set");
@@ -198,97 +171,125 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
                     + "or (toEntityFuzzy, fromEntityId and fromEntityKind) to be set");
         }
 
+        EntityKind contextualEntityKind = hasFromEntityFuzzy ? toEntityKind : hasToEntityFuzzy ? fromEntityKind : null;
+        if (contextualEntityKind != null
+            && !FUZZY_SEARCHES.getOrDefault(contextualEntityKind, Set.of()).contains(getEntityKind())) {
+
+            throw new IllegalArgumentException("Fuzzy search is not supported between " + contextualEntityKind.label()
+                + " and " + getEntityKind().label());
+        }
+
         // Unauthenticated queries should only return published results.
-        if (securityUtils.getCurrentUsername().equals("anonymousUser")) {
-            if (filter == null)
-                filter = new LinkableEntityQueryFilter();
-            filter.setStatus(List.of(StatusKind.PUB));
-            hasFilter = hasStatus = true;
+        boolean isPublishedOnly = isPublishedOnly();
+        if (isPublishedOnly)
+            hasStatus = true;
+
+        // Relevance is a full text match score, so it only exists for text queries and is never NULL. The anchor row's
+        // score is not available to a seek predicate, so relevance-sorted pages can only be fetched by offset. Such
+        // pages do not issue a cursor, and one that is nonetheless supplied is rejected rather than ignored.
+        boolean isSortedOnRelevance = entityUtils.isSortedOnRelevance(sort);
+        if (isSortedOnRelevance) {
+            if (hasText) {
+                if (isSeek)
+                    throw new IllegalArgumentException("A relevance-sorted query cannot seek: omit 'after'");
+                sort = Sort.by(sort.map(o -> o.getProperty().equals(RELEVANCE) //
+                    ? new Order(o.getDirection(), RELEVANCE) : o).toList());
+            } else {
+                sort = entityUtils.withoutRelevance(sort);
+                isSorted = sort.isSorted();
+                isSortedOnRelevance = false;
+            }
         }
 
         // For paged queries, we need to ensure that the sort order includes "id" because otherwise the join with H2's
         // FT_SEARCH_DATA can result in records duplicated across successive pages, OR result sets involving JOINs can
-        // be returned in a nondeterministic order.
-        if (isPaged && pageable.getSort().filter(o -> o.getProperty().equals("id")).isEmpty()) {
-            Sort sort = pageable.getSort().and(Sort.by(IBaseEntity::getId));
-            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        // be returned in a nondeterministic order. Seek requests additionally rely on "id" as the unique tie-breaker.
+        if (isPaged && sort.filter(o -> o.getProperty().equals("id")).isEmpty()) {
+            sort = sort.and(Sort.by(IBaseEntity::getId));
             isSorted = true;
         }
         if (isSorted) {
-            isSortedOnCreatedByUsername =
-                !pageable.getSort().filter(o -> o.getProperty().equals("createdByUsername")).isEmpty();
-            isSortedOnUpdatedByUsername =
-                !pageable.getSort().filter(o -> o.getProperty().equals("updatedByUsername")).isEmpty();
+            isSortedOnCreatedByUsername = !sort.filter(o -> o.getProperty().equals("createdByUsername")).isEmpty();
+            isSortedOnUpdatedByUsername = !sort.filter(o -> o.getProperty().equals("updatedByUsername")).isEmpty();
         }
 
+        return new QueryMetaData(hasRecordId, hasTopic, isRecursive, hasFromEntityId, hasFromEntityKind,
+            hasFromEntityFuzzy, fromEntityKind, hasToEntityId, hasToEntityKind, hasToEntityFuzzy, toEntityKind,
+            hasStatus, isPublishedOnly, hasText, hasTextIndex, hasTextH2, hasTextMariaDB, isAdvanced, isPaged, isSeek,
+            isSorted, sort, isSortedOnRelevance, isSortedOnCreatedByUsername, isSortedOnUpdatedByUsername);
+    }
+
+    /**
+     * Creates a query plan: the query names, the rendered SQL of the pair of COUNT and SELECT queries and the query
+     * parameter binders.
+     * @param m Query metadata.
+     * @return The query plan.
+     */
+    private QueryPlan<LinkableEntityQueryFilter> createQueryPlan(QueryMetaData m) {
+        String entityName = entityUtils.getEntityName(getEntityClass());
+        String toEntityName = m.hasToEntityKind ? entityUtils.getEntityName(m.toEntityKind) : "";
+
         StringBuilder countQueryName = new StringBuilder();
         StringBuilder selectQueryName = new StringBuilder();
         StringBuilder[] queryNames = { countQueryName, selectQueryName };
         append(entityName, queryNames);
         countQueryName.append(".count");
         selectQueryName.append(".find");
-        if (hasRecordId || hasTopic || hasFromEntityId || hasFromEntityKind || hasFromEntityFuzzy || hasToEntityId
-            || hasToEntityKind || hasToEntityFuzzy || hasStatus || hasText) {
+        if (m.hasRecordId || m.hasTopic || m.hasFromEntityId || m.hasFromEntityKind || m.hasFromEntityFuzzy
+            || m.hasToEntityId || m.hasToEntityKind || m.hasToEntityFuzzy || m.hasStatus || m.hasText) {
 
             append("By", queryNames);
         }
-        if (hasRecordId) {
+        if (m.hasRecordId) {
             append("Id", queryNames);
         }
-        if (hasTopic) {
-            if (isRecursive)
+        if (m.hasTopic) {
+            if (m.isRecursive)
                 append("Recursive", queryNames);
             append("Topic", queryNames);
         }
-        if (hasFromEntityId || hasFromEntityKind || hasFromEntityFuzzy) {
-            if (!hasToEntityFuzzy)
+        if (m.hasFromEntityId || m.hasFromEntityKind || m.hasFromEntityFuzzy) {
+            if (!m.hasToEntityFuzzy)
                 append("FromEntity", queryNames);
-            if (hasFromEntityFuzzy) {
-                append(filter.getToEntityKind().label(), queryNames);
+            if (m.hasFromEntityFuzzy) {
+                append(m.toEntityKind.label(), queryNames);
                 append("Fuzzy", queryNames);
-            } else if (!hasToEntityFuzzy) {
-                if (hasFromEntityId)
+            } else if (!m.hasToEntityFuzzy) {
+                if (m.hasFromEntityId)
                     append("Id", queryNames);
-                if (hasFromEntityKind)
+                if (m.hasFromEntityKind)
                     append("Kind", queryNames);
             }
         }
-        if (hasToEntityId || hasToEntityKind || hasToEntityFuzzy) {
-            if (!hasFromEntityFuzzy)
+        if (m.hasToEntityId || m.hasToEntityKind || m.hasToEntityFuzzy) {
+            if (!m.hasFromEntityFuzzy)
                 append("ToEntity", queryNames);
-            if (hasToEntityFuzzy) {
-                append(filter.getFromEntityKind().label(), queryNames);
+            if (m.hasToEntityFuzzy) {
+                append(m.fromEntityKind.label(), queryNames);
                 append("Fuzzy", queryNames);
-            } else if (!hasFromEntityFuzzy) {
-                if (hasToEntityId)
+            } else if (!m.hasFromEntityFuzzy) {
+                if (m.hasToEntityId)
                     append("Id", queryNames);
-                if (hasToEntityKind)
+                if (m.hasToEntityKind)
                     append("Kind", queryNames);
             }
         }
-        if (hasStatus)
+        if (m.hasStatus)
             append("Status", queryNames);
-        if (hasText) {
+        if (m.hasText) {
             append("Text", queryNames);
-            if (isAdvanced)
+            if (m.hasTextIndex)
+                append("Indexed", queryNames);
+            else if (m.isAdvanced)
                 append("Advanced", queryNames);
         }
-        if (isSorted) {
-            entityUtils.appendOrderByToQueryName(selectQueryName, pageable);
+        if (m.isSeek) {
+            selectQueryName.append("After");
+        }
+        if (m.isSorted) {
+            entityUtils.appendOrderByToQueryName(selectQueryName, m.sort);
         }
 
-        return new QueryMetaData(filter, pageable, entityName, countQueryName.toString(), selectQueryName.toString(),
-            hasRecordId, hasTopic, isRecursive, hasFromEntityId, hasFromEntityKind, hasFromEntityFuzzy, fromEntityName,
-            hasToEntityId, hasToEntityKind, hasToEntityFuzzy, toEntityName, hasStatus, hasText, hasTextH2,
-            hasTextMariaDB, isAdvanced, isPaged, isSorted, isSortedOnCreatedByUsername, isSortedOnUpdatedByUsername);
-    }
-
-    /**
-     * Defines and registers a pair of named queries with the {@code EntityManagerFactory}.
-     * @param m Query metadata.
-     * @return An executable query pair.
-     */
-    private QueryPair defineNamedQueries(QueryMetaData m) {
         // Question: do we need the recursive topic filter if a master entity is provided?
         // One might be tempted to think that we would only need to apply a topic filter when retrieving the master
         // entity list, and that retrieval of associated entities could be done simply via the entity_link association
@@ -321,34 +322,17 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
          * -- It includes all combinations of recursive & non-recursive, count & select
          * queries, H2 & MariaDB databases.
          * 
-         * -- if (m.isRecursive) { commonTableExpr =
-         * WITH RECURSIVE "sub_topic" ("id", "parent_id")
-         * AS (
-         * SELECT t."id", t."parent_id"
-         * FROM "topic" t
-         * -- if (m.hasStatus) {
-         * JOIN "entity" e
-         * ON e."id" = t."id"
-         * -- }
-         * WHERE t."id" = :topicId
-         * -- if (m.hasStatus) {
-         * AND e."status" IN (:status)
-         * -- }
-         * UNION ALL
-         * SELECT t."id", t."parent_id"
-         * FROM "topic" t
-         * JOIN "sub_topic" st
-         * ON st."id" = t."parent_id"
-         * -- if (m.hasStatus) {
-         * JOIN "entity" e
-         * ON e."id" = t."id"
-         * WHERE e."status" IN (:status)
-         * -- }
-         * )
-         * -- }
-         * 
          * SELECT COUNT(*) | DISTINCT e."dtype", e."status", e."rating", e."created",
          * e."created_by_user_id", e."updated", e."updated_by_user_id", ee.*
+         * -- if (m.isSortedOnRelevance) { -- SELECT only
+         * -- if (m.hasTextIndex) {
+         * , -th."rank" AS "relevance"
+         * -- } else if (m.hasTextH2) {
+         * , ft."SCORE" AS "relevance"
+         * -- } else if (m.hasTextMariaDB) {
+         * , MATCH (${fulltextEntityColumns}) AGAINST (:text IN BOOLEAN MODE) AS "relevance"
+         * -- }
+         * -- }
          * FROM "entity" e
          * 
          * -- if (m.hasTopic) { topJoinClause =
@@ -359,8 +343,10 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
          * -- }
          * AND topic_el."to_entity_id" = e."id"
          * -- if (m.isRecursive) {
-         * JOIN "sub_topic" st
-         * ON st."id" = topic_el."from_entity_id"
+         * JOIN "topic_closure" tc
+         * ON
+         * tc."ancestor_id" = :topicId
+         * AND tc."descendant_id" = topic_el."from_entity_id"
          * -- } else {
          * JOIN "entity" topic_e
          * ON
@@ -405,11 +391,16 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
          * -- if (m.hasTextH2) { ftJoinClause =
          * JOIN FT_SEARCH_DATA(:text, 0, 0) ft
          * ON
-         * ft."TABLE" = '${m.toEntityName}'
+         * ft."TABLE" = '${toEntityName}'
          * AND ft."KEYS"[1] = e."id"
          * -- }
+         *
+         * -- if (m.hasTextIndex) { ftJoinClause = -- H2 unnests TEXT_HITS(:textHits) WITH ORDINALITY instead
+         * JOIN JSON_TABLE(:textHits, '$[*]' COLUMNS ("rank" FOR ORDINALITY, "id" BIGINT PATH '$')) th
+         * ON th."id" = e."id"
+         * -- }
          * 
-         * JOIN "${m.entityName}" ee
+         * JOIN "${entityName}" ee
          * ON ee."id" = e."id"
          *
          * -- if (m.isSortedOnCreatedByUsername) { cbuJoinClause =
@@ -422,27 +413,54 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
          * ON ubu."id" = e."updated_by_user_id"
          * --}
          *
+         * -- if (m.isSeek) { seekJoinClause = -- SELECT only: joins the anchor row
+         * JOIN "entity" ke
+         * ON ke."id" = :afterId
+         * JOIN "${entityName}" kee
+         * ON kee."id" = ke."id"
+         * -- plus kcbu and kubu joins, as for cbu and ubu above
+         * --}
+         *
          * -- if (m.hasRecordId || m.hasFromEntityFuzzy || m.hasToEntityFuzzy || m.hasStatus || m.hasTextMariaDB) {
          * WHERE
          * -- if (m.hasRecordId) {
          *   e."id" = :recordId
          * -- }
          *
-         * -- if (m.hasFromEntityFuzzy) {
-         *   AND ${fuzzyPredicate}
-         * -- }
-         * 
-         * -- if (m.hasToEntityFuzzy) {
-         *   AND ${fuzzyPredicate}
+         * -- if (m.hasFromEntityFuzzy || m.hasToEntityFuzzy) {
+         *   AND e."id" IN (
+         *     SELECT epn."entity_id"
+         *     FROM "entity_person_name" cpn
+         *     JOIN "entity_person_name" epn
+         *     ON epn."last_name_norm" = cpn."last_name_norm"
+         *     WHERE cpn."entity_id" = :fuzzyEntityId
+         *   )
          * -- }
          * 
          * -- if (m.hasStatus) {
          *   AND e."status" IN (:status)
          * -- }
+         *
+         * -- if (m.isRecursive && m.hasStatus) {
+         *   AND NOT EXISTS ( -- excludes sub-topics reachable only via a topic of the wrong status
+         *     SELECT 1
+         *     FROM "topic_closure" ptc
+         *     JOIN "entity" pe
+         *     ON pe."id" = ptc."ancestor_id"
+         *     WHERE
+         *       ptc."descendant_id" = tc."descendant_id"
+         *       AND ptc."depth" <= tc."depth"
+         *       AND pe."status" NOT IN (:status)
+         *   )
+         * -- }
          * 
          * -- if (m.hasTextMariaDB) {
          *   AND MATCH (${fulltextEntityColumns}) AGAINST (:text IN BOOLEAN MODE)
          * -- }
+         *
+         * -- if (m.isSeek) { -- SELECT only
+         *   AND (${sortField1}, ..., e."id") > (ke.${sortField1}, ..., ke."id") -- per sort direction & null handling
+         * -- }
          * -- }
          * 
          * -- if (m.isSorted)
@@ -452,40 +470,6 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
          * ;
          */
 
-        String commonTableExpr;
-        if (m.isRecursive) {
-            // This is the recursive common table expression that collects a specified topic and its sub-topics.
-            String cteTemplate = """
-                WITH RECURSIVE "sub_topic" ("id", "parent_id")
-                AS (
-                    SELECT t."id", t."parent_id"
-                    FROM "topic" t%s
-                    WHERE t."id" = :topicId%s
-                    UNION ALL
-                    SELECT t."id", t."parent_id"
-                    FROM "topic" t%s
-                    JOIN "sub_topic" st
-                    ON st."id" = t."parent_id"%s
-                )
-                """;
-            StringBuilder cteJoinClause = new StringBuilder();
-            StringBuilder cteStatusClause1 = new StringBuilder();
-            StringBuilder cteStatusClause2 = new StringBuilder();
-            if (m.hasStatus) {
-                cteJoinClause.append(NL) //
-                    .append("    JOIN \"entity\" e").append(NL) //
-                    .append("    ON e.\"id\" = t.\"id\"");
-                cteStatusClause1.append(NL) //
-                    .append("        AND e.\"status\" IN (:status)");
-                cteStatusClause2.append(NL) //
-                    .append("    WHERE e.\"status\" IN (:status)");
-            }
-            commonTableExpr =
-                String.format(cteTemplate, cteJoinClause, cteStatusClause1, cteJoinClause, cteStatusClause2);
-        } else {
-            commonTableExpr = "";
-        }
-
         boolean needsAnd = false;
         StringBuilder topicJoinClause = new StringBuilder();
         if (m.hasTopic) {
@@ -504,9 +488,12 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
             topicJoinClause.append("topic_el.\"to_entity_id\" = e.\"id\"");
 
             if (m.isRecursive) {
+                // The topic closure table pairs the specified topic with itself and each of its sub-topics.
                 topicJoinClause.append(NL) //
-                    .append("JOIN \"sub_topic\" st").append(NL) //
-                    .append("ON st.\"id\" = topic_el.\"from_entity_id\"");
+                    .append("JOIN \"topic_closure\" tc").append(NL) //
+                    .append("ON").append(NL) //
+                    .append("    tc.\"ancestor_id\" = :topicId").append(NL) //
+                    .append("    AND tc.\"descendant_id\" = topic_el.\"from_entity_id\"");
             } else {
                 topicJoinClause.append(NL) //
                     .append("JOIN \"entity\" topic_e").append(NL) //
@@ -574,13 +561,15 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
             ftJoinClause.append(NL) //
                 .append("JOIN FT_SEARCH_DATA(:text, 0, 0) ft").append(NL) //
                 .append("ON").append(NL) //
-                .append("    ft.\"TABLE\" = '").append(m.toEntityName).append('\'').append(NL) //
+                .append("    ft.\"TABLE\" = '").append(toEntityName).append('\'').append(NL) //
                 .append("    AND ft.\"KEYS\"[1] = e.\"id\"");
         }
+        if (m.hasTextIndex)
+            appendTextHitsJoin(ftJoinClause, "e.\"id\"");
 
         StringBuilder eeJoinClause = new StringBuilder();
         eeJoinClause.append(NL) //
-            .append("JOIN \"").append(m.entityName).append("\" ee").append(NL).append("ON ee.\"id\" = e.\"id\"");
+            .append("JOIN \"").append(entityName).append("\" ee").append(NL).append("ON ee.\"id\" = e.\"id\"");
 
         StringBuilder cbuJoinClause = new StringBuilder();
         if (m.isSortedOnCreatedByUsername) {
@@ -595,8 +584,17 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
                 .append("ON ubu.\"id\" = e.\"updated_by_user_id\"");
         }
 
+        StringBuilder matchExpr = new StringBuilder();
+        if (m.hasTextMariaDB) {
+            matchExpr.append("MATCH (").append(getFulltextColumns()).append(") AGAINST (:text");
+            if (m.isAdvanced)
+                matchExpr.append(" IN BOOLEAN MODE");
+            matchExpr.append(')');
+        }
+
         StringBuilder whereClause = new StringBuilder();
         if (m.hasRecordId || m.hasFromEntityFuzzy || m.hasToEntityFuzzy || m.hasStatus || m.hasTextMariaDB) {
+
             whereClause.append(NL) //
                 .append("WHERE");
             needsAnd = false;
@@ -608,20 +606,12 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
                 whereClause.append("e.\"id\" = :recordId");
                 needsAnd = true;
             }
-            if (m.hasFromEntityFuzzy) {
+            if (m.hasFromEntityFuzzy || m.hasToEntityFuzzy) {
                 whereClause.append(NL) //
                     .append("    ");
                 if (needsAnd)
                     whereClause.append("AND ");
-                whereClause.append("ee.").append(getFuzzyPredicate(m.filter.getToEntityKind(), getEntityKind()));
-                needsAnd = true;
-            }
-            if (m.hasToEntityFuzzy) {
-                whereClause.append(NL) //
-                    .append("    ");
-                if (needsAnd)
-                    whereClause.append("AND ");
-                whereClause.append("ee.").append(getFuzzyPredicate(m.filter.getFromEntityKind(), getEntityKind()));
+                whereClause.append(FUZZY_PREDICATE);
                 needsAnd = true;
             }
             if (m.hasStatus) {
@@ -630,6 +620,20 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
                 if (needsAnd)
                     whereClause.append("AND ");
                 whereClause.append("e.\"status\" IN (:status)");
+                if (m.isRecursive) {
+                    // A sub-topic only qualifies if every topic on its path from the specified topic has the status.
+                    whereClause.append(NL) //
+                        .append("    AND NOT EXISTS (").append(NL) //
+                        .append("        SELECT 1").append(NL) //
+                        .append("        FROM \"topic_closure\" ptc").append(NL) //
+                        .append("        JOIN \"entity\" pe").append(NL) //
+                        .append("        ON pe.\"id\" = ptc.\"ancestor_id\"").append(NL) //
+                        .append("        WHERE").append(NL) //
+                        .append("            ptc.\"descendant_id\" = tc.\"descendant_id\"").append(NL) //
+                        .append("            AND ptc.\"depth\" <= tc.\"depth\"").append(NL) //
+                        .append("            AND pe.\"status\" NOT IN (:status)").append(NL) //
+                        .append("    )");
+                }
                 needsAnd = true;
             }
             if (m.hasTextMariaDB) {
@@ -637,123 +641,147 @@ public abstract class CustomLinkableEntityRepositoryImpl<T extends ILinkableEnti
                     .append("    ");
                 if (needsAnd)
                     whereClause.append("AND ");
-                whereClause.append("MATCH (").append(getFulltextColumns()).append(") AGAINST (:text");
-                if (m.isAdvanced)
-                    whereClause.append(" IN BOOLEAN MODE");
-                whereClause.append(')');
+                whereClause.append(matchExpr);
                 needsAnd = true;
             }
         }
 
+        // Seek requests select the rows that sort after an anchor row, which is joined by ID to obtain its sort keys.
+        StringBuilder seekJoinClause = new StringBuilder();
+        StringBuilder seekWhereClause = new StringBuilder(whereClause);
+        if (m.isSeek) {
+            seekJoinClause.append(NL) //
+                .append("JOIN \"entity\" ke").append(NL) //
+                .append("ON ke.\"id\" = :afterId").append(NL) //
+                .append("JOIN \"").append(entityName).append("\" kee").append(NL) //
+                .append("ON kee.\"id\" = ke.\"id\"");
+            if (m.isSortedOnCreatedByUsername) {
+                seekJoinClause.append(NL) //
+                    .append("JOIN \"user\" kcbu").append(NL) //
+                    .append("ON kcbu.\"id\" = ke.\"created_by_user_id\"");
+            }
+            if (m.isSortedOnUpdatedByUsername) {
+                seekJoinClause.append(NL) //
+                    .append("JOIN \"user\" kubu").append(NL) //
+                    .append("ON kubu.\"id\" = ke.\"updated_by_user_id\"");
+            }
+            seekWhereClause.append(NL);
+            if (whereClause.isEmpty())
+                seekWhereClause.append("WHERE").append(NL).append("    ");
+            else
+                seekWhereClause.append("    AND ");
+            entityUtils.appendSeekPredicate(seekWhereClause, m.sort, "e.", "ee.", "cbu.", "ubu.", "k");
+        }
+
         StringBuilder orderByClause = new StringBuilder();
         if (m.isSorted)
-            entityUtils.appendOrderByClause(orderByClause, m.pageable, "e.", "ee.", "cbu.", "ubu.", true);
+            entityUtils.appendOrderByClause(orderByClause, m.sort, "e.", "ee.", "cbu.", "ubu.", true);
 
         String template = """
-            %sSELECT %s
-            FROM "entity" e%s%s%s%s%s%s%s%s;
+            SELECT %s
+            FROM "entity" e%s%s%s%s%s%s%s%s%s;
             """;
 
-        // NOTE: since the COUNT query does not include an ORDER BY clause, multiple executions of the same SELECT query
-        // with different ORDER BY clauses will result in the registration of multiple identical COUNT queries, each of
-        // which will simply overwrite the previous definition. This is not a problem, but it is somewhat inefficient.
-        String countSql = String.format(template, commonTableExpr, "COUNT(*)", topicJoinClause, meJoinClause,
-            ftJoinClause, eeJoinClause, "", "", whereClause, "");
-        Query countQuery = defineNamedQuery(m.countQueryName, countSql, Long.class);
+        // NOTE: since the COUNT query does not include an ORDER BY clause, SELECT queries that differ only in their
+        // ORDER BY clause share the same COUNT query, which getNamedQueries() defines only once.
+        String countSql = String.format(template, "COUNT(*)", topicJoinClause, meJoinClause,
+            ftJoinClause, eeJoinClause, "", "", "", whereClause, "");
 
         String columns =
             "DISTINCT e.\"dtype\", e.\"status\", e.\"rating\", e.\"created\", e.\"created_by_user_id\", e.\"updated\", e.\"updated_by_user_id\", ee.*";
-        String selectSql = String.format(template, commonTableExpr, columns, topicJoinClause, meJoinClause,
-            ftJoinClause, eeJoinClause, cbuJoinClause, ubuJoinClause, whereClause, orderByClause);
-        Query selectQuery = defineNamedQuery(m.selectQueryName, selectSql, getEntityClass());
-
-        return new QueryPair(countQuery, selectQuery);
-    }
-
-    private String getFuzzyPredicate(EntityKind contextualEntityKind, EntityKind otherEntityKind) {
-        String predicate = FUZZY_SEARCHES.getOrDefault(contextualEntityKind, Collections.emptyMap())
-            .getOrDefault(otherEntityKind, DEFAULT_FUZZY_SEARCH).predicate.get();
-
-        LOGGER.trace("getFuzzyPredicate({}, {}) returned \"{}\"", contextualEntityKind, otherEntityKind, predicate);
-
-        return predicate;
-    }
-
-    private Object getFuzzyParam(Long contextualEntityId, EntityKind contextualEntityKind, EntityKind otherEntityKind) {
-        ILinkableEntity contextualEntity = linkableEntityRepository.findById(contextualEntityId)
-            .orElseThrow(() -> createEntityNotFoundException(contextualEntityKind.label(), contextualEntityId));
-        Object param = FUZZY_SEARCHES.getOrDefault(contextualEntityKind, Collections.emptyMap())
-            .getOrDefault(otherEntityKind, DEFAULT_FUZZY_SEARCH).param.apply(contextualEntity);
-
-        LOGGER.trace("getFuzzyParam({}, {}, {}) returned \"{}\"", contextualEntityId, contextualEntityKind,
-            otherEntityKind, param);
-
-        return param;
-    }
-
-    @Override
-    @SuppressWarnings("unchecked")
-    public Page<T> findByFilter(@Nullable LinkableEntityQueryFilter filter, @NonNull Pageable pageable) {
-        QueryMetaData m = getQueryMetaData(filter, pageable);
-
-        QueryPair queries = null;
-        synchronized (queryNames) {
-            if (!queryNames.contains(m.countQueryName) || !queryNames.contains(m.selectQueryName))
-                queries = defineNamedQueries(m);
-        }
-        if (queries == null) {
-            Query countQuery = em.createNamedQuery(m.countQueryName, Long.class);
-            Query selectQuery = em.createNamedQuery(m.selectQueryName, getEntityClass());
-            queries = new QueryPair(countQuery, selectQuery);
+        if (m.isSortedOnRelevance) {
+            // The index ranks its matches, so a match's position in the ranked list serves as its (negated) score.
+            if (m.hasTextIndex)
+                columns += ", -th.\"rank\" AS \"" + RELEVANCE + '"';
+            else if (m.hasTextH2)
+                columns += ", ft.\"SCORE\" AS \"" + RELEVANCE + '"';
+            else
+                columns += ", " + matchExpr + " AS \"" + RELEVANCE + '"';
         }
+        String selectSql = String.format(template, columns, topicJoinClause, meJoinClause,
+            ftJoinClause, eeJoinClause, cbuJoinClause, ubuJoinClause, seekJoinClause, seekWhereClause, orderByClause);
 
-        Map<String, Object> params = new HashMap<>();
+        Binders<LinkableEntityQueryFilter> binders = new Binders<>();
         if (m.hasRecordId)
-            params.put("recordId", m.filter.getRecordId());
+            binders.bind("recordId", f -> f.getRecordId());
         if (m.hasTopic)
-            params.put("topicId", m.filter.getTopicId());
+            binders.bind("topicId", f -> f.getTopicId());
         if (m.hasFromEntityFuzzy) {
-            params.put("fuzzyParam",
-                getFuzzyParam(m.filter.getToEntityId(), m.filter.getToEntityKind(), getEntityKind()));
+            binders.bind("fuzzyEntityId", f -> f.getToEntityId());
         } else {
             if (m.hasToEntityId)
-                params.put("toEntityId", m.filter.getToEntityId());
+                binders.bind("toEntityId", f -> f.getToEntityId());
             if (m.hasToEntityKind)
-                params.put("toEntityKind", m.filter.getToEntityKind().name());
+                binders.bind("toEntityKind", f -> f.getToEntityKind().name());
         }
         if (m.hasToEntityFuzzy) {
-            params.put("fuzzyParam",
-                getFuzzyParam(m.filter.getFromEntityId(), m.filter.getFromEntityKind(), getEntityKind()));
+            binders.bind("fuzzyEntityId", f -> f.getFromEntityId());
         } else {
             if (m.hasFromEntityId)
-                params.put("fromEntityId", m.filter.getFromEntityId());
+                binders.bind("fromEntityId", f -> f.getFromEntityId());
             if (m.hasFromEntityKind)
-                params.put("fromEntityKind", m.filter.getFromEntityKind().name());
+                binders.bind("fromEntityKind", f -> f.getFromEntityKind().name());
         }
-        if (m.hasStatus)
-            params.put("status", m.filter.getStatus().stream().map(e -> e.name()).toList());
-        if (m.hasText)
-            params.put("text", m.filter.getText());
+        if (m.isPublishedOnly)
+            binders.bind("status", _ -> PUBLISHED_STATUS);
+        else if (m.hasStatus)
+            binders.bind("status", f -> f.getStatus().stream().map(e -> e.name()).toList());
+        if (m.hasTextIndex)
+            binders.bind("textHits", f -> findTextHits(entityName, f.getText(), f.getAdvancedSearch()));
+        else if (m.hasText)
+            binders.bind("text", f -> f.getText());
+
+        return new QueryPlan<>(countQueryName.toString(), countSql, selectQueryName.toString(), selectSql,
+            binders.toList());
+    }
+
+    @Override
+    public Page<T> findByFilter(@Nullable LinkableEntityQueryFilter filter, @NonNull Pageable pageable,
+        boolean countTotal) {
+
+        // The query metadata and parameter binders require a filter.
+        if (filter == null)
+            filter = new LinkableEntityQueryFilter();
+        QueryMetaData m = getQueryMetaData(filter, pageable);
+        QueryPlan<LinkableEntityQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, getEntityClass());
+
+        Map<String, Object> params = plan.bind(filter);
         entityUtils.setQueryParameters(queries, params);
-        if (m.isPaged)
-            entityUtils.setQueryPagination(queries.selectQuery(), m.pageable);
+        if (m.isSeek) {
+            // The anchor row replaces the offset, so only the page size applies.
+            Long afterId = ((SeekRequest)pageable).getAfterId();
+            checkAnchor(afterId, getEntityKind(), m.isPublishedOnly);
+            queries.selectQuery().setParameter("afterId", afterId).setMaxResults(pageable.getPageSize());
+            params.put("afterId", afterId);
+        } else if (m.isPaged) {
+            entityUtils.setQueryPagination(queries.selectQuery(), pageable);
+        }
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.countQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.countQueryName);
-        long total = (Long)queries.countQuery().getSingleResult();
+        return executeQueries(queries, plan.countQueryName(), plan.selectQueryName(), params, pageable, countTotal);
+    }
 
-        if (pageable instanceof Countable)
-            return CountPageImpl.of(total);
+    @Override
+    public Stream<T> streamByFilter(@Nullable LinkableEntityQueryFilter filter, @NonNull Pageable pageable) {
+        // The query metadata and parameter binders require a filter.
+        if (filter == null)
+            filter = new LinkableEntityQueryFilter();
+        QueryMetaData m = getQueryMetaData(filter, pageable);
+        QueryPlan<LinkableEntityQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, getEntityClass());
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.selectQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.selectQueryName);
-        List<T> content = queries.selectQuery().getResultList();
+        Map<String, Object> params = plan.bind(filter);
+        entityUtils.setQueryParameters(queries, params);
+        if (m.isSeek) {
+            Long afterId = ((SeekRequest)pageable).getAfterId();
+            checkAnchor(afterId, getEntityKind(), m.isPublishedOnly);
+            queries.selectQuery().setParameter("afterId", afterId).setMaxResults(pageable.getPageSize());
+            params.put("afterId", afterId);
+        } else if (m.isPaged) {
+            entityUtils.setQueryPagination(queries.selectQuery(), pageable);
+        }
 
-        return new PageImpl<>(content, m.pageable, total);
+        return executeStreamingQuery(queries.selectQuery(), plan.selectQueryName(), params);
     }
 
 }
@@ -19,6 +19,12 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
 import io.github.demonfiddler.ee.server.model.Log;
 import io.github.demonfiddler.ee.server.model.LogQueryFilter;
 
@@ -26,4 +32,17 @@ import io.github.demonfiddler.ee.server.model.LogQueryFilter;
  * A custom Log repository that supports arbitrary filtering and pagination.
  */
 public interface CustomLogRepository extends CustomRepository<Log, LogQueryFilter> {
+
+    /**
+     * Returns a page of logs for each of several entities, using a single pair of queries. The filter and pagination
+     * apply to each entity's logs separately.
+     * @param filter The query filter, can be {@code null}. Its {@code entityId} is ignored.
+     * @param entityIds The IDs of the entities whose logs are required.
+     * @param pageable Specifies sorting and pagination, applied to each entity's logs.
+     * @param countTotal Whether the returned pages must report accurate totals.
+     * @return The pages of logs keyed on entity ID, with an entry for every ID in {@code entityIds}.
+     */
+    Map<Long, Page<Log>> findByFilterPerEntity(LogQueryFilter filter, Collection<Long> entityIds, Pageable pageable,
+        boolean countTotal);
+
 }
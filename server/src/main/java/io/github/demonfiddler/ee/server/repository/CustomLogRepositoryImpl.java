@@ -19,27 +19,26 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
-import java.util.HashMap;
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
-import io.github.demonfiddler.ee.server.model.CountPageImpl;
-import io.github.demonfiddler.ee.server.model.Countable;
 import io.github.demonfiddler.ee.server.model.Log;
 import io.github.demonfiddler.ee.server.model.LogQueryFilter;
+import io.github.demonfiddler.ee.server.repository.QueryPlan.Binders;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.ProfileUtils;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
-import jakarta.persistence.Query;
 
 /**
  * A custom Log repository implementation that supports arbitrary filtering.
@@ -51,14 +50,19 @@ public class CustomLogRepositoryImpl extends AbstractCustomRepositoryImpl implem
         super(entityUtils, profileUtils, securityUtils);
     }
 
-    /** Describes the elements of a query. */
-    static record QueryMetaData(@Nullable LogQueryFilter filter, @NonNull Pageable pageable, String countQueryName,
-        String selectQueryName, boolean hasEntityId, boolean hasEntityKind, boolean hasUserId,
-        boolean hasTransactionKinds, boolean hasFrom, boolean hasTo, boolean isPaged, boolean isSorted) {
+    /**
+     * Describes the shape of a query; also serves as the query plan cache key. If {@code hasEntityIds} is set, the
+     * query is a batch query for the logs of several entities.
+     */
+    static record QueryMetaData(boolean hasEntityId, boolean hasEntityIds, boolean hasEntityKind, boolean hasUserId,
+        boolean hasTransactionKinds, boolean hasFrom, boolean hasTo, boolean isPaged, boolean isSorted, Sort sort) {
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomLogRepositoryImpl.class);
 
+    /** Query plans keyed on query shape. */
+    private final Map<QueryMetaData, QueryPlan<LogQueryFilter>> queryPlans = new ConcurrentHashMap<>();
+
     Logger getLogger() {
         return LOGGER;
     }
@@ -67,56 +71,70 @@ public class CustomLogRepositoryImpl extends AbstractCustomRepositoryImpl implem
      * Returns metadata about a query and paging/sorting specification.
      * @param filter The query filter, must not be {@code null}.
      * @param pageable Specifies sorting and pagination, must not be {@code null}.
+     * @param batch Whether this is a batch query, for the logs of several entities at once.
      * @return Query metadata.
      */
     @SuppressWarnings("null")
-    private QueryMetaData getQueryMetaData(@Nullable LogQueryFilter filter, @NonNull Pageable pageable) {
+    private QueryMetaData getQueryMetaData(@Nullable LogQueryFilter filter, @NonNull Pageable pageable,
+        boolean batch) {
+
         boolean hasFilter = filter != null;
-        boolean hasEntityId = hasFilter && filter.getEntityId() != null;
+        boolean hasEntityId = hasFilter && filter.getEntityId() != null && !batch;
         boolean hasEntityKind = hasFilter && filter.getEntityKind() != null;
         boolean hasUserId = hasFilter && filter.getUserId() != null;
         boolean hasTransactionKinds = hasFilter && filter.getTransactionKinds() != null && !filter.getTransactionKinds().isEmpty();
         boolean hasFrom = hasFilter && filter.getFrom() != null;
         boolean hasTo = hasFilter && filter.getTo() != null;
         boolean isPaged = pageable.isPaged();
-        boolean isSorted = pageable.getSort().isSorted();
+        Sort sort = pageable.getSort();
+        boolean isSorted = sort.isSorted();
+
+        // Each entity's page of a windowed batch query is selected by row number, which requires a deterministic order.
+        if (batch && isPaged && sort.filter(o -> o.getProperty().equals("id")).isEmpty()) {
+            sort = sort.and(Sort.by("id"));
+            isSorted = true;
+        }
+
+        return new QueryMetaData(hasEntityId, batch, hasEntityKind, hasUserId, hasTransactionKinds, hasFrom, hasTo,
+            isPaged, isSorted, sort);
+    }
 
+    /**
+     * Creates a query plan: the query names, the rendered SQL of the pair of COUNT and SELECT queries and the query
+     * parameter binders.
+     * @param m Query metadata.
+     * @return The query plan.
+     */
+    private QueryPlan<LogQueryFilter> createQueryPlan(QueryMetaData m) {
         StringBuilder countQueryName = new StringBuilder();
         StringBuilder selectQueryName = new StringBuilder();
         StringBuilder[] queryNames = { countQueryName, selectQueryName };
         append("log.", queryNames);
         countQueryName.append("countBy");
         selectQueryName.append("findBy");
-        if (hasEntityKind || hasEntityId) {
+        if (m.hasEntityKind || m.hasEntityId || m.hasEntityIds) {
             append("Entity", queryNames);
-            if (hasEntityKind)
+            if (m.hasEntityKind)
                 append("Kind", queryNames);
-            if (hasEntityId)
+            if (m.hasEntityId)
                 append("Id", queryNames);
+            if (m.hasEntityIds)
+                append("Ids", queryNames);
         }
-        if (hasUserId)
+        if (m.hasUserId)
             append("User", queryNames);
-        if (hasTransactionKinds)
+        if (m.hasTransactionKinds)
             append("TxnKind", queryNames);
-        if (hasFrom)
+        if (m.hasFrom)
             append("From", queryNames);
-        if (hasTo)
+        if (m.hasTo)
             append("To", queryNames);
-        if (isSorted)
-            entityUtils.appendOrderByToQueryName(selectQueryName, pageable);
-
-        return new QueryMetaData(filter, pageable, countQueryName.toString(), selectQueryName.toString(), hasEntityId,
-            hasEntityKind, hasUserId, hasTransactionKinds, hasFrom, hasTo, isPaged, isSorted);
-    }
+        boolean isWindowed = m.hasEntityIds && m.isPaged;
+        if (isWindowed)
+            selectQueryName.append("Windowed");
+        if (m.isSorted)
+            entityUtils.appendOrderByToQueryName(selectQueryName, m.sort);
 
-    /**
-     * Defines and registers a pair of named queries with the {@code EntityManagerFactory}.
-     * @param filter The query filter, must not be {@code null}.
-     * @param pageable Specifies sorting and pagination, must not be {@code null}.
-     * @param m Query metadata.
-     * @return An executable query pair.
-     */
-    private QueryPair defineNamedQueries(QueryMetaData m) {
         StringBuilder selectBuf = new StringBuilder();
         selectBuf.append(NL) //
             .append("FROM \"log\" l");
@@ -125,7 +143,9 @@ public class CustomLogRepositoryImpl extends AbstractCustomRepositoryImpl implem
                 .append("JOIN \"entity\" e ON e.\"id\" = l.\"entity_id\"");
         }
         boolean needsAnd = false;
-        if (m.hasEntityId || m.hasEntityKind || m.hasUserId || m.hasTransactionKinds || m.hasFrom || m.hasTo) {
+        if (m.hasEntityId || m.hasEntityIds || m.hasEntityKind || m.hasUserId || m.hasTransactionKinds || m.hasFrom
+            || m.hasTo) {
+
             selectBuf.append(NL) //
                 .append("WHERE");
         }
@@ -134,6 +154,11 @@ public class CustomLogRepositoryImpl extends AbstractCustomRepositoryImpl implem
                 .append("  l.\"entity_id\" = :entityId");
             needsAnd = true;
         }
+        if (m.hasEntityIds) {
+            selectBuf.append(NL) //
+                .append("    l.\"entity_id\" IN (:entityIds)");
+            needsAnd = true;
+        }
         if (m.hasEntityKind) {
             selectBuf.append(NL) //
                 .append("    ");
@@ -175,74 +200,93 @@ public class CustomLogRepositoryImpl extends AbstractCustomRepositoryImpl implem
             needsAnd = true;
         }
         StringBuffer countBuf = new StringBuffer(selectBuf);
-        countBuf.insert(0, "SELECT COUNT(*)");
+        if (m.hasEntityIds) {
+            // A batch COUNT query counts each entity's logs separately.
+            countBuf.insert(0, "SELECT l.\"entity_id\", COUNT(*)");
+            countBuf.append(NL) //
+                .append("GROUP BY l.\"entity_id\"");
+        } else {
+            countBuf.insert(0, "SELECT COUNT(*)");
+        }
         countBuf.append(';');
-        selectBuf.insert(0, "SELECT l.*");
-        if (m.isSorted)
-            entityUtils.appendOrderByClause(selectBuf, m.pageable, "l.", "e.", "", "", true);
-        selectBuf.append(';');
+        if (isWindowed) {
+            // A windowed batch SELECT query numbers each entity's logs in sort order and selects a page from each.
+            StringBuilder orderByClause = new StringBuilder();
+            entityUtils.appendOrderByClause(orderByClause, m.sort, "l.", "e.", "", "", false);
+            selectBuf.insert(0, "SELECT l.*, " + rowNumberColumn("l.\"entity_id\"", orderByClause));
+            selectBuf.replace(0, selectBuf.length(), windowedSelectSql(selectBuf));
+        } else {
+            selectBuf.insert(0, "SELECT l.*");
+            if (m.isSorted)
+                entityUtils.appendOrderByClause(selectBuf, m.sort, "l.", "e.", "", "", true);
+            selectBuf.append(';');
+        }
 
-        // NOTE: since the COUNT query does not include an ORDER BY clause, multiple executions of the same SELECT query
-        // with different ORDER BY clauses will result in the registration of multiple identical COUNT queries, each of
-        // which will simply overwrite the previous definition. This is not a problem, but it is somewhat inefficient.
+        // NOTE: since the COUNT query does not include an ORDER BY clause, SELECT queries that differ only in their
+        // ORDER BY clause share the same COUNT query, which getNamedQueries() defines only once.
         String countSql = countBuf.toString();
-        Query countQuery = defineNamedQuery(m.countQueryName, countSql, Long.class);
-
         String selectSql = selectBuf.toString();
-        Query selectQuery = defineNamedQuery(m.selectQueryName, selectSql, Log.class);
 
-        return new QueryPair(countQuery, selectQuery);
-    }
-
-    @Override
-    @SuppressWarnings("unchecked")
-    public Page<Log> findByFilter(@Nullable LogQueryFilter filter, @NonNull Pageable pageable) {
-        QueryMetaData m = getQueryMetaData(filter, pageable);
-
-        QueryPair queries = null;
-        synchronized (queryNames) {
-            if (!queryNames.contains(m.countQueryName) || !queryNames.contains(m.selectQueryName))
-                queries = defineNamedQueries(m);
-        }
-        if (queries == null) {
-            Query countQuery = em.createNamedQuery(m.countQueryName, Long.class);
-            Query selectQuery = em.createNamedQuery(m.selectQueryName, Log.class);
-            queries = new QueryPair(countQuery, selectQuery);
-        }
-
-        Map<String, Object> params = new HashMap<>();
+        Binders<LogQueryFilter> binders = new Binders<>();
         if (m.hasEntityId)
-            params.put("entityId", m.filter.getEntityId());
+            binders.bind("entityId", f -> f.getEntityId());
         if (m.hasEntityKind)
-            params.put("entityKind", m.filter.getEntityKind().name());
+            binders.bind("entityKind", f -> f.getEntityKind().name());
         if (m.hasUserId)
-            params.put("userId", m.filter.getUserId());
+            binders.bind("userId", f -> f.getUserId());
         if (m.hasTransactionKinds)
-            params.put("transactionKinds", m.filter.getTransactionKinds().stream().map(t -> t.name()).toList());
+            binders.bind("transactionKinds", f -> f.getTransactionKinds().stream().map(t -> t.name()).toList());
         if (m.hasFrom)
-            params.put("from", m.filter.getFrom());
+            binders.bind("from", f -> f.getFrom());
         if (m.hasTo)
-            params.put("to", m.filter.getTo());
+            binders.bind("to", f -> f.getTo());
+
+        return new QueryPlan<>(countQueryName.toString(), countSql, selectQueryName.toString(), selectSql,
+            binders.toList());
+    }
+
+    @Override
+    public Page<Log> findByFilter(@Nullable LogQueryFilter filter, @NonNull Pageable pageable, boolean countTotal) {
+        QueryMetaData m = getQueryMetaData(filter, pageable, false);
+        QueryPlan<LogQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, Log.class);
+
+        Map<String, Object> params = plan.bind(filter);
         entityUtils.setQueryParameters(queries, params);
         if (m.isPaged)
-            entityUtils.setQueryPagination(queries.selectQuery(), m.pageable);
+            entityUtils.setQueryPagination(queries.selectQuery(), pageable);
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.countQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.countQueryName);
-        long total = (Long)queries.countQuery().getSingleResult();
+        return executeQueries(queries, plan.countQueryName(), plan.selectQueryName(), params, pageable, countTotal);
+    }
 
-        if (pageable instanceof Countable)
-            return CountPageImpl.of(total);
+    @Override
+    public Stream<Log> streamByFilter(@Nullable LogQueryFilter filter, @NonNull Pageable pageable) {
+        QueryMetaData m = getQueryMetaData(filter, pageable, false);
+        QueryPlan<LogQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, Log.class);
+
+        Map<String, Object> params = plan.bind(filter);
+        entityUtils.setQueryParameters(queries, params);
+        if (m.isPaged)
+            entityUtils.setQueryPagination(queries.selectQuery(), pageable);
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.selectQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.selectQueryName);
-        List<Log> content = queries.selectQuery().getResultList();
+        return executeStreamingQuery(queries.selectQuery(), plan.selectQueryName(), params);
+    }
+
+    @Override
+    public Map<Long, Page<Log>> findByFilterPerEntity(@Nullable LogQueryFilter filter, Collection<Long> entityIds,
+        @NonNull Pageable pageable, boolean countTotal) {
+
+        QueryMetaData m = getQueryMetaData(filter, pageable, true);
+        QueryPlan<LogQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getBatchNamedQueries(plan, Log.class);
+
+        Map<String, Object> params = plan.bind(filter);
+        params.put("entityIds", entityIds);
+        entityUtils.setQueryParameters(queries, params);
 
-        return new PageImpl<>(content, m.pageable, total);
+        return executeBatchQueries(queries, plan.countQueryName(), plan.selectQueryName(), params, entityIds,
+            Log::getEntityId, pageable, countTotal);
     }
 
 }
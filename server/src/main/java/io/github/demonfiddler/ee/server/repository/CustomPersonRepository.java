@@ -22,5 +22,6 @@ package io.github.demonfiddler.ee.server.repository;
 import io.github.demonfiddler.ee.server.model.Person;
 import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
 
-public interface CustomPersonRepository extends CustomRepository<Person, LinkableEntityQueryFilter> {
+public interface CustomPersonRepository
+    extends CustomRepository<Person, LinkableEntityQueryFilter>, SeekableRepository {
 }
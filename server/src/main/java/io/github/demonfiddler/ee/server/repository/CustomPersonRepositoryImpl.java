@@ -28,9 +28,9 @@ public class CustomPersonRepositoryImpl extends CustomLinkableEntityRepositoryIm
     implements CustomPersonRepository {
 
     protected CustomPersonRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils,
-        SecurityUtils securityUtils, LinkableEntityRepository linkableEntityRepository) {
+        SecurityUtils securityUtils) {
 
-        super(entityUtils, profileUtils, securityUtils, linkableEntityRepository);
+        super(entityUtils, profileUtils, securityUtils);
     }
 
     @Override
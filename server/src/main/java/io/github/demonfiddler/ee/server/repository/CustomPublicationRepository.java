@@ -22,5 +22,6 @@ package io.github.demonfiddler.ee.server.repository;
 import io.github.demonfiddler.ee.server.model.Publication;
 import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
 
-public interface CustomPublicationRepository extends CustomRepository<Publication, LinkableEntityQueryFilter> {
+public interface CustomPublicationRepository
+    extends CustomRepository<Publication, LinkableEntityQueryFilter>, SeekableRepository {
 }
@@ -28,9 +28,9 @@ public class CustomPublicationRepositoryImpl extends CustomLinkableEntityReposit
     implements CustomPublicationRepository {
 
     protected CustomPublicationRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils,
-        SecurityUtils securityUtils, LinkableEntityRepository linkableEntityRepository) {
+        SecurityUtils securityUtils) {
 
-        super(entityUtils, profileUtils, securityUtils, linkableEntityRepository);
+        super(entityUtils, profileUtils, securityUtils);
     }
 
     @Override
@@ -22,5 +22,6 @@ package io.github.demonfiddler.ee.server.repository;
 import io.github.demonfiddler.ee.server.model.Publisher;
 import io.github.demonfiddler.ee.server.model.TrackedEntityQueryFilter;
 
-public interface CustomPublisherRepository extends CustomRepository<Publisher, TrackedEntityQueryFilter> {
+public interface CustomPublisherRepository
+    extends CustomRepository<Publisher, TrackedEntityQueryFilter>, SeekableRepository {
 }
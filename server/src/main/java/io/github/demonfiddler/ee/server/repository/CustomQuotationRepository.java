@@ -22,5 +22,6 @@ package io.github.demonfiddler.ee.server.repository;
 import io.github.demonfiddler.ee.server.model.Quotation;
 import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
 
-public interface CustomQuotationRepository extends CustomRepository<Quotation, LinkableEntityQueryFilter> {
+public interface CustomQuotationRepository
+    extends CustomRepository<Quotation, LinkableEntityQueryFilter>, SeekableRepository {
 }
@@ -28,9 +28,9 @@ public class CustomQuotationRepositoryImpl extends CustomLinkableEntityRepositor
     implements CustomQuotationRepository {
 
     protected CustomQuotationRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils,
-        SecurityUtils securityUtils, LinkableEntityRepository linkableEntityRepository) {
+        SecurityUtils securityUtils) {
 
-        super(entityUtils, profileUtils, securityUtils, linkableEntityRepository);
+        super(entityUtils, profileUtils, securityUtils);
     }
 
     @Override
@@ -19,6 +19,8 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
+import java.util.stream.Stream;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -35,6 +37,33 @@ public interface CustomRepository<T, F> {
      * @param pageable How to paginate/sort the results.
      * @return A pageful of matching entities.
      */
-    Page<T> findByFilter(F filter, Pageable pageable);
+    default Page<T> findByFilter(F filter, Pageable pageable) {
+        return findByFilter(filter, pageable, true);
+    }
+
+    /**
+     * Finds entities using a filter, with pagination and/or sorting.
+     * @param filter The filter to apply.
+     * @param pageable How to paginate/sort the results.
+     * @param countTotal Whether the returned page must report accurate {@code totalElements} and {@code totalPages}.
+     * If {@code false}, the implementation may omit the COUNT query, in which case the page's totals are lower bounds
+     * which are nevertheless sufficient to determine {@code hasNext} and {@code isLast}.
+     * @return A pageful of matching entities.
+     */
+    Page<T> findByFilter(F filter, Pageable pageable, boolean countTotal);
+
+    /**
+     * Streams entities using a filter, with optional pagination and/or sorting. Unlike
+     * {@link #findByFilter(Object, Pageable) findByFilter()}, an implementation may read the results from a database
+     * cursor as the stream is consumed, so that memory use does not grow with the number of results. The caller must
+     * consume the stream within a transaction and close it afterwards. The default implementation simply streams the
+     * content of a page returned by {@code findByFilter()}.
+     * @param filter The filter to apply.
+     * @param pageable How to paginate/sort the results.
+     * @return A stream of matching entities.
+     */
+    default Stream<T> streamByFilter(F filter, Pageable pageable) {
+        return findByFilter(filter, pageable, false).getContent().stream();
+    }
 
 }
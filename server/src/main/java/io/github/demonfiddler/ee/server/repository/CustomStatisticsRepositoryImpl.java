@@ -28,7 +28,6 @@ import org.springframework.stereotype.Repository;
 
 import io.github.demonfiddler.ee.server.model.EntityStatistics;
 import io.github.demonfiddler.ee.server.model.StatisticsQueryFilter;
-import io.github.demonfiddler.ee.server.model.StatusKind;
 import io.github.demonfiddler.ee.server.model.TopicStatisticsDto;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.ProfileUtils;
@@ -41,7 +40,18 @@ import jakarta.persistence.Query;
 public class CustomStatisticsRepositoryImpl extends AbstractCustomRepositoryImpl implements StatisticsRepository {
 
     /** Describes the elements of a query. */
-    private static record QueryMetaData(@Nullable StatisticsQueryFilter filter, String queryName, boolean hasStatus) {
+    private static record QueryMetaData(@Nullable StatisticsQueryFilter filter, String queryName, boolean hasStatus,
+        boolean isPublishedOnly) {
+
+        /**
+         * Returns the value of the {@code status} query parameter.
+         * @return The status names.
+         */
+        @SuppressWarnings("null")
+        List<String> status() {
+            return isPublishedOnly ? PUBLISHED_STATUS : filter.getStatus().stream().map(s -> s.name()).toList();
+        }
+
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomStatisticsRepositoryImpl.class);
@@ -72,12 +82,9 @@ public class CustomStatisticsRepositoryImpl extends AbstractCustomRepositoryImpl
         boolean hasStatus = hasFilter && filter.getStatus() != null && !filter.getStatus().isEmpty();
 
         // Unauthenticated queries should only return published results.
-        if (securityUtils.getCurrentUsername().equals("anonymousUser")) {
-            if (filter == null)
-                filter = new StatisticsQueryFilter();
-            filter.setStatus(List.of(StatusKind.PUB));
-            hasFilter = hasStatus = true;
-        }
+        boolean isPublishedOnly = isPublishedOnly();
+        if (isPublishedOnly)
+            hasStatus = true;
 
         StringBuilder queryName = new StringBuilder();
         StringBuilder[] queryNames = { queryName };
@@ -88,11 +95,12 @@ public class CustomStatisticsRepositoryImpl extends AbstractCustomRepositoryImpl
                 append("Status", queryNames);
         }
 
-        return new QueryMetaData(filter, queryName.toString(), hasStatus);
+        return new QueryMetaData(filter, queryName.toString(), hasStatus, isPublishedOnly);
     }
 
     /**
-     * Defines a JPA named native query. N.B. This method requires external synchronisation.
+     * Defines a JPA named native query. N.B. This method should only be called from a {@link NamedQueryRegistry}
+     * definer, which guarantees that each query is defined exactly once.
      * @param queryName The query name.
      * @param sql The native SQL.
      * @param resultClass The class that the query returns.
@@ -101,7 +109,6 @@ public class CustomStatisticsRepositoryImpl extends AbstractCustomRepositoryImpl
     private Query defineNamedQuery(String queryName, String sql, String resultSetMapping) {
         Query query = em.createNativeQuery(sql, resultSetMapping);
         em.getEntityManagerFactory().addNamedQuery(queryName, query);
-        queryNames.add(queryName);
 
         if (getLogger().isTraceEnabled())
             getLogger().trace("Defined query '{}' as:\n{}", queryName, sql);
@@ -199,15 +206,10 @@ public class CustomStatisticsRepositoryImpl extends AbstractCustomRepositoryImpl
     public List<EntityStatistics> getEntityStatistics(StatisticsQueryFilter filter) {
         QueryMetaData m = getQueryMetaData(EntityStatistics.class, filter);
 
-        Query query = null;
-        synchronized (queryNames) {
-            if (!queryNames.contains(m.queryName))
-                query = defineEntityStatisticsQuery(m);
-        }
-        if (query == null)
-            query = em.createNamedQuery(m.queryName, EntityStatistics.class);
+        queryRegistry.define(m.queryName, () -> defineEntityStatisticsQuery(m));
+        Query query = em.createNamedQuery(m.queryName, EntityStatistics.class);
         if (m.hasStatus)
-            query.setParameter("status", m.filter.getStatus().stream().map(s -> s.name()).toList());
+            query.setParameter("status", m.status());
 
         LOGGER.debug("Executing query '{}'", m.queryName);
         return (List<EntityStatistics>)query.getResultList();
@@ -218,15 +220,10 @@ public class CustomStatisticsRepositoryImpl extends AbstractCustomRepositoryImpl
     public List<TopicStatisticsDto> getTopicStatistics(StatisticsQueryFilter filter) {
         QueryMetaData m = getQueryMetaData(TopicStatisticsDto.class, filter);
 
-        Query query = null;
-        synchronized (queryNames) {
-            if (!queryNames.contains(m.queryName))
-                query = defineTopicStatisticsQuery(m);
-        }
-        if (query == null)
-            query = em.createNamedQuery(m.queryName, TopicStatisticsDto.class);
+        queryRegistry.define(m.queryName, () -> defineTopicStatisticsQuery(m));
+        Query query = em.createNamedQuery(m.queryName, TopicStatisticsDto.class);
         if (m.hasStatus)
-            query.setParameter("status", m.filter.getStatus().stream().map(s -> s.name()).toList());
+            query.setParameter("status", m.status());
 
         LOGGER.debug("Executing query '{}'", m.queryName);
         return (List<TopicStatisticsDto>)query.getResultList();
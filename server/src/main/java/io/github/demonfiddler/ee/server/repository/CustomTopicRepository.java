@@ -25,5 +25,26 @@ import io.github.demonfiddler.ee.server.model.TopicQueryFilter;
 /**
  * A custom topic repository that supports arbitrary filtering and recursive queries.
  */
-public interface CustomTopicRepository extends CustomRepository<Topic, TopicQueryFilter> {
+public interface CustomTopicRepository extends CustomRepository<Topic, TopicQueryFilter>, SeekableRepository {
+
+    /**
+     * Adds a newly created topic to the topic closure table, beneath its parent (if any).
+     * @param topicId The ID of the new topic.
+     * @param parentId The ID of the topic's parent, or {@code null} if it is a root topic.
+     */
+    void insertClosure(Long topicId, Long parentId);
+
+    /**
+     * Moves a topic and its descendants within the topic closure table, following a change to the topic's parent.
+     * @param topicId The ID of the topic that was moved.
+     * @param parentId The ID of the topic's new parent, or {@code null} if it is now a root topic.
+     */
+    void updateClosure(Long topicId, Long parentId);
+
+    /**
+     * Rebuilds the entire topic closure table from the {@code topic.parent_id} hierarchy.
+     * @return The number of closure rows inserted.
+     */
+    int rebuildClosure();
+
 }
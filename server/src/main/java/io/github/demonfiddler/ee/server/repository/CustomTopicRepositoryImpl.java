@@ -19,43 +19,96 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
-import io.github.demonfiddler.ee.server.model.CountPageImpl;
-import io.github.demonfiddler.ee.server.model.Countable;
+import io.github.demonfiddler.ee.server.model.EntityKind;
 import io.github.demonfiddler.ee.server.model.IBaseEntity;
-import io.github.demonfiddler.ee.server.model.StatusKind;
+import io.github.demonfiddler.ee.server.model.SeekRequest;
 import io.github.demonfiddler.ee.server.model.Topic;
 import io.github.demonfiddler.ee.server.model.TopicQueryFilter;
+import io.github.demonfiddler.ee.server.repository.QueryPlan.Binders;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.ProfileUtils;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
-import jakarta.persistence.Query;
 
 @Transactional
 public class CustomTopicRepositoryImpl extends AbstractCustomRepositoryImpl implements CustomTopicRepository {
 
-    /** Describes the elements of a query. */
-    static record QueryMetaData(@Nullable TopicQueryFilter filter, @NonNull Pageable pageable, String countQueryName,
-        String selectQueryName, boolean hasParentId, boolean hasText, boolean hasTextH2, boolean hasTextMariaDB,
-        boolean isAdvanced, boolean hasStatus, boolean hasRecordId, boolean isRecursive, boolean isPaged, boolean isSorted) {
+    /** Describes the shape of a query; also serves as the query plan cache key. */
+    static record QueryMetaData(boolean hasParentId, boolean isParentNull, boolean hasText, boolean hasTextIndex,
+        boolean hasTextH2, boolean hasTextMariaDB, boolean isAdvanced, boolean hasStatus, boolean isPublishedOnly,
+        boolean hasRecordId, boolean isRecursive, boolean isPaged, boolean isSeek, boolean isSorted, Sort sort) {
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomTopicRepositoryImpl.class);
 
+    /** Inserts the self-referencing closure row for a topic. */
+    private static final String INSERT_CLOSURE_SELF = """
+        INSERT INTO "topic_closure" ("ancestor_id", "descendant_id", "depth")
+        VALUES (:topicId, :topicId, 0);
+        """;
+
+    /** Pairs each ancestor-or-self of a parent topic with each descendant-or-self of a child topic. */
+    private static final String INSERT_CLOSURE_SUBTREE = """
+        INSERT INTO "topic_closure" ("ancestor_id", "descendant_id", "depth")
+        SELECT a."ancestor_id", d."descendant_id", a."depth" + d."depth" + 1
+        FROM "topic_closure" a
+        CROSS JOIN "topic_closure" d
+        WHERE
+            a."descendant_id" = :parentId
+            AND d."ancestor_id" = :topicId;
+        """;
+
+    /** Selects the IDs of a topic and its descendants. */
+    private static final String SELECT_CLOSURE_SUBTREE = """
+        SELECT "descendant_id"
+        FROM "topic_closure"
+        WHERE "ancestor_id" = :topicId;
+        """;
+
+    /** Detaches a subtree from its former ancestors. */
+    private static final String DELETE_CLOSURE_SUBTREE = """
+        DELETE FROM "topic_closure"
+        WHERE
+            "descendant_id" IN (:subtreeIds)
+            AND "ancestor_id" NOT IN (:subtreeIds);
+        """;
+
+    private static final String DELETE_CLOSURE_ALL = """
+        DELETE FROM "topic_closure";
+        """;
+
+    private static final String INSERT_CLOSURE_ALL_SELF = """
+        INSERT INTO "topic_closure" ("ancestor_id", "descendant_id", "depth")
+        SELECT "id", "id", 0
+        FROM "topic";
+        """;
+
+    /** Extends each closure path of a given depth by one level, to the children of its descendant. */
+    private static final String INSERT_CLOSURE_LEVEL = """
+        INSERT INTO "topic_closure" ("ancestor_id", "descendant_id", "depth")
+        SELECT c."ancestor_id", t."id", c."depth" + 1
+        FROM "topic_closure" c
+        JOIN "topic" t
+        ON t."parent_id" = c."descendant_id"
+        WHERE c."depth" = :depth;
+        """;
+
+    /** Query plans keyed on query shape. */
+    private final Map<QueryMetaData, QueryPlan<TopicQueryFilter>> queryPlans = new ConcurrentHashMap<>();
+
     CustomTopicRepositoryImpl(EntityUtils entityUtils, ProfileUtils profileUtils, SecurityUtils securityUtils) {
         super(entityUtils, profileUtils, securityUtils);
     }
@@ -65,148 +118,111 @@ public class CustomTopicRepositoryImpl extends AbstractCustomRepositoryImpl impl
     }
 
     /**
-     * Returns metadata about a query and paging/sorting specification.
+     * Returns metadata about a query and paging/sorting specification. N.B. an anonymous user's query is restricted to
+     * published records without modifying the filter.
      * @param filter The query filter, must not be {@code null}.
      * @param pageable Specifies sorting and pagination, must not be {@code null}.
      * @return Query metadata.
      */
-    @SuppressWarnings("null")
-    private QueryMetaData getQueryMetaData(@Nullable TopicQueryFilter filter, @NonNull Pageable pageable) {
-        boolean hasFilter = filter != null;
-        boolean hasParentId = hasFilter && filter.getParentId() != null;
-        boolean hasText = hasFilter && filter.getText() != null;
-        boolean hasTextH2 = hasText && profileUtils.isIntegrationTesting();
-        boolean hasTextMariaDB = hasText && !profileUtils.isIntegrationTesting();
+    private QueryMetaData getQueryMetaData(@NonNull TopicQueryFilter filter, @NonNull Pageable pageable) {
+        boolean hasParentId = filter.getParentId() != null;
+        boolean isParentNull = hasParentId && filter.getParentId() == -1;
+        boolean hasText = filter.getText() != null;
+        boolean hasTextIndex = hasText && searchIndex.isIndexed("topic");
+        boolean hasTextH2 = hasText && !hasTextIndex && profileUtils.isIntegrationTesting();
+        boolean hasTextMariaDB = hasText && !hasTextIndex && !profileUtils.isIntegrationTesting();
         boolean isAdvanced = hasText && filter.getAdvancedSearch() != null && filter.getAdvancedSearch();
-        boolean hasStatus = hasFilter && filter.getStatus() != null && !filter.getStatus().isEmpty();
-        boolean hasRecordId = hasFilter && filter.getRecordId() != null;
-        boolean isRecursive = hasFilter && filter.getRecursive() != null && filter.getRecursive();
+        boolean hasStatus = filter.getStatus() != null && !filter.getStatus().isEmpty();
+        boolean hasRecordId = filter.getRecordId() != null;
+        boolean isRecursive = filter.getRecursive() != null && filter.getRecursive();
         boolean isPaged = pageable.isPaged();
-        boolean isSorted = pageable.getSort().isSorted();
+        boolean isSeek = pageable instanceof SeekRequest;
+        Sort sort = pageable.getSort();
+        boolean isSorted = sort.isSorted();
 
         // If filter supplies a recordId, ignore all other criteria.
         if (hasRecordId) {
-            hasParentId = hasText = hasTextH2 = hasTextMariaDB = isAdvanced = hasStatus = isRecursive = false;
+            hasParentId = isParentNull = hasText = hasTextIndex = hasTextH2 = hasTextMariaDB = isAdvanced = hasStatus =
+                isRecursive = false;
         }
 
         // Unauthenticated queries should only return published results.
-        if (securityUtils.getCurrentUsername().equals("anonymousUser")) {
-            if (filter == null)
-                filter = new TopicQueryFilter();
-            filter.setStatus(List.of(StatusKind.PUB));
-            hasFilter = hasStatus = true;
-        }
+        boolean isPublishedOnly = isPublishedOnly();
+        if (isPublishedOnly)
+            hasStatus = true;
 
         // For paged queries involving an H2 full text filter, we need to ensure that the sort order includes "id"
         // because otherwise the join with FT_SEARCH_DATA can result in records duplicated across successive pages.
-        if (hasTextH2 && isPaged && pageable.getSort().filter(o -> o.getProperty().equals("id")).isEmpty()) {
-            Sort sort = pageable.getSort().and(Sort.by(IBaseEntity::getId));
-            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        // Seek requests likewise rely on "id" as the unique tie-breaker.
+        if ((hasTextH2 && isPaged || isSeek) && sort.filter(o -> o.getProperty().equals("id")).isEmpty()) {
+            sort = sort.and(Sort.by(IBaseEntity::getId));
             isSorted = true;
         }
 
+        return new QueryMetaData(hasParentId, isParentNull, hasText, hasTextIndex, hasTextH2, hasTextMariaDB,
+            isAdvanced, hasStatus, isPublishedOnly, hasRecordId, isRecursive, isPaged, isSeek, isSorted, sort);
+    }
+
+    /**
+     * Creates a query plan: the query names, the rendered SQL of the pair of COUNT and SELECT queries and the query
+     * parameter binders.
+     * @param m Query metadata.
+     * @return The query plan.
+     */
+    private QueryPlan<TopicQueryFilter> createQueryPlan(QueryMetaData m) {
         StringBuilder countQueryName = new StringBuilder();
         StringBuilder selectQueryName = new StringBuilder();
         StringBuilder[] queryNames = { countQueryName, selectQueryName };
         append("topic.", queryNames);
         countQueryName.append("countBy");
         selectQueryName.append("findBy");
-        if (hasRecordId)
+        if (m.hasRecordId)
             append("Id", queryNames);
-        if (hasParentId) {
+        if (m.hasParentId) {
             append("Parent", queryNames);
-            if (isRecursive)
+            if (m.isParentNull)
+                append("Null", queryNames);
+            if (m.isRecursive)
                 append("Recursive", queryNames);
         }
-        if (hasStatus) {
+        if (m.hasStatus) {
             append("Status", queryNames);
         }
-        if (hasText) {
+        if (m.hasText) {
             append("Text", queryNames);
-            if (isAdvanced)
+            if (m.hasTextIndex)
+                append("Indexed", queryNames);
+            else if (m.isAdvanced)
                 append("Advanced", queryNames);
         }
-        if (isSorted) {
-            entityUtils.appendOrderByToQueryName(selectQueryName, pageable);
+        if (m.isSeek) {
+            selectQueryName.append("After");
+        }
+        if (m.isSorted) {
+            entityUtils.appendOrderByToQueryName(selectQueryName, m.sort);
         }
 
-        return new QueryMetaData(filter, pageable, countQueryName.toString(), selectQueryName.toString(), hasParentId,
-            hasText, hasTextH2, hasTextMariaDB, isAdvanced, hasStatus, hasRecordId, isRecursive, isPaged, isSorted);
-    }
-
-    /**
-     * Defines and registers a pair of named queries with the {@code EntityManagerFactory}.
-     * @param m Query metadata.
-     * @return An executable query pair.
-     */
-    private QueryPair defineNamedQueries(QueryMetaData m) {
-        String template;
-        String selectFields;
-        StringBuilder cteJoinClause = new StringBuilder();
-        StringBuilder cteParentIdClause = new StringBuilder();
-        StringBuilder cteStatusClause1 = new StringBuilder();
-        StringBuilder cteStatusClause2 = new StringBuilder();
+        StringBuilder closureJoinClause = new StringBuilder();
         StringBuilder ftJoinClause = new StringBuilder();
         StringBuilder whereClause = new StringBuilder();
         StringBuilder orderByClause = new StringBuilder();
 
-        // parentId/status predicates applied to recursive predicate when recursive or main select when non-recursive;
-        // text predicate is only ever applied to the main select.
-        if (m.isRecursive) {
-            if (m.filter.getParentId() == -1)
-                cteParentIdClause.append("IS NULL");
-            else
-                cteParentIdClause.append("= :parentId");
-            if (m.hasStatus) {
-                cteJoinClause.append(NL) //
-                    .append("    JOIN \"entity\" e").append(NL) //
-                    .append("    ON e.\"id\" = t.\"id\"");
-                cteStatusClause1.append(NL) //
-                    .append("        AND e.\"status\" IN (:status)");
-                cteStatusClause2.append(NL) //
-                    .append("    WHERE e.\"status\" IN (:status)");
-            }
-            // At first sight one might think that it would be more efficient to select the topic records from the
-            // sub_topics temporary table, but this doesn't work because in MariaDB that table uses the MEMORY storage
-            // engine, which doesn't support full text indexes. Hence the need to select ids only then use them in the
-            // final join.
-            template = """
-                WITH RECURSIVE "sub_topic" ("id", "parent_id")
-                AS (
-                    SELECT t."id", t."parent_id"
-                    FROM "topic" t%s
-                    WHERE t."parent_id" %s%s
-                    UNION ALL
-                    SELECT t."id", t."parent_id"
-                    FROM "topic" t%s
-                    JOIN "sub_topic" st
-                    ON st."id" = t."parent_id"%s
-                )
-                SELECT %s
-                FROM "topic" t
-                JOIN "entity" e
-                ON e."id" = t."id"
-                JOIN "sub_topic" st
-                ON st."id" = t."id"%s%s%s;
-                """;
-            selectFields =
-                "DISTINCT e.\"dtype\", e.\"status\", e.\"rating\", e.\"created\", e.\"created_by_user_id\", e.\"updated\", e.\"updated_by_user_id\", t.*";
-        } else {
-            template = """
-                %s%s%s%s%sSELECT %s
-                FROM "topic" t
-                JOIN "entity" e
-                ON e."id" = t."id"%s%s%s;
-                """;
-            selectFields =
-                "e.\"dtype\", e.\"status\", e.\"rating\", e.\"created\", e.\"created_by_user_id\", e.\"updated\", e.\"updated_by_user_id\", t.*";
+        // Recursive queries use the topic closure table to select the descendants of the specified parent; every topic
+        // is a descendant of the root (null parent), so no join is needed in that case.
+        boolean isClosureJoin = m.isRecursive && !m.isParentNull;
+        if (isClosureJoin) {
+            closureJoinClause.append(NL) //
+                .append("JOIN \"topic_closure\" tc").append(NL) //
+                .append("ON").append(NL) //
+                .append("    tc.\"ancestor_id\" = :parentId").append(NL) //
+                .append("    AND tc.\"descendant_id\" = t.\"id\"").append(NL) //
+                .append("    AND tc.\"depth\" > 0");
         }
-        if ((m.hasParentId || m.hasStatus || m.hasRecordId) && !m.isRecursive || m.hasText) {
+        boolean isParentIdPredicate = m.hasParentId && !m.isRecursive;
+        if (m.hasRecordId || isParentIdPredicate || m.hasStatus || m.hasTextMariaDB) {
+            whereClause.append(NL) //
+                .append("WHERE");
             boolean needsAnd = false;
-            if ((m.hasParentId || m.hasStatus || m.hasRecordId) && !m.isRecursive || m.hasTextMariaDB) {
-                whereClause.append(NL) //
-                    .append("WHERE");
-            }
             if (m.hasRecordId) {
                 whereClause.append(NL) //
                     .append("    ");
@@ -215,32 +231,43 @@ public class CustomTopicRepositoryImpl extends AbstractCustomRepositoryImpl impl
                 whereClause.append("e.\"id\" = :recordId");
                 needsAnd = true;
             }
-            if (m.hasParentId && !m.isRecursive) {
+            if (isParentIdPredicate) {
                 whereClause.append(NL) //
                     .append("    ");
                 if (needsAnd)
                     whereClause.append("AND ");
                 whereClause.append("t.\"parent_id\" ");
-                if (m.filter.getParentId() == -1)
+                if (m.isParentNull)
                     whereClause.append("IS NULL");
                 else
                     whereClause.append("= :parentId");
                 needsAnd = true;
             }
-            if (m.hasStatus && !m.isRecursive) {
+            if (m.hasStatus) {
                 whereClause.append(NL) //
                     .append("    ");
                 if (needsAnd)
                     whereClause.append("AND ");
-                whereClause.append("e.\"status\" IN (:status)");
+                if (m.isRecursive) {
+                    // A descendant only qualifies if it and every topic between it and the specified parent (or the
+                    // root) has the status.
+                    whereClause.append("NOT EXISTS (").append(NL) //
+                        .append("        SELECT 1").append(NL) //
+                        .append("        FROM \"topic_closure\" ptc").append(NL) //
+                        .append("        JOIN \"entity\" pe").append(NL) //
+                        .append("        ON pe.\"id\" = ptc.\"ancestor_id\"").append(NL) //
+                        .append("        WHERE").append(NL) //
+                        .append("            ptc.\"descendant_id\" = t.\"id\"").append(NL);
+                    if (isClosureJoin)
+                        whereClause.append("            AND ptc.\"depth\" < tc.\"depth\"").append(NL);
+                    whereClause.append("            AND pe.\"status\" NOT IN (:status)").append(NL) //
+                        .append("    )");
+                } else {
+                    whereClause.append("e.\"status\" IN (:status)");
+                }
                 needsAnd = true;
             }
-            if (m.hasTextH2) {
-                ftJoinClause.append(NL) //
-                    .append("JOIN FT_SEARCH_DATA(:text, 0, 0) ft").append(NL) //
-                    .append("ON ft.\"TABLE\" = 'topic'").append(NL) //
-                    .append("    AND ft.\"KEYS\"[1] = t.\"id\"");
-            } else if (m.hasTextMariaDB) {
+            if (m.hasTextMariaDB) {
                 whereClause.append(NL) //
                     .append("    ");
                 if (needsAnd)
@@ -252,68 +279,152 @@ public class CustomTopicRepositoryImpl extends AbstractCustomRepositoryImpl impl
                 needsAnd = true;
             }
         }
+        if (m.hasTextH2) {
+            ftJoinClause.append(NL) //
+                .append("JOIN FT_SEARCH_DATA(:text, 0, 0) ft").append(NL) //
+                .append("ON ft.\"TABLE\" = 'topic'").append(NL) //
+                .append("    AND ft.\"KEYS\"[1] = t.\"id\"");
+        }
+        if (m.hasTextIndex)
+            appendTextHitsJoin(ftJoinClause, "t.\"id\"");
+
+        // Seek requests select the rows that sort after an anchor row, which is joined by ID to obtain its sort keys.
+        StringBuilder seekJoinClause = new StringBuilder();
+        StringBuilder seekWhereClause = new StringBuilder(whereClause);
+        if (m.isSeek) {
+            seekJoinClause.append(NL) //
+                .append("JOIN \"entity\" ke").append(NL) //
+                .append("ON ke.\"id\" = :afterId").append(NL) //
+                .append("JOIN \"topic\" kt").append(NL) //
+                .append("ON kt.\"id\" = ke.\"id\"");
+            seekWhereClause.append(NL);
+            if (whereClause.isEmpty())
+                seekWhereClause.append("WHERE").append(NL).append("    ");
+            else
+                seekWhereClause.append("    AND ");
+            entityUtils.appendSeekPredicate(seekWhereClause, m.sort, "e.", "t.", "cbu.", "ubu.", "k");
+        }
+
         if (m.isSorted)
-            entityUtils.appendOrderByClause(orderByClause, m.pageable, "e.", "t.", "cbu.", "ubu.", true);
+            entityUtils.appendOrderByClause(orderByClause, m.sort, "e.", "t.", "cbu.", "ubu.", true);
 
-        String countSql = String.format(template, cteJoinClause, cteParentIdClause, cteStatusClause1, cteJoinClause,
-            cteStatusClause2, "COUNT(*)", ftJoinClause, whereClause, "");
-        String selectSql = String.format(template, cteJoinClause, cteParentIdClause, cteStatusClause1, cteJoinClause,
-            cteStatusClause2, selectFields, ftJoinClause, whereClause, orderByClause);
+        String template = """
+            SELECT %s
+            FROM "topic" t
+            JOIN "entity" e
+            ON e."id" = t."id"%s%s%s%s%s;
+            """;
+        String selectFields =
+            "e.\"dtype\", e.\"status\", e.\"rating\", e.\"created\", e.\"created_by_user_id\", e.\"updated\", e.\"updated_by_user_id\", t.*";
+        String countSql = String.format(template, "COUNT(*)", closureJoinClause, ftJoinClause, "", whereClause, "");
+        String selectSql = String.format(template, selectFields, closureJoinClause, ftJoinClause, seekJoinClause,
+            seekWhereClause, orderByClause);
 
-        // NOTE: since the COUNT query does not include an ORDER BY clause, multiple executions of the same SELECT query
-        // with different ORDER BY clauses will result in the registration of multiple identical COUNT queries, each of
-        // which will simply overwrite the previous definition. This is not a problem, but it is somewhat inefficient.
-        Query countQuery = defineNamedQuery(m.countQueryName, countSql, Long.class);
-        Query selectQuery = defineNamedQuery(m.selectQueryName, selectSql, Topic.class);
+        Binders<TopicQueryFilter> binders = new Binders<>();
+        if (m.hasParentId && !m.isParentNull)
+            binders.bind("parentId", f -> f.getParentId());
+        if (m.hasRecordId)
+            binders.bind("recordId", f -> f.getRecordId());
+        if (m.hasTextIndex)
+            binders.bind("textHits", f -> findTextHits("topic", f.getText(), f.getAdvancedSearch()));
+        else if (m.hasText)
+            binders.bind("text", f -> f.getText());
+        if (m.isPublishedOnly)
+            binders.bind("status", _ -> PUBLISHED_STATUS);
+        else if (m.hasStatus)
+            binders.bind("status", f -> f.getStatus().stream().map(s -> s.name()).toList());
 
-        return new QueryPair(countQuery, selectQuery);
+        return new QueryPlan<>(countQueryName.toString(), countSql, selectQueryName.toString(), selectSql,
+            binders.toList());
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public Page<Topic> findByFilter(@NonNull TopicQueryFilter filter, @NonNull Pageable pageable) {
+    public Page<Topic> findByFilter(@Nullable TopicQueryFilter filter, @NonNull Pageable pageable, boolean countTotal) {
+        // The query metadata and parameter binders require a filter.
+        if (filter == null)
+            filter = new TopicQueryFilter();
         QueryMetaData m = getQueryMetaData(filter, pageable);
+        QueryPlan<TopicQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, Topic.class);
 
-        QueryPair queries = null;
-        synchronized (queryNames) {
-            if (!queryNames.contains(m.countQueryName) || !queryNames.contains(m.selectQueryName))
-                queries = defineNamedQueries(m);
-        }
-        if (queries == null) {
-            Query countQuery = em.createNamedQuery(m.countQueryName, Long.class);
-            Query selectQuery = em.createNamedQuery(m.selectQueryName, Topic.class);
-            queries = new QueryPair(countQuery, selectQuery);
+        Map<String, Object> params = plan.bind(filter);
+        entityUtils.setQueryParameters(queries, params);
+        if (m.isSeek) {
+            // The anchor row replaces the offset, so only the page size applies.
+            Long afterId = ((SeekRequest)pageable).getAfterId();
+            checkAnchor(afterId, EntityKind.TOP, m.isPublishedOnly);
+            queries.selectQuery().setParameter("afterId", afterId).setMaxResults(pageable.getPageSize());
+            params.put("afterId", afterId);
+        } else if (m.isPaged) {
+            entityUtils.setQueryPagination(queries.selectQuery(), pageable);
         }
 
-        Map<String, Object> params = new HashMap<>();
-        if (m.hasParentId && m.filter.getParentId() != -1)
-            params.put("parentId", m.filter.getParentId());
-        if (m.hasRecordId)
-            params.put("recordId", m.filter.getRecordId());
-        if (m.hasText)
-            params.put("text", m.filter.getText());
-        if (m.hasStatus)
-            params.put("status", m.filter.getStatus().stream().map(s -> s.name()).toList());
+        return executeQueries(queries, plan.countQueryName(), plan.selectQueryName(), params, pageable, countTotal);
+    }
+
+    @Override
+    public Stream<Topic> streamByFilter(@Nullable TopicQueryFilter filter, @NonNull Pageable pageable) {
+        // The query metadata and parameter binders require a filter.
+        if (filter == null)
+            filter = new TopicQueryFilter();
+        QueryMetaData m = getQueryMetaData(filter, pageable);
+        QueryPlan<TopicQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, Topic.class);
+
+        Map<String, Object> params = plan.bind(filter);
         entityUtils.setQueryParameters(queries, params);
-        if (m.isPaged)
+        if (m.isSeek) {
+            Long afterId = ((SeekRequest)pageable).getAfterId();
+            checkAnchor(afterId, EntityKind.TOP, m.isPublishedOnly);
+            queries.selectQuery().setParameter("afterId", afterId).setMaxResults(pageable.getPageSize());
+            params.put("afterId", afterId);
+        } else if (m.isPaged) {
             entityUtils.setQueryPagination(queries.selectQuery(), pageable);
+        }
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.countQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.countQueryName);
-        long total = (Long)queries.countQuery().getSingleResult();
+        return executeStreamingQuery(queries.selectQuery(), plan.selectQueryName(), params);
+    }
 
-        if (pageable instanceof Countable)
-            return CountPageImpl.of(total);
+    @Override
+    public void insertClosure(@NonNull Long topicId, @Nullable Long parentId) {
+        em.createNativeQuery(INSERT_CLOSURE_SELF).setParameter("topicId", topicId).executeUpdate();
+        if (parentId != null) {
+            em.createNativeQuery(INSERT_CLOSURE_SUBTREE) //
+                .setParameter("parentId", parentId) //
+                .setParameter("topicId", topicId) //
+                .executeUpdate();
+        }
+    }
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.selectQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.selectQueryName);
-        List<Topic> content = queries.selectQuery().getResultList();
+    @Override
+    public void updateClosure(@NonNull Long topicId, @Nullable Long parentId) {
+        @SuppressWarnings("unchecked")
+        List<Long> subtreeIds = em.createNativeQuery(SELECT_CLOSURE_SUBTREE, Long.class) //
+            .setParameter("topicId", topicId) //
+            .getResultList();
+        em.createNativeQuery(DELETE_CLOSURE_SUBTREE).setParameter("subtreeIds", subtreeIds).executeUpdate();
+        if (parentId != null) {
+            em.createNativeQuery(INSERT_CLOSURE_SUBTREE) //
+                .setParameter("parentId", parentId) //
+                .setParameter("topicId", topicId) //
+                .executeUpdate();
+        }
+    }
+
+    @Override
+    public int rebuildClosure() {
+        em.createNativeQuery(DELETE_CLOSURE_ALL).executeUpdate();
+        int total = em.createNativeQuery(INSERT_CLOSURE_ALL_SELF).executeUpdate();
+        // Each pass adds the paths that are one level deeper than those added by the previous pass.
+        int count;
+        for (int depth = 0; (count = insertClosureLevel(depth)) > 0; depth++)
+            total += count;
+        LOGGER.debug("Rebuilt topic closure: {} rows", total);
+        return total;
+    }
 
-        return new PageImpl<>(content, pageable, total);
+    private int insertClosureLevel(int depth) {
+        return em.createNativeQuery(INSERT_CLOSURE_LEVEL).setParameter("depth", depth).executeUpdate();
     }
 
 }
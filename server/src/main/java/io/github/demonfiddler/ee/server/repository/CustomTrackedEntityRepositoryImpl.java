@@ -19,30 +19,26 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
-import io.github.demonfiddler.ee.server.model.CountPageImpl;
-import io.github.demonfiddler.ee.server.model.Countable;
 import io.github.demonfiddler.ee.server.model.IBaseEntity;
 import io.github.demonfiddler.ee.server.model.ITrackedEntity;
-import io.github.demonfiddler.ee.server.model.StatusKind;
+import io.github.demonfiddler.ee.server.model.SeekRequest;
 import io.github.demonfiddler.ee.server.model.TrackedEntityQueryFilter;
+import io.github.demonfiddler.ee.server.repository.QueryPlan.Binders;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.ProfileUtils;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
-import jakarta.persistence.Query;
 
 /**
  * An abstract base implementation of the {@code CustomRepository} interface.
@@ -55,15 +51,18 @@ public abstract class CustomTrackedEntityRepositoryImpl<T extends ITrackedEntity
         super(entityUtils, profileUtils, securityUtils);
     }
 
-    /** Describes the elements of a query. */
-    private static record QueryMetaData(@Nullable TrackedEntityQueryFilter filter, @NonNull Pageable pageable,
-        String countQueryName, String selectQueryName, String entityName, boolean hasRecordId, boolean hasStatus,
-        boolean hasText, boolean hasTextH2, boolean hasTextMariaDB, boolean isAdvanced, boolean isPaged,
-        boolean isSorted, boolean isSortedOnCreatedByUsername, boolean isSortedOnUpdatedByUsername) {
+    /** Describes the shape of a query; also serves as the query plan cache key. */
+    private static record QueryMetaData(boolean hasRecordId, boolean hasStatus, boolean isPublishedOnly,
+        boolean hasText, boolean hasTextIndex, boolean hasTextH2, boolean hasTextMariaDB, boolean isAdvanced,
+        boolean isPaged, boolean isSeek, boolean isSorted, Sort sort, boolean isSortedOnCreatedByUsername,
+        boolean isSortedOnUpdatedByUsername) {
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomTrackedEntityRepositoryImpl.class);
 
+    /** Query plans keyed on query shape. */
+    private final Map<QueryMetaData, QueryPlan<TrackedEntityQueryFilter>> queryPlans = new ConcurrentHashMap<>();
+
     @Override
     Logger getLogger() {
         return LOGGER;
@@ -82,87 +81,94 @@ public abstract class CustomTrackedEntityRepositoryImpl<T extends ITrackedEntity
     protected abstract String getFulltextColumns();
 
     /**
-     * Returns metadata about a query and paging/sorting specification.
-     * @param filter The query filter.
+     * Returns metadata about a query and paging/sorting specification. N.B. an anonymous user's query is restricted to
+     * published records without modifying the filter.
+     * @param filter The query filter, must not be {@code null}.
      * @param pageable Specifies sorting and pagination, must not be {@code null}.
      * @return Query metadata.
      */
-    @SuppressWarnings("null")
-    private QueryMetaData getQueryMetaData(@Nullable TrackedEntityQueryFilter filter, @NonNull Pageable pageable) {
-        boolean hasFilter = filter != null;
-        boolean hasRecordId = hasFilter && filter.getRecordId() != null;
-        boolean hasText = hasFilter && !hasRecordId && filter.getText() != null && !filter.getText().isEmpty();
-        boolean hasTextH2 = hasText && profileUtils.isIntegrationTesting();
-        boolean hasTextMariaDB = hasText && !profileUtils.isIntegrationTesting();
+    private QueryMetaData getQueryMetaData(@NonNull TrackedEntityQueryFilter filter, @NonNull Pageable pageable) {
+        boolean hasRecordId = filter.getRecordId() != null;
+        boolean hasText = !hasRecordId && filter.getText() != null && !filter.getText().isEmpty();
+        boolean hasTextIndex = hasText && searchIndex.isIndexed(entityUtils.getEntityName(getEntityClass()));
+        boolean hasTextH2 = hasText && !hasTextIndex && profileUtils.isIntegrationTesting();
+        boolean hasTextMariaDB = hasText && !hasTextIndex && !profileUtils.isIntegrationTesting();
         boolean isAdvanced = hasText && filter.getAdvancedSearch();
-        boolean hasStatus = hasFilter && !hasRecordId && filter.getStatus() != null && !filter.getStatus().isEmpty();
+        boolean hasStatus = !hasRecordId && filter.getStatus() != null && !filter.getStatus().isEmpty();
         boolean isPaged = pageable.isPaged();
-        boolean isSorted = pageable.getSort().isSorted();
+        boolean isSeek = pageable instanceof SeekRequest;
+        Sort sort = pageable.getSort();
+        boolean isSorted = sort.isSorted();
         boolean isSortedOnCreatedByUsername = false;
         boolean isSortedOnUpdatedByUsername = false;
-        String entityName = entityUtils.getEntityName(getEntityClass());
 
         // Unauthenticated queries should only return published results.
-        if (securityUtils.getCurrentUsername().equals("anonymousUser")) {
-            if (filter == null)
-                filter = new TrackedEntityQueryFilter();
-            filter.setStatus(List.of(StatusKind.PUB));
-            hasFilter = hasStatus = true;
-        }
+        boolean isPublishedOnly = isPublishedOnly();
+        if (isPublishedOnly)
+            hasStatus = true;
 
         // For paged queries involving an H2 full text filter, we need to ensure that the sort order includes "id"
         // because otherwise the join with FT_SEARCH_DATA can result in records duplicated across successive pages.
-        if (hasTextH2 && isPaged && pageable.getSort().filter(o -> o.getProperty().equals("id")).isEmpty()) {
-            Sort sort = pageable.getSort().and(Sort.by(IBaseEntity::getId));
-            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        // Seek requests likewise rely on "id" as the unique tie-breaker.
+        if ((hasTextH2 && isPaged || isSeek) && sort.filter(o -> o.getProperty().equals("id")).isEmpty()) {
+            sort = sort.and(Sort.by(IBaseEntity::getId));
             isSorted = true;
         }
         if (isSorted) {
-            isSortedOnCreatedByUsername =
-                !pageable.getSort().filter(o -> o.getProperty().equals("createdByUsername")).isEmpty();
-            isSortedOnUpdatedByUsername =
-                !pageable.getSort().filter(o -> o.getProperty().equals("updatedByUsername")).isEmpty();
+            isSortedOnCreatedByUsername = !sort.filter(o -> o.getProperty().equals("createdByUsername")).isEmpty();
+            isSortedOnUpdatedByUsername = !sort.filter(o -> o.getProperty().equals("updatedByUsername")).isEmpty();
         }
 
+        return new QueryMetaData(hasRecordId, hasStatus, isPublishedOnly, hasText, hasTextIndex, hasTextH2,
+            hasTextMariaDB, isAdvanced, isPaged, isSeek, isSorted, sort, isSortedOnCreatedByUsername,
+            isSortedOnUpdatedByUsername);
+    }
+
+    /**
+     * Creates a query plan: the query names, the rendered SQL of the pair of COUNT and SELECT queries and the query
+     * parameter binders.
+     * @param m Query metadata.
+     * @return The query plan.
+     */
+    private QueryPlan<TrackedEntityQueryFilter> createQueryPlan(QueryMetaData m) {
+        String entityName = entityUtils.getEntityName(getEntityClass());
+
         StringBuilder countQueryName = new StringBuilder();
         StringBuilder selectQueryName = new StringBuilder();
         StringBuilder[] queryNames = { countQueryName, selectQueryName };
         append(entityName, queryNames);
         countQueryName.append(".countBy");
         selectQueryName.append(".findBy");
-        if (hasRecordId)
+        if (m.hasRecordId)
             append("Id", queryNames);
-        if (hasStatus)
+        if (m.hasStatus)
             append("Status", queryNames);
-        if (hasText) {
+        if (m.hasText) {
             append("Text", queryNames);
-            if (isAdvanced)
+            if (m.hasTextIndex)
+                append("Indexed", queryNames);
+            else if (m.isAdvanced)
                 append("Advanced", queryNames);
         }
-        if (isSorted)
-            entityUtils.appendOrderByToQueryName(selectQueryName, pageable);
-
-        return new QueryMetaData(filter, pageable, countQueryName.toString(), selectQueryName.toString(), entityName,
-            hasRecordId, hasStatus, hasText, hasTextH2, hasTextMariaDB, isAdvanced, isPaged, isSorted,
-            isSortedOnCreatedByUsername, isSortedOnUpdatedByUsername);
-    }
+        if (m.isSeek)
+            selectQueryName.append("After");
+        if (m.isSorted)
+            entityUtils.appendOrderByToQueryName(selectQueryName, m.sort);
 
-    /**
-     * Defines and registers a pair of COUNT and SELECT named queries with the {@code EntityManagerFactory}.
-     * @param m Query metadata.
-     * @return An executable query pair.
-     */
-    private QueryPair defineNamedQueries(QueryMetaData m) {
         /*
         SELECT COUNT(*) | e."dtype", e."status", e."rating", e."created", e."created_by_user_id", e."updated", e."updated_by_user_id", ee.*
         FROM "entity" e
-        JOIN "${m.entityName}" ee
+        JOIN "${entityName}" ee
         ON ee."id" = e."id"
         -- if (m.hasTextH2) {
         JOIN FT_SEARCH_DATA(:text, 0, 0) ft
-        ON ft.\"TABLE\" = '${m.entityName}'
+        ON ft.\"TABLE\" = '${entityName}'
             AND ft.\"KEYS\"[1] = e.\"id\"
         -- }
+        -- if (m.hasTextIndex) { -- H2 unnests TEXT_HITS(:textHits) WITH ORDINALITY instead
+        JOIN JSON_TABLE(:textHits, '$[*]' COLUMNS ("rank" FOR ORDINALITY, "id" BIGINT PATH '$')) th
+        ON th."id" = e."id"
+        -- }
         -- if (m.isSortedOnCreatedByUsername) { cbuJoinClause =
         JOIN "user" cbu
         ON cbu."id" = e."created_by_user_id"
@@ -171,7 +177,14 @@ public abstract class CustomTrackedEntityRepositoryImpl<T extends ITrackedEntity
         JOIN "user" ubu
         ON ubu."id" = e."updated_by_user_id"
         --}
-        -- if (m.hasTextMariaDB || m.hasStatus) {
+        -- if (m.isSeek) { -- SELECT only: joins the anchor row
+        JOIN "entity" ke
+        ON ke."id" = :afterId
+        JOIN "${entityName}" kee
+        ON kee."id" = ke."id"
+        -- plus kcbu and kubu joins, as for cbu and ubu above
+        -- }
+        -- if (m.hasTextMariaDB || m.hasStatus || m.isSeek) {
         WHERE
         -- if (m.hasRecordId) {
             e."id" = :recordId
@@ -182,131 +195,174 @@ public abstract class CustomTrackedEntityRepositoryImpl<T extends ITrackedEntity
         -- if (m.hasTextMariaDB) {
             AND MATCH ("${getFulltextColumns()} AGAINST (:text"[ IN BOOLEAN MODE])
         -- }
+        -- if (m.isSeek) { -- SELECT only
+            AND (${sortField1}, ..., e."id") > (ke.${sortField1}, ..., ke."id") -- per sort direction & null handling
+        -- }
         -- if (m.isSorted) {
-        ORDER BY ${m.pageable.getSort()}
+        ORDER BY ${m.sort}
         -- }
         -- }
         */
-        StringBuilder selectBuf = new StringBuilder();
-        selectBuf.append(NL) //
+        StringBuilder fromBuf = new StringBuilder();
+        fromBuf.append(NL) //
             .append("FROM \"entity\" e").append(NL) //
-            .append("JOIN \"").append(m.entityName).append("\" ee").append(NL) //
+            .append("JOIN \"").append(entityName).append("\" ee").append(NL) //
             .append("ON ee.\"id\" = e.\"id\"");
         if (m.isSortedOnCreatedByUsername) {
-            selectBuf.append(NL) //
+            fromBuf.append(NL) //
                 .append("JOIN \"user\" cbu").append(NL) //
                 .append("ON cbu.\"id\" = e.\"created_by_user_id\"");
         }
         if (m.isSortedOnUpdatedByUsername) {
-            selectBuf.append(NL) //
+            fromBuf.append(NL) //
                 .append("JOIN \"user\" ubu").append(NL) //
                 .append("ON ubu.\"id\" = e.\"updated_by_user_id\"");
         }
 
-        if (m.hasText || m.hasRecordId || m.hasStatus) {
-            if (m.hasTextH2) {
-                selectBuf.append(NL) //
-                    .append("JOIN FT_SEARCH_DATA(:text, 0, 0) ft").append(NL) //
-                    .append("ON ft.\"TABLE\" = '").append(m.entityName).append('\'').append(NL) //
-                    .append("    AND ft.\"KEYS\"[1] = e.\"id\"");
+        if (m.hasTextH2) {
+            fromBuf.append(NL) //
+                .append("JOIN FT_SEARCH_DATA(:text, 0, 0) ft").append(NL) //
+                .append("ON ft.\"TABLE\" = '").append(entityName).append('\'').append(NL) //
+                .append("    AND ft.\"KEYS\"[1] = e.\"id\"");
+        }
+        if (m.hasTextIndex)
+            appendTextHitsJoin(fromBuf, "e.\"id\"");
+        StringBuilder whereBuf = new StringBuilder();
+        boolean needsAnd = false;
+        if (m.hasTextMariaDB || m.hasRecordId || m.hasStatus) {
+            whereBuf.append(NL) //
+                .append("WHERE");
+            if (m.hasRecordId) {
+                whereBuf.append(NL) //
+                    .append("    ");
+                if (needsAnd)
+                    whereBuf.append("AND ");
+                whereBuf.append("e.\"id\" = :recordId");
+                needsAnd = true;
+            }
+            if (m.hasStatus) {
+                whereBuf.append(NL) //
+                    .append("    ");
+                if (needsAnd)
+                    whereBuf.append("AND ");
+                whereBuf.append("e.\"status\" IN (:status)");
+                needsAnd = true;
+            }
+            if (m.hasTextMariaDB) {
+                whereBuf.append(NL) //
+                    .append("    ");
+                if (needsAnd)
+                    whereBuf.append("AND ");
+                whereBuf.append("MATCH (").append(getFulltextColumns()).append(") AGAINST (:text");
+                if (m.isAdvanced)
+                    whereBuf.append(" IN BOOLEAN MODE");
+                whereBuf.append(')');
+                needsAnd = true;
+            }
+        }
+
+        // Seek requests select the rows that sort after an anchor row, which is joined by ID to obtain its sort keys.
+        StringBuilder seekJoinBuf = new StringBuilder();
+        StringBuilder seekWhereBuf = new StringBuilder(whereBuf);
+        if (m.isSeek) {
+            seekJoinBuf.append(NL) //
+                .append("JOIN \"entity\" ke").append(NL) //
+                .append("ON ke.\"id\" = :afterId").append(NL) //
+                .append("JOIN \"").append(entityName).append("\" kee").append(NL) //
+                .append("ON kee.\"id\" = ke.\"id\"");
+            if (m.isSortedOnCreatedByUsername) {
+                seekJoinBuf.append(NL) //
+                    .append("JOIN \"user\" kcbu").append(NL) //
+                    .append("ON kcbu.\"id\" = ke.\"created_by_user_id\"");
             }
-            if (m.hasTextMariaDB || m.hasRecordId || m.hasStatus) {
-                boolean needsAnd = false;
-                selectBuf.append(NL) //
-                    .append("WHERE");
-                if (m.hasRecordId) {
-                    selectBuf.append(NL) //
-                        .append("    ");
-                    if (needsAnd)
-                        selectBuf.append("AND ");
-                    selectBuf.append("e.\"id\" = :recordId");
-                    needsAnd = true;
-                }
-                if (m.hasStatus) {
-                    selectBuf.append(NL) //
-                        .append("    ");
-                    if (needsAnd)
-                        selectBuf.append("AND ");
-                    selectBuf.append("e.\"status\" IN (:status)");
-                    needsAnd = true;
-                }
-                if (m.hasTextMariaDB) {
-                    selectBuf.append(NL) //
-                        .append("    ");
-                    if (needsAnd)
-                        selectBuf.append("AND ");
-                    selectBuf.append("MATCH (").append(getFulltextColumns()).append(") AGAINST (:text");
-                    if (m.isAdvanced)
-                        selectBuf.append(" IN BOOLEAN MODE");
-                    selectBuf.append(')');
-                    needsAnd = true;
-                }
+            if (m.isSortedOnUpdatedByUsername) {
+                seekJoinBuf.append(NL) //
+                    .append("JOIN \"user\" kubu").append(NL) //
+                    .append("ON kubu.\"id\" = ke.\"updated_by_user_id\"");
             }
+            seekWhereBuf.append(NL);
+            if (needsAnd)
+                seekWhereBuf.append("    AND ");
+            else
+                seekWhereBuf.append("WHERE").append(NL).append("    ");
+            entityUtils.appendSeekPredicate(seekWhereBuf, m.sort, "e.", "ee.", "cbu.", "ubu.", "k");
         }
-        StringBuffer countBuf = new StringBuffer(selectBuf);
-        countBuf.insert(0, "SELECT COUNT(*)");
-        countBuf.append(';');
-        selectBuf.insert(0,
+
+        StringBuilder countBuf = new StringBuilder("SELECT COUNT(*)");
+        countBuf.append(fromBuf).append(whereBuf).append(';');
+        StringBuilder selectBuf = new StringBuilder(
             "SELECT e.\"dtype\", e.\"status\", e.\"rating\", e.\"created\", e.\"created_by_user_id\", e.\"updated\", e.\"updated_by_user_id\", ee.*");
+        selectBuf.append(fromBuf).append(seekJoinBuf).append(seekWhereBuf);
         if (m.isSorted)
-            entityUtils.appendOrderByClause(selectBuf, m.pageable, "e.", "ee.", "cbu.", "ubu.", true);
+            entityUtils.appendOrderByClause(selectBuf, m.sort, "e.", "ee.", "cbu.", "ubu.", true);
         selectBuf.append(';');
 
-        // NOTE: since the COUNT query does not include an ORDER BY clause, multiple executions of the same SELECT query
-        // with different ORDER BY clauses will result in the registration of multiple identical COUNT queries, each of
-        // which will simply overwrite the previous definition. This is not a problem, but it is somewhat inefficient.
+        // NOTE: since the COUNT query does not include an ORDER BY clause, SELECT queries that differ only in their
+        // ORDER BY clause share the same COUNT query, which getNamedQueries() defines only once.
         String countSql = countBuf.toString();
-        Query countQuery = defineNamedQuery(m.countQueryName, countSql, Long.class);
-
         String selectSql = selectBuf.toString();
-        Query selectQuery = defineNamedQuery(m.selectQueryName, selectSql, getEntityClass());
 
-        return new QueryPair(countQuery, selectQuery);
+        Binders<TrackedEntityQueryFilter> binders = new Binders<>();
+        if (m.hasRecordId)
+            binders.bind("recordId", f -> f.getRecordId());
+        if (m.isPublishedOnly)
+            binders.bind("status", _ -> PUBLISHED_STATUS);
+        else if (m.hasStatus)
+            binders.bind("status", f -> f.getStatus().stream().map(s -> s.name()).toList());
+        if (m.hasTextIndex)
+            binders.bind("textHits", f -> findTextHits(entityName, f.getText(), f.getAdvancedSearch()));
+        else if (m.hasText)
+            binders.bind("text", f -> f.getText());
+
+        return new QueryPlan<>(countQueryName.toString(), countSql, selectQueryName.toString(), selectSql,
+            binders.toList());
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public Page<T> findByFilter(@Nullable TrackedEntityQueryFilter filter, Pageable pageable) {
+    public Page<T> findByFilter(@Nullable TrackedEntityQueryFilter filter, Pageable pageable, boolean countTotal) {
+        // The query metadata and parameter binders require a filter.
+        if (filter == null)
+            filter = new TrackedEntityQueryFilter();
         QueryMetaData m = getQueryMetaData(filter, pageable);
+        QueryPlan<TrackedEntityQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, getEntityClass());
 
-        QueryPair queries = null;
-        synchronized (queryNames) {
-            if (!queryNames.contains(m.countQueryName) || !queryNames.contains(m.selectQueryName))
-                queries = defineNamedQueries(m);
-        }
-        if (queries == null) {
-            Query countQuery = em.createNamedQuery(m.countQueryName, Long.class);
-            Query selectQuery = em.createNamedQuery(m.selectQueryName, getEntityClass());
-            queries = new QueryPair(countQuery, selectQuery);
-        }
-
-        Map<String, Object> params = new HashMap<>();
-        if (m.hasRecordId)
-            params.put("recordId", m.filter.getRecordId());
-        if (m.hasStatus)
-            params.put("status", m.filter.getStatus().stream().map(s -> s.name()).toList());
-        if (m.hasText)
-            params.put("text", m.filter.getText());
+        Map<String, Object> params = plan.bind(filter);
         entityUtils.setQueryParameters(queries, params);
-        if (m.isPaged)
-            entityUtils.setQueryPagination(queries.selectQuery(), m.pageable);
+        if (m.isSeek) {
+            // The anchor row replaces the offset, so only the page size applies.
+            Long afterId = ((SeekRequest)pageable).getAfterId();
+            checkAnchor(afterId, entityUtils.getEntityKind(getEntityClass()), m.isPublishedOnly);
+            queries.selectQuery().setParameter("afterId", afterId).setMaxResults(pageable.getPageSize());
+            params.put("afterId", afterId);
+        } else if (m.isPaged) {
+            entityUtils.setQueryPagination(queries.selectQuery(), pageable);
+        }
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.countQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.countQueryName);
-        long total = (Long)queries.countQuery().getSingleResult();
+        return executeQueries(queries, plan.countQueryName(), plan.selectQueryName(), params, pageable, countTotal);
+    }
 
-        if (pageable instanceof Countable)
-            return CountPageImpl.of(total);
+    @Override
+    public Stream<T> streamByFilter(@Nullable TrackedEntityQueryFilter filter, @NonNull Pageable pageable) {
+        // The query metadata and parameter binders require a filter.
+        if (filter == null)
+            filter = new TrackedEntityQueryFilter();
+        QueryMetaData m = getQueryMetaData(filter, pageable);
+        QueryPlan<TrackedEntityQueryFilter> plan = queryPlans.computeIfAbsent(m, this::createQueryPlan);
+        QueryPair queries = getNamedQueries(plan, getEntityClass());
 
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("Executing query '{}' with parameters {}", m.selectQueryName, params);
-        else
-            LOGGER.debug("Executing query '{}'", m.selectQueryName);
-        List<T> content = queries.selectQuery().getResultList();
+        Map<String, Object> params = plan.bind(filter);
+        entityUtils.setQueryParameters(queries, params);
+        if (m.isSeek) {
+            Long afterId = ((SeekRequest)pageable).getAfterId();
+            checkAnchor(afterId, entityUtils.getEntityKind(getEntityClass()), m.isPublishedOnly);
+            queries.selectQuery().setParameter("afterId", afterId).setMaxResults(pageable.getPageSize());
+            params.put("afterId", afterId);
+        } else if (m.isPaged) {
+            entityUtils.setQueryPagination(queries.selectQuery(), pageable);
+        }
 
-        return new PageImpl<>(content, m.pageable, total);
+        return executeStreamingQuery(queries.selectQuery(), plan.selectQueryName(), params);
     }
 
 }
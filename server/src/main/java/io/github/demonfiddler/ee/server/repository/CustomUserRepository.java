@@ -29,7 +29,8 @@ import io.github.demonfiddler.ee.server.model.User;
 /**
  * A custom user repository that supports arbitrary filtering and user authority administration.
  */
-public interface CustomUserRepository extends CustomRepository<User, TrackedEntityQueryFilter> {
+public interface CustomUserRepository
+    extends CustomRepository<User, TrackedEntityQueryFilter>, SeekableRepository {
 
     /**
      * Returns all authorities associated with the given user, including those inherited via group memberships.
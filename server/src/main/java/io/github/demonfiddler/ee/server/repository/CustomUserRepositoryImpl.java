@@ -72,13 +72,9 @@ public class CustomUserRepositoryImpl extends CustomTrackedEntityRepositoryImpl<
     @Override
     @SuppressWarnings("unchecked")
     public List<AuthorityKind> findAllUserAuthorities(Long userId) {
-        Query query = null;
-        synchronized (queryNames) {
-            if (!queryNames.contains(QUERY_SELECT_ALL_AUTHORITIES))
-                query = defineNamedQuery(QUERY_SELECT_ALL_AUTHORITIES, SQL_SELECT_ALL_AUTHORITIES, AuthorityKind.class);
-        }
-        if (query == null)
-            query = em.createNamedQuery(QUERY_SELECT_ALL_AUTHORITIES, AuthorityKind.class);
+        queryRegistry.define(QUERY_SELECT_ALL_AUTHORITIES,
+            () -> defineNamedQuery(QUERY_SELECT_ALL_AUTHORITIES, SQL_SELECT_ALL_AUTHORITIES, AuthorityKind.class));
+        Query query = em.createNamedQuery(QUERY_SELECT_ALL_AUTHORITIES, AuthorityKind.class);
         query.setParameter("userId", userId);
         LOGGER.debug("Executing query '{}'", QUERY_SELECT_ALL_AUTHORITIES);
 
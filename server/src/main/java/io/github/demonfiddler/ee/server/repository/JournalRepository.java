@@ -19,6 +19,8 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -48,4 +50,25 @@ public interface JournalRepository extends JpaRepository<Journal, Long>, CustomJ
      */
     Optional<Journal> findByAbbreviation(String abbreviation);
 
+    /**
+     * Looks up Journals by ISSN.
+     * @param issns The ISSNs to find.
+     * @return The Journals found.
+     */
+    List<Journal> findByIssnIn(Collection<String> issns);
+
+    /**
+     * Looks up Journals by title.
+     * @param titles The Journal titles to find.
+     * @return The Journals found.
+     */
+    List<Journal> findByTitleIn(Collection<String> titles);
+
+    /**
+     * Looks up Journals by abbreviated title.
+     * @param abbreviations The abbreviated Journal titles to find.
+     * @return The Journals found.
+     */
+    List<Journal> findByAbbreviationIn(Collection<String> abbreviations);
+
 }
@@ -0,0 +1,146 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * A lock-free registry of the JPA named queries defined by the custom repositories. Each query is defined exactly once,
+ * even when concurrent requests race to define it. Definers run without holding any map lock, so a slow definition
+ * never blocks lookups of other queries. The registry size and hit/miss counts are published as metrics via the
+ * Actuator {@code /actuator/metrics} endpoint.
+ */
+@Component
+public class NamedQueryRegistry implements MeterBinder {
+
+    /** The name of the gauge that reports the number of registered queries. */
+    static final String METRIC_SIZE = "ee.named.queries";
+    /** The name of the counter that reports registry lookups, tagged {@code result=hit|miss}. */
+    static final String METRIC_LOOKUPS = "ee.named.queries.lookups";
+
+    /** The definitions of named queries keyed on query name; a definition completes when its definer returns. */
+    private final Map<String, FutureTask<Void>> queries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Ensures that a named query is defined, invoking {@code definer} only if no query of that name has yet been
+     * registered. The first caller to register the name runs the definer, outside any map lock; concurrent callers
+     * presenting the same name wait until that definition completes. Only the caller that ran the definer counts as a
+     * miss. If the definer throws, the name is deregistered, the exception propagates to every waiting caller and a
+     * subsequent call will try again.
+     * @param queryName The query name. Where a definer registers several queries, this should be the name of the
+     * most specific one (typically the SELECT query).
+     * @param definer Defines the named query or queries in JPA.
+     * @return {@code true} if this call defined the query, {@code false} if it was already defined.
+     */
+    public boolean define(String queryName, Runnable definer) {
+        // Fast path: a plain read never locks.
+        FutureTask<Void> definition = queries.get(queryName);
+        boolean defining = false;
+        if (definition == null) {
+            FutureTask<Void> newDefinition = new FutureTask<>(definer, null);
+            definition = queries.putIfAbsent(queryName, newDefinition);
+            if (definition == null) {
+                definition = newDefinition;
+                defining = true;
+                definition.run();
+            }
+        }
+
+        try {
+            definition.get();
+        } catch (ExecutionException e) {
+            queries.remove(queryName, definition);
+            switch (e.getCause()) {
+                case RuntimeException re -> throw re;
+                case Error err -> throw err;
+                default -> throw new IllegalStateException("Failed to define named query " + queryName, e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while awaiting named query " + queryName, e);
+        }
+        (defining ? misses : hits).increment();
+        return defining;
+    }
+
+    /**
+     * Indicates whether a named query has been defined.
+     * @param queryName The query name.
+     * @return {@code true} if {@code queryName} is defined.
+     */
+    public boolean contains(String queryName) {
+        FutureTask<Void> definition = queries.get(queryName);
+        return definition != null && definition.state() == Future.State.SUCCESS;
+    }
+
+    /**
+     * Returns the number of registered queries.
+     * @return The registry size.
+     */
+    public int size() {
+        return queries.size();
+    }
+
+    /**
+     * Returns the number of lookups that found an existing definition.
+     * @return The hit count.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that had to define the query.
+     * @return The miss count.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(METRIC_SIZE, queries, Map::size) //
+            .description("The number of JPA named queries defined by custom repositories") //
+            .register(registry);
+        FunctionCounter.builder(METRIC_LOOKUPS, hits, LongAdder::sum) //
+            .description("Named query registry lookups") //
+            .tag("result", "hit") //
+            .register(registry);
+        FunctionCounter.builder(METRIC_LOOKUPS, misses, LongAdder::sum) //
+            .description("Named query registry lookups") //
+            .tag("result", "miss") //
+            .register(registry);
+    }
+
+}
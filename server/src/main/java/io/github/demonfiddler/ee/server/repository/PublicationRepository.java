@@ -19,8 +19,43 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
 import io.github.demonfiddler.ee.server.model.Publication;
 
 public interface PublicationRepository extends JpaRepository<Publication, Long>, CustomPublicationRepository {
+
+    /**
+     * The identifying fields of a Publication, as used to detect duplicates.
+     */
+    interface PublicationKeys {
+
+        Long getId();
+
+        String getDoi();
+
+        String getIsbn();
+
+        String getTitle();
+
+        Integer getYear();
+
+    }
+
+    /**
+     * Returns the identifying fields of every Publication that has not been deleted. A deleted Publication's DOI and
+     * ISBN still occupy the {@code publication_doi} and {@code publication_isbn} unique keys, so the database rejects
+     * new records that reuse them.
+     * @return The identifying fields.
+     */
+    @Query("""
+        SELECT p.id AS id, p.doi AS doi, p.isbn AS isbn, p.title AS title, p.year AS year
+        FROM Publication p
+        WHERE p.status <> 'DEL'
+        """)
+    List<PublicationKeys> findAllKeys();
+
 }
@@ -19,6 +19,8 @@
 
 package io.github.demonfiddler.ee.server.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -34,4 +36,11 @@ public interface PublisherRepository extends JpaRepository<Publisher, Long>, Cus
      */
     Optional<Publisher> findByName(String name);
 
+    /**
+     * Looks up Publishers by name.
+     * @param names The Publisher names to find.
+     * @return The Publishers found.
+     */
+    List<Publisher> findByNameIn(Collection<String> names);
+
 }
@@ -0,0 +1,92 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A pre-compiled query plan: the names and rendered SQL of a pair of COUNT and SELECT queries, plus the binders that
+ * extract their parameter values from a query filter. Plans are cached against the immutable metadata record that
+ * describes the shape of a query, so executing a previously seen shape involves no name or SQL string building.
+ * @param <F> The query filter type.
+ * @param countQueryName The COUNT query name. SELECT queries that differ only in their ORDER BY share a COUNT query.
+ * @param countSql The COUNT query SQL.
+ * @param selectQueryName The SELECT query name.
+ * @param selectSql The SELECT query SQL.
+ * @param binders The parameter binders.
+ */
+record QueryPlan<F>(String countQueryName, String countSql, String selectQueryName, String selectSql,
+    List<ParameterBinder<F>> binders) {
+
+    QueryPlan {
+        binders = List.copyOf(binders);
+    }
+
+    /**
+     * Binds a named query parameter to a value extracted from the query filter.
+     * @param <F> The query filter type.
+     * @param name The parameter name.
+     * @param value Extracts the parameter value from the filter.
+     */
+    record ParameterBinder<F>(String name, Function<F, ?> value) {
+    }
+
+    /**
+     * Accumulates the parameter binders for a query plan.
+     * @param <F> The query filter type.
+     */
+    static final class Binders<F> {
+
+        private final List<ParameterBinder<F>> binders = new ArrayList<>();
+
+        /**
+         * Adds a parameter binder.
+         * @param name The parameter name.
+         * @param value Extracts the parameter value from the filter.
+         * @return This instance.
+         */
+        Binders<F> bind(String name, Function<F, ?> value) {
+            binders.add(new ParameterBinder<>(name, value));
+            return this;
+        }
+
+        List<ParameterBinder<F>> toList() {
+            return binders;
+        }
+
+    }
+
+    /**
+     * Extracts the query parameter values from a filter.
+     * @param filter The query filter.
+     * @return The parameter values keyed on parameter name.
+     */
+    Map<String, Object> bind(F filter) {
+        Map<String, Object> params = LinkedHashMap.newLinkedHashMap(binders.size());
+        for (ParameterBinder<F> binder : binders)
+            params.put(binder.name(), binder.value().apply(filter));
+        return params;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.api;
+
+import java.util.Optional;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+@Validated
+@Tag(name = "Audit", description = "Audit results in CSV format.")
+public interface AuditApi {
+
+    default Optional<NativeWebRequest> getRequest() {
+        return Optional.empty();
+    }
+
+    String PATH_AUDIT = "/audit/{auditRecordKind}";
+
+    /**
+     * GET /audit/{auditRecordKind} : Audits a list Audits an optionally filtered list, returning one CSV row per
+     * record.
+     * @param auditRecordKind The record type to audit. (required)
+     * @param recordId The identifier of the single record to return. Applicable to all recordKind except logs.
+     * (optional)
+     * @param text Free text search string. Applicable to all recordKind except logs. (optional)
+     * @param advancedSearch Whether to search text in advanced (boolean) mode, used in conjunction with the text
+     * parameter. Applicable to all recordKind except logs. (optional)
+     * @param status Return only records with this status code. Applicable to all recordKind except logs. (optional)
+     * @param topicId The master topic identifier. Applicable to recordKind claims, declarations, persons, publications,
+     * quotations. (optional)
+     * @param recursive Whether queries including a topicId should recursively include sub-topics. Applicable to
+     * recordKind claims, declarations, persons, publications, quotations. (optional)
+     * @param failedOnly Whether to include only those records that fail the audit. (optional, default to false)
+     * @return The audit results, one row per record. (status code 200) or Bad request (e.g., invalid combination of
+     * query parameters) (status code 400) or Internal server error (status code 500)
+     */
+    @Operation(operationId = "audit", summary = "Audits a list",
+        description = "Audits an optionally filtered list, returning one CSV row per record.", tags = { "Audit" },
+        responses = {
+            @ApiResponse(responseCode = "200", description = "The audit results, one row per record.",
+                content = { @Content(mediaType = "text/csv", schema = @Schema(implementation = Resource.class)) }),
+            @ApiResponse(responseCode = "400",
+                description = "Bad request (e.g., invalid combination of query parameters)"),
+            @ApiResponse(responseCode = "500", description = "Internal server error") })
+    @RequestMapping(method = RequestMethod.GET, value = AuditApi.PATH_AUDIT, produces = { "text/csv" })
+    default ResponseEntity<StreamingResponseBody> audit(
+        @NotNull @Parameter(name = "auditRecordKind", description = "The record type to audit.", required = true,
+            in = ParameterIn.PATH) @PathVariable("auditRecordKind") String auditRecordKind,
+        @Parameter(name = "recordId",
+            description = "The identifier of the single record to return. Applicable to all recordKind except logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "recordId", required = false) @Nullable Long recordId,
+        @Parameter(name = "text", description = "Free text search string. Applicable to all recordKind except logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "text", required = false) @Nullable String text,
+        @Parameter(name = "advancedSearch",
+            description = "Whether to search text in advanced (boolean) mode, used in conjunction with the text parameter. Applicable to all recordKind except logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "advancedSearch",
+                required = false) @Nullable Boolean advancedSearch,
+        @Parameter(name = "status",
+            description = "Return only records with this status code. Applicable to all recordKind except logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "status", required = false) @Nullable String status,
+        @Parameter(name = "topicId",
+            description = "The master topic identifier. Applicable to recordKind claims, declarations, persons, publications, quotations.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "topicId", required = false) @Nullable Long topicId,
+        @Parameter(name = "recursive",
+            description = "Whether queries including a topicId should recursively include sub-topics. Applicable to recordKind claims, declarations, persons, publications, quotations.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "recursive",
+                required = false) @Nullable Boolean recursive,
+        @Parameter(name = "failedOnly", description = "Whether to include only those records that fail the audit.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "failedOnly", required = false,
+                defaultValue = "false") Boolean failedOnly) {
+
+        return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+    }
+
+}
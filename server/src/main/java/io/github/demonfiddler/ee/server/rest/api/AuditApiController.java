@@ -0,0 +1,299 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.api;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import io.github.demonfiddler.ee.server.model.EntityAudit;
+import io.github.demonfiddler.ee.server.model.FieldAudit;
+import io.github.demonfiddler.ee.server.model.FieldAuditEntry;
+import io.github.demonfiddler.ee.server.model.FieldGroupAuditEntry;
+import io.github.demonfiddler.ee.server.model.ITrackedEntity;
+import io.github.demonfiddler.ee.server.model.LinkAudit;
+import io.github.demonfiddler.ee.server.model.LinkAuditEntry;
+import io.github.demonfiddler.ee.server.model.LinkGroupAuditEntry;
+import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
+import io.github.demonfiddler.ee.server.model.SeekRequest;
+import io.github.demonfiddler.ee.server.model.StatusKind;
+import io.github.demonfiddler.ee.server.model.TopicQueryFilter;
+import io.github.demonfiddler.ee.server.model.TrackedEntityQueryFilter;
+import io.github.demonfiddler.ee.server.repository.ClaimRepository;
+import io.github.demonfiddler.ee.server.repository.DeclarationRepository;
+import io.github.demonfiddler.ee.server.repository.JournalRepository;
+import io.github.demonfiddler.ee.server.repository.PersonRepository;
+import io.github.demonfiddler.ee.server.repository.PublicationRepository;
+import io.github.demonfiddler.ee.server.repository.PublisherRepository;
+import io.github.demonfiddler.ee.server.repository.QuotationRepository;
+import io.github.demonfiddler.ee.server.repository.TopicRepository;
+import io.github.demonfiddler.ee.server.util.AuditUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+@Controller
+@RequestMapping("${openapi.evidenceEngineRESTInterfaceOpenAPI311.base-path:/rest}")
+public class AuditApiController implements AuditApi {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditApiController.class);
+
+    /** The number of records to retrieve and audit at a time. */
+    static final int CHUNK_SIZE = 1000;
+    /** Chunks are retrieved in ID order, each seeking past the last ID of its predecessor. */
+    private static final Sort ID_ORDER = Sort.by("id");
+
+    private static final String CSV_HEADER = "id,entityKind,status,pass,failedFields,failedLinks\r\n";
+
+    @PersistenceContext
+    EntityManager em;
+    private final NativeWebRequest request;
+    private final AuditUtils auditUtils;
+    private final ClaimRepository claimRepository;
+    private final DeclarationRepository declarationRepository;
+    private final JournalRepository journalRepository;
+    private final PersonRepository personRepository;
+    private final PublicationRepository publicationRepository;
+    private final PublisherRepository publisherRepository;
+    private final QuotationRepository quotationRepository;
+    private final TopicRepository topicRepository;
+    private final TransactionTemplate readOnlyTxTemplate;
+
+    public AuditApiController(NativeWebRequest request, AuditUtils auditUtils, ClaimRepository claimRepository,
+        DeclarationRepository declarationRepository, JournalRepository journalRepository,
+        PersonRepository personRepository, PublicationRepository publicationRepository,
+        PublisherRepository publisherRepository, QuotationRepository quotationRepository,
+        TopicRepository topicRepository, PlatformTransactionManager txManager) {
+
+        this.request = request;
+        this.auditUtils = auditUtils;
+        this.claimRepository = claimRepository;
+        this.declarationRepository = declarationRepository;
+        this.journalRepository = journalRepository;
+        this.personRepository = personRepository;
+        this.publicationRepository = publicationRepository;
+        this.publisherRepository = publisherRepository;
+        this.quotationRepository = quotationRepository;
+        this.topicRepository = topicRepository;
+        this.readOnlyTxTemplate = new TransactionTemplate(txManager);
+        this.readOnlyTxTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public Optional<NativeWebRequest> getRequest() {
+        return Optional.ofNullable(request);
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> audit(@NotNull String auditRecordKind, @Valid Long recordId,
+        @Valid String text, @Valid Boolean advancedSearch, @Valid String status, @Valid Long topicId,
+        @Valid Boolean recursive, @Valid Boolean failedOnly) {
+
+        // First prepare the query filter. Invalid parameters must be rejected before the response is committed.
+        Object filter;
+        try {
+            List<StatusKind> statusKinds = status != null ? List.of(StatusKind.valueOf(status)) : null;
+            filter = switch (auditRecordKind) {
+                case "claims", "declarations", "persons", "publications", "quotations" -> LinkableEntityQueryFilter
+                    .builderForLinkableEntityQueryFilter() //
+                    .withRecordId(recordId) //
+                    .withText(text) //
+                    .withAdvancedSearch(advancedSearch) //
+                    .withStatus(statusKinds) //
+                    .withTopicId(topicId) //
+                    .withRecursive(recursive) //
+                    .build();
+                case "journals", "publishers" -> TrackedEntityQueryFilter.builderForTrackedEntityQueryFilter() //
+                    .withRecordId(recordId) //
+                    .withText(text) //
+                    .withAdvancedSearch(advancedSearch) //
+                    .withStatus(statusKinds) //
+                    .build();
+                case "topics" -> TopicQueryFilter.builderForTopicQueryFilter() //
+                    .withRecordId(recordId) //
+                    .withText(text) //
+                    .withAdvancedSearch(advancedSearch) //
+                    .withStatus(statusKinds) //
+                    .withParentId(topicId) //
+                    .withRecursive(recursive) //
+                    .build();
+                default -> throw new IllegalArgumentException("Unsupported auditRecordKind: " + auditRecordKind);
+            };
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid audit request: {}", e.getMessage());
+            byte[] errmsg = e.getMessage().getBytes(UTF_8);
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(errmsg));
+        }
+
+        // Return the generated response as a file download, streaming the rows as the records are audited.
+        String ts = DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.now());
+        ts = ts.substring(0, ts.indexOf('.')).replace(":", "_");
+        String contentDisposition = "attachment; filename=audit-" + auditRecordKind + '-' + ts + ".csv";
+        boolean isFailedOnly = Boolean.TRUE.equals(failedOnly);
+
+        return ResponseEntity.ok() //
+            .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition) //
+            .contentType(MediaType.parseMediaType("text/csv; charset=utf-8; header=present")) //
+            .body(out -> writeAudit(auditRecordKind, filter, isFailedOnly, out));
+    }
+
+    /**
+     * Retrieves and audits the matching records a chunk at a time, so that link counts are fetched in bulk. Each chunk
+     * seeks past the last ID of its predecessor and is written out and evicted from the persistence context before the
+     * next is retrieved, so the working set stays bounded.
+     * @param auditRecordKind The record type to audit.
+     * @param filter The query filter.
+     * @param failedOnly Whether to write only those records that fail the audit.
+     * @param out The response output stream.
+     * @throws IOException if the output could not be written.
+     */
+    void writeAudit(String auditRecordKind, Object filter, boolean failedOnly, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+        writer.write(CSV_HEADER);
+        Long lastId = null;
+        int recordCount = 0;
+        List<? extends ITrackedEntity> entities;
+        do {
+            Pageable pageable = lastId == null ? PageRequest.of(0, CHUNK_SIZE, ID_ORDER)
+                : SeekRequest.of(0, CHUNK_SIZE, ID_ORDER, lastId);
+            try {
+                entities = readOnlyTxTemplate.execute(_ -> {
+                    List<? extends ITrackedEntity> chunk =
+                        findByFilter(auditRecordKind, filter, pageable).getContent();
+                    try {
+                        for (EntityAudit audit : auditUtils.audit(chunk)) {
+                            if (!failedOnly || !Boolean.TRUE.equals(audit.getPass()))
+                                writeRow(writer, audit);
+                        }
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    em.clear();
+                    return chunk;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (!entities.isEmpty())
+                lastId = entities.getLast().getId();
+            recordCount += entities.size();
+        } while (entities.size() == CHUNK_SIZE);
+
+        LOGGER.debug("audit {}: audited {} records", auditRecordKind, recordCount);
+    }
+
+    private Page<? extends ITrackedEntity> findByFilter(String auditRecordKind, Object filter, Pageable pageable) {
+        return switch (auditRecordKind) {
+            case "claims" -> claimRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable, false);
+            case "declarations" -> declarationRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable,
+                false);
+            case "journals" -> journalRepository.findByFilter((TrackedEntityQueryFilter)filter, pageable, false);
+            case "persons" -> personRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable, false);
+            case "publications" -> publicationRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable,
+                false);
+            case "publishers" -> publisherRepository.findByFilter((TrackedEntityQueryFilter)filter, pageable, false);
+            case "quotations" -> quotationRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable, false);
+            case "topics" -> topicRepository.findByFilter((TopicQueryFilter)filter, pageable, false);
+            default -> throw new IllegalArgumentException("Unsupported auditRecordKind: " + auditRecordKind);
+        };
+    }
+
+    private void writeRow(Writer writer, EntityAudit audit) throws IOException {
+        ITrackedEntity entity = audit.getEntity();
+        StringJoiner failedFields = new StringJoiner(";");
+        FieldAudit fieldAudit = audit.getFieldAudit();
+        if (fieldAudit != null) {
+            addFailedFields(failedFields, fieldAudit.getFields());
+            for (FieldGroupAuditEntry group : fieldAudit.getGroups()) {
+                if (!group.getPass())
+                    addFailedFields(failedFields, group.getFields());
+            }
+        }
+        StringJoiner failedLinks = new StringJoiner(";");
+        LinkAudit linkAudit = audit.getLinkAudit();
+        if (linkAudit != null) {
+            addFailedLinks(failedLinks, linkAudit.getLinks());
+            for (LinkGroupAuditEntry group : linkAudit.getGroups()) {
+                if (!group.getPass())
+                    addFailedLinks(failedLinks, group.getLinks());
+            }
+        }
+
+        writer.write(String.valueOf(entity.getId()));
+        writer.write(',');
+        writer.write(entity.getEntityKind());
+        writer.write(',');
+        writer.write(entity.getStatus());
+        writer.write(',');
+        writer.write(String.valueOf(audit.getPass()));
+        writer.write(',');
+        writer.write(quote(failedFields.toString()));
+        writer.write(',');
+        writer.write(quote(failedLinks.toString()));
+        writer.write("\r\n");
+    }
+
+    private void addFailedFields(StringJoiner failedFields, List<FieldAuditEntry> entries) {
+        for (FieldAuditEntry entry : entries) {
+            if (!entry.getPass())
+                failedFields.add(entry.getFieldName() + '(' + entry.getSeverity() + ')');
+        }
+    }
+
+    private void addFailedLinks(StringJoiner failedLinks, List<LinkAuditEntry> entries) {
+        for (LinkAuditEntry entry : entries) {
+            if (!entry.getPass())
+                failedLinks.add(entry.getLinkedEntityKind() + '(' + entry.getActual() + '/' + entry.getMin() + ')');
+        }
+    }
+
+    private String quote(String value) {
+        return value.isEmpty() ? value : '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+}
@@ -34,8 +34,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
+import java.util.List;
 import java.util.Optional;
 import jakarta.annotation.Generated;
 
@@ -50,6 +52,7 @@ public interface BackupApi {
     }
 
     String PATH_BACKUP = "/backup";
+    String PATH_BACKUP_COMPACT = "/backup/compact";
 
     /**
      * GET /backup : Backup the database Backs up the database as a zipped collection of CSV files
@@ -76,4 +79,30 @@ public interface BackupApi {
         return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
     }
 
+    /**
+     * POST /backup/compact : Compact backup sets Merges a full backup set and its incremental successors into a
+     * single compacted backup set
+     * @param files A full or compacted backup set and its consecutive incremental successors (required)
+     * @return Response from a backup operation (status code 200) or Bad request (e.g., invalid combination of query
+     * parameters) (status code 400) or Internal server error (status code 500)
+     */
+    @Operation(operationId = "compactBackup", summary = "Compact backup sets",
+        description = "Merges a full backup set and its incremental successors into a single compacted backup set",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Response from a backup operation",
+                content = {
+                    @Content(mediaType = "application/zip", schema = @Schema(implementation = Resource.class)) }),
+            @ApiResponse(responseCode = "400",
+                description = "Bad request (e.g., invalid combination of query parameters)"),
+            @ApiResponse(responseCode = "500", description = "Internal server error") },
+        security = { @SecurityRequirement(name = "BearerAuth", scopes = { "ADM" }) })
+    @RequestMapping(method = RequestMethod.POST, value = BackupApi.PATH_BACKUP_COMPACT,
+        produces = { "application/zip" }, consumes = { "multipart/form-data" })
+    default ResponseEntity<Resource> compactBackup(@Parameter(name = "files",
+        description = "A full or compacted backup set and its consecutive incremental successors",
+        required = true) @RequestPart(value = "files", required = true) List<MultipartFile> files) {
+
+        return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+    }
+
 }
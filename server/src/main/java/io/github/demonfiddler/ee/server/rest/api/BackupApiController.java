@@ -19,9 +19,7 @@
 
 package io.github.demonfiddler.ee.server.rest.api;
 
-import static io.github.demonfiddler.ee.common.util.StringUtils.NL;
 import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.APPDATA_TABLES;
-import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.SELECT_TABLE_COLUMNS;
 import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.STATIC_TABLES;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -30,17 +28,18 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.attribute.FileTime;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.slf4j.Logger;
@@ -53,9 +52,6 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementSetter;
-import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.util.InMemoryResource;
 import org.springframework.stereotype.Controller;
@@ -65,12 +61,15 @@ import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
 import io.github.demonfiddler.ee.server.rest.model.BackupKind;
+import io.github.demonfiddler.ee.server.rest.util.BackupCompactor;
+import io.github.demonfiddler.ee.server.rest.util.BackupCompactor.CompactedSet;
 import io.github.demonfiddler.ee.server.rest.util.BackupUtils;
+import io.github.demonfiddler.ee.server.rest.util.BackupUtils.ManifestEntry;
+import io.github.demonfiddler.ee.server.rest.util.BackupWriter;
 import io.github.demonfiddler.ee.server.rest.util.DatabaseUtils;
-import io.github.demonfiddler.ee.server.rest.util.BackupUtils.QueryPair;
-import io.github.demonfiddler.ee.server.rest.util.BackupUtils.TableDescriptor;
 import jakarta.annotation.Generated;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -83,23 +82,24 @@ public class BackupApiController implements BackupApi {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BackupApiController.class);
 
-    private static final Map<String, QueryPair> EXPORT_STATEMENTS = Collections.synchronizedMap(new HashMap<>());
-
     private final NativeWebRequest request;
     private final PlatformTransactionManager txManager;
-    private final JdbcTemplate jdbcTemplate;
     private final BackupUtils backupUtils;
+    private final BackupWriter backupWriter;
+    private final BackupCompactor backupCompactor;
     private final DatabaseUtils databaseUtils;
     @Value("${data.server.tmpdir}")
     private String tmpDir;
 
     public BackupApiController(NativeWebRequest request, PlatformTransactionManager txManager,
-        JdbcTemplate jdbcTemplate, BackupUtils backupUtils, DatabaseUtils databaseUtils) {
+        BackupUtils backupUtils, BackupWriter backupWriter, BackupCompactor backupCompactor,
+        DatabaseUtils databaseUtils) {
 
         this.request = request;
         this.txManager = txManager;
-        this.jdbcTemplate = jdbcTemplate;
         this.backupUtils = backupUtils;
+        this.backupWriter = backupWriter;
+        this.backupCompactor = backupCompactor;
         this.databaseUtils = databaseUtils;
     }
 
@@ -120,7 +120,7 @@ public class BackupApiController implements BackupApi {
         if (backupKind == null)
             return ResponseEntity.badRequest().build();
 
-        // MariaDB may not have permission to access ${java.io.tmpdir}, so we'll have to use a different location.
+        // Per-table CSV files are spooled here before being added to the backup set.
         String outputPath = backupUtils.getBackupPath();
         File outputDir = new File(outputPath);
         String errmsg = backupUtils.createBackupDirectory();
@@ -133,10 +133,12 @@ public class BackupApiController implements BackupApi {
         Integer backupNumber = databaseUtils.getConfigInteger(DatabaseUtils.PROP_BACKUP_NUMBER);
         Timestamp backupTimestamp = databaseUtils.getConfigTimestamp(DatabaseUtils.PROP_BACKUP_TIMESTAMP);
 
-        // The entire backup operation must be performed transactionally.
+        // The entire backup operation must be performed transactionally. A full backup reads every table within this
+        // transaction, whose repeatable reads make the backup set a consistent snapshot.
         DefaultTransactionDefinition def = new DefaultTransactionDefinition();
         def.setName("Backup");
         def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+        def.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
         TransactionStatus status = txManager.getTransaction(def);
         try {
             // For incremental backup:
@@ -160,6 +162,9 @@ public class BackupApiController implements BackupApi {
                 backupNumber = (backupNumber != null ? backupNumber : 0) + 1;
                 databaseUtils.setConfigInteger(DatabaseUtils.PROP_BACKUP_NUMBER, backupNumber);
             } else {
+                // A full backup starts a new series, with a new chain index.
+                databaseUtils.deleteConfig(DatabaseUtils.PROP_BACKUP_CHAIN);
+
                 backupId = UUID.randomUUID().toString();
                 databaseUtils.setConfigString(DatabaseUtils.PROP_BACKUP_ID, backupId);
 
@@ -171,20 +176,19 @@ public class BackupApiController implements BackupApi {
             // Store UTC NOW as backup_last_timestamp, ready for the next incremental backup.
             LocalDateTime now = LocalDateTime.now(ZoneId.of("UTC"));
             databaseUtils.setConfigTimestamp(DatabaseUtils.PROP_BACKUP_TIMESTAMP, Timestamp.valueOf(now));
+            List<String> chain = databaseUtils.getConfigStringArray(DatabaseUtils.PROP_BACKUP_CHAIN);
 
-            // N.B. The remaining code only works if the application and database servers are colocated,
-            // because the SELECT ... INTO OUTFILE SQL statement writes to a local file.
-
-            // ZIP all the CSV files into a single backup set.
-            byte[] buf = new byte[65536];
+            // Stream all the tables as CSV into a single backup set.
             File zipFile = new File(tmpDir, "ee-backup.zip");
             try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(zipFile))) {
-                // Export static lookup table contents to CSV files.
+                // Export static lookup table contents.
+                List<ManifestEntry> manifest = new ArrayList<>();
                 if (backupKind == BackupKind.ALL)
-                    backupTables(STATIC_TABLES, outputPath, backupKind, null);
-                
-                // Export application tables to CSV files.
-                int incrementalRowCount = backupTables(APPDATA_TABLES, outputPath, backupKind, backupTimestamp);
+                    backupWriter.backupTables(STATIC_TABLES, outputDir, backupKind, null, zipOut, manifest);
+
+                // Export application tables.
+                int incrementalRowCount = backupWriter.backupTables(APPDATA_TABLES, outputDir, backupKind,
+                    backupTimestamp, zipOut, manifest);
 
                 // If an incremental backup found no files to back up, return a failure code.
                 if (backupKind == BackupKind.INCREMENTAL && incrementalRowCount == 0) {
@@ -193,19 +197,9 @@ public class BackupApiController implements BackupApi {
                         .body(new InMemoryResource("Incremental backup set is empty"));
                 }
 
-                for (File csvFile : outputDir.listFiles((f, n) -> n.toLowerCase().endsWith(".csv"))) {
-                    ZipEntry csvEntry = new ZipEntry(csvFile.getName());
-                    csvEntry.setLastModifiedTime(FileTime.fromMillis(csvFile.lastModified()));
-                    csvEntry.setSize(csvFile.length());
-                    zipOut.putNextEntry(csvEntry);
-                    int count;
-                    try (FileInputStream csvIn = new FileInputStream(csvFile)) {
-                        while ((count = csvIn.read(buf)) != -1)
-                            zipOut.write(buf, 0, count);
-                    } finally {
-                        zipOut.closeEntry();
-                    }
-                }
+                // Add the manifest and record its checksum in the chain index, ready for the next incremental backup.
+                String manifestSha256 = backupWriter.finishBackupSet(manifest, chain, zipOut);
+                databaseUtils.setConfigString(DatabaseUtils.PROP_BACKUP_CHAIN, backupNumber, manifestSha256);
             } catch (DataAccessException | IOException e) {
                 txManager.rollback(status);
 
@@ -252,116 +246,51 @@ public class BackupApiController implements BackupApi {
         }
     }
 
-    /**
-     * Backs up the specified tables.
-     * @param tables Descriptors for the tables to back up.
-     * @param outputPath The output path to which CSV files should be written.
-     * @param backupKind The kind of backup.
-     * @param lastBackupTimestamp When the previous backup was performed.
-     * @return In incremental backup mode, the number of records that were incrementally backed up, otherwise {@code 0}.
-     * The count excludes static tables and those which cannot be backed up incrementally.
-     */
-    private int backupTables(TableDescriptor[] tables, String outputPath, BackupKind backupKind,
-        Timestamp lastBackupTimestamp) throws DataAccessException {
-
-        int[] rowCount = {0};
-        boolean isIncremental = backupKind == BackupKind.INCREMENTAL;
-        for (TableDescriptor table : tables) {
-            boolean isIncrementalTable = isIncremental && table.supportsIncrementalBackup();
-            PreparedStatementSetter pss = ps -> {
-                if (isIncrementalTable) {
-                    ps.setTimestamp(1, lastBackupTimestamp);
-                    if (table.isTrackedEntity())
-                        ps.setTimestamp(2, lastBackupTimestamp);
-                }
-            };
-            QueryPair queries = getExportStatement(table, outputPath, backupKind);
-            jdbcTemplate.query(queries.countQuerySql(), pss, (RowCallbackHandler)rs -> {
-                if (isIncrementalTable)
-                    rowCount[0] += rs.getInt(1);
-            });
-            jdbcTemplate.query(queries.selectQuerySql(), pss, (RowCallbackHandler)null);
-        }
-        return rowCount[0];
-    }
-
-    private QueryPair getExportStatement(TableDescriptor table, String outputPath, BackupKind backupKind) {
-        boolean isIncremental = backupKind == BackupKind.INCREMENTAL;
-        boolean isIncrementalTable = isIncremental && table.supportsIncrementalBackup();
-        String key = table.name() + (isIncrementalTable ? "_incremental" : "_full");
-        QueryPair queries = EXPORT_STATEMENTS.get(key);
-        if (queries == null) {
-            StringBuilder headerList = new StringBuilder();
-            StringBuilder selectList = new StringBuilder();
-            PreparedStatementSetter pss = ps -> ps.setString(1, table.name());
-            RowCallbackHandler rch = rs -> {
-                String colName = rs.getString(1);
-                String colType = rs.getString(2);
-                if (!headerList.isEmpty())
-                    headerList.append(", ");
-                headerList.append('\'').append(colName).append('\'');
-
-                if (!selectList.isEmpty())
-                    selectList.append(", ");
-                if (databaseUtils.isTextType(colType))
-                    // To emit valid CSV per RFC-4180, embedded double quote characters must be doubled.
-                    selectList.append("REPLACE(t.\"").append(colName).append("\", '\"', '\"\"')");
-                else
-                    selectList.append("t.\"").append(colName).append('"');
-            };
-            jdbcTemplate.query(SELECT_TABLE_COLUMNS, pss, rch);
-
-            StringBuilder countBuf = new StringBuilder();
-            countBuf.append("SELECT COUNT(*)").append(NL) //
-                .append("FROM \"").append(table.name()).append("\" t");
-            if (isIncrementalTable)
-                countBuf.append(NL);
-            appendPredicate(table, isIncremental, countBuf);
-            countBuf.append(';');
-
-            StringBuilder selectBuf = new StringBuilder();
-            selectBuf.append("SELECT ").append(headerList).append(NL);
-            selectBuf.append("UNION ALL").append(NL) //
-                .append("SELECT ").append(selectList).append(NL) //
-                .append("FROM \"").append(table.name()).append("\" t").append(NL); //
-            appendPredicate(table, isIncremental, selectBuf);
-            if (isIncrementalTable)
-                selectBuf.append(NL);
-            selectBuf.append("INTO OUTFILE '").append(outputPath.replace("\\", "\\\\")).append(table.name()) //
-                .append(".csv'").append(NL) //
-                .append("FIELDS TERMINATED BY ','").append(NL) //
-                .append("OPTIONALLY ENCLOSED BY '\"'").append(NL) //
-                .append("ESCAPED BY ''").append(NL) //
-                .append("LINES TERMINATED BY '\\n';");
-
-            String countSql = countBuf.toString();
-            String selectSql = selectBuf.toString();
-            queries = new QueryPair(countSql, selectSql);
-            EXPORT_STATEMENTS.put(key, queries);
-
-            LOGGER.trace("Backing up table \"{}\" with SQL statements:\n{}", table.name(), queries);
-        }
-        return queries;
-    }
+    @Override
+    @PreAuthorize("hasAuthority('ADM')")
+    public ResponseEntity<Resource> compactBackup(List<MultipartFile> files) {
+        if (files == null || files.isEmpty())
+            return ResponseEntity.badRequest().build();
 
-    private void appendPredicate(TableDescriptor table, boolean isIncremental, StringBuilder sqlBuf) {
-        if (isIncremental && table.supportsIncrementalBackup()) {
-            // Only timestamped tables can support incremental backup.
-            if (table.needsJoin()) {
-                sqlBuf.append("JOIN \"entity\" e").append(NL) //
-                    .append("ON e.\"id\" = t.\"id\"").append(NL);
-            }
-            sqlBuf.append("WHERE ");
-            if (table.isTrackedEntity()) {
-                String alias = table.needsJoin() ? "e" : "t";
-                sqlBuf.append(alias).append(".\"created\" > ? OR ") //
-                    .append(alias).append(".\"updated\" > ?");
-            } else if (table.tsColumn() != null) {
-                sqlBuf.append("t.\"").append(table.tsColumn()).append("\" > ?");
-            } else {
-                throw new IllegalStateException(
-                    "To support incremental backup, a table must either be for a tracked entity or have a timestamp");
-            }
+        Path spoolDir = null;
+        Path zipFile = null;
+        boolean sent = false;
+        try {
+            Files.createDirectories(Paths.get(tmpDir));
+            spoolDir = Files.createTempDirectory(Paths.get(tmpDir), "ee-compact-");
+            zipFile = Files.createTempFile(Paths.get(tmpDir), "ee-compacted-", ".zip");
+            CompactedSet compacted = backupCompactor.compact(files, spoolDir, zipFile);
+
+            String ts = compacted.backupTimestamp();
+            ts = (ts.indexOf('.') != -1 ? ts.substring(0, ts.indexOf('.')) : ts).replace(' ', 'T').replace(":", "_");
+            String contentDisposition = "attachment; filename=ee-backup-compacted-" + compacted.backupNumber() + '@'
+                + ts + ".zip";
+            LOGGER.debug("Compaction complete");
+
+            // The temporary ZIP file is deleted once it has been sent.
+            InputStream in = Files.newInputStream(zipFile, StandardOpenOption.DELETE_ON_CLOSE);
+            sent = true;
+            return ResponseEntity.ok() //
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition) //
+                .header(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "Content-Disposition", "Content-Length",
+                    "Content-Type") //
+                .contentType(MediaType.parseMediaType("application/zip")) //
+                .contentLength(Files.size(zipFile)) //
+                .body(new InputStreamResource(in));
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid backup chain: {}", e.getMessage());
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                .body(new InMemoryResource(e.getMessage()));
+        } catch (IOException | DataAccessException e) {
+            String errmsg = "Unable to compact backup sets";
+            LOGGER.error(errmsg, e);
+            return ResponseEntity.internalServerError().contentType(MediaType.TEXT_PLAIN)
+                .body(new InMemoryResource(errmsg + ": " + e.getMessage()));
+        } finally {
+            if (spoolDir != null)
+                backupUtils.deleteFile(spoolDir.toFile(), false);
+            if (zipFile != null && !sent)
+                backupUtils.deleteFile(zipFile.toFile(), false);
         }
     }
 
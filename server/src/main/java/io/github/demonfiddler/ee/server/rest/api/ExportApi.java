@@ -32,7 +32,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import io.github.demonfiddler.ee.server.rest.model.ExportJob;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -61,6 +63,9 @@ public interface ExportApi {
     }
 
     String PATH_EXPORT = "/export/{recordKind}";
+    String PATH_EXPORT_JOBS = "/export/{recordKind}/jobs";
+    String PATH_EXPORT_JOB = "/export/jobs/{jobId}";
+    String PATH_EXPORT_JOB_RESULT = "/export/jobs/{jobId}/result";
 
     /**
      * GET /export/{recordKind} : Exports a list Exports an optionally filtered list to CSV, HTML, PDF or RIS
@@ -127,7 +132,7 @@ public interface ExportApi {
                 description = "Bad request (e.g., invalid combination of query parameters)") })
     @RequestMapping(method = RequestMethod.GET, value = ExportApi.PATH_EXPORT,
         produces = { "application/pdf", "application/x-research-info-systems", "text/csv", "text/html" })
-    default ResponseEntity<Resource> export(
+    default ResponseEntity<StreamingResponseBody> export(
         @NotNull @Parameter(name = "recordKind", description = "The list's record type.", required = true,
             in = ParameterIn.PATH) @PathVariable("recordKind") String recordKind,
         @Parameter(name = "recordId",
@@ -231,4 +236,219 @@ public interface ExportApi {
         return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
     }
 
+    /**
+     * POST /export/{recordKind}/jobs : Submits an export job Submits a job to export an optionally filtered list to
+     * CSV, HTML, PDF or RIS in the background. Poll the job's progress with GET /export/jobs/{jobId}, then download the
+     * exported file with GET /export/jobs/{jobId}/result.
+     * @param recordKind The list&#39;s record type. (required)
+     * @param recordId The identifier of the single record to return. Applicable to all recordKind except logs.
+     * (optional)
+     * @param contentType Overrides the HTTP request&#39;s Accept header, since browsers ignore the type attribute in,
+     * for example, &lt;a href&#x3D;\&quot;...\&quot; download&#x3D;\&quot;filename.pdf\&quot;
+     * type&#x3D;\&quot;application/pdf\&quot;&gt;filename.pdf&lt;/a&gt;. In other words, there&#39;s no way for an HTML
+     * link to force a browser to request the necessary content type. The
+     * \&quot;application/x-research-info-systems\&quot; content type is only supported for
+     * recordKind&#x3D;\&quot;publications\&quot;. (optional, default to application/pdf)
+     * @param text Free text search string. Applicable to all recordKind except logs. (optional)
+     * @param advancedSearch Whether to search text in advanced (boolean) mode, used in conjunction with the text
+     * parameter. Applicable to all recordKind except logs. (optional)
+     * @param status Return only records with this status code. Applicable to all recordKind except logs. (optional)
+     * @param fromEntityId The ID of the &#39;linked-from&#39; master record. Applicable to recordKind claims,
+     * declarations, persons, publications, quotations. (optional)
+     * @param fromEntityKind The kind of the &#39;linked-from&#39; master record. Applicable to recordKind claims,
+     * declarations, persons, publications, quotations. (optional)
+     * @param toEntityId The ID of the &#39;linked-to&#39; master record. Applicable to recordKind claims, declarations,
+     * persons, publications, quotations. (optional)
+     * @param toEntityKind The kind of the &#39;linked-to&#39; master record. Applicable to recordKind claims,
+     * declarations, persons, publications, quotations. (optional)
+     * @param topicId The master topic identifier. Applicable to recordKind claims, declarations, persons, publications,
+     * quotations. (optional)
+     * @param recursive Whether queries including a topicId should recursively include sub-topics. Applicable to
+     * recordKind claims, declarations, persons, publications, quotations. (optional)
+     * @param targetKind Restrict to specific target entity kind. Applicable to recordKind comments. (optional)
+     * @param targetId Restrict to specific target entity ID. Applicable to recordKind comments. (optional)
+     * @param parentId Restrict to sub-topics thereof or replies to a specific comment. Applicable to recordKind
+     * comments, topics. (optional)
+     * @param userId Restrict to logs for a specific user or comments created by a specific user. Applicable to
+     * recordKind comments, logs. (optional)
+     * @param from Timestamp of first record to include. Applicable to recordKind comments, logs. (optional)
+     * @param to Timestamp of last record to include. Applicable to recordKind comments, logs. (optional)
+     * @param entityKind Restrict to logs for this specific entity kind. Applicable to recordKind logs. (optional)
+     * @param entityId Restrict to logs for this specific entity ID. Applicable to recordKind logs. (optional)
+     * @param transactionKind Restrict to logs for this specific transaction kind. Applicable to recordKind logs.
+     * (optional)
+     * @param pageNumber The (zero-based) page number to request. (optional)
+     * @param pageSize The page size to use. (optional)
+     * @param sort The sort order(s) to apply, formatted as column-name[ ASC|DESC]. (optional)
+     * @param col The columns to include. (optional)
+     * @param paper The size of paper to use (applies only to PDF output) (optional, default to A4)
+     * @param orientation The page orientation (applies only to PDF output) (optional, default to portrait)
+     * @param fontSize The font size to use (applies only to HTML and PDF output) (optional, default to 12)
+     * @param renderTable Whether to render a table (optional, default to false)
+     * @param renderDetails Whether to render record details (optional, default to false)
+     * @return The submitted job (status code 202) or Bad request (e.g., invalid combination of query parameters)
+     * (status code 400) or Too many export jobs are queued (status code 503)
+     */
+    @Operation(operationId = "submitExport", summary = "Submits an export job",
+        description = "Submits a job to export an optionally filtered list to CSV, HTML, PDF or RIS in the background. Poll the job's progress with GET /export/jobs/{jobId}, then download the exported file with GET /export/jobs/{jobId}/result.",
+        tags = { "CSV", "HTML", "PDF", "RIS" },
+        responses = {
+            @ApiResponse(responseCode = "202", description = "The submitted job",
+                content = { @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ExportJob.class)) }),
+            @ApiResponse(responseCode = "400",
+                description = "Bad request (e.g., invalid combination of query parameters)"),
+            @ApiResponse(responseCode = "503", description = "Too many export jobs are queued") })
+    @RequestMapping(method = RequestMethod.POST, value = ExportApi.PATH_EXPORT_JOBS, produces = { "application/json" })
+    default ResponseEntity<ExportJob> submitExport(
+        @NotNull @Parameter(name = "recordKind", description = "The list's record type.", required = true,
+            in = ParameterIn.PATH) @PathVariable("recordKind") String recordKind,
+        @Parameter(name = "recordId",
+            description = "The identifier of the single record to return. Applicable to all recordKind except logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "recordId", required = false) @Nullable Long recordId,
+        @Parameter(name = "contentType",
+            description = "Overrides the HTTP request's Accept header, since browsers ignore the type attribute in, for example, <a href=\"...\" download=\"filename.pdf\" type=\"application/pdf\">filename.pdf</a>. In other words, there's no way for an HTML link to force a browser to request the necessary content type. The \"application/x-research-info-systems\" content type is only supported for recordKind=\"publications\".",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "contentType", required = false,
+                defaultValue = "application/pdf") String contentType,
+        @Parameter(name = "text", description = "Free text search string. Applicable to all recordKind except logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "text", required = false) @Nullable String text,
+        @Parameter(name = "advancedSearch",
+            description = "Whether to search text in advanced (boolean) mode, used in conjunction with the text parameter. Applicable to all recordKind except logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "advancedSearch",
+                required = false) @Nullable Boolean advancedSearch,
+        @Parameter(name = "status",
+            description = "Return only records with this status code. Applicable to all recordKind except logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "status", required = false) @Nullable String status,
+        @Parameter(name = "fromEntityId",
+            description = "The ID of the 'linked-from' master record. Applicable to recordKind claims, declarations, persons, publications, quotations.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "fromEntityId",
+                required = false) @Nullable Long fromEntityId,
+        @Parameter(name = "fromEntityKind",
+            description = "The kind of the 'linked-from' master record. Applicable to recordKind claims, declarations, persons, publications, quotations.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "fromEntityKind",
+                required = false) @Nullable String fromEntityKind,
+        @Parameter(name = "toEntityId",
+            description = "The ID of the 'linked-to' master record. Applicable to recordKind claims, declarations, persons, publications, quotations.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "toEntityId",
+                required = false) @Nullable Long toEntityId,
+        @Parameter(name = "toEntityKind",
+            description = "The kind of the 'linked-to' master record. Applicable to recordKind claims, declarations, persons, publications, quotations.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "toEntityKind",
+                required = false) @Nullable String toEntityKind,
+        @Parameter(name = "topicId",
+            description = "The master topic identifier. Applicable to recordKind claims, declarations, persons, publications, quotations.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "topicId", required = false) @Nullable Long topicId,
+        @Parameter(name = "recursive",
+            description = "Whether queries including a topicId should recursively include sub-topics. Applicable to recordKind claims, declarations, persons, publications, quotations.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "recursive",
+                required = false) @Nullable Boolean recursive,
+        @Parameter(name = "targetKind",
+            description = "Restrict to specific target entity kind. Applicable to recordKind comments.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "targetKind",
+                required = false) @Nullable String targetKind,
+        @Parameter(name = "targetId",
+            description = "Restrict to specific target entity ID. Applicable to recordKind comments.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "targetId", required = false) @Nullable Long targetId,
+        @Parameter(name = "parentId",
+            description = "Restrict to sub-topics thereof or replies to a specific comment. Applicable to recordKind comments, topics.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "parentId", required = false) @Nullable Long parentId,
+        @Parameter(name = "userId",
+            description = "Restrict to logs for a specific user or comments created by a specific user. Applicable to recordKind comments, logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "userId", required = false) @Nullable Long userId,
+        @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(?:\\.\\d{3})Z?$") @Parameter(name = "from",
+            description = "Timestamp of first record to include. Applicable to recordKind comments, logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "from", required = false) @Nullable String from,
+        @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(?:\\.\\d{3})Z?$") @Parameter(name = "to",
+            description = "Timestamp of last record to include. Applicable to recordKind comments, logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "to", required = false) @Nullable String to,
+        @Parameter(name = "entityKind",
+            description = "Restrict to logs for this specific entity kind. Applicable to recordKind logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "entityKind",
+                required = false) @Nullable String entityKind,
+        @Parameter(name = "entityId",
+            description = "Restrict to logs for this specific entity ID. Applicable to recordKind logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "entityId", required = false) @Nullable Long entityId,
+        @Parameter(name = "transactionKind",
+            description = "Restrict to logs for this specific transaction kind. Applicable to recordKind logs.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "transactionKind",
+                required = false) @Nullable String transactionKind,
+        @Parameter(name = "pageNumber", description = "The page number to request.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "pageNumber",
+                required = false) @Nullable Integer pageNumber,
+        @Parameter(name = "pageSize", description = "The page size to use.",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "pageSize",
+                required = false) @Nullable Integer pageSize,
+        @Parameter(name = "sort", description = "The sort order(s) to apply, formatted as column-name[ ASC|DESC].",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "sort",
+                required = false) @Nullable List<@Pattern(
+                    regexp = "^[a-zA-Z]+(?:\\s+(?:[aA][sS][cC]|[dD][eE][sS][cC]))?$") String> sort,
+        @Parameter(name = "col", description = "The columns to include.", in = ParameterIn.QUERY) @Valid @RequestParam(
+            value = "col", required = false) @Nullable List<@Pattern(regexp = "^[a-zA-Z]+$") String> col,
+        @Parameter(name = "paper", description = "The size of paper to use (applies only to PDF output)",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "paper", required = false,
+                defaultValue = "A4") String paper,
+        @Parameter(name = "orientation", description = "The page orientation (applies only to PDF output)",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "orientation", required = false,
+                defaultValue = "portrait") String orientation,
+        @Min(value = 8) @Max(value = 16) @Parameter(name = "fontSize",
+            description = "The font size to use  (applies only to HTML and PDF output)",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "fontSize", required = false,
+                defaultValue = "12") Integer fontSize,
+        @Parameter(name = "renderTable", description = "Whether to render a table",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "renderTable", required = false,
+                defaultValue = "false") Boolean renderTable,
+        @Parameter(name = "renderDetails", description = "Whether to render record details",
+            in = ParameterIn.QUERY) @Valid @RequestParam(value = "renderDetails", required = false,
+                defaultValue = "false") Boolean renderDetails) {
+
+        return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+    }
+
+    /**
+     * GET /export/jobs/{jobId} : Gets an export job Returns the status and progress of an export job.
+     * @param jobId The export job identifier. (required)
+     * @return The export job (status code 200) or No such job (status code 404)
+     */
+    @Operation(operationId = "getExportJob", summary = "Gets an export job",
+        description = "Returns the status and progress of an export job.", tags = { "CSV", "HTML", "PDF", "RIS" },
+        responses = {
+            @ApiResponse(responseCode = "200", description = "The export job",
+                content = { @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ExportJob.class)) }),
+            @ApiResponse(responseCode = "404", description = "No such job") })
+    @RequestMapping(method = RequestMethod.GET, value = ExportApi.PATH_EXPORT_JOB, produces = { "application/json" })
+    default ResponseEntity<ExportJob> getExportJob(
+        @NotNull @Parameter(name = "jobId", description = "The export job identifier.", required = true,
+            in = ParameterIn.PATH) @PathVariable("jobId") String jobId) {
+
+        return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+    }
+
+    /**
+     * GET /export/jobs/{jobId}/result : Downloads an export job's result Returns the file exported by a completed
+     * export job.
+     * @param jobId The export job identifier. (required)
+     * @return The exported list content (status code 200) or No such job (status code 404) or The job has not
+     * completed (status code 409)
+     */
+    @Operation(operationId = "getExportJobResult", summary = "Downloads an export job's result",
+        description = "Returns the file exported by a completed export job.", tags = { "CSV", "HTML", "PDF", "RIS" },
+        responses = {
+            @ApiResponse(responseCode = "200", description = "The exported list content",
+                content = { @Content(mediaType = "application/pdf", schema = @Schema(implementation = Resource.class)),
+                    @Content(mediaType = "application/x-research-info-systems",
+                        schema = @Schema(implementation = Resource.class)),
+                    @Content(mediaType = "text/csv", schema = @Schema(implementation = Resource.class)),
+                    @Content(mediaType = "text/html", schema = @Schema(implementation = Resource.class)) }),
+            @ApiResponse(responseCode = "404", description = "No such job"),
+            @ApiResponse(responseCode = "409", description = "The job has not completed") })
+    @RequestMapping(method = RequestMethod.GET, value = ExportApi.PATH_EXPORT_JOB_RESULT,
+        produces = { "application/pdf", "application/x-research-info-systems", "text/csv", "text/html" })
+    default ResponseEntity<Resource> getExportJobResult(
+        @NotNull @Parameter(name = "jobId", description = "The export job identifier.", required = true,
+            in = ParameterIn.PATH) @PathVariable("jobId") String jobId) {
+
+        return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+    }
+
 }
@@ -21,13 +21,12 @@ package io.github.demonfiddler.ee.server.rest.api;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import java.awt.Color;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
@@ -35,39 +34,34 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Matcher;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
-import org.openpdf.pdf.ITextFontResolver;
-import org.openpdf.pdf.ITextRenderer;
-import org.openpdf.text.Anchor;
-import org.openpdf.text.Chunk;
-import org.openpdf.text.Document;
-import org.openpdf.text.Element;
-import org.openpdf.text.Font;
-import org.openpdf.text.Phrase;
-import org.openpdf.text.Rectangle;
-import org.openpdf.text.pdf.BaseFont;
-import org.openpdf.text.pdf.ColumnText;
-import org.openpdf.text.pdf.PdfContentByte;
-import org.openpdf.text.pdf.PdfPageEventHelper;
-import org.openpdf.text.pdf.PdfWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import freemarker.template.TemplateException;
 import io.github.demonfiddler.ee.common.util.StringUtils;
@@ -102,6 +96,7 @@ import io.github.demonfiddler.ee.server.repository.QuotationRepository;
 import io.github.demonfiddler.ee.server.repository.TopicRepository;
 import io.github.demonfiddler.ee.server.repository.TrackedEntityRepository;
 import io.github.demonfiddler.ee.server.repository.UserRepository;
+import io.github.demonfiddler.ee.server.rest.model.ExportJob;
 import io.github.demonfiddler.ee.server.rest.tables.ClaimColumns;
 import io.github.demonfiddler.ee.server.rest.tables.Column;
 import io.github.demonfiddler.ee.server.rest.tables.CommentColumns;
@@ -115,9 +110,15 @@ import io.github.demonfiddler.ee.server.rest.tables.PublisherColumns;
 import io.github.demonfiddler.ee.server.rest.tables.QuotationColumns;
 import io.github.demonfiddler.ee.server.rest.tables.TopicColumns;
 import io.github.demonfiddler.ee.server.rest.tables.UserColumns;
+import io.github.demonfiddler.ee.server.rest.util.ExportCache;
+import io.github.demonfiddler.ee.server.rest.util.ExportJobManager;
+import io.github.demonfiddler.ee.server.rest.util.ExportJobManager.ExportFile;
+import io.github.demonfiddler.ee.server.rest.util.ExportJobManager.ExportResult;
 import io.github.demonfiddler.ee.server.rest.util.NewlineNormalizingOutputStream;
+import io.github.demonfiddler.ee.server.rest.util.PdfUtils;
 import io.github.demonfiddler.ee.server.rest.util.RenderUtils;
 import io.github.demonfiddler.ee.server.rest.util.TemplateUtils;
+import io.github.demonfiddler.ee.server.util.AccessContext;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
 import io.github.demonfiddler.ee.server.util.SecurityUtils;
 import jakarta.annotation.Generated;
@@ -135,11 +136,24 @@ public class ExportApiController implements ExportApi {
     private static final Logger LOGGER = LoggerFactory.getLogger(ExportApiController.class);
     private static final Pattern COLUMN = Pattern.compile("^([a-zA-Z]+)(?:\s+([aA][sS][cC]|[dD][eE][sS][cC]))?$");
 
+    /**
+     * A prepared export.
+     * @param fileName The name under which to download the output.
+     * @param contentType The output content type.
+     * @param body Renders the output.
+     * @param contentLength The output length, or -1 if unknown because the output is rendered as it is written.
+     */
+    private record Export(String fileName, String contentType, StreamingResponseBody body, long contentLength) {
+    }
+
     private final NativeWebRequest request;
     private final SecurityUtils securityUtils;
     private final TemplateUtils templateUtils;
     private final EntityUtils entityUtils;
     private final RenderUtils renderUtils;
+    private final PdfUtils pdfUtils;
+    private final ExportJobManager exportJobManager;
+    private final ExportCache exportCache;
     private final ClaimRepository claimRepository;
     private final CommentRepository commentRepository;
     private final DeclarationRepository declarationRepository;
@@ -153,25 +167,32 @@ public class ExportApiController implements ExportApi {
     private final TopicRepository topicRepository;
     private final UserRepository userRepository;
     private final TrackedEntityRepository trackedEntityRepository;
+    private final TransactionTemplate readOnlyTxTemplate;
     @Value("${web.server.url}")
     private String webServerUrl;
     @Value("${data.server.url}")
     private String dataServerUrl;
+    /** The maximum number of records to render in each HTML document when generating PDF. */
+    @Value("${pdf.chunk-size:200}")
+    private int pdfChunkSize;
 
     public ExportApiController(NativeWebRequest request, SecurityUtils securityUtils, TemplateUtils templateUtils,
-        EntityUtils entityUtils, RenderUtils renderUtils, ClaimRepository claimRepository,
-        CommentRepository commentRepository, DeclarationRepository declarationRepository,
-        GroupRepository groupRepository, JournalRepository journalRepository, LogRepository logRepository,
-        PersonRepository personRepository, PublicationRepository publicationRepository,
-        PublisherRepository publisherRepository, QuotationRepository quotationRepository,
-        TopicRepository topicRepository, UserRepository userRepository,
-        TrackedEntityRepository trackedEntityRepository) {
+        EntityUtils entityUtils, RenderUtils renderUtils, PdfUtils pdfUtils, ExportJobManager exportJobManager,
+        ExportCache exportCache, ClaimRepository claimRepository, CommentRepository commentRepository,
+        DeclarationRepository declarationRepository, GroupRepository groupRepository,
+        JournalRepository journalRepository, LogRepository logRepository, PersonRepository personRepository,
+        PublicationRepository publicationRepository, PublisherRepository publisherRepository,
+        QuotationRepository quotationRepository, TopicRepository topicRepository, UserRepository userRepository,
+        TrackedEntityRepository trackedEntityRepository, PlatformTransactionManager txManager) {
 
         this.request = request;
         this.securityUtils = securityUtils;
         this.templateUtils = templateUtils;
         this.entityUtils = entityUtils;
         this.renderUtils = renderUtils;
+        this.pdfUtils = pdfUtils;
+        this.exportJobManager = exportJobManager;
+        this.exportCache = exportCache;
         this.claimRepository = claimRepository;
         this.commentRepository = commentRepository;
         this.declarationRepository = declarationRepository;
@@ -185,6 +206,8 @@ public class ExportApiController implements ExportApi {
         this.topicRepository = topicRepository;
         this.userRepository = userRepository;
         this.trackedEntityRepository = trackedEntityRepository;
+        this.readOnlyTxTemplate = new TransactionTemplate(txManager);
+        this.readOnlyTxTemplate.setReadOnly(true);
     }
 
     @Override
@@ -193,11 +216,11 @@ public class ExportApiController implements ExportApi {
     }
 
     @Override
-    public ResponseEntity<Resource> export(@NotNull String recordKind, @Valid Long recordId, @Valid String contentType,
-        @Valid String text, @Valid Boolean advancedSearch, @Valid String status, @Valid Long fromEntityId,
-        @Valid String fromEntityKind, @Valid Long toEntityId, @Valid String toEntityKind, @Valid Long topicId,
-        @Valid Boolean recursive, @Valid String targetKind, @Valid Long targetId, @Valid Long parentId,
-        @Valid Long userId,
+    public ResponseEntity<StreamingResponseBody> export(@NotNull String recordKind, @Valid Long recordId,
+        @Valid String contentType, @Valid String text, @Valid Boolean advancedSearch, @Valid String status,
+        @Valid Long fromEntityId, @Valid String fromEntityKind, @Valid Long toEntityId, @Valid String toEntityKind,
+        @Valid Long topicId, @Valid Boolean recursive, @Valid String targetKind, @Valid Long targetId,
+        @Valid Long parentId, @Valid Long userId,
         @jakarta.validation.constraints.Pattern(
             regexp = "^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(?:\\.\\d{3})Z?$") @Valid String from,
         @jakarta.validation.constraints.Pattern(
@@ -210,6 +233,121 @@ public class ExportApiController implements ExportApi {
         @Valid String orientation, @Min(8) @Max(16) @Valid Integer fontSize, @Valid Boolean renderTable,
         @Valid Boolean renderDetails) {
 
+        // Repeat exports are served from the cache, which is keyed on everything that determines the output. The user
+        // is included because it determines which records are visible, and is named in the output.
+        String key = exportCache.key(recordKind, recordId, contentType, text, advancedSearch, status, fromEntityId,
+            fromEntityKind, toEntityId, toEntityKind, topicId, recursive, targetKind, targetId, parentId, userId, from,
+            to, entityKind, entityId, transactionKind, pageNumber, pageSize, sort, col, paper, orientation, fontSize,
+            renderTable, renderDetails, getUserName());
+        String etag = '"' + key + '"';
+        if (request.checkNotModified(etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+
+        String fileName;
+        String exportContentType;
+        StreamingResponseBody body;
+        long contentLength;
+        ExportCache.OpenEntry cached = exportCache.open(key);
+        if (cached != null) {
+            LOGGER.debug("export {} to {}: serving cached export {}", recordKind, contentType, key);
+            fileName = cached.entry().fileName();
+            exportContentType = cached.entry().contentType();
+            body = out -> {
+                try (cached) {
+                    cached.in().transferTo(out);
+                }
+            };
+            contentLength = cached.entry().length();
+        } else {
+            Export export = prepareExport(recordKind, recordId, contentType, text, advancedSearch, status,
+                fromEntityId, fromEntityKind, toEntityId, toEntityKind, topicId, recursive, targetKind, targetId,
+                parentId, userId, from, to, entityKind, entityId, transactionKind, pageNumber, pageSize, sort, col,
+                paper, orientation, fontSize, renderTable, renderDetails, new LongAdder());
+            fileName = export.fileName();
+            exportContentType = export.contentType();
+            body = exportCache.caching(key, fileName, exportContentType, export.body());
+            contentLength = export.contentLength();
+        }
+
+        // Return the generated response as a file download.
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok() //
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName) //
+            .header(HttpHeaders.CONTENT_ENCODING, UTF_8.name()) //
+            .contentType(MediaType.parseMediaType(exportContentType)) //
+            .eTag(etag) //
+            .cacheControl(CacheControl.noCache().cachePrivate());
+        if (contentLength != -1)
+            builder.contentLength(contentLength);
+        return builder.body(body);
+    }
+
+    @Override
+    public ResponseEntity<ExportJob> submitExport(@NotNull String recordKind, @Valid Long recordId,
+        @Valid String contentType, @Valid String text, @Valid Boolean advancedSearch, @Valid String status,
+        @Valid Long fromEntityId, @Valid String fromEntityKind, @Valid Long toEntityId, @Valid String toEntityKind,
+        @Valid Long topicId, @Valid Boolean recursive, @Valid String targetKind, @Valid Long targetId,
+        @Valid Long parentId, @Valid Long userId,
+        @jakarta.validation.constraints.Pattern(
+            regexp = "^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(?:\\.\\d{3})Z?$") @Valid String from,
+        @jakarta.validation.constraints.Pattern(
+            regexp = "^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(?:\\.\\d{3})Z?$") @Valid String to,
+        @Valid String entityKind, @Valid Long entityId, @Valid String transactionKind, @Valid Integer pageNumber,
+        @Valid Integer pageSize,
+        @Valid List<@jakarta.validation.constraints.Pattern(
+            regexp = "^[a-zA-Z]+(?:\\s+(?:[aA][sS][cC]|[dD][eE][sS][cC]))?$") String> sort,
+        @Valid List<@jakarta.validation.constraints.Pattern(regexp = "^[a-zA-Z]+$") String> col, @Valid String paper,
+        @Valid String orientation, @Min(8) @Max(16) @Valid Integer fontSize, @Valid Boolean renderTable,
+        @Valid Boolean renderDetails) {
+
+        ExportJob job;
+        try {
+            job = exportJobManager.submit(recordKind, contentType, (progress, out) -> {
+                Export export = prepareExport(recordKind, recordId, contentType, text, advancedSearch, status,
+                    fromEntityId, fromEntityKind, toEntityId, toEntityKind, topicId, recursive, targetKind, targetId,
+                    parentId, userId, from, to, entityKind, entityId, transactionKind, pageNumber, pageSize, sort, col,
+                    paper, orientation, fontSize, renderTable, renderDetails, progress);
+                export.body().writeTo(out);
+                return new ExportResult(export.fileName(), export.contentType());
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("export {} to {}: job rejected", recordKind, contentType);
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return ResponseEntity.accepted().body(job);
+    }
+
+    @Override
+    public ResponseEntity<ExportJob> getExportJob(@NotNull String jobId) {
+        ExportJob job = exportJobManager.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @Override
+    public ResponseEntity<Resource> getExportJobResult(@NotNull String jobId) {
+        ExportFile file = exportJobManager.getFile(jobId);
+        if (file == null) {
+            return exportJobManager.getJob(jobId) != null ? new ResponseEntity<>(HttpStatus.CONFLICT)
+                : ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok() //
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + file.fileName()) //
+            .header(HttpHeaders.CONTENT_ENCODING, UTF_8.name()) //
+            .contentType(MediaType.parseMediaType(file.contentType())) //
+            .body(new FileSystemResource(file.path()));
+    }
+
+    /**
+     * Prepares an export, retrieving the matching records unless they are to be streamed.
+     * @param progress The counter to increment as each record is rendered.
+     * @return The prepared export, whose body renders the output.
+     */
+    private Export prepareExport(String recordKind, Long recordId, String contentType, String text,
+        Boolean advancedSearch, String status, Long fromEntityId, String fromEntityKind, Long toEntityId,
+        String toEntityKind, Long topicId, Boolean recursive, String targetKind, Long targetId, Long parentId,
+        Long userId, String from, String to, String entityKind, Long entityId, String transactionKind,
+        Integer pageNumber, Integer pageSize, List<String> sort, List<String> col, String paper, String orientation,
+        Integer fontSize, Boolean renderTable, Boolean renderDetails, LongAdder progress) {
+
         // First prepare the query filter.
         Object filter = switch (recordKind) {
             case "claims", "declarations", "persons", "publications", "quotations" -> newLinkableEntityQueryFilter(
@@ -255,28 +393,19 @@ public class ExportApiController implements ExportApi {
             .build();
         Pageable pageable = entityUtils.toPageable(pageableInput);
 
-        // Retrieve the list of matching records.
-        Page<?> page = switch (recordKind) {
-            case "claims" -> claimRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable);
-            case "comments" -> commentRepository.findByFilter((CommentQueryFilter)filter, pageable);
-            case "declarations" -> declarationRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable);
-            case "groups" -> groupRepository.findByFilter((TrackedEntityQueryFilter)filter, pageable);
-            case "journals" -> journalRepository.findByFilter((TrackedEntityQueryFilter)filter, pageable);
-            case "log" -> logRepository.findByFilter((LogQueryFilter)filter, pageable);
-            case "persons" -> personRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable);
-            case "publications" -> publicationRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable);
-            case "publishers" -> publisherRepository.findByFilter((TrackedEntityQueryFilter)filter, pageable);
-            case "quotations" -> quotationRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable);
-            case "topics" -> topicRepository.findByFilter((TopicQueryFilter)filter, pageable);
-            case "users" -> userRepository.findByFilter((TrackedEntityQueryFilter)filter, pageable);
-            default -> throw new IllegalArgumentException("Unsupported recordKind: " + recordKind);
-        };
+        // CSV and RIS are rendered a record at a time, so they are streamed straight from the database to the client.
+        // HTML and PDF require the complete document before they can be rendered, so for these, retrieve the matching
+        // records in advance.
+        boolean isStreamed =
+            "text/csv".equals(contentType) || "application/x-research-info-systems".equals(contentType);
+        Page<?> page = isStreamed ? null : findByFilter(recordKind, filter, pageable);
 
         LOGGER.debug(
-            "export %s to %s: recordId=%d, text=%s, advancedSearch=%s, status=%s, fromEntityId=%d, fromEntityKind=%s, toEntityId=%d, toEntityKind=%s, topicId=%d, recursive=%s, targetKind=%s, targetId=%d, parentId=%d, userId=%d, from=%s, to=%s, entityKind=%s, entityId=%d, transactionKind=%s, pageNumber=%d, pageSize=%d, sort=%s: found %d records",
+            "export %s to %s: recordId=%d, text=%s, advancedSearch=%s, status=%s, fromEntityId=%d, fromEntityKind=%s, toEntityId=%d, toEntityKind=%s, topicId=%d, recursive=%s, targetKind=%s, targetId=%d, parentId=%d, userId=%d, from=%s, to=%s, entityKind=%s, entityId=%d, transactionKind=%s, pageNumber=%d, pageSize=%d, sort=%s: %s",
             recordKind, contentType, recordId, text, advancedSearch, status, fromEntityId, fromEntityKind, toEntityId,
             toEntityKind, topicId, recursive, targetKind, targetId, parentId, userId, from, to, entityKind, entityId,
-            transactionKind, pageNumber, pageSize, sort, page.getNumberOfElements());
+            transactionKind, pageNumber, pageSize, sort,
+            isStreamed ? "streaming records" : "found " + page.getNumberOfElements() + " records");
 
         // Map the user-specified column names into column objects.
         List<Column<? extends IBaseEntity>> allColumns = allColumnsFor(recordKind);
@@ -496,38 +625,47 @@ public class ExportApiController implements ExportApi {
         root.put("columns", tableColumns);
         root.put("utils", renderUtils);
 
-        // Set up output streams to pass to FreeMarker.
-        String fileExt;
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        OutputStream fout = new NewlineNormalizingOutputStream(bout);
-
         // Use the template appropriate to the requested content type to render the output.
-        if ("text/csv".equals(contentType)) {
-            if (renderTable && renderDetails)
-                throw new IllegalArgumentException(
-                    "The renderTable and renderDetail options are mutually exclusive when exporting to CSV");
-
-            contentType = "text/csv; charset=utf-8; header=present";
-            fileExt = "csv";
-            try (Writer writer = new OutputStreamWriter(fout, UTF_8)) {
-                templateUtils.render("export-csv", root, writer);
-                LOGGER.debug("export %s to %s", recordKind, contentType);
-            } catch (TemplateException | IOException e) {
-                throw new RuntimeException("Template error", e);
-            }
-        } else if ("application/x-research-info-systems".equals(contentType)) {
-            if (renderTable)
-                throw new IllegalArgumentException("RIS export does not support the renderTable option");
+        String fileExt;
+        String templateName;
+        StreamingResponseBody body;
+        long contentLength;
+        if (isStreamed) {
+            if ("text/csv".equals(contentType)) {
+                if (renderTable && renderDetails)
+                    throw new IllegalArgumentException(
+                        "The renderTable and renderDetail options are mutually exclusive when exporting to CSV");
+
+                contentType = "text/csv; charset=utf-8; header=present";
+                fileExt = "csv";
+                templateName = "export-csv";
+            } else {
+                if (renderTable)
+                    throw new IllegalArgumentException("RIS export does not support the renderTable option");
 
-            fileExt = "ris";
-            try (Writer writer = new OutputStreamWriter(fout, UTF_8)) {
-                templateUtils.render("export-ris", root, writer);
-                LOGGER.debug("export %s to %s", recordKind, contentType);
-            } catch (TemplateException | IOException e) {
-                throw new RuntimeException("Template error", e);
+                fileExt = "ris";
+                templateName = "export-ris";
             }
+            String streamedContentType = contentType;
+            body = out -> streamRecords(recordKind, filter, pageable, templateName, root, out, streamedContentType,
+                progress);
+            contentLength = -1;
+        } else if ("application/pdf".equals(contentType)) {
+            // To generate PDF, render the HTML a chunk of records at a time and convert each chunk in turn.
+            fileExt = "pdf";
+            String title = StringUtils.firstToUpper(recordKind) + " Export";
+            body = out -> {
+                pdfUtils.render(renderHtmlChunks(root, page.getContent(), renderTable, renderDetails, progress),
+                    title, timestamp, fontSize, out);
+                LOGGER.debug("export %s to application/pdf: generated PDF", recordKind);
+            };
+            contentLength = -1;
         } else {
-            // We're exporting to HTML or PDF; in either case we must first generate HTML.
+            // Set up output streams to pass to FreeMarker.
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            OutputStream fout = new NewlineNormalizingOutputStream(bout);
+
+            fileExt = "html";
             try (Writer writer = new OutputStreamWriter(fout, UTF_8)) {
                 templateUtils.render("export-html", root, writer);
 
@@ -535,90 +673,152 @@ public class ExportApiController implements ExportApi {
             } catch (TemplateException | IOException e) {
                 throw new RuntimeException("Template error", e);
             }
-
-            // To generate PDF, convert the HTML.
-            if ("application/pdf".equals(contentType)) {
-                fileExt = "pdf";
-                ITextRenderer renderer = new ITextRenderer();
-                ITextFontResolver resolver = renderer.getFontResolver();
-                try {
-                    resolver.addFont("/fonts/DejaVuSans.ttf", BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
-                    // resolver.addFont("/fonts/LiberationSans-Regular.ttf", BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
-                } catch (IOException e) {
-                    throw new RuntimeException("Unable to load font", e);
-                }
-                renderer.setPdfPageEvent(new PdfPageEventHelper() {
-
-                    @Override
-                    public void onEndPage(PdfWriter writer, Document document) {
-                        try {
-                            LOGGER.debug("onEndPage page " + writer.getPageNumber());
-                            Rectangle pageSize = document.getPageSize();
-                            float leftX = pageSize.getLeft() + 35;
-                            float centerX = (pageSize.getLeft() + pageSize.getRight()) / 2;
-                            float rightX = pageSize.getRight() - 35;
-                            float footerY = pageSize.getBottom() + 25;
-                            Font font = new Font(BaseFont.createFont(), fontSize);
-                            PdfContentByte cb = writer.getDirectContent();
-
-                            // Header
-                            ColumnText.showTextAligned(cb, Element.ALIGN_CENTER,
-                                new Phrase(StringUtils.firstToUpper(recordKind) + " Export", font), centerX,
-                                pageSize.getTop() - 30, 0);
-
-                            // Left footer
-                            ColumnText.showTextAligned(cb, Element.ALIGN_LEFT, new Phrase(timestamp, font), leftX,
-                                footerY, 0);
-
-                            // Centre footer
-                            Phrase centrePhrase = new Phrase();
-                            centrePhrase.setFont(font);
-                            centrePhrase.add(new Chunk("From ", font));
-                            Font linkFont = new Font(font);
-                            linkFont.setColor(Color.BLUE);
-                            linkFont.setStyle(Font.UNDERLINE);
-                            Anchor anchor = new Anchor("Evidence Engine", linkFont);
-                            anchor.setReference(webServerUrl);
-                            centrePhrase.add(anchor);
-                            ColumnText.showTextAligned(cb, Element.ALIGN_CENTER, centrePhrase, centerX, footerY, 0);
-
-                            // Right footer
-                            ColumnText.showTextAligned(cb, Element.ALIGN_RIGHT,
-                                new Phrase("Page " + writer.getPageNumber(), font), rightX, footerY, 0);
-                        } catch (Exception e) {
-                            LOGGER.error("Error processing page end", e);
-                        }
-                    }
-
-                });
-                String html = new String(bout.toByteArray(), UTF_8);
-                renderer.setDocumentFromString(html);
-                // As an alternative to placing a CSS @Page rule in the HTML:
-                // ((ITextOutputDevice)renderer.getOutputDevice()).setPageSize(PageSize.A4/*.rotate()*/);
-                renderer.layout();
-                bout = new ByteArrayOutputStream();
-                renderer.createPDF(bout);
-                renderer.finishPDF();
-
-                LOGGER.debug("export %s to %s: generated PDF");
-            } else {
-                fileExt = "html";
-            }
+            progress.add(page.getNumberOfElements());
+            byte[] bytes = bout.toByteArray();
+            body = out -> out.write(bytes);
+            contentLength = bytes.length;
         }
 
-        // Return the generated response as a file download.
+        // Name the generated output as a file download.
         String ts = DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.now());
         ts = ts.substring(0, ts.indexOf('.')).replace(":", "_");
-        String contentDisposition = "attachment; filename=" + recordKind + '-' + ts + '.' + fileExt;
+        String fileName = recordKind + '-' + ts + '.' + fileExt;
 
-        InputStream in = new ByteArrayInputStream(bout.toByteArray());
-        Resource resource = new InputStreamResource(in);
-        return ResponseEntity.ok() //
-            .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition) //
-            .header(HttpHeaders.CONTENT_ENCODING, UTF_8.name()) //
-            .contentType(MediaType.parseMediaType(contentType)) //
-            .contentLength(bout.size()) //
-            .body(resource);
+        return new Export(fileName, contentType, body, contentLength);
+    }
+
+    /**
+     * Retrieves the list of matching records for rendering in advance.
+     * @param recordKind The record kind.
+     * @param filter The query filter.
+     * @param pageable How to paginate/sort the results.
+     * @return The matching records.
+     */
+    private Page<?> findByFilter(String recordKind, Object filter, Pageable pageable) {
+        return switch (recordKind) {
+            case "claims" -> claimRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable);
+            case "comments" -> commentRepository.findByFilter((CommentQueryFilter)filter, pageable);
+            case "declarations" -> declarationRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable);
+            case "groups" -> groupRepository.findByFilter((TrackedEntityQueryFilter)filter, pageable);
+            case "journals" -> journalRepository.findByFilter((TrackedEntityQueryFilter)filter, pageable);
+            case "log" -> logRepository.findByFilter((LogQueryFilter)filter, pageable);
+            case "persons" -> personRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable);
+            case "publications" -> publicationRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable);
+            case "publishers" -> publisherRepository.findByFilter((TrackedEntityQueryFilter)filter, pageable);
+            case "quotations" -> quotationRepository.findByFilter((LinkableEntityQueryFilter)filter, pageable);
+            case "topics" -> topicRepository.findByFilter((TopicQueryFilter)filter, pageable);
+            case "users" -> userRepository.findByFilter((TrackedEntityQueryFilter)filter, pageable);
+            default -> throw new IllegalArgumentException("Unsupported recordKind: " + recordKind);
+        };
+    }
+
+    /**
+     * Streams the list of matching records, to be read from the database as they are rendered.
+     * @param recordKind The record kind.
+     * @param filter The query filter.
+     * @param pageable How to paginate/sort the results.
+     * @return The matching records; the caller must close the stream.
+     */
+    private Stream<?> streamByFilter(String recordKind, Object filter, Pageable pageable) {
+        return switch (recordKind) {
+            case "claims" -> claimRepository.streamByFilter((LinkableEntityQueryFilter)filter, pageable);
+            case "comments" -> commentRepository.streamByFilter((CommentQueryFilter)filter, pageable);
+            case "declarations" -> declarationRepository.streamByFilter((LinkableEntityQueryFilter)filter, pageable);
+            case "groups" -> groupRepository.streamByFilter((TrackedEntityQueryFilter)filter, pageable);
+            case "journals" -> journalRepository.streamByFilter((TrackedEntityQueryFilter)filter, pageable);
+            case "log" -> logRepository.streamByFilter((LogQueryFilter)filter, pageable);
+            case "persons" -> personRepository.streamByFilter((LinkableEntityQueryFilter)filter, pageable);
+            case "publications" -> publicationRepository.streamByFilter((LinkableEntityQueryFilter)filter, pageable);
+            case "publishers" -> publisherRepository.streamByFilter((TrackedEntityQueryFilter)filter, pageable);
+            case "quotations" -> quotationRepository.streamByFilter((LinkableEntityQueryFilter)filter, pageable);
+            case "topics" -> topicRepository.streamByFilter((TopicQueryFilter)filter, pageable);
+            case "users" -> userRepository.streamByFilter((TrackedEntityQueryFilter)filter, pageable);
+            default -> throw new IllegalArgumentException("Unsupported recordKind: " + recordKind);
+        };
+    }
+
+    /**
+     * Lazily renders the HTML for a PDF export as a sequence of documents, each containing at most
+     * {@code pdfChunkSize} records, so that the PDF renderer only needs to hold one chunk's DOM at a time. The first
+     * document carries the export header; the table and details sections each start in a new document.
+     * @param root The template's root object.
+     * @param records The records to render.
+     * @param renderTable Whether to render the records as a table.
+     * @param renderDetails Whether to render the records' details.
+     * @param progress The counter to increment as each record is rendered.
+     * @return The HTML documents.
+     */
+    private Iterator<String> renderHtmlChunks(Map<String, Object> root, List<?> records, boolean renderTable,
+        boolean renderDetails, LongAdder progress) {
+
+        List<Map<String, Object>> chunkRoots = new ArrayList<>();
+        if (renderTable)
+            addChunkRoots(chunkRoots, root, records, true, false);
+        if (renderDetails)
+            addChunkRoots(chunkRoots, root, records, false, true);
+        if (chunkRoots.isEmpty())
+            addChunkRoots(chunkRoots, root, records, false, false);
+
+        return chunkRoots.stream().map(chunkRoot -> {
+            StringWriter writer = new StringWriter();
+            try {
+                templateUtils.render("export-html", chunkRoot, writer);
+            } catch (TemplateException | IOException e) {
+                throw new RuntimeException("Template error", e);
+            }
+            // Records rendered in both the table and the details sections are only counted once.
+            if (!renderTable || Boolean.TRUE.equals(chunkRoot.get("renderTable")))
+                progress.add(((List<?>)chunkRoot.get("records")).size());
+            return writer.toString();
+        }).iterator();
+    }
+
+    private void addChunkRoots(List<Map<String, Object>> chunkRoots, Map<String, Object> root, List<?> records,
+        boolean renderTable, boolean renderDetails) {
+
+        int from = 0;
+        do {
+            int to = Math.min(from + pdfChunkSize, records.size());
+            Map<String, Object> chunkRoot = new HashMap<>(root);
+            chunkRoot.put("records", records.subList(from, to));
+            chunkRoot.put("renderHeader", chunkRoots.isEmpty());
+            chunkRoot.put("renderHeading", from == 0);
+            chunkRoot.put("renderTable", renderTable);
+            chunkRoot.put("renderDetails", renderDetails);
+            chunkRoots.add(chunkRoot);
+            from = to;
+        } while (from < records.size());
+    }
+
+    /**
+     * Renders a template over a stream of matching records, writing the output to the client as each record is read
+     * from the database. The records are read within a read-only transaction, which keeps the database cursor open.
+     * @param recordKind The record kind.
+     * @param filter The query filter.
+     * @param pageable How to paginate/sort the results.
+     * @param templateName The name of the template to render.
+     * @param root The template's root object, to which this method adds the {@code page} of streamed records.
+     * @param out The response output stream.
+     * @param contentType The response content type (for logging).
+     * @param progress The counter to increment as each record is rendered.
+     * @throws IOException if the output could not be written.
+     */
+    private void streamRecords(String recordKind, Object filter, Pageable pageable, String templateName,
+        Map<String, Object> root, OutputStream out, String contentType, LongAdder progress) throws IOException {
+
+        OutputStream fout = new NewlineNormalizingOutputStream(new BufferedOutputStream(out));
+        Writer writer = new OutputStreamWriter(fout, UTF_8);
+        readOnlyTxTemplate.executeWithoutResult(_ -> {
+            try (Stream<?> records = streamByFilter(recordKind, filter, pageable)) {
+                // FreeMarker lists an Iterator just once, which is all that the templates require.
+                root.put("page", Map.of("content", records.peek(_ -> progress.increment()).iterator()));
+                templateUtils.render(templateName, root, writer);
+                writer.flush();
+            } catch (TemplateException | IOException e) {
+                throw new RuntimeException("Template error", e);
+            }
+        });
+        LOGGER.debug("export %s to %s", recordKind, contentType);
     }
 
     private LinkableEntityQueryFilter newLinkableEntityQueryFilter(Long recordId, String text, Boolean advancedSearch,
@@ -750,8 +950,8 @@ public class ExportApiController implements ExportApi {
     }
 
     private String getUserName() {
-        String username = securityUtils.getCurrentUsername();
-        return username.equals("anonymousUser") ? "guest" : username;
+        AccessContext accessContext = securityUtils.getAccessContext();
+        return accessContext.isAnonymous() ? "guest" : accessContext.username();
     }
 
     private List<Column<? extends IBaseEntity>> allColumnsFor(String recordKind) {
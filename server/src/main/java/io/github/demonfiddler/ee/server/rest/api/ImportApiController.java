@@ -34,14 +34,23 @@ import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoField;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpHeaders;
@@ -56,6 +65,8 @@ import org.springframework.web.multipart.MultipartFile;
 import io.github.demonfiddler.ee.common.util.StringUtils;
 import io.github.demonfiddler.ee.server.controller.MutationController;
 import io.github.demonfiddler.ee.server.model.AbstractLinkableEntity;
+import io.github.demonfiddler.ee.server.model.AbstractTrackedEntity;
+import io.github.demonfiddler.ee.server.model.AuthorityKind;
 import io.github.demonfiddler.ee.server.model.EntityKind;
 import io.github.demonfiddler.ee.server.model.EntityLink;
 import io.github.demonfiddler.ee.server.model.EntityLinkInput;
@@ -69,13 +80,18 @@ import io.github.demonfiddler.ee.server.model.Publisher;
 import io.github.demonfiddler.ee.server.model.PublisherInput;
 import io.github.demonfiddler.ee.server.repository.JournalRepository;
 import io.github.demonfiddler.ee.server.repository.LinkableEntityRepository;
+import io.github.demonfiddler.ee.server.repository.PublicationRepository;
+import io.github.demonfiddler.ee.server.repository.PublicationRepository.PublicationKeys;
 import io.github.demonfiddler.ee.server.repository.PublisherRepository;
 import io.github.demonfiddler.ee.server.rest.model.ImportMessage;
 import io.github.demonfiddler.ee.server.rest.model.ImportMessage.SeverityEnum;
 import io.github.demonfiddler.ee.server.rest.model.ImportedRecord;
 import io.github.demonfiddler.ee.server.rest.model.ImportedRecord.ResultEnum;
+import io.github.demonfiddler.ee.server.rest.util.ImportBatchWriter;
+import io.github.demonfiddler.ee.server.rest.util.ImportBatchWriter.InsertedPublication;
 import io.github.demonfiddler.ee.server.rest.util.Iso4Utils;
 import io.github.demonfiddler.ee.server.util.EntityUtils;
+import io.github.demonfiddler.ee.server.util.SecurityUtils;
 import jakarta.annotation.Generated;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -89,26 +105,55 @@ public class ImportApiController implements ImportApi {
     private static final Logger LOGGER = LoggerFactory.getLogger(ImportApiController.class);
     private static final Pattern PATTERN_RIS_ITEM = Pattern.compile("^(?<tag>[A-Z][A-Z0-9]{1,5})  - ?(?<value>.*)$");
     private static final Pattern PATTERN_ISSN = Pattern.compile("^[0-9]{4}-?[0-9]{3}[0-9X]$");
+    private static final Pattern PATTERN_DOI_PREFIX =
+        Pattern.compile("^(?:doi:\\s*|https?://(?:dx\\.)?doi\\.org/)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PATTERN_NON_ISBN_CHARS = Pattern.compile("[^0-9X]");
+    private static final Pattern PATTERN_NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    /** The names of the keys returned by {@code duplicateKeys()}, for messages. */
+    private static final String[] DUPLICATE_KEY_NAMES = { "DOI", "ISBN", "title and year" };
+    /** The maximum number of keys to pass in a single journal or publisher lookup query. */
+    private static final int MAX_KEYS_PER_QUERY = 1000;
+
+    /**
+     * A parsed RIS record. The journal and publisher keys are recorded together with the line numbers of the tags
+     * that supplied them, so that they can be looked up in bulk once the whole file has been parsed.
+     */
+    private record RisRecord(ImportedRecord importedRecord, int lineNum, PublicationInput.Builder builder,
+        String title, String publisherName, String publisherLocation, int publisherLineNum, String journalTitle,
+        int journalTitleLineNum, String journalAbbrev, int journalAbbrevLineNum, String journalIssn,
+        int journalIssnLineNum) {
+    }
 
     private final NativeWebRequest request;
     private final MutationController mutationController;
     private final LinkableEntityRepository linkableEntityRepository;
     private final PublisherRepository publisherRepository;
     private final JournalRepository journalRepository;
+    private final PublicationRepository publicationRepository;
     private final Iso4Utils iso4Utils;
     private final EntityUtils entityUtils;
+    private final ImportBatchWriter importBatchWriter;
+    private final SecurityUtils securityUtils;
+    /** The number of publications to insert per batch, or {@code 1} to insert them one at a time. */
+    private final int batchSize;
 
     public ImportApiController(NativeWebRequest request, MutationController mutationController,
         LinkableEntityRepository linkableEntityRepository, PublisherRepository publisherRepository,
-        JournalRepository journalRepository, Iso4Utils iso4Utils, EntityUtils entityUtils) {
+        JournalRepository journalRepository, PublicationRepository publicationRepository, Iso4Utils iso4Utils,
+        EntityUtils entityUtils, ImportBatchWriter importBatchWriter, SecurityUtils securityUtils,
+        @Value("${import.batch-size:500}") int batchSize) {
 
         this.request = request;
         this.mutationController = mutationController;
         this.linkableEntityRepository = linkableEntityRepository;
         this.publisherRepository = publisherRepository;
         this.journalRepository = journalRepository;
+        this.publicationRepository = publicationRepository;
         this.iso4Utils = iso4Utils;
         this.entityUtils = entityUtils;
+        this.importBatchWriter = importBatchWriter;
+        this.securityUtils = securityUtils;
+        this.batchSize = batchSize;
     }
 
     @Override
@@ -119,22 +164,36 @@ public class ImportApiController implements ImportApi {
     private List<ImportedRecord> importPublications(MultipartFile file, Long masterTopicId, Long fromMasterEntityId,
         Long toMasterEntityId) throws IOException {
 
+        List<ImportedRecord> results = new ArrayList<>();
+        List<RisRecord> records = removeDuplicates(parsePublications(file, results));
+        persistPublications(records, masterTopicId, fromMasterEntityId, toMasterEntityId);
+        return results;
+    }
+
+    /**
+     * Parses an uploaded RIS file.
+     * @param file The RIS file.
+     * @param results Receives the results for every record in the file, including those that could not be parsed.
+     * @return The complete records, ready to be persisted.
+     * @throws IOException if the file could not be read.
+     */
+    private List<RisRecord> parsePublications(MultipartFile file, List<ImportedRecord> results) throws IOException {
         try (BufferedReader in =
             new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            List<ImportedRecord> results = new ArrayList<>();
+            List<RisRecord> records = new ArrayList<>();
             PublicationInput.Builder builder = null;
             PublicationKind kind = null;
             String title = null;
             String tag = null;
             String publisherName = null;
             String publisherLocation = null;
-            Publisher publisher = null;
+            int publisherLineNum = 0;
             String journalTitle = null;
+            int journalTitleLineNum = 0;
             String journalAbbrev = null;
+            int journalAbbrevLineNum = 0;
             String journalIssn = null;
-            Journal journalByTitle = null;
-            Journal journalByAbbrev = null;
-            Journal journalByIssn = null;
+            int journalIssnLineNum = 0;
             StringBuilder authors = new StringBuilder();
             StringBuilder notes = new StringBuilder();
             StringBuilder keywords = new StringBuilder();
@@ -343,15 +402,7 @@ public class ImportApiController implements ImportApi {
                                // Subtitle.[16]
                         if (builder != null) {
                             journalTitle = value;
-                            Optional<Journal> journal = journalRepository.findByTitle(journalTitle);
-                            if (journal.isPresent()) {
-                                journalByTitle = journal.get();
-                                addMessage(importedRecord, lineNum, INFO, "Found existing Journal#"
-                                    + journalByTitle.getId() + " with title '" + journalTitle + "'");
-                            } else {
-                                addMessage(importedRecord, lineNum, INFO,
-                                    "Could not find journal with title '" + journalTitle + "'");
-                            }
+                            journalTitleLineNum = lineNum;
                         }
                         break;
                     case "J2": // Alternate title, e.g. alternate journal, abbreviated publication, abbreviation, or
@@ -366,23 +417,16 @@ public class ImportApiController implements ImportApi {
                             String abbreviation = iso4Utils.normalizeAbbreviation(value);
                             if (journalAbbrev == null) {
                                 journalAbbrev = abbreviation;
+                                journalAbbrevLineNum = lineNum;
                             } else if (tag.equals("JA")) {
                                 journalAbbrev = abbreviation;
+                                journalAbbrevLineNum = lineNum;
                                 addMessage(importedRecord, lineNum, INFO, "Previous journal abbreviation '"
                                     + journalAbbrev + "', overwritten by '" + tag + "  - " + value + '\'');
                             } else {
                                 addMessage(importedRecord, lineNum, INFO, "Ignoring '" + tag + "  - " + value
                                     + "', as journal abbreviation has already been set");
                             }
-                            Optional<Journal> journal = journalRepository.findByAbbreviation(abbreviation);
-                            if (journal.isPresent()) {
-                                journalByAbbrev = journal.get();
-                                addMessage(importedRecord, lineNum, INFO, "Found existing Journal#"
-                                    + journalByAbbrev.getId() + " with abbreviation '" + abbreviation + '\'');
-                            } else {
-                                addMessage(importedRecord, lineNum, INFO,
-                                    "Could not find journal with abbreviated title '" + abbreviation + '\'');
-                            }
                         }
                         break;
                     case "UR": // Web/URL. Can be repeated for multiple tags, or multiple URLs can be entered in the
@@ -443,15 +487,7 @@ public class ImportApiController implements ImportApi {
                                     }
                                     if (PATTERN_ISSN.matcher(value).matches()) {
                                         journalIssn = normalizeIssn(value);
-                                        Optional<Journal> journalOpt = journalRepository.findByIssn(journalIssn);
-                                        if (journalOpt.isPresent()) {
-                                            journalByIssn = journalOpt.get();
-                                            addMessage(importedRecord, lineNum, INFO, "Found existing Journal#"
-                                                + journalByIssn.getId() + " with ISSN '" + journalIssn + '\'');
-                                        } else {
-                                            addMessage(importedRecord, lineNum, INFO,
-                                                "Could not find journal with ISSN '" + journalIssn + '\'');
-                                        }
+                                        journalIssnLineNum = lineNum;
                                     } else if (value.length() >= 10) {
                                         builder.withIsbn(normalizeIsbn(value));
                                     }
@@ -467,15 +503,7 @@ public class ImportApiController implements ImportApi {
                                // institution, source, or university / degree
                                // grantor.[6][14][9][21][8][15][16][17][18][19][20]
                         publisherName = value;
-                        Optional<Publisher> publisherOpt = publisherRepository.findByName(publisherName);
-                        if (publisherOpt.isPresent()) {
-                            publisher = publisherOpt.get();
-                            addMessage(importedRecord, lineNum, INFO, "Found existing Publisher#" + publisher.getId()
-                                + " with name '" + publisherName + '\'');
-                        } else {
-                            addMessage(importedRecord, lineNum, INFO,
-                                "Could not find publisher with name '" + publisherName + '\'');
-                        }
+                        publisherLineNum = lineNum;
                         break;
                     case "PP": // Place of publication.[15]
                     case "CP": // City/place of publication.[9][16] Issue.[21][18]
@@ -578,121 +606,9 @@ public class ImportApiController implements ImportApi {
                                 if (!keywords.isEmpty())
                                     builder.withKeywords(normalizeKeywords(keywords.toString()));
 
-                                if (publisher == null && publisherName != null) {
-                                    PublisherInput input = PublisherInput.builder() //
-                                        .withName(publisherName) //
-                                        .withLocation(publisherLocation) //
-                                        // .withNotes("Auto-created while importing Publication '" + title
-                                        // + "'. Please complete manually.") //
-                                        .build();
-                                    try {
-                                        publisher = (Publisher)mutationController.createPublisher(null, input);
-                                        String msg = "Created new Publisher#" + publisher.getId() + " with name '"
-                                            + publisherName + "'";
-                                        LOGGER.trace(msg);
-                                        addMessage(importedRecord, lineNum, INFO, msg);
-                                    } catch (Exception e) {
-                                        String msg = "Failed to create Publisher '" + publisherName + "': "
-                                            + normalizeExceptionMessage(e.getMessage());
-                                        LOGGER.error(msg);
-                                        addMessage(importedRecord, lineNum, ERROR, msg);
-                                    }
-                                }
-
-                                // Check that the three possible journal references all point to the same one.
-                                compareJournals(journalByIssn, journalByTitle, "issn", journalIssn, "title",
-                                    journalTitle, importedRecord, lineNum);
-                                compareJournals(journalByIssn, journalByAbbrev, "issn", journalIssn, "abbreviation",
-                                    journalAbbrev, importedRecord, lineNum);
-                                compareJournals(journalByTitle, journalByAbbrev, "title", journalTitle, "abbreviation",
-                                    journalAbbrev, importedRecord, lineNum);
-
-                                // Decide which existing journal to use, or create a new one.
-                                Journal journal = null;
-                                boolean journalExists = false;
-                                if (journalByIssn != null) {
-                                    journal = journalByIssn;
-                                    journalExists = true;
-                                } else if (journalByTitle != null) {
-                                    journal = journalByTitle;
-                                    journalExists = true;
-                                } else if (journalByAbbrev != null) {
-                                    journal = journalByAbbrev;
-                                    journalExists = true;
-                                } else if (journalTitle != null) {
-                                    if (journalAbbrev == null)
-                                        journalAbbrev = iso4Utils.abbreviate(journalTitle);
-                                    JournalInput input = JournalInput.builder() //
-                                        .withTitle(journalTitle) //
-                                        .withAbbreviation(journalAbbrev) //
-                                        .withIssn(journalIssn) //
-                                        .withPublisherId(publisher == null ? null : publisher.getId()) //
-                                        .withNotes("Auto-created while importing Publication '" + title
-                                            + "'. Please complete manually.") //
-                                        .build();
-                                    try {
-                                        journal = (Journal)mutationController.createJournal(null, input);
-                                        String msg = "Created new Journal#" + journal.getId() + " with title '"
-                                            + journalTitle + "'";
-                                        LOGGER.trace(msg);
-                                        addMessage(importedRecord, lineNum, INFO, msg);
-                                        if (publisherName == null) {
-                                            addMessage(importedRecord, lineNum, WARNING,
-                                                "No Publisher name specified for Journal#" + journal.getId()
-                                                    + " (missing PB tag?).");
-                                        }
-                                    } catch (Exception e) {
-                                        String msg = "Failed to create Journal '" + journalTitle + "': "
-                                            + normalizeExceptionMessage(e.getMessage());
-                                        LOGGER.error(msg);
-                                        addMessage(importedRecord, lineNum, ERROR, msg);
-                                    }
-                                } else {
-                                    addMessage(importedRecord, lineNum, WARNING,
-                                        "No Journal specified for Publication (missing JF/T2/JA/J2/JO/SN tag?)");
-                                }
-
-                                if (journal != null) {
-                                    builder.withJournalId(journal.getId());
-                                    builder.withPeerReviewed(journal.getPeerReviewed());
-                                    if (journalExists && journal.getPublisher() == null) {
-                                        addMessage(importedRecord, lineNum, WARNING,
-                                            "No Publisher associated with existing Journal# " + journal.getId());
-                                    }
-                                    if (publisher == null)
-                                        publisher = journal.getPublisher();
-                                }
-                                if (publisher != null)
-                                    builder.withPublisherId(publisher.getId());
-
-                                PublicationInput input = builder.build();
-                                try {
-                                    Publication publication =
-                                        (Publication)mutationController.createPublication(null, input);
-                                    importedRecord.setId(publication.getId());
-                                    importedRecord.setLabel(publication.getTitle());
-                                    importedRecord.setResult(ResultEnum.IMPORTED);
-                                    String msg = "Created new Publication#" + publication.getId() + " with title '"
-                                        + publication.getTitle() + "'";
-                                    LOGGER.trace(msg);
-                                    addMessage(importedRecord, lineNum, INFO, msg);
-
-                                    createLinks(importedRecord, lineNum, publication, masterTopicId, fromMasterEntityId,
-                                        toMasterEntityId);
-                                } catch (DuplicateKeyException e) {
-                                    importedRecord.setResult(ResultEnum.DUPLICATE);
-                                    addMessage(importedRecord, lineNum, ERROR,
-                                        "Imported record duplicates an existing Publication: "
-                                            + normalizeExceptionMessage(e.getMessage()));
-                                } catch (DataIntegrityViolationException e) {
-                                    importedRecord.setResult(ResultEnum.ERROR);
-                                    addMessage(importedRecord, lineNum, ERROR, "Imported record violates a constraint: "
-                                        + normalizeExceptionMessage(e.getMessage()));
-                                } catch (Exception e) {
-                                    importedRecord.setResult(ResultEnum.ERROR);
-                                    addMessage(importedRecord, lineNum, ERROR,
-                                        "Error persisting Publication: " + normalizeExceptionMessage(e.getMessage()));
-                                }
+                                records.add(new RisRecord(importedRecord, lineNum, builder, title, publisherName,
+                                    publisherLocation, publisherLineNum, journalTitle, journalTitleLineNum,
+                                    journalAbbrev, journalAbbrevLineNum, journalIssn, journalIssnLineNum));
                             } else {
                                 addMessage(importedRecord, lineNum, ERROR,
                                     "Skipping incomplete record (missing/invalid TY and/or TI tags)");
@@ -711,13 +627,13 @@ public class ImportApiController implements ImportApi {
                         tag = null;
                         publisherName = null;
                         publisherLocation = null;
-                        publisher = null;
+                        publisherLineNum = 0;
                         journalTitle = null;
+                        journalTitleLineNum = 0;
                         journalAbbrev = null;
+                        journalAbbrevLineNum = 0;
                         journalIssn = null;
-                        journalByTitle = null;
-                        journalByAbbrev = null;
-                        journalByIssn = null;
+                        journalIssnLineNum = 0;
                         authors.setLength(0);
                         notes.setLength(0);
                         keywords.setLength(0);
@@ -729,7 +645,459 @@ public class ImportApiController implements ImportApi {
             }
             ;
 
-            return results;
+            return records;
+        }
+    }
+
+    /**
+     * Removes duplicate records. A record is a duplicate if it has the same normalized DOI, ISBN or title and year as
+     * an existing publication or as an earlier record in the same file. The index of existing publications is built
+     * from a single projection query, which excludes deleted publications. Duplicates are reported rather than
+     * inserted, so re-importing a file is idempotent. A record that reuses a deleted publication's DOI or ISBN is left
+     * for the database's unique keys to reject, which reports it as a duplicate when it is persisted.
+     * @param records The records to check.
+     * @return The records that are not duplicates.
+     */
+    private List<RisRecord> removeDuplicates(List<RisRecord> records) {
+        if (records.isEmpty())
+            return records;
+
+        Map<String, PublicationKeys> existing = new HashMap<>();
+        for (PublicationKeys publication : publicationRepository.findAllKeys()) {
+            for (String key : duplicateKeys(publication.getDoi(), publication.getIsbn(), publication.getTitle(),
+                publication.getYear())) {
+
+                if (key != null)
+                    existing.putIfAbsent(key, publication);
+            }
+        }
+
+        Map<String, RisRecord> accepted = new HashMap<>();
+        List<RisRecord> unique = new ArrayList<>(records.size());
+        for (RisRecord record : records) {
+            PublicationInput input = record.builder().build();
+            String[] keys = duplicateKeys(input.getDoi(), input.getIsbn(), input.getTitle(), input.getYear());
+            if (!isDuplicate(record, input.getTitle(), keys, existing, accepted)) {
+                for (String key : keys) {
+                    if (key != null)
+                        accepted.putIfAbsent(key, record);
+                }
+                unique.add(record);
+            }
+        }
+        if (unique.size() < records.size())
+            LOGGER.debug("Skipped {} duplicate RIS records", records.size() - unique.size());
+        return unique;
+    }
+
+    /**
+     * Checks whether a record duplicates an existing publication or an earlier record, and if so reports it.
+     * @param record The record to check.
+     * @param title The record's title.
+     * @param keys The record's duplicate detection keys.
+     * @param existing The existing publications, keyed by duplicate detection key.
+     * @param accepted The records accepted so far, keyed by duplicate detection key.
+     * @return {@code true} if the record is a duplicate.
+     */
+    private boolean isDuplicate(RisRecord record, String title, String[] keys, Map<String, PublicationKeys> existing,
+        Map<String, RisRecord> accepted) {
+
+        ImportedRecord importedRecord = record.importedRecord();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null)
+                continue;
+            PublicationKeys publication = existing.get(keys[i]);
+            if (publication != null) {
+                importedRecord.setId(publication.getId());
+                importedRecord.setLabel(publication.getTitle());
+                importedRecord.setResult(ResultEnum.DUPLICATE);
+                addMessage(importedRecord, record.lineNum(), WARNING, "Skipping record with the same "
+                    + DUPLICATE_KEY_NAMES[i] + " as existing Publication#" + publication.getId());
+                return true;
+            }
+            RisRecord original = accepted.get(keys[i]);
+            if (original != null) {
+                importedRecord.setLabel(title);
+                importedRecord.setResult(ResultEnum.DUPLICATE);
+                addMessage(importedRecord, record.lineNum(), WARNING, "Skipping record with the same "
+                    + DUPLICATE_KEY_NAMES[i] + " as the record ending at line " + original.lineNum());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the normalized keys by which a publication is matched against existing ones, in the order given by
+     * {@link #DUPLICATE_KEY_NAMES}.
+     * @param doi The DOI, may be {@code null}.
+     * @param isbn The ISBN, may be {@code null}.
+     * @param title The title, may be {@code null}.
+     * @param year The publication year, may be {@code null}.
+     * @return The DOI, ISBN and title+year keys, any of which may be {@code null}.
+     */
+    private String[] duplicateKeys(String doi, String isbn, String title, Integer year) {
+        String doiKey = null;
+        if (doi != null) {
+            doi = PATTERN_DOI_PREFIX.matcher(doi.trim()).replaceFirst("").toLowerCase(Locale.ROOT);
+            if (!doi.isEmpty())
+                doiKey = "doi:" + doi;
+        }
+        String isbnKey = null;
+        if (isbn != null) {
+            isbn = PATTERN_NON_ISBN_CHARS.matcher(isbn.toUpperCase(Locale.ROOT)).replaceAll("");
+            if (!isbn.isEmpty())
+                isbnKey = "isbn:" + isbn;
+        }
+        String titleKey = null;
+        if (title != null && year != null) {
+            title = PATTERN_NON_ALPHANUMERIC.matcher(title.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+            if (!title.isEmpty())
+                titleKey = "title:" + year + ':' + title;
+        }
+        return new String[] { doiKey, isbnKey, titleKey };
+    }
+
+    /**
+     * Persists parsed RIS records. All the journals and publishers that the records reference are first looked up
+     * with a handful of {@code IN} queries. Then, in file order, each record's journal and publisher are resolved
+     * (creating any that do not yet exist) and the publications are inserted in batches of {@code import.batch-size},
+     * each batch in a single transaction. If a batch fails (for example, because one of its records duplicates an
+     * existing publication), its records are retried one at a time so that each gets its own result. Records to be
+     * linked to a master topic or record are only batched if the caller holds the {@code LNK} authority; otherwise
+     * they go through the mutations, which enforce it.
+     * @param records The records to persist.
+     * @param masterTopicId The ID of the topic to link each publication from, or {@code null}.
+     * @param fromMasterEntityId The ID of the record to link each publication from, or {@code null}.
+     * @param toMasterEntityId The ID of the record to link each publication to, or {@code null}.
+     */
+    private void persistPublications(List<RisRecord> records, Long masterTopicId, Long fromMasterEntityId,
+        Long toMasterEntityId) {
+
+        Map<String, Journal> journalsByIssn = findAll(records, RisRecord::journalIssn,
+            journalRepository::findByIssnIn, Journal::getIssn);
+        Map<String, Journal> journalsByTitle = findAll(records, RisRecord::journalTitle,
+            journalRepository::findByTitleIn, Journal::getTitle);
+        Map<String, Journal> journalsByAbbrev = findAll(records, RisRecord::journalAbbrev,
+            journalRepository::findByAbbreviationIn, Journal::getAbbreviation);
+        Map<String, Publisher> publishersByName = findAll(records, RisRecord::publisherName,
+            publisherRepository::findByNameIn, Publisher::getName);
+
+        // Batched inserts bypass the createEntityLink mutation's authority and linkage rule checks. So links are only
+        // batched for a caller who holds LNK and only if they obey the linkage rules; otherwise the per-record path
+        // reports the error for each record.
+        boolean linked = masterTopicId != null || fromMasterEntityId != null || toMasterEntityId != null;
+        boolean batched = batchSize > 1 && (!linked || securityUtils.hasAuthority(AuthorityKind.LNK)
+            && obeysLinkageRules(masterTopicId, fromMasterEntityId, toMasterEntityId));
+        List<RisRecord> batch = new ArrayList<>();
+        for (RisRecord record : records) {
+            resolveJournalAndPublisher(record, journalsByIssn, journalsByTitle, journalsByAbbrev, publishersByName);
+            if (batched) {
+                batch.add(record);
+                if (batch.size() == batchSize) {
+                    persistBatch(batch, masterTopicId, fromMasterEntityId, toMasterEntityId);
+                    batch.clear();
+                }
+            } else {
+                persistPublication(record, masterTopicId, fromMasterEntityId, toMasterEntityId);
+            }
+        }
+        if (!batch.isEmpty())
+            persistBatch(batch, masterTopicId, fromMasterEntityId, toMasterEntityId);
+    }
+
+    /**
+     * Checks that the links to be made to each imported publication obey the linkage rules that the
+     * {@code createEntityLink} mutation enforces, with the master topic also required to be a Topic.
+     * @param masterTopicId The ID of the topic to link each publication from, or {@code null}.
+     * @param fromMasterEntityId The ID of the record to link each publication from, or {@code null}.
+     * @param toMasterEntityId The ID of the record to link each publication to, or {@code null}.
+     * @return {@code true} if every requested link is permitted.
+     */
+    private boolean obeysLinkageRules(Long masterTopicId, Long fromMasterEntityId, Long toMasterEntityId) {
+        try {
+            if (masterTopicId != null) {
+                EntityKind masterTopicKind = getEntityKind(masterTopicId);
+                if (masterTopicKind != EntityKind.TOP)
+                    throw new IllegalArgumentException("Master topic is a " + masterTopicKind.label());
+                entityUtils.checkLinkageRules(masterTopicKind, masterTopicId, EntityKind.PUB, null);
+            }
+            if (fromMasterEntityId != null) {
+                entityUtils.checkLinkageRules(getEntityKind(fromMasterEntityId), fromMasterEntityId, EntityKind.PUB,
+                    null);
+            }
+            if (toMasterEntityId != null)
+                entityUtils.checkLinkageRules(EntityKind.PUB, null, getEntityKind(toMasterEntityId), toMasterEntityId);
+            return true;
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Not batching linked publications: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the kind of a linkable entity.
+     * @param id The entity ID.
+     * @return The entity kind.
+     * @throws IllegalArgumentException if there is no such entity.
+     */
+    private EntityKind getEntityKind(Long id) {
+        return linkableEntityRepository.findById(id) //
+            .map(e -> EntityKind.valueOf(e.getEntityKind())) //
+            .orElseThrow(() -> new IllegalArgumentException("No linkable entity with ID " + id));
+    }
+
+    /**
+     * Looks up the entities referenced by a list of RIS records, using one {@code IN} query per
+     * {@link #MAX_KEYS_PER_QUERY} distinct keys.
+     * @param <T> The entity type.
+     * @param records The RIS records.
+     * @param recordKey Extracts the lookup key from a record.
+     * @param finder Finds the entities whose key is in a collection of keys.
+     * @param entityKey Extracts the lookup key from an entity.
+     * @return A modifiable, case-insensitive map of the entities found, keyed by lookup key.
+     */
+    private <T> Map<String, T> findAll(List<RisRecord> records, Function<RisRecord, String> recordKey,
+        Function<Collection<String>, List<T>> finder, Function<T, String> entityKey) {
+
+        Set<String> keySet = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (RisRecord record : records) {
+            String key = recordKey.apply(record);
+            if (key != null)
+                keySet.add(key);
+        }
+        List<String> keys = new ArrayList<>(keySet);
+        Map<String, T> entities = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < keys.size(); i += MAX_KEYS_PER_QUERY) {
+            for (T entity : finder.apply(keys.subList(i, Math.min(i + MAX_KEYS_PER_QUERY, keys.size())))) {
+                String key = entityKey.apply(entity);
+                if (key != null)
+                    entities.putIfAbsent(key, entity);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Looks up an entity referenced by a RIS record.
+     * @param <T> The entity type.
+     * @param entities The entities found, keyed by lookup key.
+     * @param key The lookup key, may be {@code null}.
+     * @param entityName The entity type name, for messages.
+     * @param keyName The key name, for messages.
+     * @param importedRecord The result to which to add messages.
+     * @param lineNum The line number of the tag that supplied the key.
+     * @return The entity, or {@code null} if {@code key} is {@code null} or no such entity exists.
+     */
+    private <T extends AbstractTrackedEntity> T lookup(Map<String, T> entities, String key, String entityName,
+        String keyName, ImportedRecord importedRecord, int lineNum) {
+
+        if (key == null)
+            return null;
+        T entity = entities.get(key);
+        if (entity != null) {
+            addMessage(importedRecord, lineNum, INFO,
+                "Found existing " + entityName + '#' + entity.getId() + " with " + keyName + " '" + key + '\'');
+        } else {
+            addMessage(importedRecord, lineNum, INFO,
+                "Could not find " + entityName.toLowerCase() + " with " + keyName + " '" + key + '\'');
+        }
+        return entity;
+    }
+
+    /**
+     * Resolves a RIS record's journal and publisher, creating them if necessary, and sets their IDs on the record's
+     * {@code PublicationInput} builder. Any journal or publisher created is added to the lookup maps, so that later
+     * records in the same file reuse it.
+     */
+    private void resolveJournalAndPublisher(RisRecord record, Map<String, Journal> journalsByIssn,
+        Map<String, Journal> journalsByTitle, Map<String, Journal> journalsByAbbrev,
+        Map<String, Publisher> publishersByName) {
+
+        ImportedRecord importedRecord = record.importedRecord();
+        int lineNum = record.lineNum();
+        PublicationInput.Builder builder = record.builder();
+        String title = record.title();
+        String publisherName = record.publisherName();
+        String publisherLocation = record.publisherLocation();
+        String journalTitle = record.journalTitle();
+        String journalAbbrev = record.journalAbbrev();
+        String journalIssn = record.journalIssn();
+
+        Journal journalByTitle = lookup(journalsByTitle, journalTitle, "Journal", "title", importedRecord,
+            record.journalTitleLineNum());
+        Journal journalByAbbrev = lookup(journalsByAbbrev, journalAbbrev, "Journal", "abbreviation", importedRecord,
+            record.journalAbbrevLineNum());
+        Journal journalByIssn = lookup(journalsByIssn, journalIssn, "Journal", "ISSN", importedRecord,
+            record.journalIssnLineNum());
+        Publisher publisher = lookup(publishersByName, publisherName, "Publisher", "name", importedRecord,
+            record.publisherLineNum());
+
+        if (publisher == null && publisherName != null) {
+            PublisherInput input = PublisherInput.builder() //
+                .withName(publisherName) //
+                .withLocation(publisherLocation) //
+                // .withNotes("Auto-created while importing Publication '" + title
+                // + "'. Please complete manually.") //
+                .build();
+            try {
+                publisher = (Publisher)mutationController.createPublisher(null, input);
+                publishersByName.put(publisherName, publisher);
+                String msg = "Created new Publisher#" + publisher.getId() + " with name '" + publisherName + "'";
+                LOGGER.trace(msg);
+                addMessage(importedRecord, lineNum, INFO, msg);
+            } catch (Exception e) {
+                String msg = "Failed to create Publisher '" + publisherName + "': "
+                    + normalizeExceptionMessage(e.getMessage());
+                LOGGER.error(msg);
+                addMessage(importedRecord, lineNum, ERROR, msg);
+            }
+        }
+
+        // Check that the three possible journal references all point to the same one.
+        compareJournals(journalByIssn, journalByTitle, "issn", journalIssn, "title", journalTitle, importedRecord,
+            lineNum);
+        compareJournals(journalByIssn, journalByAbbrev, "issn", journalIssn, "abbreviation", journalAbbrev,
+            importedRecord, lineNum);
+        compareJournals(journalByTitle, journalByAbbrev, "title", journalTitle, "abbreviation", journalAbbrev,
+            importedRecord, lineNum);
+
+        // Decide which existing journal to use, or create a new one.
+        Journal journal = null;
+        boolean journalExists = false;
+        if (journalByIssn != null) {
+            journal = journalByIssn;
+            journalExists = true;
+        } else if (journalByTitle != null) {
+            journal = journalByTitle;
+            journalExists = true;
+        } else if (journalByAbbrev != null) {
+            journal = journalByAbbrev;
+            journalExists = true;
+        } else if (journalTitle != null) {
+            if (journalAbbrev == null)
+                journalAbbrev = iso4Utils.abbreviate(journalTitle);
+            JournalInput input = JournalInput.builder() //
+                .withTitle(journalTitle) //
+                .withAbbreviation(journalAbbrev) //
+                .withIssn(journalIssn) //
+                .withPublisherId(publisher == null ? null : publisher.getId()) //
+                .withNotes("Auto-created while importing Publication '" + title + "'. Please complete manually.") //
+                .build();
+            try {
+                journal = (Journal)mutationController.createJournal(null, input);
+                journalsByTitle.put(journalTitle, journal);
+                if (journalAbbrev != null)
+                    journalsByAbbrev.put(journalAbbrev, journal);
+                if (journalIssn != null)
+                    journalsByIssn.put(journalIssn, journal);
+                String msg = "Created new Journal#" + journal.getId() + " with title '" + journalTitle + "'";
+                LOGGER.trace(msg);
+                addMessage(importedRecord, lineNum, INFO, msg);
+                if (publisherName == null) {
+                    addMessage(importedRecord, lineNum, WARNING,
+                        "No Publisher name specified for Journal#" + journal.getId() + " (missing PB tag?).");
+                }
+            } catch (Exception e) {
+                String msg = "Failed to create Journal '" + journalTitle + "': "
+                    + normalizeExceptionMessage(e.getMessage());
+                LOGGER.error(msg);
+                addMessage(importedRecord, lineNum, ERROR, msg);
+            }
+        } else {
+            addMessage(importedRecord, lineNum, WARNING,
+                "No Journal specified for Publication (missing JF/T2/JA/J2/JO/SN tag?)");
+        }
+
+        if (journal != null) {
+            builder.withJournalId(journal.getId());
+            builder.withPeerReviewed(journal.getPeerReviewed());
+            if (journalExists && journal.getPublisher() == null) {
+                addMessage(importedRecord, lineNum, WARNING,
+                    "No Publisher associated with existing Journal# " + journal.getId());
+            }
+            if (publisher == null)
+                publisher = journal.getPublisher();
+        }
+        if (publisher != null)
+            builder.withPublisherId(publisher.getId());
+    }
+
+    /**
+     * Persists a batch of RIS records in a single transaction, falling back to one record at a time if that fails.
+     */
+    private void persistBatch(List<RisRecord> batch, Long masterTopicId, Long fromMasterEntityId,
+        Long toMasterEntityId) {
+
+        List<PublicationInput> inputs = new ArrayList<>(batch.size());
+        for (RisRecord record : batch)
+            inputs.add(record.builder().build());
+        List<InsertedPublication> inserted;
+        try {
+            inserted =
+                importBatchWriter.insertPublications(inputs, masterTopicId, fromMasterEntityId, toMasterEntityId);
+        } catch (DataAccessException e) {
+            LOGGER.warn("Failed to insert batch of {} publications, retrying individually: {}", batch.size(),
+                normalizeExceptionMessage(e.getMessage()));
+            for (RisRecord record : batch)
+                persistPublication(record, masterTopicId, fromMasterEntityId, toMasterEntityId);
+            return;
+        }
+
+        Long masterEntityId = fromMasterEntityId != null ? fromMasterEntityId : toMasterEntityId;
+        for (int i = 0; i < batch.size(); i++) {
+            ImportedRecord importedRecord = batch.get(i).importedRecord();
+            int lineNum = batch.get(i).lineNum();
+            InsertedPublication publication = inserted.get(i);
+            String title = inputs.get(i).getTitle();
+            importedRecord.setId(publication.publicationId());
+            importedRecord.setLabel(title);
+            importedRecord.setResult(ResultEnum.IMPORTED);
+            addMessage(importedRecord, lineNum, INFO,
+                "Created new Publication#" + publication.publicationId() + " with title '" + title + "'");
+            if (publication.topicLinkId() != null) {
+                addMessage(importedRecord, lineNum, INFO,
+                    "Linked to Topic#" + masterTopicId + " by RecordLink#" + publication.topicLinkId());
+            }
+            if (publication.recordLinkId() != null) {
+                addMessage(importedRecord, lineNum, INFO,
+                    "Linked to record#" + masterEntityId + " by RecordLink#" + publication.recordLinkId());
+            }
+        }
+    }
+
+    /**
+     * Persists a single RIS record through the {@code createPublication} and {@code createEntityLink} mutations.
+     */
+    private void persistPublication(RisRecord record, Long masterTopicId, Long fromMasterEntityId,
+        Long toMasterEntityId) {
+
+        ImportedRecord importedRecord = record.importedRecord();
+        int lineNum = record.lineNum();
+        PublicationInput input = record.builder().build();
+        try {
+            Publication publication = (Publication)mutationController.createPublication(null, input);
+            importedRecord.setId(publication.getId());
+            importedRecord.setLabel(publication.getTitle());
+            importedRecord.setResult(ResultEnum.IMPORTED);
+            String msg =
+                "Created new Publication#" + publication.getId() + " with title '" + publication.getTitle() + "'";
+            LOGGER.trace(msg);
+            addMessage(importedRecord, lineNum, INFO, msg);
+
+            createLinks(importedRecord, lineNum, publication, masterTopicId, fromMasterEntityId, toMasterEntityId);
+        } catch (DuplicateKeyException e) {
+            importedRecord.setResult(ResultEnum.DUPLICATE);
+            addMessage(importedRecord, lineNum, ERROR,
+                "Imported record duplicates an existing Publication: " + normalizeExceptionMessage(e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            importedRecord.setResult(ResultEnum.ERROR);
+            addMessage(importedRecord, lineNum, ERROR,
+                "Imported record violates a constraint: " + normalizeExceptionMessage(e.getMessage()));
+        } catch (Exception e) {
+            importedRecord.setResult(ResultEnum.ERROR);
+            addMessage(importedRecord, lineNum, ERROR,
+                "Error persisting Publication: " + normalizeExceptionMessage(e.getMessage()));
         }
     }
 
@@ -854,6 +1222,8 @@ public class ImportApiController implements ImportApi {
                         toEntityKinds = entityUtils.getToEntityKinds(masterEntityKind);
                         if (toEntityKinds.contains(entityKind))
                             fromMasterEntityId = masterRecordId;
+                        else
+                            return ResponseEntity.badRequest().build(); // The master record cannot be linked.
                     }
                 } else {
                     return ResponseEntity.badRequest().build();
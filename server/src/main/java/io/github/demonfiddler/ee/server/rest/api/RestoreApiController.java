@@ -21,27 +21,19 @@ package io.github.demonfiddler.ee.server.rest.api;
 
 import static io.github.demonfiddler.ee.common.util.StringUtils.NL;
 import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.APPDATA_TABLES;
-import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.SELECT_TABLE_COLUMNS;
 import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.STATIC_TABLES;
 import static io.github.demonfiddler.ee.server.rest.util.DatabaseUtils.PROP_SCHEMA_VERSION;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -57,10 +49,19 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import io.github.demonfiddler.ee.server.repository.TopicRepository;
 import io.github.demonfiddler.ee.server.rest.model.BackupKind;
-import io.github.demonfiddler.ee.server.rest.util.BackupUtils;
-import io.github.demonfiddler.ee.server.rest.util.DatabaseUtils;
+import io.github.demonfiddler.ee.server.rest.util.BackupReader;
+import io.github.demonfiddler.ee.server.rest.util.BackupReader.BackupSetContents;
+import io.github.demonfiddler.ee.server.rest.util.BackupReader.TableStats;
 import io.github.demonfiddler.ee.server.rest.util.BackupUtils.TableDescriptor;
+import io.github.demonfiddler.ee.server.rest.util.DatabaseUtils;
+import io.github.demonfiddler.ee.server.rest.util.Iso4Utils;
+import io.github.demonfiddler.ee.server.util.DataVersion;
+import io.github.demonfiddler.ee.server.util.PersonNameIndex;
+import io.github.demonfiddler.ee.server.util.SearchIndex;
+import io.github.demonfiddler.ee.server.util.TopicTreeCache;
+import io.github.demonfiddler.ee.server.util.UserCache;
 import jakarta.annotation.Generated;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -72,23 +73,36 @@ import jakarta.validation.constraints.NotNull;
 public class RestoreApiController implements RestoreApi {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RestoreApiController.class);
-    private static final Map<String, String> IMPORT_STATEMENTS = Collections.synchronizedMap(new HashMap<>());
 
     private final NativeWebRequest request;
     private final PlatformTransactionManager txManager;
     private final JdbcTemplate jdbcTemplate;
-    private final BackupUtils backupUtils;
+    private final BackupReader backupReader;
     private final DatabaseUtils databaseUtils;
-    @Value("${data.server.tmpdir}")
-    private String tmpDir;
+    private final Iso4Utils iso4Utils;
+    private final TopicRepository topicRepository;
+    private final TopicTreeCache topicTreeCache;
+    private final UserCache userCache;
+    private final DataVersion dataVersion;
+    private final SearchIndex searchIndex;
+    private final PersonNameIndex personNameIndex;
 
     public RestoreApiController(NativeWebRequest request, PlatformTransactionManager txManager,
-        JdbcTemplate jdbcTemplate, BackupUtils backupUtils, DatabaseUtils databaseUtils) {
+        JdbcTemplate jdbcTemplate, BackupReader backupReader, DatabaseUtils databaseUtils, Iso4Utils iso4Utils,
+        TopicRepository topicRepository, TopicTreeCache topicTreeCache, UserCache userCache,
+        DataVersion dataVersion, SearchIndex searchIndex, PersonNameIndex personNameIndex) {
         this.request = request;
         this.txManager = txManager;
         this.jdbcTemplate = jdbcTemplate;
-        this.backupUtils = backupUtils;
+        this.backupReader = backupReader;
         this.databaseUtils = databaseUtils;
+        this.iso4Utils = iso4Utils;
+        this.topicRepository = topicRepository;
+        this.topicTreeCache = topicTreeCache;
+        this.userCache = userCache;
+        this.dataVersion = dataVersion;
+        this.searchIndex = searchIndex;
+        this.personNameIndex = personNameIndex;
     }
 
     @Override
@@ -114,67 +128,38 @@ public class RestoreApiController implements RestoreApi {
         }
         LOGGER.debug("Restoring backup, backupKind='{}'", backupKind);
 
-        // N.B. The remaining code only works if the application and database servers are colocated,
-        // because unzipping writes to, and the LOAD DATA LOCAL INFILE statement reads from, local files.
-
-        // MariaDB may not have permission to access ${java.io.tmpdir}, so we'll have to use a different location.
-        String outputPath = backupUtils.getBackupPath();
-        File outputDir = new File(outputPath);
-        String errmsg = backupUtils.createBackupDirectory();
-        if (errmsg != null)
-            return ResponseEntity.internalServerError().contentType(MediaType.TEXT_PLAIN).body(errmsg);
-
-        // Unzip the backup set by copying each entry to disk.
-        List<String> csvFilenames = new ArrayList<>();
-        byte[] buf = new byte[65536];
-        try (ZipInputStream zipIn = new ZipInputStream(file.getInputStream())) {
-            LOGGER.trace("Opened backup set in '{}'", file.getOriginalFilename());
-
-            ZipEntry csvEntry;
-            while ((csvEntry = zipIn.getNextEntry()) != null) {
-                String csvFilename = csvEntry.getName();
-                File csvFile = new File(outputDir, csvFilename);
-                int count;
-                try (FileOutputStream csvOut = new FileOutputStream(csvFile)) {
-                    while ((count = zipIn.read(buf)) != -1)
-                        csvOut.write(buf, 0, count);
-                } finally {
-                    zipIn.closeEntry();
-                    csvFilenames.add(csvFilename);
-                }
-                LOGGER.trace("Read ZipEntry '{}'", csvFilename);
-            }
+        // List the backup set's entries and read its configuration. The CSV entries are loaded in a second pass,
+        // straight from the uploaded ZIP file.
+        BackupSetContents contents;
+        try {
+            contents = backupReader.scan(file.getInputStream());
+            LOGGER.trace("Read backup set '{}': {}", file.getOriginalFilename(), contents.entryNames());
         } catch (IOException e) {
-            LOGGER.error("Error unzipping backup set", e);
+            LOGGER.error("Error reading backup set", e);
             return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body("Unable to read backup set");
+        } catch (NumberFormatException e) {
+            LOGGER.error("Error reading backup set configuration", e);
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                .body("Unable to read configuration from backup set");
         }
 
         // First check that the backup set contains all the required files.
+        List<String> csvFilenames = contents.entryNames();
         List<String> missingFilenames = new ArrayList<>();
         if (backupKind == BackupKind.ALL)
             checkForMissingFiles(STATIC_TABLES, csvFilenames, missingFilenames);
         checkForMissingFiles(APPDATA_TABLES, csvFilenames, missingFilenames);
         if (!missingFilenames.isEmpty()) {
-            errmsg = "Files missing from backup set: " + missingFilenames;
+            String errmsg = "Files missing from backup set: " + missingFilenames;
             LOGGER.error(errmsg);
             return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(errmsg);
         }
-
-        // Read the backup set config file.
-        Map<String, String> config;
-        try {
-            File configFile = new File(outputDir, "config.csv");
-            config = backupUtils.readConfiguration(configFile);
-        } catch (IOException | NumberFormatException e) {
-            LOGGER.error("Error reading backup set configuration", e);
-            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
-                .body("Unable to read configuration from backup set");
-        }
+        Map<String, String> config = contents.config();
 
         // Check that the backup set's database schema version matches that of this server.
         int schemaVersion = Integer.parseInt(config.getOrDefault(PROP_SCHEMA_VERSION, "0"));
         if (!databaseUtils.checkDatabaseSchemaVersion(schemaVersion)) {
-            errmsg = "Backup set has an incompatible schema version; expected: "
+            String errmsg = "Backup set has an incompatible schema version; expected: "
                 + DatabaseUtils.CURRENT_SCHEMA_VERSION + ", found: " + schemaVersion;
             LOGGER.error(errmsg);
             return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(errmsg);
@@ -185,7 +170,7 @@ public class RestoreApiController implements RestoreApi {
         Integer newBackupNumber = databaseUtils.parseInteger(config.get(DatabaseUtils.PROP_BACKUP_NUMBER));
         Timestamp newBackupTimestamp = databaseUtils.parseTimestamp(config.get(DatabaseUtils.PROP_BACKUP_TIMESTAMP));
         if (newBackupId == null || newBackupNumber == null || newBackupTimestamp == null) {
-            errmsg = "Backup set configuration invalid; backup_id = " + newBackupId + ", backup_number = "
+            String errmsg = "Backup set configuration invalid; backup_id = " + newBackupId + ", backup_number = "
                 + newBackupNumber + ", backup_timestamp = " + newBackupTimestamp;
             LOGGER.error(errmsg);
             return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(errmsg);
@@ -200,14 +185,14 @@ public class RestoreApiController implements RestoreApi {
             Timestamp previousBackupTimestamp = databaseUtils.getConfigTimestamp(DatabaseUtils.PROP_BACKUP_TIMESTAMP);
 
             if (previousBackupId == null || previousBackupNumber == null || previousBackupTimestamp == null) {
-                errmsg = "Database configuration invalid; backup_id = " + previousBackupId + ", backup_number = "
+                String errmsg = "Database configuration invalid; backup_id = " + previousBackupId + ", backup_number = "
                     + previousBackupNumber + ", last_backup_timestamp = " + previousBackupTimestamp;
                 LOGGER.error(errmsg);
                 return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(errmsg);
             }
 
             if (!Objects.equals(newBackupId, previousBackupId)) {
-                errmsg =
+                String errmsg =
                     "Cannot restore incremental backup set because it is from a different series; expected: "
                         + previousBackupId + ", found: " + newBackupId;
                 LOGGER.error(errmsg);
@@ -215,14 +200,29 @@ public class RestoreApiController implements RestoreApi {
             }
 
             if (newBackupNumber == 0) {
-                errmsg = "Cannot restore a full backup set incrementally";
+                String errmsg = "Cannot restore a full backup set incrementally";
+                LOGGER.error(errmsg);
+                return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(errmsg);
+            }
+
+            if (contents.isCompacted()) {
+                String errmsg = "Cannot restore a compacted backup set incrementally";
+                LOGGER.error(errmsg);
+                return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(errmsg);
+            }
+
+            // If both the backup set and the database have a chain index, the former must extend the latter.
+            List<String> previousChain = databaseUtils.getConfigStringArray(DatabaseUtils.PROP_BACKUP_CHAIN);
+            if (!contents.chain().isEmpty() && !previousChain.isEmpty() && !contents.chain().equals(previousChain)) {
+                String errmsg = "Cannot restore incremental backup set because it does not follow on from the "
+                    + "previously restored backup set";
                 LOGGER.error(errmsg);
                 return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(errmsg);
             }
 
             int expectedBackupNumber = previousBackupNumber + 1;
             if (newBackupNumber != expectedBackupNumber) {
-                errmsg =
+                String errmsg =
                     "Cannot restore incremental backup set out of sequence; expected backup number: "
                         + expectedBackupNumber + ", found: " + newBackupNumber;
                 LOGGER.error(errmsg);
@@ -239,14 +239,14 @@ public class RestoreApiController implements RestoreApi {
             if (timestamps[0] != null && timestamps[0].after(previousBackupTimestamp)
                 || timestamps[1] != null && timestamps[1].after(previousBackupTimestamp)) {
 
-                errmsg =
+                String errmsg =
                     "Cannot restore incremental backup set as target database has been modified since the backup date of: "
                         + previousBackupTimestamp;
                 LOGGER.error(errmsg);
                 return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(errmsg);
             }
-        } else if (newBackupNumber != 0) {
-            errmsg = "Cannot perform a full restore: supplied backup set is incremental";
+        } else if (newBackupNumber != 0 && !contents.isCompacted()) {
+            String errmsg = "Cannot perform a full restore: supplied backup set is incremental";
             LOGGER.error(errmsg);
             return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(errmsg);
         }
@@ -257,7 +257,7 @@ public class RestoreApiController implements RestoreApi {
         def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
         TransactionStatus status = txManager.getTransaction(def);
         try {
-            // If required, restore lookup tables.
+            // If required, clear lookup tables.
             if (backupKind == BackupKind.ALL) {
                 for (TableDescriptor table : STATIC_TABLES) {
                     // Delete existing lookup table entries.
@@ -266,12 +266,11 @@ public class RestoreApiController implements RestoreApi {
                     } catch (DataAccessException e) {
                         txManager.rollback(status);
 
-                        errmsg = "Error deleting lookup data from table: " + table.name();
+                        String errmsg = "Error deleting lookup data from table: " + table.name();
                         LOGGER.error(errmsg, e);
                         return ResponseEntity.internalServerError().contentType(MediaType.TEXT_PLAIN).body(errmsg);
                     }
                 }
-                restoreTables(STATIC_TABLES, outputPath, backupKind);
             }
 
             // For all/full restore, delete existing tracked entities (cascades to all joined tables).
@@ -282,22 +281,34 @@ public class RestoreApiController implements RestoreApi {
                 } catch (DataAccessException e) {
                     txManager.rollback(status);
     
-                    errmsg = "Error deleting existing config/application data";
+                    String errmsg = "Error deleting existing config/application data";
                     LOGGER.error(errmsg, e);
                     return ResponseEntity.internalServerError().contentType(MediaType.TEXT_PLAIN).body(errmsg);
                 }
             }
 
+            List<TableStats> stats;
             try {
                 // Temporarily disable RI constraints while we restore application data.
                 jdbcTemplate.execute("SET FOREIGN_KEY_CHECKS=0;");
 
-                // Restore application data tables.
-                restoreTables(APPDATA_TABLES, outputPath, backupKind);
-            } catch (DataAccessException e) {
+                // Restore lookup tables if required, and application data tables.
+                List<TableDescriptor> tables = new ArrayList<>();
+                if (backupKind == BackupKind.ALL)
+                    tables.addAll(List.of(STATIC_TABLES));
+                tables.addAll(List.of(APPDATA_TABLES));
+                stats = backupReader.restoreTables(file.getInputStream(), tables, contents.manifest(),
+                    backupKind == BackupKind.INCREMENTAL);
+
+                // A compacted set's chain index already includes itself.
+                if (contents.manifestSha256() != null && !contents.isCompacted()) {
+                    databaseUtils.setConfigString(DatabaseUtils.PROP_BACKUP_CHAIN, newBackupNumber,
+                        contents.manifestSha256());
+                }
+            } catch (DataAccessException | IOException e) {
                 txManager.rollback(status);
 
-                errmsg = "Error restoring entity tables";
+                String errmsg = "Error restoring tables";
                 LOGGER.error(errmsg, e);
                 return ResponseEntity.internalServerError().contentType(MediaType.TEXT_PLAIN).body(errmsg);
             } finally {
@@ -306,7 +317,7 @@ public class RestoreApiController implements RestoreApi {
                 } catch (DataAccessException e) {
                     txManager.rollback(status);
 
-                    errmsg = "Error setting FOREIGN_KEY_CHECKS=1";
+                    String errmsg = "Error setting FOREIGN_KEY_CHECKS=1";
                     LOGGER.error(errmsg, e);
                     return ResponseEntity.internalServerError().contentType(MediaType.TEXT_PLAIN).body(errmsg);
                 }
@@ -317,24 +328,53 @@ public class RestoreApiController implements RestoreApi {
                 } catch (DataAccessException e) {
                     txManager.rollback(status);
 
-                    errmsg = "Error resetting AUTO_INCREMENT";
+                    String errmsg = "Error resetting AUTO_INCREMENT";
                     LOGGER.error(errmsg, e);
                     return ResponseEntity.internalServerError().contentType(MediaType.TEXT_PLAIN).body(errmsg);
                 }
             }
 
+            // The topic closure table is derived from the topic hierarchy, so it is rebuilt rather than backed up.
+            try {
+                topicRepository.rebuildClosure();
+            } catch (DataAccessException e) {
+                txManager.rollback(status);
+
+                String errmsg = "Error rebuilding topic closure";
+                LOGGER.error(errmsg, e);
+                return ResponseEntity.internalServerError().contentType(MediaType.TEXT_PLAIN).body(errmsg);
+            }
+
+            // Likewise the entity person name table is derived from the name columns.
+            try {
+                personNameIndex.rebuild();
+            } catch (DataAccessException e) {
+                txManager.rollback(status);
+
+                String errmsg = "Error rebuilding entity person names";
+                LOGGER.error(errmsg, e);
+                return ResponseEntity.internalServerError().contentType(MediaType.TEXT_PLAIN).body(errmsg);
+            }
+
             // Finally, commit the transaction.
             txManager.commit(status);
+            topicTreeCache.invalidate();
+            userCache.invalidate();
+            if (backupKind == BackupKind.ALL)
+                iso4Utils.invalidate();
+            dataVersion.increment();
+            searchIndex.invalidate();
 
             LOGGER.debug("Restore complete");
 
+            StringBuilder body = new StringBuilder("Backup set restored successfully");
+            for (TableStats tableStats : stats)
+                body.append(NL).append(tableStats);
             return ResponseEntity.ok().contentType(MediaType.parseMediaType("text/plain")) //
-                .body("Backup set restored successfully");
+                .body(body.toString());
         } catch (Throwable t) {
             txManager.rollback(status);
             return ResponseEntity.internalServerError().contentType(MediaType.TEXT_PLAIN).body(t.getMessage());
-        } finally {
-            backupUtils.deleteFile(outputDir, false);
         }
     }
 
@@ -346,65 +386,6 @@ public class RestoreApiController implements RestoreApi {
         }
     }
 
-    private void restoreTables(TableDescriptor[] tables, String inputPath, BackupKind backupKind) {
-        for (TableDescriptor table : tables) {
-            String sql = getImportStatement(table, inputPath, backupKind);
-            jdbcTemplate.execute(sql);
-
-            LOGGER.debug("Restored table \"{}\"", table.name());
-        }
-    }
-
-    private String getImportStatement(TableDescriptor table, String inputPath, BackupKind backupKind) {
-        boolean isIncremental = backupKind == BackupKind.INCREMENTAL;
-        boolean isIncrementalTable = isIncremental && table.supportsIncrementalBackup();
-        String key = table.name() + (isIncrementalTable ? "_incremental" : "_full");
-        String sql = IMPORT_STATEMENTS.get(key);
-        if (sql == null) {
-            StringBuilder colList = new StringBuilder();
-            StringBuilder setList = new StringBuilder();
-            PreparedStatementSetter pss = ps -> ps.setString(1, table.name());
-            RowCallbackHandler rch = rs -> {
-                String colName = rs.getString(1);
-                String colType = rs.getString(2);
-
-                if (!colList.isEmpty())
-                    colList.append(',');
-                if (colType.equals("bit")) {
-                    colList.append('@').append(colName);
-                    if (!setList.isEmpty())
-                        setList.append(',');
-                    setList.append('"').append(colName).append("\" = CAST(@").append(colName).append(" AS UNSIGNED)");
-                } else {
-                    colList.append('"').append(colName).append('"');
-                }
-            };
-            jdbcTemplate.query(SELECT_TABLE_COLUMNS, pss, rch);
-
-            StringBuilder sqlbuf = new StringBuilder();
-            sqlbuf.append("LOAD DATA LOCAL INFILE '").append(inputPath.replace("\\", "\\\\")).append(table.name())
-                .append(".csv").append('\'').append(NL); //
-            if (isIncremental)
-                sqlbuf.append("REPLACE ");
-            sqlbuf.append("INTO TABLE \"").append(table.name()).append('"').append(NL) //
-                .append("CHARACTER SET utf8mb4").append(NL) //
-                .append("FIELDS TERMINATED BY ','").append(NL) //
-                .append("OPTIONALLY ENCLOSED BY '\"'").append(NL) //
-                .append("ESCAPED BY ''").append(NL) //
-                .append("LINES TERMINATED BY '\\n'").append(NL) //
-                .append("IGNORE 1 LINES").append(NL) //
-                .append('(').append(colList).append(')'); //
-            if (!setList.isEmpty())
-                sqlbuf.append(NL).append("SET ").append(setList);
-            sqlbuf.append(';');
-            sql = sqlbuf.toString();
-            IMPORT_STATEMENTS.put(key, sql);
-
-            LOGGER.trace("Restoring table \"{}\" with SQL statement:\n{}", table.name(), sql);
-        }
-        return sql;
-    }
-
     private void resetAutoIncrement(String table) {
         Long[] max = {0L};
         jdbcTemplate.query("SELECT COALESCE(MAX(\"id\"), 0) FROM \"" + table + "\";", rs -> {
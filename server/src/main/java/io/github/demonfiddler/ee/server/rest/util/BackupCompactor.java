@@ -0,0 +1,392 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.APPDATA_TABLES;
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.SELECT_PRIMARY_KEY_COLUMNS;
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.STATIC_TABLES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import io.github.demonfiddler.ee.server.rest.util.BackupReader.Batch;
+import io.github.demonfiddler.ee.server.rest.util.BackupReader.BackupSetContents;
+import io.github.demonfiddler.ee.server.rest.util.BackupUtils.ManifestEntry;
+import io.github.demonfiddler.ee.server.rest.util.BackupUtils.TableDescriptor;
+
+/**
+ * Merges a full backup set and its incremental successors into a single compacted set, which can be restored in one
+ * step instead of replaying the whole chain. The sets are read newest first and, within each table, only the first
+ * row seen for each primary key is kept. This gives the same result as restoring the chain in order, in which each
+ * incremental set replaces rows by key. Tables without a primary key are keyed on the whole row.
+ * <p>
+ * So that memory use does not grow with the size of the backup, each table's rows are first spooled to temporary
+ * files partitioned by a hash of their key, sized from the manifests so that each partition holds at most about
+ * {@code backup.compact.partition-size} rows. Each partition is then de-duplicated in memory on its own.
+ * <p>
+ * The compacted set keeps the configuration of the newest set merged into it, so that later incremental sets in the
+ * series can still be restored on top of it. Its chain index covers every set merged into it, including the newest.
+ * That is how {@link BackupSetContents#isCompacted()} recognises it.
+ */
+@Component
+public class BackupCompactor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackupCompactor.class);
+    /** The maximum number of partitions per table, which are all open while the table is read. */
+    private static final int MAX_PARTITIONS = 256;
+
+    /**
+     * A compacted backup set.
+     * @param backupId The backup series ID.
+     * @param backupNumber The number of the newest set merged into the compacted set.
+     * @param backupTimestamp The timestamp of the newest set merged into the compacted set.
+     * @param manifestSha256 The compacted set's manifest checksum.
+     */
+    public record CompactedSet(String backupId, int backupNumber, String backupTimestamp, String manifestSha256) {
+    }
+
+    /**
+     * A table's rows, spooled to temporary files partitioned by key. Rows are appended in the order read, so the first
+     * row in a partition with a given key is the newest.
+     */
+    private static final class TableSpool {
+
+        final String[] columns;
+        final int[] keyColumns;
+        final Path[] partitions;
+        /** The open partition files, or {@code null} between a table's entries. */
+        Writer[] writers;
+
+        TableSpool(Path spoolDir, String table, String[] columns, int[] keyColumns, int partitionCount) {
+            this.columns = columns;
+            this.keyColumns = keyColumns;
+            partitions = new Path[partitionCount];
+            for (int i = 0; i < partitionCount; i++)
+                partitions[i] = spoolDir.resolve(table + '.' + i + ".part");
+        }
+
+        /**
+         * Returns a row's key.
+         * @param row The row.
+         * @return The primary key column values or, if the table has no primary key, the whole row.
+         */
+        String key(String[] row) {
+            if (keyColumns.length == 0)
+                return String.join("\u0000", Arrays.asList(row));
+            String[] key = new String[keyColumns.length];
+            for (int i = 0; i < keyColumns.length; i++)
+                key[i] = row[keyColumns[i]];
+            return String.join("\u0000", Arrays.asList(key));
+        }
+
+        void open() throws IOException {
+            writers = new Writer[partitions.length];
+            try {
+                for (int i = 0; i < partitions.length; i++)
+                    writers[i] = Files.newBufferedWriter(partitions[i], UTF_8, CREATE, APPEND);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void write(String[] row) throws IOException {
+            writeRow(row, writers[Math.floorMod(key(row).hashCode(), writers.length)]);
+        }
+
+        void close() throws IOException {
+            if (writers == null)
+                return;
+            IOException ex = null;
+            for (Writer writer : writers) {
+                try {
+                    if (writer != null)
+                        writer.close();
+                } catch (IOException e) {
+                    if (ex == null)
+                        ex = e;
+                    else
+                        ex.addSuppressed(e);
+                }
+            }
+            writers = null;
+            if (ex != null)
+                throw ex;
+        }
+
+        /**
+         * Writes the newest row for each key to a CSV file and deletes the partitions.
+         * @param csvFile The file to write.
+         * @return The number of data rows written.
+         */
+        long finish(Path csvFile) throws IOException {
+            long rows = 0;
+            try (Writer out = Files.newBufferedWriter(csvFile, UTF_8)) {
+                writeRow(columns, out);
+                for (Path partition : partitions) {
+                    if (!Files.exists(partition))
+                        continue;
+                    Set<String> keys = new HashSet<>();
+                    try (Reader in = Files.newBufferedReader(partition, UTF_8)) {
+                        CsvParser csv = new CsvParser(in);
+                        String[] row;
+                        while ((row = csv.next()) != null) {
+                            if (keys.add(key(row))) {
+                                writeRow(row, out);
+                                rows++;
+                            }
+                        }
+                    }
+                    Files.delete(partition);
+                }
+            }
+            return rows;
+        }
+
+    }
+
+    /**
+     * A backup set to compact.
+     * @param contents The set's contents.
+     * @param source The set itself.
+     */
+    private record Source(BackupSetContents contents, InputStreamSource source) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BackupReader backupReader;
+    private final BackupWriter backupWriter;
+    private final long partitionSize;
+
+    public BackupCompactor(JdbcTemplate jdbcTemplate, BackupReader backupReader, BackupWriter backupWriter,
+        @Value("${backup.compact.partition-size:100000}") long partitionSize) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.backupReader = backupReader;
+        this.backupWriter = backupWriter;
+        this.partitionSize = partitionSize;
+    }
+
+    /**
+     * Merges a chain of backup sets into a single compacted set.
+     * @param sources The backup sets, in any order: a full (or compacted) set followed by consecutive incremental sets
+     * from the same series. Each source is read twice.
+     * @param spoolDir An empty directory in which to write intermediate CSV files.
+     * @param zipFile The file to which to write the compacted set.
+     * @return A description of the compacted set.
+     * @throws IllegalArgumentException if the sets do not form a valid chain.
+     * @throws IOException if a backup set could not be read, is malformed or does not match its manifest.
+     */
+    public CompactedSet compact(List<? extends InputStreamSource> sources, Path spoolDir, Path zipFile)
+        throws IOException {
+
+        // Read and order the sets, then check that they form an unbroken chain.
+        List<Source> sets = new ArrayList<>(sources.size());
+        for (InputStreamSource source : sources) {
+            BackupSetContents contents = backupReader.scan(source.getInputStream());
+            if (contents.config() == null || contents.manifest() == null) {
+                throw new IllegalArgumentException(
+                    "Only backup sets with a configuration and manifest can be compacted");
+            }
+            sets.add(new Source(contents, source));
+        }
+        sets.sort((s1, s2) -> Integer.compare(s1.contents().backupNumber(), s2.contents().backupNumber()));
+        List<String> chain = checkChain(sets.stream().map(Source::contents).toList());
+        BackupSetContents newest = sets.getLast().contents();
+        if (newest.config().get(DatabaseUtils.PROP_BACKUP_TIMESTAMP) == null)
+            throw new IllegalArgumentException("Backup set " + newest.backupNumber() + " has no backup timestamp");
+
+        // Merge the tables, newest set first.
+        Set<String> tableNames = new HashSet<>();
+        for (TableDescriptor table : STATIC_TABLES)
+            tableNames.add(table.name());
+        for (TableDescriptor table : APPDATA_TABLES)
+            tableNames.add(table.name());
+        Map<String, Long> rowCounts = new HashMap<>();
+        for (Source set : sets) {
+            for (ManifestEntry entry : set.contents().manifest().values())
+                rowCounts.merge(entry.entryName(), entry.rows(), Long::sum);
+        }
+        Map<String, TableSpool> spools = new HashMap<>();
+        try {
+            for (Source set : sets.reversed()) {
+                backupReader.readTables(set.source().getInputStream(), tableNames, set.contents().manifest(),
+                    batch -> merge(batch, spoolDir, spools, rowCounts, chain));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compacting backup sets", e);
+        } finally {
+            for (TableSpool spool : spools.values())
+                spool.close();
+        }
+
+        // Assemble the compacted set in the usual table order.
+        try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(zipFile.toFile()))) {
+            List<ManifestEntry> manifest = new ArrayList<>();
+            for (TableDescriptor[] tables : List.of(STATIC_TABLES, APPDATA_TABLES)) {
+                for (TableDescriptor table : tables) {
+                    TableSpool spool = spools.get(table.name());
+                    if (spool != null) {
+                        Path csvFile = spoolDir.resolve(table.name() + ".csv");
+                        long rows = spool.finish(csvFile);
+                        manifest.add(backupWriter.addZipEntry(csvFile, rows, zipOut));
+                    }
+                }
+            }
+            String manifestSha256 = backupWriter.finishBackupSet(manifest, chain, zipOut);
+
+            LOGGER.info("Compacted backup sets {} to {} of series {}", sets.getFirst().contents().backupNumber(),
+                newest.backupNumber(), newest.config().get(DatabaseUtils.PROP_BACKUP_ID));
+            return new CompactedSet(newest.config().get(DatabaseUtils.PROP_BACKUP_ID), newest.backupNumber(),
+                newest.config().get(DatabaseUtils.PROP_BACKUP_TIMESTAMP), manifestSha256);
+        }
+    }
+
+    /**
+     * Checks that backup sets form an unbroken chain and returns the compacted set's chain index.
+     * @param sets The backup sets, ordered by backup number.
+     * @return The manifest checksums of the sets, indexed by backup number.
+     * @throws IllegalArgumentException if the sets do not form a valid chain.
+     */
+    private List<String> checkChain(List<BackupSetContents> sets) {
+        BackupSetContents base = sets.getFirst();
+        String backupId = base.config().get(DatabaseUtils.PROP_BACKUP_ID);
+        if (backupId == null)
+            throw new IllegalArgumentException("Backup set " + base.backupNumber() + " has no backup ID");
+        List<String> chain = new ArrayList<>();
+        if (base.isCompacted())
+            chain.addAll(base.chain());
+        else if (base.backupNumber() == 0)
+            chain.add(base.manifestSha256());
+        else
+            throw new IllegalArgumentException("The oldest backup set must be a full or compacted set");
+
+        for (BackupSetContents set : sets.subList(1, sets.size())) {
+            int backupNumber = set.backupNumber();
+            if (!Objects.equals(set.config().get(DatabaseUtils.PROP_BACKUP_ID), backupId))
+                throw new IllegalArgumentException("Backup sets are from different series");
+            if (set.isCompacted())
+                throw new IllegalArgumentException("Only the oldest backup set can be a compacted set");
+            if (backupNumber != chain.size()) {
+                throw new IllegalArgumentException(
+                    "Backup sets are not consecutive; expected backup number: " + chain.size() + ", found: "
+                        + backupNumber);
+            }
+            // Sets written before chain indexes were introduced have an empty one.
+            if (!set.chain().isEmpty() && !set.chain().equals(chain)) {
+                throw new IllegalArgumentException(
+                    "Backup set " + backupNumber + " does not follow on from the preceding sets");
+            }
+            chain.add(set.manifestSha256());
+        }
+        return chain;
+    }
+
+    /**
+     * Appends a batch's rows to its table's spool partitions.
+     * @param batch The batch.
+     * @param spoolDir The directory in which to write the spool files.
+     * @param spools The table spools, keyed by table name.
+     * @param rowCounts The total number of rows in each entry across all the sets, keyed by entry name.
+     * @param chain The compacted set's chain index, whose last element is added to the {@code config} table.
+     */
+    private void merge(Batch batch, Path spoolDir, Map<String, TableSpool> spools, Map<String, Long> rowCounts,
+        List<String> chain) throws IOException {
+
+        String table = batch.table();
+        TableSpool spool = spools.get(table);
+        List<String[]> rows = batch.rows();
+        if (spool == null) {
+            long rowCount = rowCounts.getOrDefault(table + ".csv", 0L);
+            int partitionCount = (int)Math.max(1, Math.min(MAX_PARTITIONS, (rowCount - 1) / partitionSize + 1));
+            spool = new TableSpool(spoolDir, table, batch.columns(), getKeyColumns(batch), partitionCount);
+            spools.put(table, spool);
+            // The newest set's config rows index the sets that preceded it, so add the newest set itself.
+            if (table.equals("config")) {
+                List<String> columns = Arrays.asList(spool.columns);
+                String[] chainRow = new String[columns.size()];
+                chainRow[columns.indexOf("property")] = DatabaseUtils.PROP_BACKUP_CHAIN;
+                chainRow[columns.indexOf("subscript")] = String.valueOf(chain.size() - 1);
+                chainRow[columns.indexOf("value")] = chain.getLast();
+                rows = new ArrayList<>(rows);
+                rows.addFirst(chainRow);
+            }
+        } else if (!Arrays.equals(spool.columns, batch.columns())) {
+            throw new IOException("Backup sets have different columns for table \"" + table + '"');
+        }
+
+        // Only the table being read has its partitions open.
+        if (spool.writers == null)
+            spool.open();
+        for (String[] row : rows)
+            spool.write(row);
+        if (batch.last())
+            spool.close();
+    }
+
+    private int[] getKeyColumns(Batch batch) {
+        List<String> columns = Arrays.asList(batch.columns());
+        List<Integer> keyColumns = new ArrayList<>();
+        PreparedStatementSetter pss = ps -> ps.setString(1, batch.table());
+        RowCallbackHandler rch = rs -> {
+            int index = columns.indexOf(rs.getString(1));
+            if (index != -1)
+                keyColumns.add(index);
+        };
+        jdbcTemplate.query(SELECT_PRIMARY_KEY_COLUMNS, pss, rch);
+        return keyColumns.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void writeRow(String[] row, Writer out) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0)
+                out.write(',');
+            BackupWriter.writeField(row[i], out);
+        }
+        out.write('\n');
+    }
+
+}
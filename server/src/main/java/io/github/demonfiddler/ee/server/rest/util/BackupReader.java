@@ -0,0 +1,510 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.APPDATA_TABLES;
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.CHAIN_ENTRY;
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.MANIFEST_ENTRY;
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.SELECT_TABLE_COLUMNS;
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.STATIC_TABLES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import io.github.demonfiddler.ee.server.rest.util.BackupUtils.ManifestEntry;
+import io.github.demonfiddler.ee.server.rest.util.BackupUtils.TableDescriptor;
+
+/**
+ * Reads backup sets. CSV entries are parsed straight from the {@code ZipInputStream} and bound into multi-row
+ * {@code INSERT} (or {@code REPLACE}) statements of up to {@code restore.batch-size} rows, so a restore needs neither
+ * temporary files nor the {@code LOAD DATA LOCAL INFILE} capability. If the set has a manifest, each entry's row
+ * count and checksum are verified before its final batch is loaded, so a corrupt set is rolled back. The table and
+ * column names are checked against the database before they are written into a statement, so a crafted set cannot
+ * inject SQL.
+ * <p>
+ * Decompression and parsing run on a separate thread, one batch ahead of the statements executing on the calling
+ * thread. The tables themselves are loaded one after another, on the calling thread's connection, so that the whole
+ * restore remains a single transaction.
+ */
+@Component
+public class BackupReader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackupReader.class);
+
+    /** The maximum number of bind parameters that MariaDB accepts in a single statement. */
+    private static final int MAX_PARAMETERS = 65535;
+
+    /**
+     * The names of a backup set's entries, its configuration, manifest and chain index.
+     * @param entryNames The names of the ZIP entries, in order.
+     * @param config The single-valued configuration properties read from {@code config.csv}, or {@code null} if the
+     * backup set has no configuration.
+     * @param manifest The manifest entries keyed by entry name, or {@code null} if the backup set predates manifests.
+     * @param manifestSha256 The manifest's SHA-256 checksum, or {@code null} if the backup set has no manifest.
+     * @param chain The manifest checksums of the preceding sets in the series, indexed by backup number. For a
+     * compacted set, the list also includes the checksum of the last set merged into it.
+     */
+    public record BackupSetContents(List<String> entryNames, Map<String, String> config,
+        Map<String, ManifestEntry> manifest, String manifestSha256, List<String> chain) {
+
+        /**
+         * Returns the backup number from the configuration.
+         * @return The backup number, or {@code -1} if unknown.
+         * @throws NumberFormatException if the backup number is malformed.
+         */
+        public int backupNumber() {
+            String backupNumber = config != null ? config.get(DatabaseUtils.PROP_BACKUP_NUMBER) : null;
+            return backupNumber != null ? Integer.parseInt(backupNumber) : -1;
+        }
+
+        /**
+         * Returns whether this is a compacted set, which merges a full backup set and its incremental successors.
+         * @return {@code true} if the chain index includes this set's own backup number.
+         */
+        public boolean isCompacted() {
+            return chain.size() == backupNumber() + 1;
+        }
+
+    }
+
+    /**
+     * Restore statistics for a table.
+     * @param table The table name.
+     * @param rows The number of rows loaded.
+     * @param millis The time taken, in milliseconds.
+     */
+    public record TableStats(String table, long rows, long millis) {
+
+        /**
+         * Returns the load rate.
+         * @return The number of rows loaded per second.
+         */
+        public long rowsPerSecond() {
+            return millis > 0 ? rows * 1000 / millis : rows;
+        }
+
+        @Override
+        public String toString() {
+            return table + ": " + rows + " rows in " + millis + " ms (" + rowsPerSecond() + " rows/s)";
+        }
+
+    }
+
+    /**
+     * A batch of parsed rows.
+     * @param table The table name.
+     * @param columns The column names, from the CSV header.
+     * @param rows The rows, whose fields are {@code null} for SQL {@code NULL}.
+     * @param last {@code true} if this is the table's final batch.
+     */
+    public record Batch(String table, String[] columns, List<String[]> rows, boolean last) {
+    }
+
+    /**
+     * Receives batches of rows read from a backup set.
+     */
+    @FunctionalInterface
+    public interface BatchHandler {
+
+        /**
+         * Handles a batch of rows.
+         * @param batch The batch.
+         * @throws IOException if the batch could not be handled.
+         * @throws InterruptedException if interrupted while handling the batch.
+         */
+        void handle(Batch batch) throws IOException, InterruptedException;
+
+    }
+
+    /** Signals that there are no more batches. */
+    private static final Batch END = new Batch(null, null, List.of(), true);
+
+    /**
+     * The SQL used to load a table.
+     * @param prefix The statement up to and including {@code VALUES}.
+     * @param rowPlaceholders The parenthesised bind parameter placeholders for a single row.
+     * @param bitColumns Flags the {@code bit} columns, whose values are bound as integers.
+     */
+    private record LoadStatement(String prefix, String rowPlaceholders, boolean[] bitColumns) {
+
+        String sql(int rowCount) {
+            StringBuilder sql = new StringBuilder(prefix.length() + rowCount * (rowPlaceholders.length() + 1));
+            sql.append(prefix);
+            for (int i = 0; i < rowCount; i++) {
+                if (i > 0)
+                    sql.append(',');
+                sql.append(rowPlaceholders);
+            }
+            return sql.append(';').toString();
+        }
+
+    }
+
+    private static final Map<String, LoadStatement> LOAD_STATEMENTS = new ConcurrentHashMap<>();
+    /** The names of the tables that a backup set may contain. */
+    private static final Set<String> TABLE_NAMES = new HashSet<>();
+
+    static {
+        for (TableDescriptor table : STATIC_TABLES)
+            TABLE_NAMES.add(table.name());
+        for (TableDescriptor table : APPDATA_TABLES)
+            TABLE_NAMES.add(table.name());
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BackupUtils backupUtils;
+    private final ExecutorService executor;
+    private final int batchSize;
+
+    public BackupReader(JdbcTemplate jdbcTemplate, BackupUtils backupUtils,
+        @Value("${restore.batch-size:1000}") int batchSize) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.backupUtils = backupUtils;
+        this.batchSize = batchSize;
+
+        AtomicInteger threadNum = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "restore-" + threadNum.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Lists a backup set's entries and reads its configuration, manifest and chain index.
+     * @param in The backup set; closed on return.
+     * @return The backup set's contents.
+     * @throws IOException if the backup set could not be read.
+     * @throws NumberFormatException if the configuration or manifest is malformed.
+     */
+    public BackupSetContents scan(InputStream in) throws IOException {
+        List<String> entryNames = new ArrayList<>();
+        Map<String, String> config = null;
+        Map<String, ManifestEntry> manifest = null;
+        String manifestSha256 = null;
+        List<String> chain = new ArrayList<>();
+        try (ZipInputStream zipIn = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zipIn.getNextEntry()) != null) {
+                entryNames.add(entry.getName());
+                switch (entry.getName()) {
+                    case "config.csv" ->
+                        config = backupUtils.readConfiguration(new ByteArrayInputStream(zipIn.readAllBytes()));
+                    case MANIFEST_ENTRY -> {
+                        byte[] content = zipIn.readAllBytes();
+                        manifestSha256 = BackupWriter.sha256(content);
+                        manifest = new LinkedHashMap<>();
+                        for (String[] row : readCsv(content)) {
+                            ManifestEntry manifestEntry = new ManifestEntry(row[0], Long.parseLong(row[1]), row[2]);
+                            manifest.put(manifestEntry.entryName(), manifestEntry);
+                        }
+                    }
+                    case CHAIN_ENTRY -> {
+                        for (String[] row : readCsv(zipIn.readAllBytes()))
+                            chain.add(row[1]);
+                    }
+                    default -> {
+                    }
+                }
+                zipIn.closeEntry();
+            }
+        }
+        return new BackupSetContents(entryNames, config, manifest, manifestSha256, chain);
+    }
+
+    /**
+     * Reads a small CSV entry, excluding its header.
+     * @param content The entry's content.
+     * @return The data rows.
+     */
+    private List<String[]> readCsv(byte[] content) throws IOException {
+        CsvParser csv = new CsvParser(new InputStreamReader(new ByteArrayInputStream(content), UTF_8));
+        List<String[]> rows = new ArrayList<>();
+        csv.next();
+        String[] row;
+        while ((row = csv.next()) != null)
+            rows.add(row);
+        return rows;
+    }
+
+    /**
+     * Loads the specified tables from a backup set, in the order in which they appear in it. Entries for other
+     * tables are skipped.
+     * @param in The backup set; closed on return.
+     * @param tables Descriptors for the tables to restore.
+     * @param manifest The backup set's manifest, against which to verify each table, or {@code null} if none.
+     * @param replace {@code true} to replace existing rows with the same key, as for an incremental backup set.
+     * @return Statistics for each table restored.
+     * @throws DataAccessException if a table could not be loaded.
+     * @throws IOException if the backup set could not be read, is malformed, does not match its manifest or has a table
+     * or column that is not in the database.
+     */
+    public List<TableStats> restoreTables(InputStream in, List<TableDescriptor> tables,
+        Map<String, ManifestEntry> manifest, boolean replace) throws IOException {
+
+        Set<String> tableNames = new HashSet<>();
+        for (TableDescriptor table : tables)
+            tableNames.add(table.name());
+
+        BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(2);
+        Future<?> parser = executor.submit(() -> {
+            readTables(in, tableNames, manifest, batches::put);
+            batches.put(END);
+            return null;
+        });
+
+        List<TableStats> stats = new ArrayList<>();
+        try {
+            long start = System.nanoTime();
+            long rowCount = 0;
+            Batch batch;
+            while ((batch = batches.poll(100, TimeUnit.MILLISECONDS)) != END) {
+                if (batch == null) {
+                    // If the parser failed, it will not have sent END.
+                    if (parser.isDone() && batches.isEmpty())
+                        break;
+                    continue;
+                }
+                if (!batch.rows().isEmpty()) {
+                    insert(batch, replace);
+                    rowCount += batch.rows().size();
+                }
+                if (batch.last()) {
+                    TableStats tableStats =
+                        new TableStats(batch.table(), rowCount, (System.nanoTime() - start) / 1_000_000);
+                    stats.add(tableStats);
+                    LOGGER.info("Restored table \"{}\": {} rows in {} ms ({} rows/s)", tableStats.table(),
+                        tableStats.rows(), tableStats.millis(), tableStats.rowsPerSecond());
+                    start = System.nanoTime();
+                    rowCount = 0;
+                }
+            }
+            parser.get();
+            return stats;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while restoring tables", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe)
+                throw ioe;
+            throw new IOException("Error reading backup set", e.getCause());
+        } finally {
+            parser.cancel(true);
+        }
+    }
+
+    /**
+     * Parses the CSV entries for the specified tables into batches, in the order in which they appear in the backup
+     * set. Entries for other tables are skipped.
+     * @param in The backup set; closed on return.
+     * @param tableNames The names of the tables to read.
+     * @param manifest The backup set's manifest, against which to verify each table, or {@code null} if none.
+     * @param handler The handler to receive the batches.
+     * @throws IOException if the backup set could not be read, is malformed or does not match its manifest.
+     * @throws InterruptedException if interrupted while handling a batch.
+     */
+    public void readTables(InputStream in, Set<String> tableNames, Map<String, ManifestEntry> manifest,
+        BatchHandler handler) throws IOException, InterruptedException {
+
+        try (ZipInputStream zipIn = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zipIn.getNextEntry()) != null) {
+                String entryName = entry.getName();
+                String table = entryName.endsWith(".csv") ? entryName.substring(0, entryName.length() - 4) : null;
+                if (tableNames.contains(table))
+                    readTable(zipIn, entryName, table, manifest, handler);
+                else
+                    LOGGER.debug("Skipping backup set entry '{}'", entryName);
+            }
+        }
+    }
+
+    private void readTable(ZipInputStream zipIn, String entryName, String table, Map<String, ManifestEntry> manifest,
+        BatchHandler handler) throws IOException, InterruptedException {
+
+        ManifestEntry manifestEntry = null;
+        if (manifest != null) {
+            manifestEntry = manifest.get(entryName);
+            if (manifestEntry == null)
+                throw new IOException("Backup set entry '" + entryName + "' is not listed in the manifest");
+        }
+
+        // N.B. The reader must not be closed, as that would close the ZipInputStream.
+        MessageDigest digest = BackupWriter.newDigest();
+        CsvParser csv = new CsvParser(
+            new BufferedReader(new InputStreamReader(new DigestInputStream(zipIn, digest), UTF_8), 65536));
+        String[] columns = csv.next();
+        if (columns == null)
+            throw new IOException("Backup set entry '" + entryName + "' has no header");
+        int rowsPerBatch = Math.max(1, Math.min(batchSize, MAX_PARAMETERS / columns.length));
+        long rowCount = 0;
+        List<String[]> rows = new ArrayList<>(rowsPerBatch);
+        String[] row;
+        while ((row = csv.next()) != null) {
+            if (row.length != columns.length) {
+                throw new IOException("Backup set entry '" + entryName + "' line " + csv.lineNumber() + " has "
+                    + row.length + " fields, expected " + columns.length);
+            }
+            rows.add(row);
+            rowCount++;
+            if (rows.size() == rowsPerBatch) {
+                handler.handle(new Batch(table, columns, rows, false));
+                rows = new ArrayList<>(rowsPerBatch);
+            }
+        }
+
+        // The final batch can only be handled once the entry has been verified, because it completes the table.
+        if (manifestEntry != null) {
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            if (rowCount != manifestEntry.rows() || !sha256.equals(manifestEntry.sha256())) {
+                throw new IOException("Backup set entry '" + entryName + "' does not match the manifest; expected "
+                    + manifestEntry.rows() + " rows with SHA-256 " + manifestEntry.sha256() + ", found " + rowCount
+                    + " rows with SHA-256 " + sha256);
+            }
+        }
+        handler.handle(new Batch(table, columns, rows, true));
+    }
+
+    private void insert(Batch batch, boolean replace) throws IOException {
+        LoadStatement stmt = getLoadStatement(batch.table(), batch.columns(), replace);
+        boolean[] bitColumns = stmt.bitColumns();
+        List<String[]> rows = batch.rows();
+        PreparedStatementSetter pss = ps -> {
+            int param = 1;
+            for (String[] row : rows) {
+                for (int i = 0; i < row.length; i++, param++) {
+                    String value = row[i];
+                    if (value == null)
+                        ps.setNull(param, bitColumns[i] ? Types.BIT : Types.VARCHAR);
+                    else if (bitColumns[i])
+                        ps.setLong(param, parseBits(value));
+                    else
+                        ps.setString(param, value);
+                }
+            }
+        };
+        jdbcTemplate.update(stmt.sql(rows.size()), pss);
+    }
+
+    /**
+     * Parses a {@code bit} column value, which {@code SELECT ... INTO OUTFILE} wrote as raw bytes rather than digits.
+     * @param value The field value.
+     * @return The column value.
+     */
+    private long parseBits(String value) {
+        if (!value.isEmpty() && value.charAt(0) < '0') {
+            long bits = 0;
+            for (int i = 0; i < value.length(); i++)
+                bits = bits << 8 | value.charAt(i);
+            return bits;
+        }
+        return Long.parseLong(value);
+    }
+
+    /**
+     * Returns the statement with which to load a batch into a table. The table must be one that is backed up and the
+     * columns must all exist in it, since their names are written into the statement.
+     * @param table The table name.
+     * @param columns The column names, from the CSV header.
+     * @param replace {@code true} to replace existing rows with the same key.
+     * @return The load statement.
+     * @throws IOException if the table or any of the columns is unknown.
+     */
+    private LoadStatement getLoadStatement(String table, String[] columns, boolean replace) throws IOException {
+        if (!TABLE_NAMES.contains(table))
+            throw new IOException("Backup set table \"" + table + "\" is not a known table");
+
+        // Only validated statements are cached, so a cached statement needs no further checks.
+        String key = table + (replace ? "_replace:" : "_insert:") + String.join(",", columns);
+        LoadStatement stmt = LOAD_STATEMENTS.get(key);
+        if (stmt != null)
+            return stmt;
+
+        Map<String, String> columnTypes = new HashMap<>();
+        PreparedStatementSetter pss = ps -> ps.setString(1, table);
+        RowCallbackHandler rch = rs -> columnTypes.put(rs.getString(1), rs.getString(2));
+        jdbcTemplate.query(SELECT_TABLE_COLUMNS, pss, rch);
+        Set<String> seen = new HashSet<>();
+        for (String column : columns) {
+            if (!columnTypes.containsKey(column))
+                throw new IOException("Backup set table \"" + table + "\" has unknown column \"" + column + '"');
+            if (!seen.add(column))
+                throw new IOException("Backup set table \"" + table + "\" has duplicate column \"" + column + '"');
+        }
+
+        StringBuilder prefix = new StringBuilder();
+        StringBuilder rowPlaceholders = new StringBuilder("(");
+        boolean[] bitColumns = new boolean[columns.length];
+        prefix.append(replace ? "REPLACE" : "INSERT").append(" INTO \"").append(table).append("\" (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                prefix.append(',');
+                rowPlaceholders.append(',');
+            }
+            prefix.append('"').append(columns[i]).append('"');
+            rowPlaceholders.append('?');
+            bitColumns[i] = columnTypes.get(columns[i]).equals("bit");
+        }
+        prefix.append(") VALUES ");
+        rowPlaceholders.append(')');
+        stmt = new LoadStatement(prefix.toString(), rowPlaceholders.toString(), bitColumns);
+
+        LOGGER.trace("Restoring table \"{}\" with SQL statement:\n{}", table, stmt.sql(1));
+        LOAD_STATEMENTS.putIfAbsent(key, stmt);
+        return stmt;
+    }
+
+}
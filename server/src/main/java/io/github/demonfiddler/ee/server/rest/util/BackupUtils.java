@@ -23,8 +23,9 @@ import static io.github.demonfiddler.ee.common.util.StringUtils.unquote;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -112,19 +113,21 @@ public class BackupUtils {
     }
 
     /**
-     * A matched pair of SQL select statements for retrieving a row count and the actual rows themselves.
+     * Describes a CSV entry in a backup set, as listed in the set's manifest.
+     * @param entryName The ZIP entry name.
+     * @param rows The number of data rows, excluding the header.
+     * @param sha256 The hex-encoded SHA-256 checksum of the entry's contents.
      */
-    public static record QueryPair(String countQuerySql, String selectQuerySql) {
-
-        @Override
-        public String toString() {
-            return "-- Count query SQL:\n" + countQuerySql + "\n-- Select query SQL:\n" + selectQuerySql;
-        }
-
+    public static record ManifestEntry(String entryName, long rows, String sha256) {
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BackupUtils.class);
 
+    /** The backup set entry that lists the other entries with their row counts and checksums. */
+    public static final String MANIFEST_ENTRY = "manifest.csv";
+    /** The backup set entry that lists the manifest checksums of the preceding sets in the series. */
+    public static final String CHAIN_ENTRY = "chain.csv";
+
     /** Static lookup tables. */
     public static final TableDescriptor[] STATIC_TABLES = { //
         TableDescriptor.untracked("abbreviation"), //
@@ -168,6 +171,16 @@ public class BackupUtils {
         ORDER BY ORDINAL_POSITION;
         """;
 
+    /** Selects the primary key column names for a given table. */
+    public static final String SELECT_PRIMARY_KEY_COLUMNS = """
+        SELECT COLUMN_NAME
+        FROM INFORMATION_SCHEMA.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE()
+        AND TABLE_NAME = ?
+        AND COLUMN_KEY = 'PRI'
+        ORDER BY ORDINAL_POSITION;
+        """;
+
     @Value("${data.server.tmpdir}")
     private String tmpDir;
 
@@ -267,9 +280,15 @@ public class BackupUtils {
         }
     }
 
-    public Map<String, String> readConfiguration(File configFile) throws IOException {
+    /**
+     * Reads a backup set's configuration, as written to {@code config.csv}.
+     * @param in The input stream from which to read the CSV file; closed on return.
+     * @return The single-valued configuration properties.
+     * @throws IOException if the configuration could not be read.
+     */
+    public Map<String, String> readConfiguration(InputStream in) throws IOException {
         Map<String, String> config = new LinkedHashMap<>();
-        try (BufferedReader rdr = new BufferedReader(new FileReader(configFile, Charset.forName("UTF-8")))) {
+        try (BufferedReader rdr = new BufferedReader(new InputStreamReader(in, Charset.forName("UTF-8")))) {
             String line;
             int lineNum = 0;
             while ((line = rdr.readLine()) != null) {
@@ -284,7 +303,7 @@ public class BackupUtils {
                         config.put(property, value);
                         LOGGER.trace("readConfiguration: read property {} = \"value\"", property, value);
                     } else {
-                        LOGGER.warn("readConfiguration: ignoring multi-valued property {}[{}] = \"{}\"", property, subscript, value);
+                        LOGGER.debug("readConfiguration: ignoring multi-valued property {}[{}] = \"{}\"", property, subscript, value);
                     }
                 } else {
                     LOGGER.error("readConfiguration: malformed line #{}: {}", lineNum, line);
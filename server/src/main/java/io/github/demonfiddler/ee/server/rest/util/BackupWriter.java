@@ -0,0 +1,423 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import static io.github.demonfiddler.ee.common.util.StringUtils.NL;
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.CHAIN_ENTRY;
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.MANIFEST_ENTRY;
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.SELECT_TABLE_COLUMNS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import io.github.demonfiddler.ee.server.rest.model.BackupKind;
+import io.github.demonfiddler.ee.server.rest.util.BackupUtils.ManifestEntry;
+import io.github.demonfiddler.ee.server.rest.util.BackupUtils.TableDescriptor;
+
+/**
+ * Writes backup sets. Each table is read over JDBC with a forward-only cursor and written as RFC-4180 CSV in the
+ * format that {@code LOAD DATA ... FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '"' ESCAPED BY ''} expects, so
+ * unlike {@code SELECT ... INTO OUTFILE} the database server need not share a file system with the application server.
+ * Each table is dumped to its own spool file, because a {@code ZipOutputStream} only accepts one entry at a time; the
+ * spool files are added to the ZIP in table order as they complete. Incremental backups dump their tables in parallel
+ * on a small thread pool, whereas full backups dump them one by one within the caller's transaction, so that the
+ * backup set is a consistent snapshot.
+ * <p>
+ * Every backup set ends with a chain index, listing the manifest checksums of the preceding sets in its series, and a
+ * manifest, listing each entry's row count and SHA-256 checksum. The manifest's own checksum identifies the set.
+ */
+@Component
+public class BackupWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackupWriter.class);
+
+    /**
+     * The SQL and CSV header used to back up a table.
+     * @param selectSql The {@code SELECT} statement.
+     * @param header The CSV header line, without line terminator.
+     * @param bitColumns Flags the {@code bit} columns, which are written as integers.
+     */
+    private record BackupQuery(String selectSql, String header, boolean[] bitColumns) {
+    }
+
+    private static final Map<String, BackupQuery> BACKUP_QUERIES = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService executor;
+    private final int fetchSize;
+
+    public BackupWriter(JdbcTemplate jdbcTemplate, @Value("${backup.threads:4}") int threads,
+        @Value("${backup.fetch-size:1000}") int fetchSize) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+
+        AtomicInteger threadNum = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "backup-" + threadNum.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Backs up the specified tables to a ZIP file, one CSV entry per table.
+     * <p>
+     * For a full backup, every table is read on the calling thread, within the caller's transaction. Provided that
+     * the transaction is {@code REPEATABLE READ}, the tables therefore share a single snapshot, so the backup set
+     * cannot contain rows that refer to rows inserted after their table was read. Restoring a backup set disables
+     * foreign key checks, so such orphans would otherwise be loaded silently.
+     * <p>
+     * For an incremental backup, the {@code config} table is likewise read within the caller's transaction, so that
+     * it includes the caller's uncommitted changes. The other tables are read concurrently on separate connections
+     * and therefore do not share a single snapshot: a row changed during the backup may or may not be included, but
+     * will in any case be picked up by the next incremental backup in the series, whose restore replaces existing
+     * rows.
+     * @param tables Descriptors for the tables to back up.
+     * @param spoolDir The directory in which to write intermediate CSV files.
+     * @param backupKind The kind of backup.
+     * @param lastBackupTimestamp When the previous backup was performed.
+     * @param zipOut The ZIP file to which to add the CSV entries.
+     * @param manifest The list to which to add the manifest entries for the tables.
+     * @return In incremental backup mode, the number of records that were incrementally backed up, otherwise {@code 0}.
+     * The count excludes static tables and those which cannot be backed up incrementally.
+     * @throws DataAccessException if a table could not be read.
+     * @throws IOException if a CSV file or ZIP entry could not be written.
+     */
+    public int backupTables(TableDescriptor[] tables, File spoolDir, BackupKind backupKind,
+        Timestamp lastBackupTimestamp, ZipOutputStream zipOut, List<ManifestEntry> manifest) throws IOException {
+
+        boolean isIncremental = backupKind == BackupKind.INCREMENTAL;
+        List<Future<Integer>> futures = new ArrayList<>(tables.length);
+        try {
+            for (TableDescriptor table : tables) {
+                Path csvFile = spoolDir.toPath().resolve(table.name() + ".csv");
+                // A full backup and the config table must be read within the caller's transaction.
+                if (!isIncremental || table.name().equals("config")) {
+                    int rowCount = backupTable(table, isIncremental, lastBackupTimestamp, csvFile);
+                    futures.add(CompletableFuture.completedFuture(rowCount));
+                } else {
+                    futures.add(
+                        executor.submit(() -> backupTable(table, isIncremental, lastBackupTimestamp, csvFile)));
+                }
+            }
+
+            int incrementalRowCount = 0;
+            for (int i = 0; i < tables.length; i++) {
+                TableDescriptor table = tables[i];
+                int rowCount = futures.get(i).get();
+                if (isIncremental && table.supportsIncrementalBackup())
+                    incrementalRowCount += rowCount;
+                manifest.add(addZipEntry(spoolDir.toPath().resolve(table.name() + ".csv"), rowCount, zipOut));
+            }
+            return incrementalRowCount;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while backing up tables", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DataAccessException dae)
+                throw dae;
+            if (cause instanceof UncheckedIOException uioe)
+                throw uioe.getCause();
+            throw new IOException("Error backing up tables", cause);
+        } finally {
+            for (Future<Integer> future : futures)
+                future.cancel(true);
+        }
+    }
+
+    /**
+     * Backs up a single table to a CSV file.
+     * @param table The table to back up.
+     * @param isIncremental Whether this is an incremental backup.
+     * @param lastBackupTimestamp When the previous backup was performed.
+     * @param csvFile The file to write.
+     * @return The number of rows written.
+     */
+    private int backupTable(TableDescriptor table, boolean isIncremental, Timestamp lastBackupTimestamp,
+        Path csvFile) throws IOException {
+
+        long start = System.nanoTime();
+        boolean isIncrementalTable = isIncremental && table.supportsIncrementalBackup();
+        BackupQuery query = getBackupQuery(table, isIncrementalTable);
+        boolean[] bitColumns = query.bitColumns();
+        int[] rowCount = {0};
+        try (Writer out = Files.newBufferedWriter(csvFile, UTF_8)) {
+            out.write(query.header());
+            out.write('\n');
+
+            PreparedStatementCreator psc = con -> {
+                PreparedStatement ps =
+                    con.prepareStatement(query.selectSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                if (isIncrementalTable) {
+                    ps.setTimestamp(1, lastBackupTimestamp);
+                    if (table.isTrackedEntity())
+                        ps.setTimestamp(2, lastBackupTimestamp);
+                }
+                return ps;
+            };
+            RowCallbackHandler rch = rs -> {
+                try {
+                    for (int i = 0; i < bitColumns.length; i++) {
+                        if (i > 0)
+                            out.write(',');
+                        String value;
+                        if (bitColumns[i]) {
+                            long bits = rs.getLong(i + 1);
+                            value = rs.wasNull() ? null : Long.toString(bits);
+                        } else {
+                            value = rs.getString(i + 1);
+                        }
+                        writeField(value, out);
+                    }
+                    out.write('\n');
+                    rowCount[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            jdbcTemplate.query(psc, rch);
+        }
+
+        LOGGER.debug("Backed up table \"{}\": {} rows in {} ms", table.name(), rowCount[0],
+            (System.nanoTime() - start) / 1_000_000);
+        return rowCount[0];
+    }
+
+    /**
+     * Writes a CSV field. {@code null} is written as an unquoted {@code NULL}; any other value is enclosed in double
+     * quotes, with embedded double quotes doubled.
+     * @param value The field value.
+     * @param out The output writer.
+     */
+    static void writeField(String value, Writer out) throws IOException {
+        if (value == null) {
+            out.write("NULL");
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        int quote;
+        while ((quote = value.indexOf('"', start)) != -1) {
+            out.write(value, start, quote + 1 - start);
+            out.write('"');
+            start = quote + 1;
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    /**
+     * Moves a CSV file into a backup set.
+     * @param csvFile The CSV file, which is deleted once copied.
+     * @param rows The number of data rows in the file.
+     * @param zipOut The backup set.
+     * @return The entry's manifest entry.
+     * @throws IOException if the entry could not be written.
+     */
+    public ManifestEntry addZipEntry(Path csvFile, long rows, ZipOutputStream zipOut) throws IOException {
+        String entryName = csvFile.getFileName().toString();
+        ZipEntry csvEntry = new ZipEntry(entryName);
+        csvEntry.setLastModifiedTime(FileTime.fromMillis(csvFile.toFile().lastModified()));
+        csvEntry.setSize(Files.size(csvFile));
+        zipOut.putNextEntry(csvEntry);
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(csvFile), digest)) {
+            in.transferTo(zipOut);
+        } finally {
+            zipOut.closeEntry();
+        }
+        Files.delete(csvFile);
+        return new ManifestEntry(entryName, rows, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Completes a backup set by adding its chain index and manifest.
+     * @param manifest The manifest entries for the set's CSV entries.
+     * @param chain The manifest checksums of the preceding sets in the series, indexed by backup number.
+     * @param zipOut The backup set.
+     * @return The manifest's SHA-256 checksum, which identifies the backup set.
+     * @throws IOException if the entries could not be written.
+     */
+    public String finishBackupSet(List<ManifestEntry> manifest, List<String> chain, ZipOutputStream zipOut)
+        throws IOException {
+
+        StringWriter chainCsv = new StringWriter();
+        chainCsv.write("\"backup_number\",\"manifest_sha256\"\n");
+        for (int i = 0; i < chain.size(); i++) {
+            writeField(String.valueOf(i), chainCsv);
+            chainCsv.write(',');
+            writeField(chain.get(i), chainCsv);
+            chainCsv.write('\n');
+        }
+        byte[] chainBytes = chainCsv.toString().getBytes(UTF_8);
+        addZipEntry(CHAIN_ENTRY, chainBytes, zipOut);
+
+        List<ManifestEntry> entries = new ArrayList<>(manifest);
+        entries.add(new ManifestEntry(CHAIN_ENTRY, chain.size(), sha256(chainBytes)));
+        StringWriter manifestCsv = new StringWriter();
+        manifestCsv.write("\"entry\",\"rows\",\"sha256\"\n");
+        for (ManifestEntry entry : entries) {
+            writeField(entry.entryName(), manifestCsv);
+            manifestCsv.write(',');
+            writeField(String.valueOf(entry.rows()), manifestCsv);
+            manifestCsv.write(',');
+            writeField(entry.sha256(), manifestCsv);
+            manifestCsv.write('\n');
+        }
+        byte[] manifestBytes = manifestCsv.toString().getBytes(UTF_8);
+        addZipEntry(MANIFEST_ENTRY, manifestBytes, zipOut);
+
+        return sha256(manifestBytes);
+    }
+
+    private void addZipEntry(String entryName, byte[] content, ZipOutputStream zipOut) throws IOException {
+        ZipEntry entry = new ZipEntry(entryName);
+        entry.setSize(content.length);
+        zipOut.putNextEntry(entry);
+        try {
+            zipOut.write(content);
+        } finally {
+            zipOut.closeEntry();
+        }
+    }
+
+    /**
+     * Computes a SHA-256 checksum.
+     * @param content The content to check.
+     * @return The hex-encoded checksum.
+     */
+    static String sha256(byte[] content) {
+        return HexFormat.of().formatHex(newDigest().digest(content));
+    }
+
+    /**
+     * Creates a SHA-256 message digest.
+     * @return A new message digest.
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BackupQuery getBackupQuery(TableDescriptor table, boolean isIncrementalTable) {
+        String key = table.name() + (isIncrementalTable ? "_incremental" : "_full");
+        return BACKUP_QUERIES.computeIfAbsent(key, _ -> {
+            StringBuilder header = new StringBuilder();
+            StringBuilder selectList = new StringBuilder();
+            List<Boolean> bitColumns = new ArrayList<>();
+            PreparedStatementSetter pss = ps -> ps.setString(1, table.name());
+            RowCallbackHandler rch = rs -> {
+                String colName = rs.getString(1);
+                String colType = rs.getString(2);
+                if (!header.isEmpty())
+                    header.append(',');
+                header.append('"').append(colName).append('"');
+
+                if (!selectList.isEmpty())
+                    selectList.append(", ");
+                selectList.append("t.\"").append(colName).append('"');
+                bitColumns.add(colType.equals("bit"));
+            };
+            jdbcTemplate.query(SELECT_TABLE_COLUMNS, pss, rch);
+
+            StringBuilder selectBuf = new StringBuilder();
+            selectBuf.append("SELECT ").append(selectList).append(NL) //
+                .append("FROM \"").append(table.name()).append("\" t");
+            if (isIncrementalTable)
+                selectBuf.append(NL);
+            appendPredicate(table, isIncrementalTable, selectBuf);
+            selectBuf.append(';');
+
+            boolean[] bits = new boolean[bitColumns.size()];
+            for (int i = 0; i < bits.length; i++)
+                bits[i] = bitColumns.get(i);
+            BackupQuery query = new BackupQuery(selectBuf.toString(), header.toString(), bits);
+
+            LOGGER.trace("Backing up table \"{}\" with SQL statement:\n{}", table.name(), query.selectSql());
+            return query;
+        });
+    }
+
+    private void appendPredicate(TableDescriptor table, boolean isIncrementalTable, StringBuilder sqlBuf) {
+        if (isIncrementalTable) {
+            // Only timestamped tables can support incremental backup.
+            if (table.needsJoin()) {
+                sqlBuf.append("JOIN \"entity\" e").append(NL) //
+                    .append("ON e.\"id\" = t.\"id\"").append(NL);
+            }
+            sqlBuf.append("WHERE ");
+            if (table.isTrackedEntity()) {
+                String alias = table.needsJoin() ? "e" : "t";
+                sqlBuf.append(alias).append(".\"created\" > ? OR ") //
+                    .append(alias).append(".\"updated\" > ?");
+            } else if (table.tsColumn() != null) {
+                sqlBuf.append("t.\"").append(table.tsColumn()).append("\" > ?");
+            } else {
+                throw new IllegalStateException(
+                    "To support incremental backup, a table must either be for a tracked entity or have a timestamp");
+            }
+        }
+    }
+
+}
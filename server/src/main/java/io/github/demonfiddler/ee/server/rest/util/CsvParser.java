@@ -0,0 +1,94 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses CSV in the format written by {@link BackupWriter}: fields are separated by commas and optionally enclosed
+ * in double quotes, within which a double quote is doubled. An unquoted {@code NULL} denotes SQL {@code NULL}.
+ * Lines are terminated by {@code \n}, which may also occur within a quoted field.
+ */
+final class CsvParser {
+
+    private final Reader in;
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private int lineNumber;
+
+    CsvParser(Reader in) {
+        this.in = in;
+    }
+
+    int lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Parses the next record.
+     * @return The record's fields, or {@code null} at end of input.
+     * @throws IOException if the input could not be read or is malformed.
+     */
+    String[] next() throws IOException {
+        int c = in.read();
+        if (c == -1)
+            return null;
+        lineNumber++;
+        fields.clear();
+        while (true) {
+            field.setLength(0);
+            boolean quoted = c == '"';
+            if (quoted) {
+                while (true) {
+                    c = in.read();
+                    if (c == -1)
+                        throw new IOException("Unterminated quoted field at line " + lineNumber);
+                    if (c == '"' && (c = in.read()) != '"')
+                        break;
+                    if (c == '\n')
+                        lineNumber++;
+                    field.append((char)c);
+                }
+                if (c == '\r')
+                    c = in.read();
+            } else {
+                while (c != ',' && c != '\n' && c != -1) {
+                    field.append((char)c);
+                    c = in.read();
+                }
+                int length = field.length();
+                if (length > 0 && field.charAt(length - 1) == '\r')
+                    field.setLength(length - 1);
+            }
+            fields.add(!quoted && "NULL".contentEquals(field) ? null : field.toString());
+
+            if (c == ',')
+                c = in.read();
+            else if (c == '\n' || c == -1)
+                return fields.toArray(String[]::new);
+            else
+                throw new IOException("Unexpected character after quoted field at line " + lineNumber);
+        }
+    }
+
+}
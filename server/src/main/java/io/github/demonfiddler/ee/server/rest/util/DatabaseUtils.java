@@ -43,6 +43,11 @@ public class DatabaseUtils {
     public static final String PROP_BACKUP_NUMBER = "backup_number";
     /** The property name for the last backup timestamp. */
     public static final String PROP_BACKUP_TIMESTAMP = "backup_timestamp";
+    /**
+     * The property name for the backup chain index: the manifest checksum of each backup set in the current series,
+     * subscripted by backup number.
+     */
+    public static final String PROP_BACKUP_CHAIN = "backup_chain";
     /** The property name for the actual database schema version. */
     public static final String PROP_SCHEMA_VERSION = "schema_version";
 
@@ -70,6 +75,11 @@ public class DatabaseUtils {
           "subscript" = ?;
         """;
 
+    private static final String DELETE_PROPERTY = """
+        DELETE FROM "config"
+        WHERE "property" = ?;
+        """;
+
     private static final String INSERT_PROPERTY = """
         INSERT INTO "config" ("property", "subscript", "value")
         VALUES (?, ?, ?);
@@ -264,6 +274,26 @@ public class DatabaseUtils {
         return upsert(property, 0, value == null ? null : String.valueOf(value));
     }
 
+    /**
+     * Sets an element of a multi-valued {@code String} config property.
+     * @param property The property name.
+     * @param subscript The element index.
+     * @param value The element value (can be {@code null}).
+     * @return {@code true} if the property value was successfully set.
+     */
+    public boolean setConfigString(String property, int subscript, String value) {
+        return upsert(property, subscript, value);
+    }
+
+    /**
+     * Deletes all values of a config property.
+     * @param property The property name.
+     * @return The number of values deleted.
+     */
+    public int deleteConfig(String property) {
+        return jdbcTemplate.update(DELETE_PROPERTY, property);
+    }
+
     /**
      * Sets a {@code String} config value by updating the existing row or inserting a new one.
      * @param property The property name.
@@ -0,0 +1,227 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import io.github.demonfiddler.ee.server.util.DataVersion;
+
+/**
+ * A bounded, on-disk cache of rendered exports. Entries are keyed on a hash of the normalised export parameters and
+ * the {@link DataVersion data version}, so any change to the data makes every existing entry unreachable; such stale
+ * entries are discarded as new ones are added. The key also serves as the response's entity tag.
+ */
+@Component
+public class ExportCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportCache.class);
+
+    /**
+     * A cached export.
+     * @param path The cached file.
+     * @param fileName The name under which to download the file.
+     * @param contentType The file's content type.
+     * @param length The file's length in bytes.
+     * @param version The data version from which the export was rendered.
+     */
+    public record Entry(Path path, String fileName, String contentType, long length, long version) {
+    }
+
+    /**
+     * A cached export opened for reading. The caller must close it.
+     * @param entry The cached export.
+     * @param in The cached file's content.
+     */
+    public record OpenEntry(Entry entry, InputStream in) implements AutoCloseable {
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+    }
+
+    private final DataVersion dataVersion;
+    private final Path cacheDir;
+    /** Cached exports keyed on hash, in least recently used order. Guarded by itself. */
+    private final Map<String, Entry> entries;
+
+    public ExportCache(DataVersion dataVersion, @Value("${data.server.tmpdir}") String tmpdir,
+        @Value("${export.cache.max-entries:100}") int maxEntries) {
+
+        this.dataVersion = dataVersion;
+        this.cacheDir = Paths.get(tmpdir, "export-cache");
+        this.entries = new LinkedHashMap<>(16, 0.75F, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxEntries)
+                    return false;
+                deleteFile(eldest.getValue().path());
+                return true;
+            }
+
+        };
+
+        // The cache index is held in memory, so any files left over from a previous run are orphans.
+        try {
+            Files.createDirectories(cacheDir);
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                files.forEach(this::deleteFile);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to prepare export cache directory " + cacheDir, e);
+        }
+    }
+
+    /**
+     * Computes the cache key for an export from the current data version and the export's normalised parameters.
+     * @param params The export parameters, including anything else on which the rendered output depends. The order
+     * must be the same for every call.
+     * @return The cache key, a hexadecimal string.
+     */
+    public String key(Object... params) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(Long.toString(dataVersion.get()).getBytes(UTF_8));
+        for (Object param : params) {
+            // Separate the values unambiguously, so that a null cannot be confused with the string "null".
+            digest.update((byte)0);
+            if (param != null)
+                digest.update(param.toString().getBytes(UTF_8));
+            else
+                digest.update((byte)1);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Opens a cached export for reading. The file is opened while the cache is locked, so a concurrent eviction cannot
+     * delete it between lookup and opening; an eviction thereafter does not affect the open file.
+     * @param key The cache key.
+     * @return The open cached export, or {@code null} if there is none.
+     */
+    public OpenEntry open(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null)
+                return null;
+            try {
+                return new OpenEntry(entry, Files.newInputStream(entry.path()));
+            } catch (IOException e) {
+                LOGGER.warn("Failed to open cached export " + entry.path(), e);
+                entries.remove(key);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Wraps an export's body so that, as well as writing the output to the response, it also caches it. The output is
+     * only cached if it is written completely.
+     * @param key The cache key.
+     * @param fileName The name under which to download the output.
+     * @param contentType The output content type.
+     * @param body Renders the output.
+     * @return A body that renders and caches the output.
+     */
+    public StreamingResponseBody caching(String key, String fileName, String contentType, StreamingResponseBody body) {
+        long version = dataVersion.get();
+        return out -> {
+            Path tmpFile = cacheDir.resolve(UUID.randomUUID() + ".tmp");
+            try (OutputStream fileOut = Files.newOutputStream(tmpFile)) {
+                OutputStream tee = new FilterOutputStream(out) {
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        out.write(b);
+                        fileOut.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                        fileOut.write(b, off, len);
+                    }
+
+                };
+                body.writeTo(tee);
+            } catch (IOException | RuntimeException e) {
+                deleteFile(tmpFile);
+                throw e;
+            }
+            Path file = cacheDir.resolve(key);
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            put(key, new Entry(file, fileName, contentType, Files.size(file), version));
+        };
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (entries) {
+            // Entries rendered from an earlier data version can no longer be requested.
+            long version = dataVersion.get();
+            entries.values().removeIf(e -> {
+                if (e.version() == version || e.path().equals(entry.path()))
+                    return false;
+                deleteFile(e.path());
+                return true;
+            });
+            entries.put(key, entry);
+        }
+        LOGGER.debug("Cached export {} as {}", entry.fileName(), key);
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete cached export " + file, e);
+        }
+    }
+
+}
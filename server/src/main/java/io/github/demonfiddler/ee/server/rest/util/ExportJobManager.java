@@ -0,0 +1,282 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Component;
+
+import io.github.demonfiddler.ee.server.rest.model.ExportJob;
+import io.github.demonfiddler.ee.server.rest.model.ExportJob.StatusEnum;
+import io.github.demonfiddler.ee.server.util.SecurityUtils;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs export jobs in the background, writing each export to a file under {@code data.server.tmpdir} from which it
+ * can later be downloaded. Jobs run on a dedicated, bounded thread pool, so that a burst of large exports can neither
+ * tie up request threads nor starve GraphQL traffic. Finished jobs and their files are discarded periodically once
+ * they have outlived a configurable retention period.
+ */
+@Component
+public class ExportJobManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportJobManager.class);
+
+    /**
+     * Renders an export.
+     */
+    @FunctionalInterface
+    public interface ExportTask {
+
+        /**
+         * Renders an export to an output stream.
+         * @param progress The counter to increment as each record is rendered.
+         * @param out The stream to which to write the export.
+         * @return The exported file's name and content type.
+         * @throws IOException if the export could not be written.
+         */
+        ExportResult run(LongAdder progress, OutputStream out) throws IOException;
+
+    }
+
+    /**
+     * The outcome of a successful export.
+     * @param fileName The name under which to download the exported file.
+     * @param contentType The exported file's content type.
+     */
+    public record ExportResult(String fileName, String contentType) {
+    }
+
+    /**
+     * A completed job's file, for download.
+     * @param path The file path.
+     * @param fileName The name under which to download the file.
+     * @param contentType The file's content type.
+     */
+    public record ExportFile(Path path, String fileName, String contentType) {
+    }
+
+    private static final class Job {
+
+        final String id;
+        final String owner;
+        final String recordKind;
+        final String contentType;
+        final Path file;
+        final LongAdder progress = new LongAdder();
+        volatile StatusEnum status = StatusEnum.QUEUED;
+        volatile ExportResult result;
+        volatile String error;
+        volatile Instant finished;
+
+        Job(String id, String owner, String recordKind, String contentType, Path file) {
+            this.id = id;
+            this.owner = owner;
+            this.recordKind = recordKind;
+            this.contentType = contentType;
+            this.file = file;
+        }
+
+        ExportJob toExportJob() {
+            ExportResult result = this.result;
+            return new ExportJob() //
+                .id(id) //
+                .status(status) //
+                .recordKind(recordKind) //
+                .contentType(contentType) //
+                .rowsRendered(progress.sum()) //
+                .fileName(result != null ? result.fileName() : null) //
+                .error(error);
+        }
+
+    }
+
+    private final SecurityUtils securityUtils;
+    private final ExecutorService executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Path exportDir;
+    private final Duration retention;
+    private final Duration shutdownTimeout;
+
+    public ExportJobManager(SecurityUtils securityUtils, @Value("${data.server.tmpdir}") String tmpdir,
+        @Value("${export.jobs.concurrency:2}") int concurrency,
+        @Value("${export.jobs.queue-capacity:20}") int queueCapacity,
+        @Value("${export.jobs.retention-minutes:60}") long retentionMinutes,
+        @Value("${export.jobs.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds) {
+
+        this.securityUtils = securityUtils;
+        this.exportDir = Paths.get(tmpdir, "exports");
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.shutdownTimeout = Duration.ofSeconds(shutdownTimeoutSeconds);
+
+        AtomicInteger threadNum = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread thread = new Thread(r, "export-job-" + threadNum.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        // Job state is held in memory, so any files left over from a previous run are orphans.
+        try {
+            Files.createDirectories(exportDir);
+            try (Stream<Path> files = Files.list(exportDir)) {
+                files.forEach(this::deleteFile);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to prepare export directory " + exportDir, e);
+        }
+    }
+
+    /**
+     * Submits an export job for the current user.
+     * @param recordKind The exported list's record type.
+     * @param contentType The requested content type.
+     * @param task The task that renders the export.
+     * @return The new job.
+     * @throws RejectedExecutionException if the job queue is full.
+     */
+    public ExportJob submit(String recordKind, String contentType, ExportTask task) {
+        purgeExpiredJobs();
+
+        String id = UUID.randomUUID().toString();
+        Job job = new Job(id, securityUtils.getCurrentUsername(), recordKind, contentType, exportDir.resolve(id));
+        jobs.put(id, job);
+        try {
+            // The task must run with the submitting user's privileges.
+            executor.execute(new DelegatingSecurityContextRunnable(() -> run(job, task)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            throw e;
+        }
+        LOGGER.debug("Submitted export job {} for {} as {}", id, recordKind, contentType);
+        return job.toExportJob();
+    }
+
+    private void run(Job job, ExportTask task) {
+        job.status = StatusEnum.RUNNING;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(job.file))) {
+            job.result = task.run(job.progress, out);
+            job.status = StatusEnum.COMPLETED;
+            LOGGER.debug("Export job {} completed: {} records", job.id, job.progress.sum());
+        } catch (Exception e) {
+            LOGGER.error("Export job " + job.id + " failed", e);
+            job.error = e.getMessage();
+            job.status = StatusEnum.FAILED;
+            deleteFile(job.file);
+        } finally {
+            job.finished = Instant.now();
+        }
+    }
+
+    /**
+     * Returns the current state of one of the current user's jobs.
+     * @param id The job identifier.
+     * @return The job, or {@code null} if there is no such job for the current user.
+     */
+    public ExportJob getJob(String id) {
+        Job job = findJob(id);
+        return job != null ? job.toExportJob() : null;
+    }
+
+    /**
+     * Returns the file exported by one of the current user's completed jobs.
+     * @param id The job identifier.
+     * @return The exported file, or {@code null} if there is no such completed job for the current user.
+     */
+    public ExportFile getFile(String id) {
+        Job job = findJob(id);
+        if (job == null || job.status != StatusEnum.COMPLETED)
+            return null;
+        return new ExportFile(job.file, job.result.fileName(), job.result.contentType());
+    }
+
+    private Job findJob(String id) {
+        Job job = jobs.get(id);
+        return job != null && job.owner.equals(securityUtils.getCurrentUsername()) ? job : null;
+    }
+
+    /**
+     * Discards finished jobs and their files once they have outlived the retention period. Runs periodically, so that
+     * expired files do not accumulate while no new jobs are being submitted.
+     */
+    @Scheduled(fixedDelayString = "${export.jobs.purge-interval-minutes:5}", timeUnit = TimeUnit.MINUTES)
+    void purgeExpiredJobs() {
+        Instant expiry = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            Instant finished = job.finished;
+            if (finished == null || finished.isAfter(expiry))
+                return false;
+            deleteFile(job.file);
+            return true;
+        });
+    }
+
+    /**
+     * Shuts down the job thread pool, allowing running jobs a grace period in which to finish before interrupting them.
+     * Queued jobs are abandoned.
+     */
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                int abandoned = executor.shutdownNow().size();
+                LOGGER.warn("Export jobs did not finish within {}; interrupted running jobs and abandoned {} queued",
+                    shutdownTimeout, abandoned);
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete export file " + file, e);
+        }
+    }
+
+}
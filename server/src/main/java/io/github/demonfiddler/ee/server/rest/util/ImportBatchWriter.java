@@ -0,0 +1,296 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.demonfiddler.ee.server.model.EntityKind;
+import io.github.demonfiddler.ee.server.model.PublicationInput;
+import io.github.demonfiddler.ee.server.model.StatusKind;
+import io.github.demonfiddler.ee.server.model.TransactionKind;
+import io.github.demonfiddler.ee.server.model.User;
+import io.github.demonfiddler.ee.server.repository.UserRepository;
+import io.github.demonfiddler.ee.server.util.DataVersion;
+import io.github.demonfiddler.ee.server.util.PersonNameIndex;
+import io.github.demonfiddler.ee.server.util.SearchIndex;
+
+/**
+ * Inserts imported publications, their links and the corresponding log rows using JDBC batches, one transaction per
+ * batch. The rows written are the same as those written by the {@code createPublication} and {@code createEntityLink}
+ * mutations, but each table receives one batched statement per batch instead of one round trip per row. The caller is
+ * responsible for ensuring that the inputs reference existing journals and publishers and that the requested links
+ * conform to the linkage rules.
+ */
+@Component
+public class ImportBatchWriter {
+
+    /**
+     * The identifiers assigned to an inserted publication and its links.
+     * @param publicationId The publication ID.
+     * @param topicLinkId The ID of the link from the master topic, or {@code null} if none was requested.
+     * @param recordLinkId The ID of the link to or from the master record, or {@code null} if none was requested.
+     */
+    public record InsertedPublication(long publicationId, Long topicLinkId, Long recordLinkId) {
+    }
+
+    /** A link to be inserted. */
+    private record LinkRow(long fromEntityId, long toEntityId) {
+    }
+
+    /** A log row to be inserted. */
+    private record LogRow(TransactionKind transactionKind, long entityId, Long linkedEntityId) {
+    }
+
+    private static final String INSERT_ENTITY = """
+        INSERT INTO "entity" ("dtype", "status", "rating", "created", "created_by_user_id")
+        VALUES (?, ?, ?, ?, ?)""";
+    private static final String INSERT_PUBLICATION = """
+        INSERT INTO "publication" ("id", "title", "authors", "journal_id", "publisher_id", "kind",
+        "date", "year", "keywords", "abstract", "notes", "peer_reviewed", "doi", "isbn", "pmcid", "pmid", "hsid",
+        "arxivid", "biorxivid", "medrxivid", "ericid", "ihepid", "oaipmhid", "halid", "zenodoid", "scopuseid", "wsan",
+        "pinfoan", "url", "cached", "accessed")
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String INSERT_ENTITY_LINK =
+        "INSERT INTO \"entity_link\" (\"id\", \"from_entity_id\", \"to_entity_id\") VALUES (?, ?, ?)";
+    private static final String INSERT_LOG = """
+        INSERT INTO "log" ("timestamp", "user_id", "transaction_kind", "entity_id", "linked_entity_id")
+        VALUES (?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate txTemplate;
+    private final UserRepository userRepository;
+    private final DataVersion dataVersion;
+    private final SearchIndex searchIndex;
+    private final PersonNameIndex personNameIndex;
+
+    public ImportBatchWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager txManager,
+        UserRepository userRepository, DataVersion dataVersion, SearchIndex searchIndex,
+        PersonNameIndex personNameIndex) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.txTemplate = new TransactionTemplate(txManager);
+        this.userRepository = userRepository;
+        this.dataVersion = dataVersion;
+        this.searchIndex = searchIndex;
+        this.personNameIndex = personNameIndex;
+    }
+
+    /**
+     * Inserts a batch of publications in a single transaction, optionally linking each one to a master topic and/or
+     * a master record. If any row fails, the entire batch is rolled back.
+     * @param inputs The publications to insert.
+     * @param masterTopicId The ID of the topic to link each publication from, or {@code null}.
+     * @param fromMasterEntityId The ID of the record to link each publication from, or {@code null}.
+     * @param toMasterEntityId The ID of the record to link each publication to, or {@code null}.
+     * @return The identifiers assigned, in the same order as {@code inputs}.
+     * @throws org.springframework.dao.DataAccessException if the batch could not be inserted.
+     */
+    public List<InsertedPublication> insertPublications(List<PublicationInput> inputs, Long masterTopicId,
+        Long fromMasterEntityId, Long toMasterEntityId) {
+
+        return txTemplate.execute(_ -> {
+            User user = userRepository.getCurrentUser().get();
+            Timestamp created = Timestamp.from(OffsetDateTime.now().toInstant());
+
+            List<Long> publicationIds =
+                insertEntities(EntityKind.PUB, inputs.size(), i -> inputs.get(i).getRating(), created, user.getId());
+            jdbcTemplate.batchUpdate(INSERT_PUBLICATION, new BatchPreparedStatementSetter() {
+
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    setPublicationValues(ps, publicationIds.get(i), inputs.get(i));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return inputs.size();
+                }
+
+            });
+            personNameIndex.insert(EntityKind.PUB, publicationIds,
+                inputs.stream().map(PublicationInput::getAuthorNames).toList());
+
+            List<LogRow> logRows = new ArrayList<>();
+            List<LinkRow> linkRows = new ArrayList<>();
+            Long masterEntityId = fromMasterEntityId != null ? fromMasterEntityId : toMasterEntityId;
+            for (long publicationId : publicationIds) {
+                logRows.add(new LogRow(TransactionKind.CRE, publicationId, null));
+                if (masterTopicId != null)
+                    linkRows.add(new LinkRow(masterTopicId, publicationId));
+                if (masterEntityId != null) {
+                    linkRows.add(new LinkRow(fromMasterEntityId != null ? fromMasterEntityId : publicationId,
+                        toMasterEntityId != null ? toMasterEntityId : publicationId));
+                }
+            }
+
+            List<Long> linkIds = insertEntities(EntityKind.LNK, linkRows.size(), _ -> null, created, user.getId());
+            jdbcTemplate.batchUpdate(INSERT_ENTITY_LINK, new BatchPreparedStatementSetter() {
+
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    LinkRow linkRow = linkRows.get(i);
+                    ps.setLong(1, linkIds.get(i));
+                    ps.setLong(2, linkRow.fromEntityId());
+                    ps.setLong(3, linkRow.toEntityId());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return linkRows.size();
+                }
+
+            });
+            for (int i = 0; i < linkRows.size(); i++) {
+                LinkRow linkRow = linkRows.get(i);
+                logRows.add(new LogRow(TransactionKind.CRE, linkIds.get(i), null));
+                logRows.add(new LogRow(TransactionKind.LNK, linkRow.fromEntityId(), linkRow.toEntityId()));
+                logRows.add(new LogRow(TransactionKind.LNK, linkRow.toEntityId(), linkRow.fromEntityId()));
+            }
+
+            jdbcTemplate.batchUpdate(INSERT_LOG, new BatchPreparedStatementSetter() {
+
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    LogRow logRow = logRows.get(i);
+                    ps.setTimestamp(1, created);
+                    ps.setLong(2, user.getId());
+                    ps.setString(3, logRow.transactionKind().name());
+                    ps.setLong(4, logRow.entityId());
+                    ps.setObject(5, logRow.linkedEntityId());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return logRows.size();
+                }
+
+            });
+            dataVersion.increment();
+            searchIndex.update(EntityKind.PUB.name(), publicationIds);
+            searchIndex.update(EntityKind.LNK.name(), linkIds);
+
+            List<InsertedPublication> result = new ArrayList<>(inputs.size());
+            int linkIdx = 0;
+            for (long publicationId : publicationIds) {
+                Long topicLinkId = masterTopicId != null ? linkIds.get(linkIdx++) : null;
+                Long recordLinkId = masterEntityId != null ? linkIds.get(linkIdx++) : null;
+                result.add(new InsertedPublication(publicationId, topicLinkId, recordLinkId));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Inserts base {@code "entity"} rows in a single batch.
+     * @param entityKind The entity kind (discriminator) of the rows to insert.
+     * @param count The number of rows to insert.
+     * @param ratings Supplies the rating for each row, which may be {@code null}.
+     * @param created The creation timestamp.
+     * @param userId The ID of the creating user.
+     * @return The generated entity IDs, in insertion order.
+     */
+    private List<Long> insertEntities(EntityKind entityKind, int count, IntFunction<Integer> ratings,
+        Timestamp created, Long userId) {
+
+        if (count == 0)
+            return List.of();
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_ENTITY, new String[] { "id" }),
+            new BatchPreparedStatementSetter() {
+
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setString(1, entityKind.name());
+                    ps.setString(2, StatusKind.DRA.name());
+                    ps.setObject(3, ratings.apply(i));
+                    ps.setTimestamp(4, created);
+                    ps.setLong(5, userId);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+
+            }, keyHolder);
+
+        List<Map<String, Object>> keyList = keyHolder.getKeyList();
+        if (keyList.size() != count) {
+            throw new IllegalStateException(
+                "Expected " + count + " generated keys for " + entityKind + " entities but got " + keyList.size());
+        }
+        List<Long> ids = new ArrayList<>(count);
+        for (Map<String, Object> keys : keyList)
+            ids.add(((Number)keys.values().iterator().next()).longValue());
+        return ids;
+    }
+
+    private void setPublicationValues(PreparedStatement ps, long id, PublicationInput input) throws SQLException {
+        int i = 1;
+        ps.setLong(i++, id);
+        ps.setString(i++, input.getTitle());
+        ps.setString(i++, input.getAuthorNames());
+        ps.setObject(i++, input.getJournalId());
+        ps.setObject(i++, input.getPublisherId());
+        ps.setString(i++, input.getKind() == null ? null : input.getKind().name());
+        ps.setObject(i++, input.getDate());
+        ps.setObject(i++, input.getYear());
+        ps.setString(i++, input.getKeywords());
+        ps.setString(i++, input.getAbstract());
+        ps.setString(i++, input.getNotes());
+        ps.setObject(i++, input.getPeerReviewed());
+        ps.setString(i++, input.getDoi());
+        ps.setString(i++, input.getIsbn());
+        ps.setString(i++, input.getPmcid());
+        ps.setString(i++, input.getPmid());
+        ps.setString(i++, input.getHsid());
+        ps.setString(i++, input.getArxivid());
+        ps.setString(i++, input.getBiorxivid());
+        ps.setString(i++, input.getMedrxivid());
+        ps.setString(i++, input.getEricid());
+        ps.setString(i++, input.getIhepid());
+        ps.setString(i++, input.getOaipmhid());
+        ps.setString(i++, input.getHalid());
+        ps.setString(i++, input.getZenodoid());
+        ps.setString(i++, input.getScopuseid());
+        ps.setString(i++, input.getWsan());
+        ps.setString(i++, input.getPinfoan());
+        ps.setString(i++, input.getUrl() == null ? null : input.getUrl().toString());
+        ps.setObject(i++, input.getCached() != null ? input.getCached() : Boolean.FALSE);
+        ps.setObject(i, input.getAccessed());
+    }
+
+}
@@ -23,23 +23,136 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import io.github.demonfiddler.ee.common.util.StringUtils;
 import io.github.demonfiddler.ee.server.model.Abbreviation;
 import io.github.demonfiddler.ee.server.repository.AbbreviationRepository;
 
+/**
+ * Abbreviates journal titles according to ISO 4, using the ISSN List of Title Word Abbreviations (LTWA) held in the
+ * {@code "abbreviation"} table. The LTWA is loaded into memory at startup: exact words into a hash map, prefix entries
+ * into a prefix trie and suffix entries into a trie of reversed suffixes, so that abbreviating a title needs no
+ * database access. The snapshot is replaced when a transaction that changes the table commits (see
+ * {@link #invalidate()}).
+ */
 @Component
 public class Iso4Utils {
 
+    /**
+     * A character trie of LTWA entries. Each node holds its children in parallel arrays sorted by character, which
+     * keeps the tens of thousands of nodes needed for the LTWA compact.
+     */
+    private static final class Trie {
+
+        private static final char[] NO_CHARS = {};
+        private static final Trie[] NO_CHILDREN = {};
+
+        private char[] chars = NO_CHARS;
+        private Trie[] children = NO_CHILDREN;
+        private List<Abbreviation> abbreviations;
+
+        /**
+         * Adds an abbreviation to the trie.
+         * @param key The (folded) key under which to add it.
+         * @param abbreviation The abbreviation.
+         */
+        void add(String key, Abbreviation abbreviation) {
+            Trie node = this;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                int idx = Arrays.binarySearch(node.chars, c);
+                if (idx < 0) {
+                    idx = -idx - 1;
+                    int n = node.chars.length;
+                    char[] chars = new char[n + 1];
+                    Trie[] children = new Trie[n + 1];
+                    System.arraycopy(node.chars, 0, chars, 0, idx);
+                    System.arraycopy(node.children, 0, children, 0, idx);
+                    System.arraycopy(node.chars, idx, chars, idx + 1, n - idx);
+                    System.arraycopy(node.children, idx, children, idx + 1, n - idx);
+                    chars[idx] = c;
+                    children[idx] = new Trie();
+                    node.chars = chars;
+                    node.children = children;
+                }
+                node = node.children[idx];
+            }
+            if (node.abbreviations == null)
+                node.abbreviations = new ArrayList<>(1);
+            node.abbreviations.add(abbreviation);
+        }
+
+        /**
+         * Collects the abbreviations of every key that is a prefix of the given string.
+         * @param s The (folded) string to match.
+         * @param reverse Whether to match {@code s} from its last character backwards.
+         * @param matches Receives the matching abbreviations.
+         */
+        void collect(String s, boolean reverse, List<Abbreviation> matches) {
+            Trie node = this;
+            int len = s.length();
+            for (int i = 0; i < len; i++) {
+                int idx = Arrays.binarySearch(node.chars, s.charAt(reverse ? len - 1 - i : i));
+                if (idx < 0)
+                    return;
+                node = node.children[idx];
+                if (node.abbreviations != null)
+                    matches.addAll(node.abbreviations);
+            }
+        }
+
+    }
+
+    /**
+     * An immutable in-memory snapshot of the LTWA.
+     * @param version The {@code Iso4Utils} version from which the snapshot was loaded.
+     * @param exact All entries, keyed by folded word.
+     * @param prefixes Prefix entries, keyed by folded word less its trailing hyphen.
+     * @param suffixes Suffix entries, keyed by reversed folded word less its leading hyphen.
+     * @param abbreviations The folded abbreviations.
+     */
+    private record Ltwa(long version, Map<String, List<Abbreviation>> exact, Trie prefixes, Trie suffixes,
+        Set<String> abbreviations) {
+
+        static final Ltwa EMPTY = new Ltwa(0, Map.of(), new Trie(), new Trie(), Set.of());
+
+        /**
+         * Returns all entries matching a word: exact, prefix and suffix matches.
+         * @param word The word to match.
+         * @return The matching entries.
+         */
+        List<Abbreviation> findByWord(String word) {
+            String key = fold(word);
+            List<Abbreviation> matches = new ArrayList<>(exact.getOrDefault(key, List.of()));
+            prefixes.collect(key, false, matches);
+            suffixes.collect(key, true, matches);
+            return matches;
+        }
+
+    }
+
     private static final Logger LOGGER = LoggerFactory.getLogger(Iso4Utils.class);
     /** Words to omit from ISO 4 abbreviations. Includes articles, conjunctions, prepositions and other words. */
     public static final Set<String> ISO4_OMIT_WORDS;
@@ -59,12 +172,102 @@ public class Iso4Utils {
         ISO4_OMIT_WORDS = Collections.unmodifiableSet(words);
     }
 
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
     private final AbbreviationRepository abbreviationRepository;
+    /** Incremented whenever committed changes to the abbreviation table make the current snapshot stale. */
+    private final AtomicLong version = new AtomicLong(1);
+    private final AtomicReference<Ltwa> snapshot = new AtomicReference<>(Ltwa.EMPTY);
 
     public Iso4Utils(AbbreviationRepository abbreviationRepository) {
         this.abbreviationRepository = abbreviationRepository;
     }
 
+    /**
+     * Folds a word or abbreviation for comparison, much as the database's case- and accent-insensitive collation does.
+     * @param s The string to fold.
+     * @return {@code s} in lower case, without diacritics.
+     */
+    private static String fold(String s) {
+        s = s.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0x7F)
+                return DIACRITICS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+        }
+        return s;
+    }
+
+    /**
+     * Loads the LTWA at startup, so that the first import does not pay for it.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void onContextRefreshed() {
+        ltwa();
+    }
+
+    /**
+     * Marks the LTWA snapshot as stale once the current transaction (if any) commits, then reloads it. Call this after
+     * changing the abbreviation table.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                    refresh();
+                }
+
+            });
+        } else {
+            version.incrementAndGet();
+            refresh();
+        }
+    }
+
+    /**
+     * Returns the current LTWA snapshot, loading it first if it is stale.
+     * @return The LTWA.
+     */
+    private Ltwa ltwa() {
+        Ltwa ltwa = snapshot.get();
+        return ltwa.version() < version.get() ? refresh() : ltwa;
+    }
+
+    /**
+     * Loads a new LTWA snapshot and publishes it, unless a concurrent refresh has already published a newer one.
+     * @return The newest LTWA snapshot.
+     */
+    private Ltwa refresh() {
+        long ltwaVersion = version.get();
+        Ltwa newLtwa = load(ltwaVersion);
+        Ltwa ltwa = snapshot.updateAndGet(cur -> cur.version() >= ltwaVersion ? cur : newLtwa);
+        if (ltwa == newLtwa)
+            LOGGER.debug("Loaded {} LTWA abbreviations", newLtwa.exact().size());
+        return ltwa;
+    }
+
+    private Ltwa load(long ltwaVersion) {
+        List<Abbreviation> abbreviations = abbreviationRepository.findAll();
+        Map<String, List<Abbreviation>> exact = HashMap.newHashMap(abbreviations.size());
+        Trie prefixes = new Trie();
+        Trie suffixes = new Trie();
+        Set<String> abbrevs = HashSet.newHashSet(abbreviations.size());
+        for (Abbreviation abbreviation : abbreviations) {
+            String word = fold(abbreviation.getWord());
+            exact.computeIfAbsent(word, _ -> new ArrayList<>(1)).add(abbreviation);
+            // The trailing hyphen of a prefix entry and the leading hyphen of a suffix entry are not matched.
+            if (abbreviation.isPrefix() && word.length() > 1)
+                prefixes.add(word.substring(0, word.length() - 1), abbreviation);
+            if (abbreviation.isSuffix() && word.length() > 1)
+                suffixes.add(new StringBuilder(word.substring(1)).reverse().toString(), abbreviation);
+            if (abbreviation.getAbbreviation() != null)
+                abbrevs.add(fold(abbreviation.getAbbreviation()));
+        }
+        return new Ltwa(ltwaVersion, exact, prefixes, suffixes, abbrevs);
+    }
+
     /**
      * Abbreviates a journal title using ISO 4 abbreviation rules.
      * @param title The unabbreviated title.
@@ -160,10 +363,20 @@ public class Iso4Utils {
     }
 
     private boolean isAbbreviation(String word) {
-        word = word.toLowerCase();
+        word = fold(word);
         if (!word.endsWith("."))
             word += '.';
-        return abbreviationRepository.existsByAbbreviation(word);
+        return ltwa().abbreviations().contains(word);
+    }
+
+    /**
+     * Returns all LTWA entries matching a word: exact, prefix and suffix matches, as the {@code LIKE} query that
+     * {@code AbbreviationRepository} used to run would have returned.
+     * @param word The word to match.
+     * @return The matching entries.
+     */
+    List<Abbreviation> findByWord(String word) {
+        return ltwa().findByWord(word);
     }
 
     /**
@@ -172,7 +385,7 @@ public class Iso4Utils {
      * @return The longest matching abbreviation, in priority order: exact, combined prefix/suffix, prefix, suffix.
      */
     private Abbreviation abbreviationFor(String word) {
-        List<Abbreviation> abbreviations = abbreviationRepository.findByWord(word);
+        List<Abbreviation> abbreviations = findByWord(word);
         Abbreviation exact = null;
         Abbreviation psfix = null;
         Abbreviation prefix = null;
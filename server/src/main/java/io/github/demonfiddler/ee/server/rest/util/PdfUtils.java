@@ -0,0 +1,203 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openpdf.pdf.ITextFontResolver;
+import org.openpdf.pdf.ITextRenderer;
+import org.openpdf.text.Anchor;
+import org.openpdf.text.Chunk;
+import org.openpdf.text.Document;
+import org.openpdf.text.Element;
+import org.openpdf.text.Font;
+import org.openpdf.text.Phrase;
+import org.openpdf.text.Rectangle;
+import org.openpdf.text.pdf.BaseFont;
+import org.openpdf.text.pdf.ColumnText;
+import org.openpdf.text.pdf.PdfContentByte;
+import org.openpdf.text.pdf.PdfPageEventHelper;
+import org.openpdf.text.pdf.PdfWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Renders HTML documents as PDF. Creating a renderer and parsing the embedded fonts is expensive, so a bounded pool of
+ * renderers is created at startup and reused. The pool size also limits the number of PDFs rendered concurrently, and
+ * hence the memory they consume. A large export can be supplied as a sequence of HTML documents, each of which is laid
+ * out separately and appended to the same PDF, so that only one document's DOM is held in memory at a time.
+ */
+@Component
+public class PdfUtils {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PdfUtils.class);
+    /** The fonts to embed in generated PDFs. */
+    private static final String[] FONTS = { "/fonts/DejaVuSans.ttf" /*, "/fonts/LiberationSans-Regular.ttf"*/ };
+
+    /** Idle renderers, each with the embedded fonts already loaded. */
+    private final BlockingQueue<ITextRenderer> renderers;
+    /** The maximum number of seconds to wait for an idle renderer. */
+    private final long timeout;
+    /** The font used for page headers and footers. */
+    private final BaseFont pageFont;
+    private final String webServerUrl;
+
+    public PdfUtils(@Value("${pdf.renderer.pool-size:2}") int poolSize,
+        @Value("${pdf.renderer.timeout:60}") long timeout, @Value("${web.server.url}") String webServerUrl) {
+
+        this.renderers = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++)
+            renderers.add(newRenderer());
+        this.timeout = timeout;
+        try {
+            this.pageFont = BaseFont.createFont();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to load font", e);
+        }
+        this.webServerUrl = webServerUrl;
+    }
+
+    private ITextRenderer newRenderer() {
+        ITextRenderer renderer = new ITextRenderer();
+        ITextFontResolver resolver = renderer.getFontResolver();
+        try {
+            for (String font : FONTS)
+                resolver.addFont(font, BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to load font", e);
+        }
+        return renderer;
+    }
+
+    /**
+     * Renders a sequence of HTML documents as a single PDF, each document starting on a new page. The documents are
+     * requested from the iterator one at a time, as each previous document has been written out.
+     * @param documents The HTML documents to render, of which there must be at least one.
+     * @param title The title to show in each page header.
+     * @param timestamp The timestamp to show in each page footer.
+     * @param fontSize The header and footer font size, in points.
+     * @param out The stream to which to write the PDF.
+     * @throws IOException if the PDF could not be written.
+     */
+    public void render(Iterator<String> documents, String title, String timestamp, int fontSize, OutputStream out)
+        throws IOException {
+
+        if (!documents.hasNext())
+            throw new IllegalArgumentException("No documents to render");
+
+        ITextRenderer renderer;
+        try {
+            renderer = renderers.poll(timeout, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a PDF renderer", e);
+        }
+        if (renderer == null)
+            throw new IllegalStateException("Timed out waiting for a PDF renderer");
+
+        boolean completed = false;
+        try {
+            renderer.setPdfPageEvent(new PageDecorator(title, timestamp, new Font(pageFont, fontSize)));
+            int count = 0;
+            do {
+                renderer.setDocumentFromString(documents.next());
+                // As an alternative to placing a CSS @Page rule in the HTML:
+                // ((ITextOutputDevice)renderer.getOutputDevice()).setPageSize(PageSize.A4/*.rotate()*/);
+                renderer.layout();
+                if (count++ == 0)
+                    renderer.createPDF(out, false);
+                else
+                    renderer.writeNextDocument();
+            } while (documents.hasNext());
+            renderer.finishPDF();
+            completed = true;
+
+            LOGGER.debug("Rendered {} HTML document(s) as PDF", count);
+        } finally {
+            renderer.setPdfPageEvent(null);
+            // A renderer that failed part way through may be left in an inconsistent state, so replace it.
+            renderers.add(completed ? renderer : newRenderer());
+        }
+    }
+
+    /**
+     * Draws the header and footer on each page.
+     */
+    private class PageDecorator extends PdfPageEventHelper {
+
+        private final String title;
+        private final String timestamp;
+        private final Font font;
+
+        PageDecorator(String title, String timestamp, Font font) {
+            this.title = title;
+            this.timestamp = timestamp;
+            this.font = font;
+        }
+
+        @Override
+        public void onEndPage(PdfWriter writer, Document document) {
+            try {
+                LOGGER.debug("onEndPage page " + writer.getPageNumber());
+                Rectangle pageSize = document.getPageSize();
+                float leftX = pageSize.getLeft() + 35;
+                float centerX = (pageSize.getLeft() + pageSize.getRight()) / 2;
+                float rightX = pageSize.getRight() - 35;
+                float footerY = pageSize.getBottom() + 25;
+                PdfContentByte cb = writer.getDirectContent();
+
+                // Header
+                ColumnText.showTextAligned(cb, Element.ALIGN_CENTER, new Phrase(title, font), centerX,
+                    pageSize.getTop() - 30, 0);
+
+                // Left footer
+                ColumnText.showTextAligned(cb, Element.ALIGN_LEFT, new Phrase(timestamp, font), leftX, footerY, 0);
+
+                // Centre footer
+                Phrase centrePhrase = new Phrase();
+                centrePhrase.setFont(font);
+                centrePhrase.add(new Chunk("From ", font));
+                Font linkFont = new Font(font);
+                linkFont.setColor(Color.BLUE);
+                linkFont.setStyle(Font.UNDERLINE);
+                Anchor anchor = new Anchor("Evidence Engine", linkFont);
+                anchor.setReference(webServerUrl);
+                centrePhrase.add(anchor);
+                ColumnText.showTextAligned(cb, Element.ALIGN_CENTER, centrePhrase, centerX, footerY, 0);
+
+                // Right footer
+                ColumnText.showTextAligned(cb, Element.ALIGN_RIGHT, new Phrase("Page " + writer.getPageNumber(), font),
+                    rightX, footerY, 0);
+            } catch (Exception e) {
+                LOGGER.error("Error processing page end", e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,57 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.security;
+
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.stereotype.Component;
+
+import io.github.demonfiddler.ee.server.util.AccessContext;
+import io.github.demonfiddler.ee.server.util.AccessContextAccessor;
+import io.github.demonfiddler.ee.server.util.SecurityUtils;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resolves the caller's {@link AccessContext} once per GraphQL execution and places it in the {@code GraphQLContext},
+ * keyed on {@link AccessContextAccessor#KEY}, whence data fetchers read it via
+ * {@link SecurityUtils#getAccessContext(graphql.schema.DataFetchingEnvironment)} and repositories via
+ * {@link SecurityUtils#getAccessContext()}.
+ */
+@Component
+public class AccessContextInterceptor implements WebGraphQlInterceptor {
+
+    private final SecurityUtils securityUtils;
+
+    public AccessContextInterceptor(SecurityUtils securityUtils) {
+        this.securityUtils = securityUtils;
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        AccessContext accessContext = securityUtils.getAccessContext();
+        request.configureExecutionInput((executionInput, _) -> {
+            executionInput.getGraphQLContext().put(AccessContextAccessor.KEY, accessContext);
+            return executionInput;
+        });
+        return chain.next(request);
+    }
+
+}
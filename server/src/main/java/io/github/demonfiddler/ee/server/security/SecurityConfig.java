@@ -53,6 +53,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import io.github.demonfiddler.ee.server.repository.JdbcTokenRepositoryImplEx;
 import io.github.demonfiddler.ee.server.repository.JdbcUserDetailsManagerEx;
+import io.github.demonfiddler.ee.server.security.jwt.JwtAuthenticationCache;
 import io.github.demonfiddler.ee.server.security.jwt.JwtAuthenticationFilter;
 import io.github.demonfiddler.ee.server.security.jwt.JwtUtils;
 import io.github.demonfiddler.ee.server.util.ProfileUtils;
@@ -66,6 +67,7 @@ public class SecurityConfig {
 
     private final ProfileUtils profileUtils;
     private final JwtUtils jwtUtils;
+    private final JwtAuthenticationCache jwtAuthenticationCache;
     private final DataSource dataSource;
     private JdbcUserDetailsManager userDetailsManager;
     private ProviderManager authenticationManager;
@@ -77,9 +79,12 @@ public class SecurityConfig {
     private JwtAuthenticationFilter jwtAuthenticationFilter;
     private RememberMeAuthenticationFilter rememberMeFilter;
 
-    public SecurityConfig(ProfileUtils profileUtils, JwtUtils jwtUtils, DataSource dataSource) {
+    public SecurityConfig(ProfileUtils profileUtils, JwtUtils jwtUtils, JwtAuthenticationCache jwtAuthenticationCache,
+        DataSource dataSource) {
+
         this.profileUtils = profileUtils;
         this.jwtUtils = jwtUtils;
+        this.jwtAuthenticationCache = jwtAuthenticationCache;
         this.dataSource = dataSource;
     }
 
@@ -98,7 +103,7 @@ public class SecurityConfig {
             usernamePasswordAuthenticationFilter = new UsernamePasswordAuthenticationFilter();
             usernamePasswordAuthenticationFilter.setAuthenticationManager(authenticationManager);
             usernamePasswordAuthenticationFilter.setRememberMeServices(rememberMeServices);
-            jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtUtils);
+            jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtUtils, jwtAuthenticationCache);
         }
     }
 
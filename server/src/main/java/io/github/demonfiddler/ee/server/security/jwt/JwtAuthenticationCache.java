@@ -0,0 +1,178 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * A bounded, server-wide cache of the {@link Authentication}s built from verified JWT bearer tokens. Clients send the
+ * same token with every request until it expires, so a cache hit saves the HMAC signature check, claim decoding and
+ * authority list allocation. Entries are keyed on a SHA-256 hash of the token rather than the token itself, and expire
+ * with the token. The cache size and hit/miss counts are published as metrics via the Actuator
+ * {@code /actuator/metrics} endpoint.
+ */
+@Component
+public class JwtAuthenticationCache implements MeterBinder {
+
+    /** The name of the gauge that reports the number of cached authentications. */
+    static final String METRIC_SIZE = "ee.jwt.cache";
+    /** The name of the counter that reports cache lookups, tagged {@code result=hit|miss}. */
+    static final String METRIC_LOOKUPS = "ee.jwt.cache.lookups";
+
+    /**
+     * A cached authentication.
+     * @param authentication The authentication built from the token's claims.
+     * @param expiresAt When the token expires, in milliseconds since the epoch.
+     */
+    private record Entry(Authentication authentication, long expiresAt) {
+    }
+
+    private final JwtUtils jwtUtils;
+    /** Cached authentications keyed on token hash, in least recently used order. Guarded by itself. */
+    private final Map<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public JwtAuthenticationCache(JwtUtils jwtUtils, @Value("${jwt.cache.max-size:1024}") int maxSize) {
+        this.jwtUtils = jwtUtils;
+        this.entries = new LinkedHashMap<>(16, 0.75F, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+
+        };
+    }
+
+    /**
+     * Returns the authentication for a bearer token, verifying the token only if it is not already cached.
+     * @param token The JWT bearer token.
+     * @return An authenticated token bearing the subject's username and granted authorities.
+     * @throws JWTVerificationException if the token is invalid or has expired.
+     */
+    public Authentication authenticate(String token) {
+        String key = hash(token);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > now) {
+                    hits.increment();
+                    return entry.authentication();
+                }
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+
+        DecodedJWT jwt = jwtUtils.validateToken(token);
+        List<String> authorityNames = jwt.getClaim(jwtUtils.getAuthorityClaim()).asList(String.class);
+        List<SimpleGrantedAuthority> authorities = authorityNames == null //
+            ? List.of() //
+            : authorityNames.stream().map(SimpleGrantedAuthority::new).toList();
+        Authentication authentication =
+            UsernamePasswordAuthenticationToken.authenticated(jwt.getSubject(), null, authorities);
+
+        Date expiresAt = jwt.getExpiresAt();
+        if (expiresAt != null) {
+            synchronized (entries) {
+                entries.put(key, new Entry(authentication, expiresAt.getTime()));
+            }
+        }
+        return authentication;
+    }
+
+    /**
+     * Returns the number of cached authentications.
+     * @return The cache size.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the number of lookups that found a cached authentication.
+     * @return The hit count.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that had to verify the token.
+     * @return The miss count.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform implementation is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(METRIC_SIZE, this, JwtAuthenticationCache::size) //
+            .description("The number of cached JWT authentications") //
+            .register(registry);
+        FunctionCounter.builder(METRIC_LOOKUPS, hits, LongAdder::sum) //
+            .description("JWT authentication cache lookups") //
+            .tag("result", "hit") //
+            .register(registry);
+        FunctionCounter.builder(METRIC_LOOKUPS, misses, LongAdder::sum) //
+            .description("JWT authentication cache lookups") //
+            .tag("result", "miss") //
+            .register(registry);
+    }
+
+}
@@ -20,17 +20,13 @@
 package io.github.demonfiddler.ee.server.security.jwt;
 
 import java.io.IOException;
-import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
-import com.auth0.jwt.interfaces.DecodedJWT;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -42,9 +38,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger LOGGER = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     private final JwtUtils jwtUtils;
+    private final JwtAuthenticationCache authenticationCache;
 
-    public JwtAuthenticationFilter(JwtUtils jwtUtils) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, JwtAuthenticationCache authenticationCache) {
         this.jwtUtils = jwtUtils;
+        this.authenticationCache = authenticationCache;
     }
 
     @Override
@@ -55,14 +53,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (header != null && header.startsWith(jwtUtils.getTokenPrefix())) {
             String token = header.substring(jwtUtils.getTokenPrefix().length()).trim();
             try {
-                DecodedJWT jwt = jwtUtils.validateToken(token);
-                String username = jwt.getSubject();
-                List<SimpleGrantedAuthority> authorities = jwt.getClaim(jwtUtils.getAuthorityClaim())
-                    .asList(String.class).stream().map(SimpleGrantedAuthority::new).toList();
-
-                UsernamePasswordAuthenticationToken auth =
-                    new UsernamePasswordAuthenticationToken(username, null, authorities);
-                SecurityContextHolder.getContext().setAuthentication(auth);
+                SecurityContextHolder.getContext().setAuthentication(authenticationCache.authenticate(token));
             } catch (JWTVerificationException e) {
                 LOGGER.warn("Invalid JWT token {}", token);
             }
@@ -28,7 +28,9 @@ import org.springframework.stereotype.Component;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
 
 import io.github.demonfiddler.ee.server.model.User;
 import io.github.demonfiddler.ee.server.repository.UserRepository;
@@ -36,22 +38,35 @@ import io.github.demonfiddler.ee.server.repository.UserRepository;
 @Component
 public class JwtUtils {
 
-    @Value("${jwt.server-url}")
-    private String serverUrl;
-    @Value("${jwt.header}")
-    private String headerString;
-    @Value("${jwt.prefix}")
-    private String tokenPrefix;
-    @Value("${jwt.secret}")
-    private String secret;
-    @Value("${jwt.duration-ms}")
-    private long expirationTime;
-    @Value("${jwt.authority-claim}")
-    private String authorityClaim;
+    private final String serverUrl;
+    private final String headerString;
+    private final String tokenPrefix;
+    private final String secret;
+    private final long expirationTime;
+    private final String authorityClaim;
     private final UserRepository userRepository;
+    /** The signing algorithm, which is thread-safe and reusable. */
+    private final Algorithm algorithm;
+    /** The token verifier, which is thread-safe and reusable. */
+    private final JWTVerifier verifier;
+
+    public JwtUtils(UserRepository userRepository, @Value("${jwt.server-url}") String serverUrl,
+        @Value("${jwt.header}") String headerString, @Value("${jwt.prefix}") String tokenPrefix,
+        @Value("${jwt.secret}") String secret, @Value("${jwt.duration-ms}") long expirationTime,
+        @Value("${jwt.authority-claim}") String authorityClaim) {
 
-    public JwtUtils(UserRepository userRepository) {
         this.userRepository = userRepository;
+        this.serverUrl = serverUrl;
+        this.headerString = headerString;
+        this.tokenPrefix = tokenPrefix;
+        this.secret = secret;
+        this.expirationTime = expirationTime;
+        this.authorityClaim = authorityClaim;
+        this.algorithm = Algorithm.HMAC256(secret);
+        this.verifier = JWT.require(algorithm) //
+            .withIssuer(serverUrl) //
+            .withAudience(serverUrl) //
+            .build();
     }
 
     public String getHeaderString() {
@@ -91,20 +106,17 @@ public class JwtUtils {
             .withExpiresAt(Date.from(now.plusMillis(getExpirationTime()))) //
             .withClaim(authorityClaim, authorities) //
             .withSubject(user.getUsername()) //
-            .sign(Algorithm.HMAC256(secret));
+            .sign(algorithm);
     }
 
     /**
      * Validates a JWT token.
      * @param token The JWT token.
      * @return The decoded token.
+     * @throws JWTVerificationException if the token is invalid or has expired.
      */
     public DecodedJWT validateToken(String token) {
-        return JWT.require(Algorithm.HMAC256(secret)) //
-            .withIssuer(serverUrl) //
-            .withAudience(serverUrl) //
-            .build() //
-            .verify(token);
+        return verifier.verify(token);
     }
 
 }
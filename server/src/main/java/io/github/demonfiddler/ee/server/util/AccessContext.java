@@ -0,0 +1,71 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import io.github.demonfiddler.ee.server.model.AuthorityKind;
+
+/**
+ * An immutable snapshot of the current user's access rights, resolved once per request. GraphQL data fetchers obtain
+ * it from the {@code GraphQLContext} and repositories from {@link SecurityUtils#getAccessContext()}, which within a
+ * GraphQL execution return the same instance. An anonymous user's queries are restricted to published records.
+ * @param isAnonymous Whether the user is unauthenticated.
+ * @param username The username, or {@code anonymousUser} if unauthenticated.
+ * @param authorities The names of the user's granted authorities.
+ */
+public record AccessContext(boolean isAnonymous, String username, Set<String> authorities) {
+
+    /** The access context for an unauthenticated user. */
+    public static final AccessContext ANONYMOUS = new AccessContext(true, "anonymousUser", Set.of());
+
+    /**
+     * Resolves the access context for an authentication.
+     * @param authentication The authentication, may be {@code null}.
+     * @return The corresponding access context.
+     */
+    public static AccessContext of(Authentication authentication) {
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken)
+            return ANONYMOUS;
+
+        Object principal = authentication.getPrincipal();
+        String username = principal instanceof User user ? user.getUsername() : principal.toString();
+        Set<String> authorities = authentication.getAuthorities().stream() //
+            .map(GrantedAuthority::getAuthority) //
+            .collect(Collectors.toUnmodifiableSet());
+        return new AccessContext(false, username, authorities);
+    }
+
+    /**
+     * Returns whether the user has been granted an authority.
+     * @param authorityKind The authority.
+     * @return {@code true} if the user has the authority.
+     */
+    public boolean hasAuthority(AuthorityKind authorityKind) {
+        return authorities.contains(authorityKind.name());
+    }
+
+}
@@ -0,0 +1,66 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * Propagates the {@link AccessContext} of a GraphQL execution to the threads on which its data fetchers and batch
+ * loaders run. {@code AccessContextInterceptor} puts the context in the {@code GraphQLContext} under {@link #KEY}, and
+ * around every data fetcher and batch loader call Spring for GraphQL restores each {@code GraphQLContext} value that
+ * has a matching {@code ThreadLocalAccessor}. So repositories read the same instance as data fetchers, without access
+ * to the {@code DataFetchingEnvironment}. Registered in {@code META-INF/services}.
+ */
+public class AccessContextAccessor implements ThreadLocalAccessor<AccessContext> {
+
+    /** The key of the access context in the {@code GraphQLContext}. */
+    public static final String KEY = AccessContext.class.getName();
+
+    private static final ThreadLocal<AccessContext> ACCESS_CONTEXT = new ThreadLocal<>();
+
+    /**
+     * Returns the access context propagated to the current thread, if any.
+     * @return The access context, or {@code null} if the current thread is not running a GraphQL data fetcher.
+     */
+    static AccessContext getCurrent() {
+        return ACCESS_CONTEXT.get();
+    }
+
+    @Override
+    public Object key() {
+        return KEY;
+    }
+
+    @Override
+    public AccessContext getValue() {
+        return ACCESS_CONTEXT.get();
+    }
+
+    @Override
+    public void setValue(AccessContext value) {
+        ACCESS_CONTEXT.set(value);
+    }
+
+    @Override
+    public void setValue() {
+        ACCESS_CONTEXT.remove();
+    }
+
+}
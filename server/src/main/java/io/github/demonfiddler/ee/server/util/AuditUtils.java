@@ -33,14 +33,12 @@ import java.util.function.Function;
 import java.util.function.IntSupplier;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
-import org.apache.commons.beanutils2.PropertyUtils;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Component;
 
+import io.github.demonfiddler.ee.server.model.Claim;
+import io.github.demonfiddler.ee.server.model.Declaration;
 import io.github.demonfiddler.ee.server.model.EntityAudit;
-import io.github.demonfiddler.ee.server.model.EntityLink;
 import io.github.demonfiddler.ee.server.model.FieldAudit;
 import io.github.demonfiddler.ee.server.model.FieldAuditEntry;
 import io.github.demonfiddler.ee.server.model.FieldGroupAuditEntry;
@@ -48,11 +46,16 @@ import io.github.demonfiddler.ee.server.model.IFieldAudit;
 import io.github.demonfiddler.ee.server.model.ILinkAudit;
 import io.github.demonfiddler.ee.server.model.ILinkableEntity;
 import io.github.demonfiddler.ee.server.model.ITrackedEntity;
+import io.github.demonfiddler.ee.server.model.Journal;
 import io.github.demonfiddler.ee.server.model.LinkAudit;
 import io.github.demonfiddler.ee.server.model.LinkAuditEntry;
 import io.github.demonfiddler.ee.server.model.LinkGroupAuditEntry;
-import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
+import io.github.demonfiddler.ee.server.model.Person;
+import io.github.demonfiddler.ee.server.model.Publication;
+import io.github.demonfiddler.ee.server.model.Publisher;
+import io.github.demonfiddler.ee.server.model.Quotation;
 import io.github.demonfiddler.ee.server.model.SeverityKind;
+import io.github.demonfiddler.ee.server.model.Topic;
 import io.github.demonfiddler.ee.server.repository.EntityLinkRepository;
 
 @Component
@@ -70,15 +73,31 @@ public class AuditUtils {
     private static Predicate<FieldAuditEntry> FIELD_PREDICATE =
         fae -> fae.getPass() || fae.getSeverity() != SeverityKind.ERROR;
 
-    /** Abstract base class to perform field validation. */
+    /** The maximum number of entity IDs to pass in a single link count query. */
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    /**
+     * Abstract base class to perform field validation. Each rule reads its field through an accessor compiled with the
+     * rule, rather than by reflection, since bulk audits evaluate every rule for many entities.
+     */
     private static abstract class FieldRule<T> {
 
         final String fieldName;
         final SeverityKind severity;
-
-        FieldRule(String fieldName, SeverityKind severity) {
+        final Function<Object, ? extends T> accessor;
+
+        /**
+         * Constructs a field rule.
+         * @param <E> The type of entity to which the rule applies.
+         * @param fieldName The field name.
+         * @param severity The severity of a rule failure.
+         * @param accessor Reads the field value from an entity.
+         */
+        @SuppressWarnings("unchecked")
+        <E> FieldRule(String fieldName, SeverityKind severity, Function<E, ? extends T> accessor) {
             this.fieldName = fieldName;
             this.severity = severity;
+            this.accessor = (Function<Object, ? extends T>)accessor;
         }
 
         final String getFieldName() {
@@ -101,9 +120,7 @@ public class AuditUtils {
 
         final boolean test(ITrackedEntity entity) throws RuleException {
             try {
-                @SuppressWarnings("unchecked")
-                T value = (T)PropertyUtils.getProperty(entity, fieldName);
-                return doTest(value);
+                return doTest(accessor.apply(entity));
             } catch (Exception e) {
                 throw new RuleException(fieldName, e);
             }
@@ -116,20 +133,20 @@ public class AuditUtils {
     /** Field rule that enforces a mandatory field value. */
     private static final class Required extends FieldRule<Object> {
 
-        static FieldRule<Object> info(String fieldName) {
-            return new Required(fieldName, SeverityKind.INFO);
+        static <E> FieldRule<Object> info(String fieldName, Function<E, ?> accessor) {
+            return new Required(fieldName, SeverityKind.INFO, accessor);
         }
 
-        static FieldRule<Object> warning(String fieldName) {
-            return new Required(fieldName, SeverityKind.WARNING);
+        static <E> FieldRule<Object> warning(String fieldName, Function<E, ?> accessor) {
+            return new Required(fieldName, SeverityKind.WARNING, accessor);
         }
 
-        static FieldRule<Object> error(String fieldName) {
-            return new Required(fieldName, SeverityKind.ERROR);
+        static <E> FieldRule<Object> error(String fieldName, Function<E, ?> accessor) {
+            return new Required(fieldName, SeverityKind.ERROR, accessor);
         }
 
-        private Required(String fieldName, SeverityKind severity) {
-            super(fieldName, severity);
+        private <E> Required(String fieldName, SeverityKind severity, Function<E, ?> accessor) {
+            super(fieldName, severity, accessor);
         }
 
         @Override
@@ -148,22 +165,24 @@ public class AuditUtils {
     @SuppressWarnings("unused")
     private static final class MinLength extends FieldRule<String> {
 
-        static FieldRule<String> info(String fieldName, IntSupplier minLen) {
-            return new MinLength(fieldName, SeverityKind.INFO, minLen);
+        static <E> FieldRule<String> info(String fieldName, Function<E, String> accessor, IntSupplier minLen) {
+            return new MinLength(fieldName, SeverityKind.INFO, accessor, minLen);
         }
 
-        static FieldRule<String> warning(String fieldName, IntSupplier minLen) {
-            return new MinLength(fieldName, SeverityKind.WARNING, minLen);
+        static <E> FieldRule<String> warning(String fieldName, Function<E, String> accessor, IntSupplier minLen) {
+            return new MinLength(fieldName, SeverityKind.WARNING, accessor, minLen);
         }
 
-        static FieldRule<String> error(String fieldName, IntSupplier minLen) {
-            return new MinLength(fieldName, SeverityKind.ERROR, minLen);
+        static <E> FieldRule<String> error(String fieldName, Function<E, String> accessor, IntSupplier minLen) {
+            return new MinLength(fieldName, SeverityKind.ERROR, accessor, minLen);
         }
 
         private final IntSupplier minLen;
 
-        private MinLength(String fieldName, SeverityKind severity, IntSupplier minLen) {
-            super(fieldName, severity);
+        private <E> MinLength(String fieldName, SeverityKind severity, Function<E, String> accessor,
+            IntSupplier minLen) {
+
+            super(fieldName, severity, accessor);
             this.minLen = minLen;
         }
 
@@ -183,22 +202,28 @@ public class AuditUtils {
     @SuppressWarnings("unused")
     private static final class Maximum<T extends Comparable<T>> extends FieldRule<T> {
 
-        static <T extends Comparable<T>> FieldRule<T> info(String fieldName, Supplier<T> max) {
-            return new Maximum<T>(fieldName, SeverityKind.INFO, max);
+        static <E, T extends Comparable<T>> FieldRule<T> info(String fieldName, Function<E, T> accessor,
+            Supplier<T> max) {
+
+            return new Maximum<T>(fieldName, SeverityKind.INFO, accessor, max);
         }
 
-        static <T extends Comparable<T>> FieldRule<T> warning(String fieldName, Supplier<T> max) {
-            return new Maximum<T>(fieldName, SeverityKind.WARNING, max);
+        static <E, T extends Comparable<T>> FieldRule<T> warning(String fieldName, Function<E, T> accessor,
+            Supplier<T> max) {
+
+            return new Maximum<T>(fieldName, SeverityKind.WARNING, accessor, max);
         }
 
-        static <T extends Comparable<T>> FieldRule<T> error(String fieldName, Supplier<T> max) {
-            return new Maximum<T>(fieldName, SeverityKind.ERROR, max);
+        static <E, T extends Comparable<T>> FieldRule<T> error(String fieldName, Function<E, T> accessor,
+            Supplier<T> max) {
+
+            return new Maximum<T>(fieldName, SeverityKind.ERROR, accessor, max);
         }
 
         private final Supplier<T> max;
 
-        private Maximum(String fieldName, SeverityKind severity, Supplier<T> max) {
-            super(fieldName, severity);
+        private <E> Maximum(String fieldName, SeverityKind severity, Function<E, T> accessor, Supplier<T> max) {
+            super(fieldName, severity, accessor);
             Objects.requireNonNull(max);
             this.max = max;
         }
@@ -217,7 +242,7 @@ public class AuditUtils {
 
     }
 
-    private static final FieldRule<Object> RATING = Required.warning("rating");
+    private static final FieldRule<Object> RATING = Required.warning("rating", ITrackedEntity::getRating);
 
     private static final record Rule(Map<String, Integer> links, Collection<Map<String, Integer>> linkGroups,
         Collection<FieldRule<?>> fields, Collection<Collection<FieldRule<?>>> fieldGroups) {
@@ -241,7 +266,7 @@ public class AuditUtils {
             ), //
             List.of( //
                 RATING, //
-                Maximum.error("date", () -> LocalDate.now())), //
+                Maximum.error("date", Claim::getDate, () -> LocalDate.now())), //
             null)); // Claim
         rules.put("COM", null); // Comment
         rules.put("COU", null); // Country
@@ -253,23 +278,24 @@ public class AuditUtils {
             null, //
             List.of( //
                 RATING, //
-                Required.warning("date"), //
-                Maximum.error("date", () -> LocalDate.now()), //
-                Required.warning("country"), //
-                Required.warning("url"), //
-                Required.error("signatories"), //
-                Required.error("signatoryCount"), Required.info("notes")), //
+                Required.warning("date", Declaration::getDate), //
+                Maximum.error("date", Declaration::getDate, () -> LocalDate.now()), //
+                Required.warning("country", Declaration::getCountry), //
+                Required.warning("url", Declaration::getUrl), //
+                Required.error("signatories", Declaration::getSignatories), //
+                Required.error("signatoryCount", Declaration::getSignatoryCount), //
+                Required.info("notes", Declaration::getNotes)), //
             null)); // Declaration
         rules.put("GRP", null); // Group
         rules.put("JOU", new Rule( //
             null, null, //
             List.of(RATING, //
-                Required.warning("abbreviation"), //
-                Required.warning("url"), //
-                Required.warning("issn"), //
-                Required.info("notes"), //
-                Required.warning("publisher"), //
-                Required.error("peerReviewed") //
+                Required.warning("abbreviation", Journal::getAbbreviation), //
+                Required.warning("url", Journal::getUrl), //
+                Required.warning("issn", Journal::getIssn), //
+                Required.info("notes", Journal::getNotes), //
+                Required.warning("publisher", Journal::getPublisher), //
+                Required.error("peerReviewed", Journal::getPeerReviewed) //
             ), //
             null)); // Journal
         rules.put("LNK", null); //
@@ -287,9 +313,9 @@ public class AuditUtils {
             ), //
             List.of( //
                 RATING, //
-                Required.warning("qualifications"), //
-                Required.warning("country"), //
-                Required.info("notes")), //
+                Required.warning("qualifications", Person::getQualifications), //
+                Required.warning("country", Person::getCountry), //
+                Required.info("notes", Person::getNotes)), //
             null)); // Person
         rules.put("PUB", new Rule( //
             Map.of( //
@@ -300,45 +326,45 @@ public class AuditUtils {
             null, //
             List.of( //
                 RATING, //
-                Required.warning("journal"), //
-                Required.warning("date"), //
-                Maximum.error("date", () -> LocalDate.now()), //
-                Required.warning("year"), //
-                Maximum.error("year", () -> LocalDate.now().getYear()), //
-                Required.warning("keywords"), //
-                Required.warning("abstract"), //
-                Required.info("notes"), //
-                Required.warning("peerReviewed"), //
-                Required.info("accessed") //
-            // Maximum.error("accessed", () -> LocalDate.now().getYear()) ?
+                Required.warning("journal", Publication::getJournal), //
+                Required.warning("date", Publication::getDate), //
+                Maximum.error("date", Publication::getDate, () -> LocalDate.now()), //
+                Required.warning("year", Publication::getYear), //
+                Maximum.error("year", Publication::getYear, () -> LocalDate.now().getYear()), //
+                Required.warning("keywords", Publication::getKeywords), //
+                Required.warning("abstract", Publication::getAbstract), //
+                Required.info("notes", Publication::getNotes), //
+                Required.warning("peerReviewed", Publication::getPeerReviewed), //
+                Required.info("accessed", Publication::getAccessed) //
+            // Maximum.error("accessed", Publication::getAccessed, () -> LocalDate.now().getYear()) ?
             ), //
             List.of( //
                 List.of( //
-                    Required.info("doi"), //
-                    Required.info("isbn"), //
-                    Required.info("pmcid"), //
-                    Required.info("pmid"), //
-                    Required.info("hsid"), //
-                    Required.info("arxivid"), //
-                    Required.info("biorxivid"), //
-                    Required.info("medrxivid"), //
-                    Required.info("ericid"), //
-                    Required.info("ihepid"), //
-                    Required.info("oaipmhid"), //
-                    Required.info("halid"), //
-                    Required.info("zenodoid"), //
-                    Required.info("scopuseid"), //
-                    Required.info("wsan"), //
-                    Required.info("pinfoan") //
+                    Required.info("doi", Publication::getDoi), //
+                    Required.info("isbn", Publication::getIsbn), //
+                    Required.info("pmcid", Publication::getPmcid), //
+                    Required.info("pmid", Publication::getPmid), //
+                    Required.info("hsid", Publication::getHsid), //
+                    Required.info("arxivid", Publication::getArxivid), //
+                    Required.info("biorxivid", Publication::getBiorxivid), //
+                    Required.info("medrxivid", Publication::getMedrxivid), //
+                    Required.info("ericid", Publication::getEricid), //
+                    Required.info("ihepid", Publication::getIhepid), //
+                    Required.info("oaipmhid", Publication::getOaipmhid), //
+                    Required.info("halid", Publication::getHalid), //
+                    Required.info("zenodoid", Publication::getZenodoid), //
+                    Required.info("scopuseid", Publication::getScopuseid), //
+                    Required.info("wsan", Publication::getWsan), //
+                    Required.info("pinfoan", Publication::getPinfoan) //
                 )))); // Publication
         rules.put("PBR", new Rule( //
             null, null, //
             List.of(RATING, //
-                Required.warning("location"), //
-                Required.warning("country"), //
-                Required.warning("url"), //
-                Required.warning("journalCount"), //
-                Required.info("notes") //
+                Required.warning("location", Publisher::getLocation), //
+                Required.warning("country", Publisher::getCountry), //
+                Required.warning("url", Publisher::getUrl), //
+                Required.warning("journalCount", Publisher::getJournalCount), //
+                Required.info("notes", Publisher::getNotes) //
             ), //
             null)); // Publisher
         rules.put("QUO", new Rule( //
@@ -350,11 +376,11 @@ public class AuditUtils {
             null, //
             List.of( //
                 RATING, //
-                Required.warning("date"), //
-                Maximum.error("date", () -> LocalDate.now()), //
-                Required.warning("source"), //
-                Required.warning("url"), //
-                Required.info("notes")), //
+                Required.warning("date", Quotation::getDate), //
+                Maximum.error("date", Quotation::getDate, () -> LocalDate.now()), //
+                Required.warning("source", Quotation::getSource), //
+                Required.warning("url", Quotation::getUrl), //
+                Required.info("notes", Quotation::getNotes)), //
             null)); // Quotation
         rules.put("TOP", new Rule( //
             null, //
@@ -369,7 +395,7 @@ public class AuditUtils {
             ), //
             List.of( //
                 RATING, //
-                Required.warning("description")), //
+                Required.warning("description", Topic::getDescription)), //
             null)); // Topic
         rules.put("USR", null); // User
         RULES = Collections.unmodifiableMap(rules);
@@ -450,25 +476,16 @@ public class AuditUtils {
         );
     }
 
-    private void auditLinks(Map<String, Integer> linkRules, List<EntityLink> entityLinks, boolean isFromEntity,
+    private void auditLinks(Map<String, Integer> linkRules, Map<String, Integer> linkCounts,
         ILinkAudit linkAudit) {
 
         if (linkRules == null || linkRules.isEmpty())
             return;
 
-        // Collect the entity links by other entity kind.
-        Function<? super EntityLink, ? extends String> classifier = //
-            isFromEntity //
-                ? el -> el.getToEntity().getEntityKind() //
-                : el -> el.getFromEntity().getEntityKind();
-        Map<String, List<EntityLink>> linksByOtherEntityKind =
-            entityLinks.stream().collect(Collectors.groupingBy(classifier));
-
         // Check each rule for conformance.
         for (Entry<String, Integer> linkRuleEntry : linkRules.entrySet()) {
             String otherEntityKind = linkRuleEntry.getKey();
-            List<EntityLink> otherEntityLinks = linksByOtherEntityKind.get(otherEntityKind);
-            int otherEntityLinkCount = otherEntityLinks != null ? otherEntityLinks.size() : 0;
+            int otherEntityLinkCount = linkCounts.getOrDefault(otherEntityKind, 0);
             LinkAuditEntry entry;
             Optional<LinkAuditEntry> entryOpt =
                 linkAudit.getLinks().stream().filter(l -> l.getLinkedEntityKind().equals(otherEntityKind)).findFirst();
@@ -488,14 +505,7 @@ public class AuditUtils {
         }
     }
 
-    private LinkAudit auditLinks(ILinkableEntity entity, Rule rule) {
-        LinkableEntityQueryFilter filter = new LinkableEntityQueryFilter();
-        filter.setFromEntityId(entity.getId());
-        List<EntityLink> fromEntityLinks = entityLinkRepository.findByFilter(filter, Pageable.unpaged()).getContent();
-        filter.setFromEntityId(null);
-        filter.setToEntityId(entity.getId());
-        List<EntityLink> toEntityLinks = entityLinkRepository.findByFilter(filter, Pageable.unpaged()).getContent();
-
+    private LinkAudit auditLinks(Rule rule, Map<String, Integer> linkCounts) {
         List<LinkAuditEntry> linkAuditEntries = new ArrayList<>();
         List<LinkGroupAuditEntry> linkGroupAuditEntries = new ArrayList<>();
         LinkAudit linkAudit = LinkAudit.builder() //
@@ -504,8 +514,7 @@ public class AuditUtils {
             .withPass(true) //
             .build();
 
-        auditLinks(rule.links, fromEntityLinks, true, linkAudit);
-        auditLinks(rule.links, toEntityLinks, false, linkAudit);
+        auditLinks(rule.links, linkCounts, linkAudit);
         aggregateLinkResults(linkAudit, true);
 
         if (rule.linkGroups() != null) {
@@ -516,8 +525,7 @@ public class AuditUtils {
                     .build();
                 linkGroupAuditEntries.add(linkGroupAuditEntry);
 
-                auditLinks(requirements, fromEntityLinks, true, linkGroupAuditEntry);
-                auditLinks(requirements, toEntityLinks, false, linkGroupAuditEntry);
+                auditLinks(requirements, linkCounts, linkGroupAuditEntry);
                 aggregateLinkResults(linkGroupAuditEntry, false);
 
                 linkAudit.setPass(linkAudit.getPass() && linkGroupAuditEntry.getPass());
@@ -527,7 +535,34 @@ public class AuditUtils {
         return linkAudit;
     }
 
-    public EntityAudit audit(ITrackedEntity entity) {
+    private static boolean hasLinkRules(ITrackedEntity entity, Rule rule) {
+        return entity instanceof ILinkableEntity && rule != null && rule.links != null && !rule.links.isEmpty();
+    }
+
+    /**
+     * Counts the links of those entities whose rules specify link requirements, using one grouped query per chunk of
+     * entity IDs rather than fetching every entity's links.
+     * @param entities The entities to audit.
+     * @return The link counts keyed on entity ID then on linked entity kind.
+     */
+    private Map<Long, Map<String, Integer>> countLinks(List<? extends ITrackedEntity> entities) {
+        List<Long> entityIds = entities.stream() //
+            .filter(e -> hasLinkRules(e, RULES.get(e.getEntityKind()))) //
+            .map(ITrackedEntity::getId) //
+            .distinct() //
+            .toList();
+        if (entityIds.isEmpty())
+            return Collections.emptyMap();
+
+        Map<Long, Map<String, Integer>> linkCounts = HashMap.newHashMap(entityIds.size());
+        for (int i = 0; i < entityIds.size(); i += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = entityIds.subList(i, Math.min(i + MAX_IDS_PER_QUERY, entityIds.size()));
+            linkCounts.putAll(entityLinkRepository.countLinksByEntityKind(chunk));
+        }
+        return linkCounts;
+    }
+
+    private EntityAudit audit(ITrackedEntity entity, Map<Long, Map<String, Integer>> linkCounts) {
         EntityAudit audit;
         String entityKind = entity.getEntityKind();
         Rule rule = RULES.get(entityKind);
@@ -536,8 +571,8 @@ public class AuditUtils {
                 ? auditFields(entity, rule) //
                 : null;
 
-            LinkAudit linkAudit = entity instanceof ILinkableEntity && rule.links != null && !rule.links.isEmpty() //
-                ? auditLinks((ILinkableEntity)entity, rule) //
+            LinkAudit linkAudit = hasLinkRules(entity, rule) //
+                ? auditLinks(rule, linkCounts.getOrDefault(entity.getId(), Collections.emptyMap())) //
                 : null;
 
             audit = EntityAudit.builder() //
@@ -552,4 +587,26 @@ public class AuditUtils {
         return audit;
     }
 
+    /**
+     * Audits a single entity.
+     * @param entity The entity to audit.
+     * @return The audit results.
+     */
+    public EntityAudit audit(ITrackedEntity entity) {
+        return audit(List.of(entity)).get(0);
+    }
+
+    /**
+     * Audits several entities, counting their links in bulk.
+     * @param entities The entities to audit.
+     * @return The audit results, in the same order as {@code entities}.
+     */
+    public List<EntityAudit> audit(List<? extends ITrackedEntity> entities) {
+        Map<Long, Map<String, Integer>> linkCounts = countLinks(entities);
+        List<EntityAudit> audits = new ArrayList<>(entities.size());
+        for (ITrackedEntity entity : entities)
+            audits.add(audit(entity, linkCounts));
+        return audits;
+    }
+
 }
@@ -26,7 +26,9 @@ import static io.github.demonfiddler.ee.server.model.EntityKind.PUB;
 import static io.github.demonfiddler.ee.server.model.EntityKind.QUO;
 import static io.github.demonfiddler.ee.server.model.EntityKind.TOP;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -51,6 +53,7 @@ import org.springframework.data.domain.Sort.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 
+import graphql.schema.DataFetchingEnvironment;
 import io.github.demonfiddler.ee.common.util.StringUtils;
 import io.github.demonfiddler.ee.server.model.Claim;
 import io.github.demonfiddler.ee.server.model.CountPageImpl;
@@ -65,18 +68,21 @@ import io.github.demonfiddler.ee.server.model.IBaseEntity;
 import io.github.demonfiddler.ee.server.model.IBaseEntityPage;
 import io.github.demonfiddler.ee.server.model.ITrackedEntity;
 import io.github.demonfiddler.ee.server.model.Journal;
+import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
 import io.github.demonfiddler.ee.server.model.OrderInput;
 import io.github.demonfiddler.ee.server.model.PageableInput;
 import io.github.demonfiddler.ee.server.model.Person;
 import io.github.demonfiddler.ee.server.model.Publication;
 import io.github.demonfiddler.ee.server.model.Publisher;
 import io.github.demonfiddler.ee.server.model.Quotation;
+import io.github.demonfiddler.ee.server.model.SeekRequest;
 import io.github.demonfiddler.ee.server.model.SortInput;
 import io.github.demonfiddler.ee.server.model.Topic;
 import io.github.demonfiddler.ee.server.model.TrackedEntityQueryFilter;
 import io.github.demonfiddler.ee.server.model.User;
 import io.github.demonfiddler.ee.server.repository.CustomRepository;
 import io.github.demonfiddler.ee.server.repository.QueryPair;
+import io.github.demonfiddler.ee.server.repository.SeekableRepository;
 import jakarta.persistence.Query;
 
 /**
@@ -88,10 +94,15 @@ public class EntityUtils {
 
 	/** The platform's newline character sequence. */
 	public static final CharSequence NL = System.getProperty("line.separator");
+	/** The pseudo-property by which to sort text-filtered linkable entities in order of full text match score. */
+	public static final String RELEVANCE = "relevance";
 	private static final BidiMap<Class<?>, EntityKind> ENTITY_KINDS = new DualHashBidiMap<>();
 	private static final BidiMap<Class<?>, String> ENTITY_NAMES = new DualHashBidiMap<>();
 	private static final Collection<String> BASE_TABLE_FIELDS =
 		List.of("id", "dtype", "status", "rating", "created", "createdByUserId", "updated", "updatedByUserId");
+	private static final String CURSOR_PREFIX = "id:";
+	private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder CURSOR_DECODER = Base64.getUrlDecoder();
 	/** Maps 'from' entity kind to legal 'to' entity kinds. */
 	private static final Map<EntityKind, Collection<EntityKind>> ENTITY_KIND_LINK_MAP = Map.of( //
 		CLA, List.of(DEC, PER, PUB, QUO), //
@@ -170,6 +181,17 @@ public class EntityUtils {
 		return values;
 	}
 
+	/**
+	 * Returns an entity's ID without initialising it, if it is an uninitialised proxy.
+	 * @param entity The entity or proxy.
+	 * @return The entity ID.
+	 */
+	public Long getId(IBaseEntity entity) {
+		if (entity instanceof HibernateProxy proxy)
+			return (Long)proxy.getHibernateLazyInitializer().getIdentifier();
+		return entity.getId();
+	}
+
 	/**
 	 * Returns a {@code Map} containing the {@code List} values of a specified field.
 	 * @param <K> The type of the key
@@ -251,22 +273,30 @@ public class EntityUtils {
 	 * @param <F> The query filter type.
 	 * @param <R> The repository type.
 	 * @param <P> The {@code *Page} class to return.
+	 * @param dataFetchingEnvironment The GraphQL environment, used to determine whether totals are required.
 	 * @param filter The query filter to apply.
 	 * @param pageSort How to paginate and/or sort the results.
 	 * @param repository The repository to query.
 	 * @param ctor The result page query supplier (typically a constructor reference).
 	 */
 	public <T extends IBaseEntity, F, R extends JpaRepository<T, Long> & CustomRepository<T, F>, P extends IBaseEntityPage<T>>
-		P findByFilter(F filter, PageableInput pageSort, R repository, Supplier<P> ctor) {
+		P findByFilter(DataFetchingEnvironment dataFetchingEnvironment, F filter, PageableInput pageSort, R repository,
+			Supplier<P> ctor) {
 
 		Pageable pageable = toPageable(pageSort);
+		// Only linkable entity queries compute a relevance score, so other queries ignore a relevance sort.
+		if (!(filter instanceof LinkableEntityQueryFilter) && isSortedOnRelevance(pageable.getSort()))
+			pageable = withSort(pageable, withoutRelevance(pageable.getSort()));
 		boolean isCountRequest = pageable instanceof Countable;
+		boolean countTotal = isTotalRequested(dataFetchingEnvironment);
+		// JpaRepository.findAll(Pageable) can neither seek nor skip the COUNT query.
+		boolean needsCustomQuery = pageable instanceof SeekRequest || pageable.isPaged() && !countTotal;
 
 		Page<T> page;
 		// Unauthenticated users can only access published entities, so allow the repository to apply that filter.
-		if (securityUtils.getCurrentUsername().equals("anonymousUser")) {
-			page = repository.findByFilter(filter, pageable);
-		} else if (filter == null) {
+		if (securityUtils.getAccessContext(dataFetchingEnvironment).isAnonymous()) {
+			page = repository.findByFilter(filter, pageable, countTotal);
+		} else if (filter == null && !needsCustomQuery) {
 			if (pageable.isPaged()) {
 				page = repository.findAll(pageable);
 			} else if (pageable.getSort().isSorted()) {
@@ -292,9 +322,24 @@ public class EntityUtils {
 				page = new PageImpl<T>(record.isPresent() ? List.of(record.get()) : Collections.emptyList());
 			}
 		} else {
-			page = repository.findByFilter(filter, pageable);
+			page = repository.findByFilter(filter, pageable, countTotal);
 		}
-		return toEntityPage(page, ctor);
+		// Only a repository that can seek past the last record issues a cursor for it, and even then not for a page
+		// ranked by relevance, which can only be followed by page number.
+		boolean isSeekable =
+			repository instanceof SeekableRepository && !isRankedByRelevance(filter, pageable.getSort());
+		return toEntityPage(page, ctor, isSeekable);
+	}
+
+	/**
+	 * Indicates whether a GraphQL query for an {@code IPage} requires the total number of elements or pages.
+	 * @param dataFetchingEnvironment The GraphQL environment for the page-valued field, can be {@code null}.
+	 * @return {@code true} if the field's selection set includes {@code totalElements} or {@code totalPages}, or if
+	 * {@code dataFetchingEnvironment} is {@code null}.
+	 */
+	public boolean isTotalRequested(DataFetchingEnvironment dataFetchingEnvironment) {
+		return dataFetchingEnvironment == null
+			|| dataFetchingEnvironment.getSelectionSet().containsAnyOf("totalElements", "totalPages");
 	}
 
 	/**
@@ -306,6 +351,46 @@ public class EntityUtils {
 		return !sort.filter(o -> o.getNullHandling() != NullHandling.NATIVE).isEmpty();
 	}
 
+	/**
+	 * Indicates whether a sort involves the {@link #RELEVANCE} pseudo-property.
+	 * @param sort The sort specification.
+	 * @return {@code true} if any of {@code sort}'s {@code Order}s is on relevance.
+	 */
+	public boolean isSortedOnRelevance(Sort sort) {
+		return !sort.filter(o -> o.getProperty().equals(RELEVANCE)).isEmpty();
+	}
+
+	/**
+	 * Indicates whether a query's results are ranked by full text relevance, as is the case for a linkable entity
+	 * query that has a text filter and a {@link #RELEVANCE} sort. Such a query cannot seek.
+	 * @param filter The query filter, can be {@code null}.
+	 * @param sort The sort specification.
+	 * @return {@code true} if the query's results are ranked by relevance.
+	 */
+	public boolean isRankedByRelevance(Object filter, Sort sort) {
+		return filter instanceof LinkableEntityQueryFilter lf && lf.getRecordId() == null && lf.getText() != null
+			&& !lf.getText().isBlank() && isSortedOnRelevance(sort);
+	}
+
+	/**
+	 * Removes any {@link #RELEVANCE} orders from a sort.
+	 * @param sort The sort specification.
+	 * @return {@code sort} without relevance orders, possibly unsorted.
+	 */
+	public Sort withoutRelevance(Sort sort) {
+		return Sort.by(sort.filter(o -> !o.getProperty().equals(RELEVANCE)).toList());
+	}
+
+	/**
+	 * Returns a copy of a {@code Pageable} with a different sort.
+	 * @param pageable The pageable to copy, must not be a count request.
+	 * @param sort The new sort specification.
+	 * @return The equivalent pageable, sorted by {@code sort}.
+	 */
+	private Pageable withSort(Pageable pageable, Sort sort) {
+		return pageable instanceof PageRequest pageRequest ? pageRequest.withSort(sort) : Pageable.unpaged(sort);
+	}
+
 	/**
 	 * Converts a domain pagination object to the corresponding JPA repository API type.
 	 * @param pageableInput The domain pagination object, can be {@code null}.
@@ -337,7 +422,10 @@ public class EntityUtils {
 									throw new IllegalArgumentException("Unsupported direction: " + oi.getDirection());
 							}
 						} else {
-							order = Order.asc(oi.getProperty());
+							// Relevance defaults to best match first, since higher scores are better matches.
+							order = oi.getProperty().equals(RELEVANCE) //
+								? Order.desc(RELEVANCE) //
+								: Order.asc(oi.getProperty());
 						}
 						if (oi.getNullHandling() != null) {
 							switch (oi.getNullHandling()) {
@@ -365,7 +453,10 @@ public class EntityUtils {
 				if (pageSize != null && pageSize > 0) {
 					Integer pageNumberObj = pageableInput.getPageNumber();
 					int pageNumber = pageNumberObj == null ? 0 : pageNumberObj;
-					if (isSorted) {
+					String after = pageableInput.getAfter();
+					if (after != null && !after.isBlank()) {
+						pageable = SeekRequest.of(pageNumber, pageSize, sort, decodeCursor(after));
+					} else if (isSorted) {
 						pageable = PageRequest.of(pageNumber, pageSize, sort);
 					} else {
 						pageable = PageRequest.of(pageNumber, pageSize);
@@ -388,9 +479,25 @@ public class EntityUtils {
 	 * @param <T> The domain content type.
 	 * @param jpaPage The JPA page.
 	 * @param ctor The public no-args constructor for the domain page.
-	 * @return The equivalent domain page instance.
+	 * @return The equivalent domain page instance, without an {@code endCursor}.
 	 */
 	public <P extends IBaseEntityPage<T>, T extends IBaseEntity> P toEntityPage(Page<T> jpaPage, Supplier<P> ctor) {
+		return toEntityPage(jpaPage, ctor, false);
+	}
+
+	/**
+	 * Converts a JPA {@code Page<T>} to a domain page type that implements {@code IBaseEntityPage<T>}.
+	 * @param <P> The domain page type.
+	 * @param <T> The domain content type.
+	 * @param jpaPage The JPA page.
+	 * @param ctor The public no-args constructor for the domain page.
+	 * @param isSeekable Whether the page's query supports seeking, in which case the domain page's {@code endCursor} is
+	 * set.
+	 * @return The equivalent domain page instance.
+	 */
+	public <P extends IBaseEntityPage<T>, T extends IBaseEntity> P toEntityPage(Page<T> jpaPage, Supplier<P> ctor,
+		boolean isSeekable) {
+
 		P entityPage = ctor.get();
 		entityPage.setContent(unproxy(unproxy(jpaPage.getContent())));
 		entityPage.setHasContent(jpaPage.hasContent());
@@ -404,13 +511,41 @@ public class EntityUtils {
 		entityPage.setSize(jpaPage.getSize());
 		entityPage.setTotalElements(jpaPage.getTotalElements());
 		entityPage.setTotalPages(jpaPage.getTotalPages());
+		if (isSeekable && jpaPage.hasContent())
+			entityPage.setEndCursor(encodeCursor(jpaPage.getContent().getLast().getId()));
 		return entityPage;
 	}
 
+	/**
+	 * Encodes a page cursor, as returned in {@code IPage.endCursor}.
+	 * @param id The ID of the last record on the page.
+	 * @return The opaque cursor string.
+	 */
+	public String encodeCursor(Long id) {
+		return CURSOR_ENCODER.encodeToString((CURSOR_PREFIX + id).getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Decodes a page cursor, as passed in {@code PageableInput.after}.
+	 * @param cursor The opaque cursor string.
+	 * @return The ID of the last record on the preceding page.
+	 * @throws IllegalArgumentException if {@code cursor} is not a valid cursor.
+	 */
+	public Long decodeCursor(String cursor) {
+		try {
+			String decoded = new String(CURSOR_DECODER.decode(cursor), StandardCharsets.US_ASCII);
+			if (decoded.startsWith(CURSOR_PREFIX))
+				return Long.valueOf(decoded.substring(CURSOR_PREFIX.length()));
+		} catch (IllegalArgumentException e) {
+			// Drop through to the exception below (NumberFormatException is an IllegalArgumentException).
+		}
+		throw new IllegalArgumentException("Invalid cursor: " + cursor);
+	}
+
 	/**
 	 * Appends an ORDER BY clause to a string buffer.
 	 * @param sql The SQL buffer.
-	 * @param pageable Paginator with sorting information.
+	 * @param sort The sort order.
 	 * @param baseTableQualifier The qualifier with which to prefix field references in base tables (e.g. {@code "e."}).
 	 * For unprefixed, pass an empty string.
 	 * @param joinedTableQualifier The qualifier with which to prefix field references in joined tables (e.g.
@@ -421,10 +556,10 @@ public class EntityUtils {
 	 * table (e.g., {@code "ubu."}). For unprefixed, pass an empty string.
 	 * @param multiline Whether to place the ORDER BY and each sort term on a separate line.
 	 */
-	public void appendOrderByClause(StringBuilder sql, Pageable pageable, String baseTableQualifier,
+	public void appendOrderByClause(StringBuilder sql, Sort sort, String baseTableQualifier,
 		String joinedTableQualifier, String createdByUserQualifier, String updatedByUserQualifier, boolean multiline) {
 
-		if (pageable.getSort().isSorted()) {
+		if (sort.isSorted()) {
 			if (multiline)
 				sql.append(NL);
 			else
@@ -435,7 +570,7 @@ public class EntityUtils {
 			else
 				sql.append(' ');
 			boolean needsComma = false;
-			for (Order order : pageable.getSort().toList()) {
+			for (Order order : sort.toList()) {
 				String qualifier = getQualifier(order.getProperty(), baseTableQualifier, joinedTableQualifier,
 					createdByUserQualifier, updatedByUserQualifier);
 				String property = toDbColumnName(order.getProperty());
@@ -478,14 +613,76 @@ public class EntityUtils {
 		}
 	}
 
+	/**
+	 * Appends a keyset ('seek') predicate to a string buffer. The predicate is satisfied by rows which sort after an
+	 * anchor row according to {@code sort}, with the same null handling as
+	 * {@link #appendOrderByClause}. It is the nested equivalent of {@code (col1, col2, ..., id) > (:k1, :k2, ..., :id)},
+	 * which unlike a row value comparison also copes with mixed sort directions and {@code NULL} values. The caller
+	 * must join the anchor row's tables using the anchor qualifiers and ensure that the sort ends with a unique key.
+	 * @param sql The SQL buffer.
+	 * @param sort The sort order, which must end with a unique key.
+	 * @param baseTableQualifier The qualifier with which to prefix field references in base tables (e.g. {@code "e."}).
+	 * @param joinedTableQualifier The qualifier with which to prefix field references in joined tables (e.g.
+	 * {@code "ee."}).
+	 * @param createdByUserQualifier The qualifier with which to prefix 'createdByUser*' field references to joined user
+	 * table (e.g., {@code "cbu."}).
+	 * @param updatedByUserQualifier The qualifier with which to prefix 'updatedByUser*' field references to joined user
+	 * table (e.g., {@code "ubu."}).
+	 * @param anchorQualifierPrefix The prefix which, applied to the above qualifiers, references the corresponding
+	 * anchor row tables (e.g., {@code "k"} for {@code "ke."}, {@code "kee."}, etc.).
+	 */
+	public void appendSeekPredicate(StringBuilder sql, Sort sort, String baseTableQualifier,
+		String joinedTableQualifier, String createdByUserQualifier, String updatedByUserQualifier,
+		String anchorQualifierPrefix) {
+
+		List<Order> orders = sort.toList();
+		sql.append('(');
+		for (int i = 0; i < orders.size(); i++) {
+			Order order = orders.get(i);
+			String qualifier = getQualifier(order.getProperty(), baseTableQualifier, joinedTableQualifier,
+				createdByUserQualifier, updatedByUserQualifier);
+			String column = qualifier + '\"' + toDbColumnName(order.getProperty()) + '\"';
+			String anchorColumn = anchorQualifierPrefix + column;
+			if (order.isIgnoreCase()) {
+				column = "LOWER(" + column + ')';
+				anchorColumn = "LOWER(" + anchorColumn + ')';
+			}
+			char op = order.isAscending() ? '>' : '<';
+			if (order.getProperty().equals("id")) {
+				// IDs are never NULL.
+				sql.append(column).append(' ').append(op).append(' ').append(anchorColumn);
+			} else {
+				// NATIVE null precedence on both MariaDB and H2 treats NULL as lower than any other value.
+				boolean nullsFirst = switch (order.getNullHandling()) {
+					case NULLS_FIRST -> true;
+					case NULLS_LAST -> false;
+					default -> order.isAscending();
+				};
+				sql.append('(').append(column).append(' ').append(op).append(' ').append(anchorColumn).append(" OR ");
+				if (nullsFirst)
+					sql.append(anchorColumn).append(" IS NULL AND ").append(column).append(" IS NOT NULL");
+				else
+					sql.append(column).append(" IS NULL AND ").append(anchorColumn).append(" IS NOT NULL");
+				sql.append(')');
+			}
+			if (i < orders.size() - 1) {
+				sql.append(" OR (").append(column).append(" = ").append(anchorColumn).append(" OR ").append(column)
+					.append(" IS NULL AND ").append(anchorColumn).append(" IS NULL) AND (");
+			}
+		}
+		for (int i = 1; i < orders.size(); i++)
+			sql.append(')');
+		sql.append(')');
+	}
+
 	/**
 	 * Appends the order-by specification to a query name.
 	 * @param queryName The query name under construction.
-	 * @param pageable Pagination and sorting specification.
+	 * @param sort The sort order.
 	 */
-	public void appendOrderByToQueryName(StringBuilder queryName, Pageable pageable) {
+	public void appendOrderByToQueryName(StringBuilder queryName, Sort sort) {
 		queryName.append("OrderBy");
-		pageable.getSort().forEach(o -> queryName.append(StringUtils.firstToUpper(o.getProperty()))
+		sort.forEach(o -> queryName.append(StringUtils.firstToUpper(o.getProperty()))
 			.append(o.getNullHandling() == NullHandling.NATIVE //
 				? "" : StringUtils.firstToUpper(o.getNullHandling().name()))
 			.append(o.isIgnoreCase() ? "IgnoreCase" : "").append(StringUtils.firstToUpper(o.getDirection().name())));
@@ -553,6 +750,9 @@ public class EntityUtils {
 
 		if (isBaseTableField(fieldName))
 			return baseTableQualifier;
+		// Relevance is a SELECT list alias.
+		if (fieldName.equals(RELEVANCE))
+			return "";
 		if (fieldName.startsWith("createdByUser"))
 			return createdByUserQualifier;
 		if (fieldName.startsWith("updatedByUser"))
@@ -600,4 +800,30 @@ public class EntityUtils {
 		return ENTITY_KIND_LINK_MAP.getOrDefault(fromEntityKind, Collections.emptyList());
 	}
 
+	/**
+	 * Checks that a link between two entities obeys the linkage rules: an entity cannot be linked to itself or to
+	 * another entity of the same kind, and each pair of entity kinds can only be linked in one direction.
+	 * @param fromEntityKind The 'from' entity kind.
+	 * @param fromEntityId The 'from' entity ID, or {@code null} if the entity has yet to be created.
+	 * @param toEntityKind The 'to' entity kind.
+	 * @param toEntityId The 'to' entity ID, or {@code null} if the entity has yet to be created.
+	 * @throws IllegalArgumentException if the link would break a linkage rule.
+	 */
+	public void checkLinkageRules(EntityKind fromEntityKind, Long fromEntityId, EntityKind toEntityKind,
+		Long toEntityId) {
+
+		if (fromEntityId != null && fromEntityId.equals(toEntityId)) {
+			throw new IllegalArgumentException(
+				"Cannot link an entity to itself: " + fromEntityKind.label() + '#' + fromEntityId);
+		}
+
+		if (fromEntityKind == toEntityKind)
+			throw new IllegalArgumentException("Cannot link two entities of the same kind: " + fromEntityKind.label());
+
+		if (!getToEntityKinds(fromEntityKind).contains(toEntityKind)) {
+			throw new IllegalArgumentException(toEntityKind.label() + " must be the 'from' entity and "
+				+ fromEntityKind.label() + " must be the 'to' entity");
+		}
+	}
+
 }
@@ -0,0 +1,218 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.demonfiddler.ee.server.model.Declaration;
+import io.github.demonfiddler.ee.server.model.EntityKind;
+import io.github.demonfiddler.ee.server.model.ITrackedEntity;
+import io.github.demonfiddler.ee.server.model.Name;
+import io.github.demonfiddler.ee.server.model.Person;
+import io.github.demonfiddler.ee.server.model.Publication;
+import io.github.demonfiddler.ee.server.model.Quotation;
+
+/**
+ * Maintains the {@code entity_person_name} table, which holds the normalised last names of persons and of the persons
+ * named by declaration signatories, publication authors and quotation quotees. The names are parsed once, when a
+ * record is saved, so that fuzzy master-detail queries can match records by equality on an indexed column rather
+ * than by parsing names and scanning text columns with {@code LIKE}. The table is derived data: it is not backed up,
+ * but rebuilt after a restore and at startup if it is empty.
+ */
+@Component
+public class PersonNameIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersonNameIndex.class);
+
+    /**
+     * A column that names persons.
+     * @param table The table name.
+     * @param column The column name.
+     * @param lastNames Extracts the last names from a column value.
+     */
+    private static record NameColumn(String table, String column, Function<String, Set<String>> lastNames) {
+    }
+
+    /** The name columns, keyed on entity kind. */
+    private static final Map<String, NameColumn> NAME_COLUMNS = Map.of( //
+        EntityKind.DEC.name(), new NameColumn("declaration", "signatories", PersonNameIndex::parseLastNames), //
+        EntityKind.PER.name(), new NameColumn("person", "last_name", PersonNameIndex::normalizeLastName), //
+        EntityKind.PUB.name(), new NameColumn("publication", "authors", PersonNameIndex::parseLastNames), //
+        EntityKind.QUO.name(), new NameColumn("quotation", "quotee", PersonNameIndex::parseLastName));
+    /** The length of the {@code last_name_norm} column. */
+    private static final int MAX_NAME_LENGTH = 50;
+    /** The maximum number of rows to insert per batch when rebuilding the table. */
+    private static final int BATCH_SIZE = 1000;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final String INSERT_NAME =
+        "INSERT INTO \"entity_person_name\" (\"entity_id\", \"last_name_norm\") VALUES (?, ?)";
+    private static final String DELETE_NAMES = "DELETE FROM \"entity_person_name\" WHERE \"entity_id\" = ?";
+    private static final String DELETE_ALL_NAMES = "DELETE FROM \"entity_person_name\"";
+    private static final String COUNT_NAMES = "SELECT COUNT(*) FROM \"entity_person_name\"";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate txTemplate;
+
+    public PersonNameIndex(JdbcTemplate jdbcTemplate, PlatformTransactionManager txManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.txTemplate = new TransactionTemplate(txManager);
+    }
+
+    /**
+     * Normalises a last name, much as the database's case- and accent-insensitive collation compares names.
+     * @param lastName The last name, can be {@code null}.
+     * @return {@code lastName} in lower case without diacritics, or {@code null} if it is {@code null} or blank.
+     */
+    public static String normalize(String lastName) {
+        if (lastName == null || lastName.isBlank())
+            return null;
+
+        String norm = DIACRITICS.matcher(Normalizer.normalize(lastName.strip(), Normalizer.Form.NFD)).replaceAll("")
+            .toLowerCase(Locale.ROOT);
+        return norm.length() > MAX_NAME_LENGTH ? norm.substring(0, MAX_NAME_LENGTH) : norm;
+    }
+
+    private static Set<String> normalizeLastName(String lastName) {
+        String norm = normalize(lastName);
+        return norm != null ? Set.of(norm) : Set.of();
+    }
+
+    private static Set<String> parseLastName(String namestr) {
+        if (namestr == null || namestr.isBlank())
+            return Set.of();
+
+        Name name = Name.parse(namestr.strip());
+        return name != null ? normalizeLastName(name.getLastName()) : Set.of();
+    }
+
+    private static Set<String> parseLastNames(String names) {
+        if (names == null)
+            return Set.of();
+
+        Set<String> lastNames = new LinkedHashSet<>();
+        StringTokenizer tok = new StringTokenizer(names, "\r\n");
+        while (tok.hasMoreTokens())
+            lastNames.addAll(parseLastName(tok.nextToken()));
+        return lastNames;
+    }
+
+    /**
+     * Returns the value of the name column of an entity.
+     * @param entity The entity.
+     * @return The names, or {@code null} if {@code entity} does not name persons.
+     */
+    private static String getNames(ITrackedEntity entity) {
+        return switch (entity) {
+            case Declaration declaration -> declaration.getSignatories();
+            case Person person -> person.getLastName();
+            case Publication publication -> publication.getAuthors();
+            case Quotation quotation -> quotation.getQuotee();
+            default -> null;
+        };
+    }
+
+    /**
+     * Populates the table at startup if it is empty, for example following a schema migration.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void onContextRefreshed() {
+        Long count = jdbcTemplate.queryForObject(COUNT_NAMES, Long.class);
+        if (count != null && count == 0)
+            txTemplate.executeWithoutResult(_ -> rebuild());
+    }
+
+    /**
+     * Replaces the names of a saved entity. Call this after creating or updating a declaration, person, publication or
+     * quotation; other entities are ignored.
+     * @param entity The saved entity.
+     */
+    public void update(ITrackedEntity entity) {
+        NameColumn nameColumn = NAME_COLUMNS.get(entity.getEntityKind());
+        if (nameColumn == null)
+            return;
+
+        jdbcTemplate.update(DELETE_NAMES, entity.getId());
+        List<Object[]> rows = new ArrayList<>();
+        addRows(rows, entity.getId(), nameColumn.lastNames().apply(getNames(entity)));
+        jdbcTemplate.batchUpdate(INSERT_NAME, rows);
+    }
+
+    /**
+     * Inserts the names of newly inserted entities.
+     * @param entityKind The kind of the entities.
+     * @param ids The entity IDs.
+     * @param names The value of each entity's name column, in the same order as {@code ids}.
+     */
+    public void insert(EntityKind entityKind, List<Long> ids, List<String> names) {
+        NameColumn nameColumn = NAME_COLUMNS.get(entityKind.name());
+        if (nameColumn == null)
+            return;
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++)
+            addRows(rows, ids.get(i), nameColumn.lastNames().apply(names.get(i)));
+        jdbcTemplate.batchUpdate(INSERT_NAME, rows);
+    }
+
+    /**
+     * Rebuilds the entire table from the name columns. The caller must supply the transaction.
+     * @return The number of rows inserted.
+     */
+    public int rebuild() {
+        jdbcTemplate.update(DELETE_ALL_NAMES);
+        int total = 0;
+        for (NameColumn nameColumn : NAME_COLUMNS.values()) {
+            List<Object[]> rows = new ArrayList<>();
+            String sql = "SELECT \"id\", \"" + nameColumn.column() + "\" FROM \"" + nameColumn.table() + '"';
+            jdbcTemplate.query(sql, rs -> {
+                addRows(rows, rs.getLong(1), nameColumn.lastNames().apply(rs.getString(2)));
+            });
+            for (int i = 0; i < rows.size(); i += BATCH_SIZE)
+                jdbcTemplate.batchUpdate(INSERT_NAME, rows.subList(i, Math.min(i + BATCH_SIZE, rows.size())));
+            total += rows.size();
+        }
+        LOGGER.debug("Rebuilt entity person names: {} rows", total);
+        return total;
+    }
+
+    private static void addRows(List<Object[]> rows, long entityId, Set<String> lastNames) {
+        for (String lastName : lastNames)
+            rows.add(new Object[] { entityId, lastName });
+    }
+
+}
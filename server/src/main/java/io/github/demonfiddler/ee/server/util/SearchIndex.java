@@ -0,0 +1,538 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.miscellaneous.LengthFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldCollectorManager;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.github.demonfiddler.ee.server.model.EntityKind;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * An embedded Lucene full text index over the text columns of claims, comments, declarations, entity links, persons,
+ * publications, quotations and topics. When enabled (by the {@code search.index.enabled} property), the custom
+ * repositories resolve a text filter to the list of matching IDs ranked by BM25 relevance, rather than joining with
+ * H2's {@code FT_SEARCH_DATA} or filtering with MariaDB's {@code MATCH ... AGAINST}. Each table has its own index in a
+ * subdirectory of {@code search.index.directory}, which is memory-mapped where the platform allows. The indexes are
+ * rebuilt at startup and thereafter kept up to date, row by row, as the mutation path commits changes.
+ * <p>
+ * Queries follow MariaDB's full text syntax. In natural language mode every word is optional and matches are ranked
+ * by relevance. In boolean mode a word may be prefixed with {@code +} (required) or {@code -} (excluded) and suffixed
+ * with {@code *} (prefix match), and a quoted phrase matches its words in sequence. Other boolean mode operators are
+ * ignored.
+ */
+@Component
+public class SearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchIndex.class);
+
+    /**
+     * A table whose text columns are indexed.
+     * @param table The table name.
+     * @param columns The double-quoted, comma-separated text column names.
+     */
+    private static record IndexedTable(String table, String columns) {
+    }
+
+    /** The indexed tables, keyed on entity kind. */
+    private static final Map<String, IndexedTable> INDEXED_TABLES = Map.of( //
+        EntityKind.CLA.name(), new IndexedTable("claim", "\"text\", \"notes\""), //
+        EntityKind.COM.name(), new IndexedTable("comment", "\"text\""), //
+        EntityKind.DEC.name(), new IndexedTable("declaration", "\"title\", \"signatories\", \"notes\""), //
+        EntityKind.LNK.name(), new IndexedTable("entity_link", "\"from_entity_locations\", \"to_entity_locations\""), //
+        EntityKind.PER.name(), new IndexedTable("person", "\"title\", \"first_name\", \"nickname\", \"prefix\", "
+            + "\"last_name\", \"suffix\", \"alias\", \"notes\", \"qualifications\""), //
+        EntityKind.PUB.name(), new IndexedTable("publication", "\"title\", \"authors\", \"abstract\", \"keywords\", "
+            + "\"notes\", \"doi\", \"isbn\", \"pmcid\", \"pmid\", \"url\""), //
+        EntityKind.QUO.name(), new IndexedTable("quotation", "\"quotee\", \"text\", \"source\", \"url\", \"notes\""), //
+        EntityKind.TOP.name(), new IndexedTable("topic", "\"label\", \"description\""));
+    /** The maximum number of IDs to reload with a single query. */
+    private static final int MAX_IDS_PER_QUERY = 1000;
+    /** Words shorter than this are not indexed. */
+    private static final int MIN_WORD_LENGTH = 2;
+    /** The indexed field that identifies a row's document, for replacing or deleting it. */
+    private static final String KEY = "key";
+    /** The doc values field that holds a row's ID, for ordering and returning matches. */
+    private static final String ID = "id";
+    /** The indexed field that holds a row's text. */
+    private static final String TEXT = "text";
+    /** Orders matches by descending relevance, then by ascending ID. */
+    private static final Sort RELEVANCE_ORDER = new Sort(SortField.FIELD_SCORE, new SortField(ID, SortField.Type.LONG));
+    private static final Pattern QUERY_TERM = Pattern.compile("([+-]?)(?:\"([^\"]*)\"?|(\\S+))");
+
+    /**
+     * Splits text into words, folded to lower case without diacritics, much as the database's case- and
+     * accent-insensitive collation compares them.
+     */
+    private static final Analyzer ANALYZER = new Analyzer() {
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new StandardTokenizer();
+            TokenStream words = new LowerCaseFilter(tokenizer);
+            words = new ASCIIFoldingFilter(words);
+            words = new LengthFilter(words, MIN_WORD_LENGTH, Integer.MAX_VALUE);
+            return new TokenStreamComponents(tokenizer, words);
+        }
+
+    };
+
+    /**
+     * The Lucene index for a single table. Writes are serialised by its lock, so that a rebuild and a concurrent
+     * reload of some of its rows are applied in order; searches need no lock.
+     */
+    private static final class TableIndex {
+
+        final Lock lock = new ReentrantLock();
+        final Directory directory;
+        final IndexWriter writer;
+        final SearcherManager searcherManager;
+
+        /**
+         * Opens an empty index, replacing any left in {@code path} by a previous run.
+         * @param path The index directory.
+         * @throws IOException if the index cannot be created.
+         */
+        TableIndex(Path path) throws IOException {
+            directory = FSDirectory.open(path);
+            writer = new IndexWriter(directory,
+                new IndexWriterConfig(ANALYZER).setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+            searcherManager = new SearcherManager(writer, null);
+        }
+
+        /**
+         * Indexes a row, replacing any previous version. Caller must hold the lock.
+         * @param id The row ID.
+         * @param text The row's text.
+         * @throws IOException if the index cannot be written.
+         */
+        void put(long id, String text) throws IOException {
+            Document document = new Document();
+            document.add(new StringField(KEY, Long.toString(id), Field.Store.NO));
+            document.add(new NumericDocValuesField(ID, id));
+            document.add(new TextField(TEXT, text, Field.Store.NO));
+            writer.updateDocument(new Term(KEY, Long.toString(id)), document);
+        }
+
+        /**
+         * Removes a row from the index. Caller must hold the lock.
+         * @param id The row ID.
+         * @throws IOException if the index cannot be written.
+         */
+        void remove(long id) throws IOException {
+            writer.deleteDocuments(new Term(KEY, Long.toString(id)));
+        }
+
+        /**
+         * Makes the changes written so far visible to searches.
+         * @throws IOException if the index cannot be read.
+         */
+        void refresh() throws IOException {
+            searcherManager.maybeRefreshBlocking();
+        }
+
+        /**
+         * Returns the most relevant matches for a query.
+         * @param query The query.
+         * @param maxHits The maximum number of matches to return.
+         * @return The matches in descending order of relevance, with the total number of matches.
+         * @throws IOException if the index cannot be read.
+         */
+        TopFieldDocs search(Query query, int maxHits) throws IOException {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                // Count every match, so that a truncated result can be reported.
+                return searcher.search(query, new TopFieldCollectorManager(RELEVANCE_ORDER, maxHits, null,
+                    Integer.MAX_VALUE));
+            } finally {
+                searcherManager.release(searcher);
+            }
+        }
+
+        void close() throws IOException {
+            searcherManager.close();
+            writer.close();
+            directory.close();
+        }
+
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxHits;
+    private final Path directory;
+    /** Table indexes keyed on table name. */
+    private final Map<String, TableIndex> indexes = new ConcurrentHashMap<>();
+
+    public SearchIndex(JdbcTemplate jdbcTemplate, @Value("${search.index.enabled:false}") boolean enabled,
+        @Value("${search.index.max-hits:10000}") int maxHits,
+        @Value("${search.index.directory:${java.io.tmpdir}/ee-search-index}") Path directory) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxHits = maxHits;
+        this.directory = directory;
+    }
+
+    /**
+     * Splits text into indexed words.
+     * @param text The text to split.
+     * @return The words, in order of occurrence.
+     */
+    private static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        try (TokenStream stream = ANALYZER.tokenStream(TEXT, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken())
+                words.add(term.toString());
+            stream.end();
+        } catch (IOException e) {
+            // Cannot happen when reading from a string.
+            throw new UncheckedIOException(e);
+        }
+        return words;
+    }
+
+    /**
+     * Parses a full text query.
+     * @param text The query text.
+     * @param isAdvanced Whether to parse the query in boolean mode rather than natural language mode.
+     * @return The query.
+     */
+    private static Query parse(String text, boolean isAdvanced) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        if (!isAdvanced) {
+            for (String word : tokenize(text))
+                query.add(new TermQuery(new Term(TEXT, word)), Occur.SHOULD);
+            return query.build();
+        }
+
+        Matcher m = QUERY_TERM.matcher(text);
+        while (m.find()) {
+            Occur occur = switch (m.group(1)) {
+                case "+" -> Occur.MUST;
+                case "-" -> Occur.MUST_NOT;
+                default -> Occur.SHOULD;
+            };
+            String phrase = m.group(2);
+            String word = m.group(3);
+            if (phrase != null) {
+                List<String> words = tokenize(phrase);
+                if (!words.isEmpty())
+                    query.add(new PhraseQuery(TEXT, words.toArray(String[]::new)), occur);
+            } else {
+                // A word can split into several indexed words (e.g. 'CO2-induced'), of which only the last is a prefix.
+                List<String> words = tokenize(word);
+                boolean isPrefix = word.endsWith("*");
+                for (int i = 0; i < words.size(); i++) {
+                    Term term = new Term(TEXT, words.get(i));
+                    query.add(isPrefix && i == words.size() - 1 ? new PrefixQuery(term) : new TermQuery(term), occur);
+                }
+            }
+        }
+        return query.build();
+    }
+
+    /**
+     * Formats search results as the JSON array of IDs that a query binds as its {@code textHits} parameter.
+     * @param ids The IDs, in descending order of relevance.
+     * @return The IDs as a JSON array.
+     */
+    public static String formatHits(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    /**
+     * Parses a JSON array of IDs formatted by {@link #formatHits(List)}. H2 has no {@code JSON_TABLE} function, so its
+     * schema declares this method as the {@code TEXT_HITS} function, whose result a query unnests.
+     * @param hits The JSON array of IDs.
+     * @return The IDs.
+     */
+    public static Long[] parseHits(String hits) {
+        String ids = hits.substring(1, hits.length() - 1);
+        return ids.isEmpty() ? new Long[0] : Arrays.stream(ids.split(",")).map(Long::valueOf).toArray(Long[]::new);
+    }
+
+    /**
+     * Returns whether the index is enabled.
+     * @return {@code true} if the repositories should use the index for text filters.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns whether the index covers a table.
+     * @param table The table name.
+     * @return {@code true} if the index is enabled and covers {@code table}.
+     */
+    public boolean isIndexed(String table) {
+        return enabled && indexes.containsKey(table);
+    }
+
+    /**
+     * Returns the IDs of the rows in a table that match a full text query. If there are more than
+     * {@code search.index.max-hits} matches, only the most relevant are returned and the truncation is logged, since
+     * the result then understates the total number of matching records.
+     * @param table The table name.
+     * @param text The query text.
+     * @param isAdvanced Whether to interpret the query in boolean mode rather than natural language mode.
+     * @return The IDs of the matching rows, in descending order of relevance, at most {@code search.index.max-hits}.
+     */
+    public List<Long> search(String table, String text, boolean isAdvanced) {
+        TableIndex index = indexes.get(table);
+        if (index == null)
+            return List.of();
+
+        TopFieldDocs hits;
+        try {
+            hits = index.search(parse(text, isAdvanced), maxHits);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (hits.totalHits.value() > hits.scoreDocs.length) {
+            LOGGER.warn("Search for '{}' in {} matched {} rows, of which only the {} most relevant are used; "
+                + "increase search.index.max-hits to include them all", text, table, hits.totalHits.value(),
+                hits.scoreDocs.length);
+        }
+
+        List<Long> ids = new ArrayList<>(hits.scoreDocs.length);
+        for (ScoreDoc hit : hits.scoreDocs)
+            ids.add((Long)((FieldDoc)hit).fields[1]);
+        return ids;
+    }
+
+    /**
+     * Builds the index at startup, if enabled.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void onContextRefreshed() {
+        if (enabled)
+            rebuild();
+    }
+
+    /**
+     * Closes the table indexes.
+     */
+    @PreDestroy
+    public void close() {
+        for (TableIndex index : indexes.values()) {
+            try {
+                index.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close search index", e);
+            }
+        }
+        indexes.clear();
+    }
+
+    /**
+     * Reindexes the specified rows once the current transaction (if any) commits. Call this after creating, updating
+     * or hard-deleting a tracked entity; rows that no longer exist are removed from the index.
+     * @param entityKind The entity kind, as per {@link EntityKind}.
+     * @param ids The IDs of the rows to reindex.
+     */
+    public void update(String entityKind, Collection<Long> ids) {
+        IndexedTable table = INDEXED_TABLES.get(entityKind);
+        if (!enabled || table == null || ids.isEmpty())
+            return;
+
+        List<Long> idList = List.copyOf(ids);
+        afterCommit(() -> reload(table, idList));
+    }
+
+    /**
+     * Rebuilds the entire index once the current transaction (if any) commits. Call this after bulk changes to the
+     * indexed tables, such as a restore.
+     */
+    public void invalidate() {
+        if (enabled)
+            afterCommit(this::rebuild);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Rebuilds the index for every indexed table. Searches see the previous contents until a table has been fully
+     * reindexed, and a table is only searched once it has first been built.
+     */
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        int rows = 0;
+        for (IndexedTable table : INDEXED_TABLES.values()) {
+            try {
+                TableIndex index = indexes.get(table.table());
+                boolean isNew = index == null;
+                if (isNew)
+                    index = new TableIndex(directory.resolve(table.table()));
+                index.lock.lock();
+                try {
+                    index.writer.deleteAll();
+                    String sql = "SELECT \"id\", " + table.columns() + " FROM \"" + table.table() + '"';
+                    TableIndex target = index;
+                    jdbcTemplate.query(sql, rs -> {
+                        try {
+                            target.put(rs.getLong(1), concatenate(rs));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    index.writer.commit();
+                    index.refresh();
+                    rows += index.writer.getDocStats().numDocs;
+                } finally {
+                    index.lock.unlock();
+                }
+                if (isNew)
+                    indexes.put(table.table(), index);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        LOGGER.info("Indexed {} rows in {} ms", rows, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reloads the specified rows of a table into its index, removing any that no longer exist.
+     * @param table The table.
+     * @param ids The IDs of the rows to reload.
+     */
+    private void reload(IndexedTable table, List<Long> ids) {
+        TableIndex index = indexes.get(table.table());
+        if (index == null)
+            return;
+
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = ids.subList(i, Math.min(i + MAX_IDS_PER_QUERY, ids.size()));
+            String sql = "SELECT \"id\", " + table.columns() + " FROM \"" + table.table() + "\" WHERE \"id\" IN ("
+                + String.join(",", Collections.nCopies(chunk.size(), "?")) + ')';
+            Map<Long, String> texts = HashMap.newHashMap(chunk.size());
+            jdbcTemplate.query(sql, rs -> {
+                texts.put(rs.getLong(1), concatenate(rs));
+            }, chunk.toArray());
+
+            index.lock.lock();
+            try {
+                for (Long id : chunk) {
+                    String text = texts.get(id);
+                    if (text != null)
+                        index.put(id, text);
+                    else
+                        index.remove(id);
+                }
+                index.refresh();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                index.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Concatenates the text columns of the current row, which follow its ID.
+     * @param rs The result set, positioned on a row.
+     * @return The row's text.
+     * @throws SQLException if a column cannot be read.
+     */
+    private static String concatenate(ResultSet rs) throws SQLException {
+        StringBuilder text = new StringBuilder();
+        int columnCount = rs.getMetaData().getColumnCount();
+        for (int i = 2; i <= columnCount; i++) {
+            String value = rs.getString(i);
+            if (value != null)
+                text.append(value).append(' ');
+        }
+        return text.toString();
+    }
+
+}
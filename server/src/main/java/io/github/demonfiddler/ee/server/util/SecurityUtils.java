@@ -19,10 +19,14 @@
 
 package io.github.demonfiddler.ee.server.util;
 
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import graphql.schema.DataFetchingEnvironment;
 import io.github.demonfiddler.ee.server.model.AuthorityKind;
 
 /**
@@ -31,6 +35,17 @@ import io.github.demonfiddler.ee.server.model.AuthorityKind;
 @Component
 public class SecurityUtils {
 
+    /** The request attribute that holds the request's resolved access context. */
+    private static final String ACCESS_CONTEXT_ATTRIBUTE = SecurityUtils.class.getName() + ".accessContext";
+
+    /**
+     * An access context and the authentication from which it was resolved.
+     * @param authentication The authentication.
+     * @param accessContext The access context.
+     */
+    private record ResolvedAccessContext(Authentication authentication, AccessContext accessContext) {
+    }
+
     public String getCurrentUsername() {
         Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         return principal instanceof User user ? user.getUsername() : principal.toString();
@@ -41,4 +56,43 @@ public class SecurityUtils {
             .anyMatch(a -> a.getAuthority().equals(authorityKind.name()));
     }
 
+    /**
+     * Returns the current user's access context. Within a GraphQL execution this is the context which
+     * {@code AccessContextInterceptor} resolved for the whole execution (see {@link AccessContextAccessor}). Otherwise,
+     * within a web request the context is resolved once and held as a request attribute, being resolved afresh only if
+     * the request's authentication changes (e.g. upon login).
+     * @return The current access context.
+     */
+    public AccessContext getAccessContext() {
+        AccessContext current = AccessContextAccessor.getCurrent();
+        if (current != null)
+            return current;
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null)
+            return AccessContext.of(authentication);
+
+        if (attributes.getAttribute(ACCESS_CONTEXT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) //
+            instanceof ResolvedAccessContext resolved && resolved.authentication() == authentication) {
+
+            return resolved.accessContext();
+        }
+        AccessContext accessContext = AccessContext.of(authentication);
+        attributes.setAttribute(ACCESS_CONTEXT_ATTRIBUTE, new ResolvedAccessContext(authentication, accessContext),
+            RequestAttributes.SCOPE_REQUEST);
+        return accessContext;
+    }
+
+    /**
+     * Returns the access context of a GraphQL execution, as placed in its {@code GraphQLContext} by
+     * {@code AccessContextInterceptor}.
+     * @param dataFetchingEnvironment The data fetching environment.
+     * @return The execution's access context.
+     */
+    public AccessContext getAccessContext(DataFetchingEnvironment dataFetchingEnvironment) {
+        AccessContext accessContext = dataFetchingEnvironment.getGraphQlContext().get(AccessContextAccessor.KEY);
+        return accessContext != null ? accessContext : getAccessContext();
+    }
+
 }
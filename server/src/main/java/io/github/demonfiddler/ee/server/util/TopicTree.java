@@ -0,0 +1,241 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the topic hierarchy. Topics are identified by their IDs, which are held in primitive arrays
+ * along with each topic's parent ID and status. The children of each topic are held in a single array, in ascending
+ * ID order, indexed by offsets into that array (i.e., compressed sparse row format).
+ */
+public final class TopicTree {
+
+    /** The ID returned for the parent of a root or unknown topic. */
+    public static final long NO_ID = 0L;
+    /** An empty topic tree. */
+    public static final TopicTree EMPTY = new TopicTree(0L, new long[0], new long[0], new String[0]);
+
+    private static final long[] NO_IDS = {};
+
+    private final long version;
+    /** Topic IDs, in ascending order. */
+    private final long[] ids;
+    /** Parent topic IDs, indexed as per {@code ids}. */
+    private final long[] parentIds;
+    /** Topic statuses, indexed as per {@code ids}. */
+    private final String[] statuses;
+    /** Offsets into {@code childIds}, indexed as per {@code ids}, with a trailing end offset. */
+    private final int[] childOffsets;
+    /** Child topic IDs, grouped by parent. */
+    private final long[] childIds;
+    /** Root topic IDs, in ascending order. */
+    private final long[] rootIds;
+
+    /**
+     * Constructs a new topic tree. The arrays must all be the same length and are not copied, so the caller must not
+     * modify them subsequently.
+     * @param version The data version from which the tree was built.
+     * @param ids The topic IDs, in ascending order.
+     * @param parentIds The corresponding parent topic IDs, {@link #NO_ID} for root topics.
+     * @param statuses The corresponding topic statuses.
+     */
+    TopicTree(long version, long[] ids, long[] parentIds, String[] statuses) {
+        if (parentIds.length != ids.length || statuses.length != ids.length)
+            throw new IllegalArgumentException("ids, parentIds and statuses must be the same length");
+
+        this.version = version;
+        this.ids = ids;
+        this.parentIds = parentIds;
+        this.statuses = statuses;
+
+        // Count the children of each topic, then convert the counts into offsets.
+        int n = ids.length;
+        int[] parentIndexes = new int[n];
+        int[] offsets = new int[n + 1];
+        int rootCount = 0;
+        for (int i = 0; i < n; i++) {
+            int parentIndex = parentIds[i] == NO_ID ? -1 : Arrays.binarySearch(ids, parentIds[i]);
+            parentIndexes[i] = parentIndex;
+            if (parentIndex >= 0)
+                offsets[parentIndex + 1]++;
+            else
+                rootCount++;
+        }
+        for (int i = 0; i < n; i++)
+            offsets[i + 1] += offsets[i];
+
+        // Since ids are in ascending order, so are the children of each topic.
+        long[] children = new long[offsets[n]];
+        long[] roots = new long[rootCount];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int i = 0, r = 0; i < n; i++) {
+            int parentIndex = parentIndexes[i];
+            if (parentIndex >= 0)
+                children[next[parentIndex]++] = ids[i];
+            else
+                roots[r++] = ids[i];
+        }
+        this.childOffsets = offsets;
+        this.childIds = children;
+        this.rootIds = roots;
+    }
+
+    /**
+     * Returns the data version from which the tree was built.
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of topics in the tree.
+     * @return The topic count.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Indicates whether the tree contains a topic.
+     * @param id The topic ID.
+     * @return {@code true} if the tree contains the topic.
+     */
+    public boolean contains(long id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * Returns the IDs of all topics in the tree.
+     * @return A new array of topic IDs, in ascending order.
+     */
+    public long[] getIds() {
+        return ids.clone();
+    }
+
+    /**
+     * Returns the IDs of the root topics.
+     * @return A new array of root topic IDs, in ascending order.
+     */
+    public long[] getRootIds() {
+        return rootIds.clone();
+    }
+
+    /**
+     * Returns the parent ID of a topic.
+     * @param id The topic ID.
+     * @return The parent topic ID, or {@link #NO_ID} if the topic is a root topic or is not in the tree.
+     */
+    public long getParentId(long id) {
+        int index = indexOf(id);
+        return index >= 0 ? parentIds[index] : NO_ID;
+    }
+
+    /**
+     * Returns the status of a topic.
+     * @param id The topic ID.
+     * @return The topic's status code, or {@code null} if the topic is not in the tree.
+     */
+    public String getStatus(long id) {
+        int index = indexOf(id);
+        return index >= 0 ? statuses[index] : null;
+    }
+
+    /**
+     * Returns the IDs of a topic's children.
+     * @param id The topic ID.
+     * @return A new array of child topic IDs, in ascending order.
+     */
+    public long[] getChildIds(long id) {
+        int index = indexOf(id);
+        return index >= 0 ? Arrays.copyOfRange(childIds, childOffsets[index], childOffsets[index + 1]) : NO_IDS;
+    }
+
+    /**
+     * Returns the IDs of a topic's ancestors.
+     * @param id The topic ID.
+     * @return A new array of ancestor topic IDs, nearest first.
+     */
+    public long[] getAncestorIds(long id) {
+        long[] ancestorIds = new long[8];
+        int count = 0;
+        long parentId = getParentId(id);
+        // The count check guards against a (corrupt) cyclic hierarchy.
+        while (parentId != NO_ID && count < ids.length) {
+            if (count == ancestorIds.length)
+                ancestorIds = Arrays.copyOf(ancestorIds, count * 2);
+            ancestorIds[count++] = parentId;
+            parentId = getParentId(parentId);
+        }
+        return Arrays.copyOf(ancestorIds, count);
+    }
+
+    /**
+     * Returns the IDs of a topic's descendants.
+     * @param id The topic ID.
+     * @return A new array of descendant topic IDs, in depth-first order.
+     */
+    public long[] getDescendantIds(long id) {
+        int index = indexOf(id);
+        if (index < 0)
+            return NO_IDS;
+
+        // Each topic has at most one parent, so the descendants of a topic number fewer than the topics in the tree.
+        long[] descendantIds = new long[ids.length];
+        int count = 0;
+        int[] stack = new int[ids.length];
+        int top = 0;
+        stack[top++] = index;
+        while (top > 0 && count < ids.length) {
+            int i = stack[--top];
+            if (i != index)
+                descendantIds[count++] = ids[i];
+            // Push the children in reverse order, so that they are visited in ascending order.
+            for (int c = childOffsets[i + 1] - 1; c >= childOffsets[i] && top < stack.length; c--)
+                stack[top++] = indexOf(childIds[c]);
+        }
+        return Arrays.copyOf(descendantIds, count);
+    }
+
+    /**
+     * Indicates whether one topic is a descendant of another.
+     * @param id The putative descendant topic ID.
+     * @param ancestorId The putative ancestor topic ID.
+     * @return {@code true} if {@code ancestorId} is an ancestor of {@code id}.
+     */
+    public boolean isDescendant(long id, long ancestorId) {
+        for (long parentId : getAncestorIds(id)) {
+            if (parentId == ancestorId)
+                return true;
+        }
+        return false;
+    }
+
+    private int indexOf(long id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    @Override
+    public String toString() {
+        return "TopicTree {version: " + version + ", size: " + ids.length + ", roots: " + rootIds.length + "}";
+    }
+
+}
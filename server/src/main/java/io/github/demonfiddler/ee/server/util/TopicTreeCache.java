@@ -0,0 +1,126 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Holds a server-wide {@link TopicTree} snapshot of the topic hierarchy. The snapshot is replaced (copy-on-write) when
+ * a transaction that changes a topic's parent or status commits, so readers never see a partially updated tree and
+ * never need to lock.
+ */
+@Component
+public class TopicTreeCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TopicTreeCache.class);
+
+    private static final String SELECT_TOPICS = """
+        SELECT t."id", t."parent_id", e."status"
+        FROM "topic" t
+        JOIN "entity" e
+        ON e."id" = t."id"
+        ORDER BY t."id";
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    /** Incremented whenever committed topic changes make the current snapshot stale. */
+    private final AtomicLong version = new AtomicLong(1);
+    private final AtomicReference<TopicTree> snapshot = new AtomicReference<>(TopicTree.EMPTY);
+
+    public TopicTreeCache(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the current topic tree snapshot, loading it first if it is stale.
+     * @return The topic tree.
+     */
+    public TopicTree get() {
+        TopicTree tree = snapshot.get();
+        return tree.getVersion() < version.get() ? refresh() : tree;
+    }
+
+    /**
+     * Marks the topic tree as stale once the current transaction (if any) commits, then rebuilds it. Call this after
+     * creating a topic or changing a topic's parent or status.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                    refresh();
+                }
+
+            });
+        } else {
+            version.incrementAndGet();
+            refresh();
+        }
+    }
+
+    /**
+     * Loads a new topic tree and publishes it, unless a concurrent refresh has already published a newer one.
+     * @return The newest topic tree.
+     */
+    private TopicTree refresh() {
+        // Reading the version before the topics ensures that the tree reflects at least all changes up to that version.
+        long treeVersion = version.get();
+        TopicTree newTree = load(treeVersion);
+        TopicTree tree = snapshot.updateAndGet(cur -> cur.getVersion() >= treeVersion ? cur : newTree);
+        if (tree == newTree)
+            LOGGER.debug("Loaded {}", tree);
+        return tree;
+    }
+
+    private TopicTree load(long treeVersion) {
+        int[] count = { 0 };
+        long[][] ids = { new long[64] };
+        long[][] parentIds = { new long[64] };
+        String[][] statuses = { new String[64] };
+        jdbcTemplate.query(SELECT_TOPICS, (RowCallbackHandler)rs -> {
+            int i = count[0]++;
+            if (i == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], i * 2);
+                parentIds[0] = Arrays.copyOf(parentIds[0], i * 2);
+                statuses[0] = Arrays.copyOf(statuses[0], i * 2);
+            }
+            ids[0][i] = rs.getLong(1);
+            parentIds[0][i] = rs.getLong(2); // NULL => 0 == TopicTree.NO_ID
+            statuses[0][i] = rs.getString(3).intern();
+        });
+        int n = count[0];
+        return new TopicTree(treeVersion, Arrays.copyOf(ids[0], n), Arrays.copyOf(parentIds[0], n),
+            Arrays.copyOf(statuses[0], n));
+    }
+
+}
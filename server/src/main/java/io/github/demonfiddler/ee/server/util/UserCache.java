@@ -0,0 +1,134 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.github.demonfiddler.ee.server.model.User;
+import io.github.demonfiddler.ee.server.repository.UserRepository;
+
+/**
+ * A small, bounded, server-wide cache of users, which serves the {@code createdByUser} and {@code updatedByUser}
+ * fields of tracked entities. The user table is tiny and rarely changes, so any committed change to a user or to group
+ * membership simply clears the cache.
+ */
+@Component
+public class UserCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserCache.class);
+
+    private final UserRepository userRepository;
+    /** Cached users keyed on ID, in least recently used order. Guarded by itself. */
+    private final Map<Long, User> users;
+    /** Incremented whenever the cache is cleared. Guarded by {@code users}. */
+    private long version;
+
+    public UserCache(UserRepository userRepository, @Value("${user.cache.max-size:256}") int maxSize) {
+        this.userRepository = userRepository;
+        this.users = new LinkedHashMap<>(16, 0.75F, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, User> eldest) {
+                return size() > maxSize;
+            }
+
+        };
+    }
+
+    /**
+     * Returns the users with the specified IDs, fetching any that are not cached with a single query.
+     * @param ids The user IDs.
+     * @return The users keyed on ID. IDs for which there is no user are absent.
+     */
+    public Map<Long, User> findAllById(Collection<Long> ids) {
+        Map<Long, User> found = HashMap.newHashMap(ids.size());
+        List<Long> missing = new ArrayList<>();
+        long loadVersion;
+        synchronized (users) {
+            for (Long id : ids) {
+                User user = users.get(id);
+                if (user != null)
+                    found.put(id, user);
+                else
+                    missing.add(id);
+            }
+            loadVersion = version;
+        }
+        if (!missing.isEmpty()) {
+            LOGGER.debug("Loading users {}", missing);
+            List<User> loaded = userRepository.findAllById(missing);
+            for (User user : loaded) {
+                // Cached users are shared between requests, so initialise their collections before publishing them.
+                Hibernate.initialize(user.getAuthorities());
+                Hibernate.initialize(user.getGroups());
+                found.put(user.getId(), user);
+            }
+            synchronized (users) {
+                // Users loaded before a concurrent invalidation may be stale, so don't cache them.
+                if (version == loadVersion)
+                    loaded.forEach(user -> users.put(user.getId(), user));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Clears the cache once the current transaction (if any) commits. Call this after changing a user or the members
+     * of a group.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+
+            });
+        } else {
+            clear();
+        }
+    }
+
+    private void clear() {
+        synchronized (users) {
+            users.clear();
+            version++;
+        }
+        LOGGER.debug("Cleared user cache");
+    }
+
+}
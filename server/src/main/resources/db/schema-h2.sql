@@ -19,6 +19,8 @@
 
 CREATE ALIAS IF NOT EXISTS FT_INIT FOR "org.h2.fulltext.FullText.init";
 CALL FT_INIT();
+-- Parses the JSON array of IDs that the embedded full text index binds as a query's textHits parameter.
+CREATE ALIAS IF NOT EXISTS TEXT_HITS FOR "io.github.demonfiddler.ee.server.util.SearchIndex.parseHits";
 
 CREATE TABLE "abbreviation" (
 	"word" VARCHAR(50) NOT NULL COMMENT 'The title word, prefix or suffix',
@@ -127,6 +129,13 @@ CREATE INDEX "FK_entity_link_from" ON "entity_link" ("from_entity_id");
 CREATE INDEX "FK_entity_link_to" ON "entity_link" ("to_entity_id");
 CALL FT_CREATE_INDEX('PUBLIC', 'entity_link', 'from_entity_locations,to_entity_locations');
 
+CREATE TABLE "entity_person_name" (
+  "entity_id" BIGINT NOT NULL COMMENT 'The ID of a person, or of a declaration, publication or quotation that names a person',
+  "last_name_norm" VARCHAR(50) NOT NULL COMMENT 'The person''s last name, in lower case without diacritics',
+  PRIMARY KEY ("entity_id", "last_name_norm")
+);
+CREATE INDEX "entity_person_name_last_name_norm" ON "entity_person_name" ("last_name_norm", "entity_id");
+
 CREATE TABLE "journal" (
   "id" BIGINT PRIMARY KEY COMMENT 'The journal ID',
   "title" VARCHAR(200) NOT NULL COMMENT 'The journal, etc. title',
@@ -272,6 +281,14 @@ CREATE TABLE "topic" (
 CREATE INDEX "FK_topic_topic" ON "topic" ("parent_id");
 CALL FT_CREATE_INDEX('PUBLIC', 'topic', 'label,description');
 
+CREATE TABLE "topic_closure" (
+  "ancestor_id" BIGINT NOT NULL COMMENT 'The ancestor topic ID',
+  "descendant_id" BIGINT NOT NULL COMMENT 'The descendant topic ID',
+  "depth" INT NOT NULL COMMENT 'The number of levels between ancestor and descendant, zero for self',
+  PRIMARY KEY ("ancestor_id", "descendant_id")
+);
+CREATE INDEX "topic_closure_descendant" ON "topic_closure" ("descendant_id", "depth");
+
 CREATE TABLE "transaction_kind" (
   "code" CHAR(3) PRIMARY KEY COMMENT 'The transaction code',
   "label" VARCHAR(20) NOT NULL UNIQUE COMMENT 'A UI label for the transaction kind',
@@ -420,6 +437,12 @@ ALTER TABLE "entity_link"
   ON UPDATE CASCADE
   ON DELETE CASCADE;
 
+ALTER TABLE "entity_person_name"
+  ADD FOREIGN KEY ("entity_id")
+  REFERENCES "entity" ("id")
+  ON UPDATE CASCADE
+  ON DELETE CASCADE;
+
 
 ALTER TABLE "group"
   ADD FOREIGN KEY ("id")
@@ -562,6 +585,18 @@ ALTER TABLE "topic"
   ON UPDATE CASCADE
   ON DELETE CASCADE;
 
+ALTER TABLE "topic_closure"
+  ADD FOREIGN KEY ("ancestor_id")
+  REFERENCES "topic" ("id")
+  ON UPDATE CASCADE
+  ON DELETE CASCADE;
+
+ALTER TABLE "topic_closure"
+  ADD FOREIGN KEY ("descendant_id")
+  REFERENCES "topic" ("id")
+  ON UPDATE CASCADE
+  ON DELETE CASCADE;
+
 
 ALTER TABLE "user"
   ADD FOREIGN KEY ("id")
@@ -199,6 +199,15 @@ ON fe.id = el."from_entity_id"
 JOIN "entity" te
 ON te.id = el."to_entity_id";
 
+-- Dumping structure for table evidence_engine.entity_person_name
+CREATE TABLE IF NOT EXISTS "entity_person_name" (
+  "entity_id" BIGINT(20) UNSIGNED NOT NULL COMMENT 'The ID of a person, or of a declaration, publication or quotation that names a person',
+  "last_name_norm" VARCHAR(50) NOT NULL COLLATE utf8mb4_bin COMMENT 'The person''s last name, in lower case without diacritics',
+  PRIMARY KEY ("entity_id","last_name_norm"),
+  KEY "entity_person_name_last_name_norm" ("last_name_norm","entity_id"),
+  CONSTRAINT "FK_entity_person_name_entity" FOREIGN KEY ("entity_id") REFERENCES "entity" ("id") ON UPDATE CASCADE ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='The normalised last names of persons and of the persons named by declarations, publications and quotations';
+
 -- Dumping structure for table evidence_engine.journal
 CREATE TABLE IF NOT EXISTS "journal" (
   "id"  BIGINT(20) UNSIGNED NOT NULL COMMENT 'The journal ID',
@@ -418,6 +427,17 @@ CREATE TABLE IF NOT EXISTS "topic" (
   CONSTRAINT "fk_topic_topic" FOREIGN KEY ("parent_id") REFERENCES "topic" ("id") ON UPDATE CASCADE ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='A topic in a hierarchy of such topics, with arbitrary breadth and depth';
 
+-- Dumping structure for table evidence_engine.topic_closure
+CREATE TABLE IF NOT EXISTS "topic_closure" (
+  "ancestor_id" BIGINT(20) UNSIGNED NOT NULL COMMENT 'The ancestor topic ID',
+  "descendant_id" BIGINT(20) UNSIGNED NOT NULL COMMENT 'The descendant topic ID',
+  "depth" INT(11) UNSIGNED NOT NULL COMMENT 'The number of levels between ancestor and descendant, zero for self',
+  PRIMARY KEY ("ancestor_id","descendant_id"),
+  KEY "topic_closure_descendant" ("descendant_id","depth"),
+  CONSTRAINT "FK_topic_closure_ancestor" FOREIGN KEY ("ancestor_id") REFERENCES "topic" ("id") ON UPDATE CASCADE ON DELETE CASCADE,
+  CONSTRAINT "FK_topic_closure_descendant" FOREIGN KEY ("descendant_id") REFERENCES "topic" ("id") ON UPDATE CASCADE ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='The transitive closure of the topic hierarchy, one row per ancestor-or-self/descendant pair';
+
 -- Dumping structure for table evidence_engine.transaction_kind
 CREATE TABLE IF NOT EXISTS "transaction_kind" (
   "code" CHAR(3) NOT NULL COMMENT 'The transaction code',
@@ -72,6 +72,9 @@
   </style>
 </head>
 <body>
+<#-- When rendering PDF, the records are supplied in chunks and only the first chunk renders the header. -->
+<#assign records = records!page.content>
+<#if renderHeader!true>
   <header>
 <#if contentType == "text/html">
     <p class="text-center">${recordKind?capFirst} Export</p>
@@ -138,8 +141,11 @@
   </header>
   <h2>Results</h2>
   <p>Page ${page.number + 1} of ${page.totalPages} (page size: ${page.size}), showing ${page.numberOfElements} of ${page.totalElements} records.</p>
+</#if>
 <#if renderTable>
+  <#if renderHeading!true>
   <h3>Table</h3>
+  </#if>
   <table>
     <thead>
       <tr>
@@ -149,7 +155,7 @@
       <tr>
     </thead>
     <tbody>
-  <#list page.content as record>
+  <#list records as record>
     <tr>
     <#list columns as column>
       <td <#if column.type.name() == "NUMBER" || column.type.name() == "ID">class="text-right"</#if>>${column.render(record, false)?noEsc}</td>
@@ -164,8 +170,10 @@
   <br>
   <hr>
   </#if>
+  <#if renderHeading!true>
   <h3>Details</h3>
-  <#list page.content as record>
+  </#if>
+  <#list records as record>
     <#list allColumns as column>
     <div class="<#if column.span.name() == "SINGLE">single<#else>full</#if>"><b>${column.header}:</b>&nbsp;${column.render(record, false)?noEsc}</div>
     </#list>
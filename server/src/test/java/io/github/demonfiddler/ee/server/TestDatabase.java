@@ -0,0 +1,89 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Creates in-memory H2 databases from the application's own {@code db/schema-h2.sql} and {@code db/data.sql}, so that
+ * tests which run SQL directly do so against the real schema, constraints and reference data. The reference data
+ * includes the built-in users and groups, which take the lowest entity IDs, so tests should number their own entities
+ * from {@link #FIRST_ID}.
+ */
+public final class TestDatabase {
+
+    /** The lowest entity ID which is free for tests to use. */
+    public static final long FIRST_ID = 100;
+
+    private static final String SCHEMA = "db/schema-h2.sql";
+    private static final String DATA = "db/data.sql";
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Creates a new database. Each database has a unique name, so that no state survives from one test to the next.
+     * @param name The database name prefix.
+     * @param settings Any additional H2 settings, e.g. {@code MODE=MySQL}.
+     * @return A data source for the new database.
+     */
+    public static DriverManagerDataSource create(String name, String... settings) {
+        StringBuilder url = new StringBuilder("jdbc:h2:mem:").append(name).append('_').append(COUNT.incrementAndGet())
+            .append(";DB_CLOSE_DELAY=-1");
+        for (String setting : settings)
+            url.append(';').append(setting);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url.toString());
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource(SCHEMA),
+            new ClassPathResource(DATA));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        return dataSource;
+    }
+
+    /**
+     * Inserts the {@code "entity"} rows to which the rows of an entity table must refer.
+     * @param jdbc The JDBC operations to use.
+     * @param dtype The entity kind code, e.g. {@code TOP}.
+     * @param status The status code, e.g. {@code PUB}.
+     * @param ids The entity IDs.
+     */
+    public static void insertEntities(JdbcOperations jdbc, String dtype, String status, long... ids) {
+        for (long id : ids)
+            jdbc.update("INSERT INTO \"entity\" (\"id\", \"dtype\", \"status\") VALUES (?, ?, ?)", id, dtype, status);
+    }
+
+    /**
+     * Closes and discards a database created by {@link #create(String, String...)}.
+     * @param dataSource The database's data source.
+     */
+    public static void shutdown(DataSource dataSource) {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+
+}
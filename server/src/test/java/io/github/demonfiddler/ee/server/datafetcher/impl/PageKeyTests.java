@@ -0,0 +1,89 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.datafetcher.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import io.github.demonfiddler.ee.server.datafetcher.impl.PageLoaders.PageKey;
+import io.github.demonfiddler.ee.server.model.CommentQueryFilter;
+import io.github.demonfiddler.ee.server.model.EntityKind;
+import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
+import io.github.demonfiddler.ee.server.model.LogQueryFilter;
+import io.github.demonfiddler.ee.server.model.StatusKind;
+import io.github.demonfiddler.ee.server.model.TransactionKind;
+
+class PageKeyTests {
+
+    private static final Pageable PAGEABLE = PageRequest.of(0, 10);
+
+    private static LinkableEntityQueryFilter linkFilter(Long recordId, Long topicId) {
+        return LinkableEntityQueryFilter.builderForLinkableEntityQueryFilter() //
+            .withStatus(List.of(StatusKind.PUB)) //
+            .withRecordId(recordId) //
+            .withToEntityKind(EntityKind.CLA) //
+            .withTopicId(topicId) //
+            .build();
+    }
+
+    @Test
+    void equalFiltersShareABatch() {
+        PageKey<?> key1 = PageKey.of(1L, linkFilter(5L, 7L), PAGEABLE, false);
+        PageKey<?> key2 = PageKey.of(2L, linkFilter(5L, 7L), PAGEABLE, false);
+
+        assertNotEquals(key1, key2);
+        assertEquals(key1.withoutOwnerId(), key2.withoutOwnerId());
+        assertEquals(key1.withoutOwnerId().hashCode(), key2.withoutOwnerId().hashCode());
+        assertEquals(key1, key2.withOwnerId(1L));
+    }
+
+    @Test
+    void distinguishesEveryFilterField() {
+        PageKey<?> key = PageKey.of(1L, linkFilter(5L, 7L), PAGEABLE, false);
+
+        // toString() omits recordId, so it cannot tell these filters apart.
+        assertNotEquals(key, PageKey.of(1L, linkFilter(6L, 7L), PAGEABLE, false));
+        assertNotEquals(key, PageKey.of(1L, linkFilter(5L, 8L), PAGEABLE, false));
+        assertNotEquals(key, PageKey.of(1L, linkFilter(5L, 7L), PageRequest.of(1, 10), false));
+        assertNotEquals(key, PageKey.of(1L, linkFilter(5L, 7L), PAGEABLE, true));
+    }
+
+    @Test
+    void comparesLogAndCommentFilters() {
+        LogQueryFilter log1 = LogQueryFilter.builder().withTransactionKinds(List.of(TransactionKind.CRE)).build();
+        LogQueryFilter log2 = LogQueryFilter.builder().withTransactionKinds(List.of(TransactionKind.CRE)).build();
+        LogQueryFilter log3 = LogQueryFilter.builder().withUserId(1L).build();
+        assertEquals(PageKey.of(1L, log1, PAGEABLE, false), PageKey.of(1L, log2, PAGEABLE, false));
+        assertNotEquals(PageKey.of(1L, log1, PAGEABLE, false), PageKey.of(1L, log3, PAGEABLE, false));
+
+        CommentQueryFilter comment1 = CommentQueryFilter.builderForCommentQueryFilter().withParentId(3L).build();
+        CommentQueryFilter comment2 = CommentQueryFilter.builderForCommentQueryFilter().withParentId(3L).build();
+        CommentQueryFilter comment3 = CommentQueryFilter.builderForCommentQueryFilter().withRecordId(3L).build();
+        assertEquals(PageKey.of(1L, comment1, PAGEABLE, false), PageKey.of(1L, comment2, PAGEABLE, false));
+        assertNotEquals(PageKey.of(1L, comment1, PAGEABLE, false), PageKey.of(1L, comment3, PAGEABLE, false));
+    }
+
+}
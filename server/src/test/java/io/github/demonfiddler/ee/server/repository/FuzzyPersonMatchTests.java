@@ -0,0 +1,244 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.repository;
+
+import static io.github.demonfiddler.ee.server.model.EntityKind.DEC;
+import static io.github.demonfiddler.ee.server.model.EntityKind.PER;
+import static io.github.demonfiddler.ee.server.model.EntityKind.PUB;
+import static io.github.demonfiddler.ee.server.model.EntityKind.QUO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import io.github.demonfiddler.ee.server.TestDatabase;
+import io.github.demonfiddler.ee.server.model.EntityKind;
+import io.github.demonfiddler.ee.server.model.Name;
+import io.github.demonfiddler.ee.server.util.PersonNameIndex;
+
+/**
+ * Checks that fuzzy master-detail matching on the {@code entity_person_name} table gives the same results as the
+ * directional {@code IN} and {@code LIKE} queries it replaced, except that it matches whole last names only.
+ */
+class FuzzyPersonMatchTests {
+
+    private static final String DATA = """
+        INSERT INTO "person" ("id", "first_name", "last_name") VALUES
+          (101, 'John', 'Smith'), (102, 'Mary', 'Jones'), (103, 'Alice', 'Brown'), (104, 'Kim', 'Lee');
+        INSERT INTO "declaration" ("id", "kind", "date", "title", "signatories") VALUES
+          (111, 'DECL', DATE '2020-01-01', 'First', 'John Smith\nMary Jones'),
+          (112, 'DECL', DATE '2020-01-02', 'Second', 'Alice Brown'),
+          (113, 'DECL', DATE '2020-01-03', 'Third', NULL);
+        INSERT INTO "publication" ("id", "title", "authors", "kind") VALUES
+          (121, 'First', 'Smith, J.\nLee, K.', 'JOUR'), (122, 'Second', 'Brown, A.', 'JOUR'),
+          (123, 'Third', 'Nobody, N.', 'JOUR');
+        INSERT INTO "quotation" ("id", "quotee", "text") VALUES
+          (131, 'Mary Jones', 'First'), (132, 'Kim Lee', 'Second'), (133, 'Alice Brown', 'Third');
+        """;
+    /** The table and name column of each entity kind. */
+    private static final Map<EntityKind, String[]> TABLES = Map.of( //
+        DEC, new String[] { "declaration", "signatories" }, //
+        PER, new String[] { "person", "last_name" }, //
+        PUB, new String[] { "publication", "authors" }, //
+        QUO, new String[] { "quotation", "quotee" });
+
+    private DriverManagerDataSource dataSource;
+    private NamedParameterJdbcTemplate jdbc;
+    private PersonNameIndex personNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        // IGNORECASE mimics the case-insensitive collation against which the old queries ran.
+        dataSource = TestDatabase.create("fuzzy_person", "IGNORECASE=TRUE");
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        JdbcTemplate jdbcTemplate = jdbc.getJdbcTemplate();
+        TestDatabase.insertEntities(jdbcTemplate, PER.name(), "PUB", 101, 102, 103, 104);
+        TestDatabase.insertEntities(jdbcTemplate, DEC.name(), "PUB", 111, 112, 113);
+        TestDatabase.insertEntities(jdbcTemplate, PUB.name(), "PUB", 121, 122, 123);
+        TestDatabase.insertEntities(jdbcTemplate, QUO.name(), "PUB", 131, 132, 133);
+        jdbcTemplate.execute(DATA);
+        personNameIndex = new PersonNameIndex(jdbc.getJdbcTemplate(), new DataSourceTransactionManager(dataSource));
+        personNameIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.shutdown(dataSource);
+    }
+
+    private List<Long> ids(EntityKind entityKind) {
+        return jdbc.getJdbcTemplate().queryForList("SELECT \"id\" FROM \"" + TABLES.get(entityKind)[0] + '"',
+            Long.class);
+    }
+
+    private String names(EntityKind entityKind, long id) {
+        String[] table = TABLES.get(entityKind);
+        return jdbc.getJdbcTemplate().queryForObject(
+            "SELECT \"" + table[1] + "\" FROM \"" + table[0] + "\" WHERE \"id\" = ?", String.class, id);
+    }
+
+    private static String lastName(String namestr) {
+        Name name = namestr != null ? Name.parse(namestr) : null;
+        return name != null ? name.getLastName() : null;
+    }
+
+    private static List<String> lastNames(String names) {
+        List<String> lastNames = new ArrayList<>();
+        if (names != null) {
+            StringTokenizer tok = new StringTokenizer(names, "\r\n");
+            while (tok.hasMoreTokens()) {
+                String lastName = lastName(tok.nextToken());
+                if (lastName != null)
+                    lastNames.add(lastName);
+            }
+        }
+        return lastNames;
+    }
+
+    /**
+     * Runs the fuzzy predicate.
+     * @param contextKind The contextual entity's kind.
+     * @param contextId The contextual entity's ID.
+     * @param entityKind The kind of the entities to match.
+     * @return The IDs of the matching entities.
+     */
+    private Set<Long> fuzzyMatches(EntityKind contextKind, long contextId, EntityKind entityKind) {
+        String sql = "SELECT e.\"id\" FROM \"" + TABLES.get(entityKind)[0] + "\" e WHERE "
+            + CustomLinkableEntityRepositoryImpl.FUZZY_PREDICATE;
+        return new TreeSet<>(jdbc.queryForList(sql, Map.of("fuzzyEntityId", contextId), Long.class));
+    }
+
+    /**
+     * Runs the query that the fuzzy predicate replaced, which parsed the contextual entity's names on every query.
+     * @param contextKind The contextual entity's kind.
+     * @param contextId The contextual entity's ID.
+     * @param entityKind The kind of the entities to match.
+     * @return The IDs of the matching entities.
+     */
+    private Set<Long> oldMatches(EntityKind contextKind, long contextId, EntityKind entityKind) {
+        String names = names(contextKind, contextId);
+        String predicate;
+        Object param;
+        switch (contextKind.name() + "->" + entityKind.name()) {
+            case "DEC->PER" -> {
+                predicate = "\"last_name\" IN (:fuzzyParam)";
+                param = lastNames(names);
+            }
+            case "PER->DEC" -> {
+                predicate = "\"signatories\" LIKE :fuzzyParam";
+                param = '%' + names + '%';
+            }
+            case "PER->PUB" -> {
+                predicate = "\"authors\" LIKE :fuzzyParam";
+                param = '%' + names + '%';
+            }
+            case "PER->QUO" -> {
+                predicate = "\"quotee\" LIKE :fuzzyParam";
+                param = '%' + names + '%';
+            }
+            case "PUB->PER" -> {
+                predicate = "\"last_name\" IN (:fuzzyParam)";
+                param = lastNames(names);
+            }
+            case "QUO->PER" -> {
+                predicate = "\"last_name\" = :fuzzyParam";
+                param = lastName(names);
+            }
+            case "QUO->PUB" -> {
+                predicate = "\"authors\" LIKE :fuzzyParam";
+                param = '%' + lastName(names) + '%';
+            }
+            default -> throw new IllegalArgumentException(contextKind + "->" + entityKind);
+        }
+        if (param == null || param instanceof List<?> list && list.isEmpty())
+            return Set.of();
+        String sql = "SELECT \"id\" FROM \"" + TABLES.get(entityKind)[0] + "\" WHERE " + predicate;
+        return new TreeSet<>(jdbc.queryForList(sql, Map.of("fuzzyParam", param), Long.class));
+    }
+
+    @Test
+    void matchesOldQueries() {
+        int matches = 0;
+        for (Map.Entry<EntityKind, Set<EntityKind>> entry : CustomLinkableEntityRepositoryImpl.FUZZY_SEARCHES
+            .entrySet()) {
+
+            EntityKind contextKind = entry.getKey();
+            for (EntityKind entityKind : entry.getValue()) {
+                for (long contextId : ids(contextKind)) {
+                    Set<Long> expected = oldMatches(contextKind, contextId, entityKind);
+                    assertEquals(expected, fuzzyMatches(contextKind, contextId, entityKind),
+                        contextKind + "#" + contextId + " -> " + entityKind);
+                    matches += expected.size();
+                }
+            }
+        }
+        assertTrue(matches > 0, "no fuzzy matches");
+    }
+
+    @Test
+    void matchesPersons() {
+        // John Smith
+        assertEquals(Set.of(111L), fuzzyMatches(PER, 101, DEC));
+        assertEquals(Set.of(121L), fuzzyMatches(PER, 101, PUB));
+        assertEquals(Set.of(), fuzzyMatches(PER, 101, QUO));
+        // John Smith and Mary Jones
+        assertEquals(Set.of(101L, 102L), fuzzyMatches(DEC, 111, PER));
+        // Smith, J. and Lee, K.
+        assertEquals(Set.of(101L, 104L), fuzzyMatches(PUB, 121, PER));
+        // Kim Lee
+        assertEquals(Set.of(104L), fuzzyMatches(QUO, 132, PER));
+        assertEquals(Set.of(121L), fuzzyMatches(QUO, 132, PUB));
+        // No signatories
+        assertEquals(Set.of(), fuzzyMatches(DEC, 113, PER));
+    }
+
+    @Test
+    void matchesWholeLastNamesOnly() {
+        JdbcTemplate jdbcTemplate = jdbc.getJdbcTemplate();
+        TestDatabase.insertEntities(jdbcTemplate, DEC.name(), "PUB", 114);
+        jdbcTemplate.update("INSERT INTO \"declaration\" (\"id\", \"kind\", \"date\", \"title\", "
+            + "\"signatories\") VALUES (114, 'DECL', DATE '2020-01-04', 'Fourth', 'Bob Smithson')");
+        TestDatabase.insertEntities(jdbcTemplate, PER.name(), "PUB", 105);
+        jdbcTemplate.update(
+            "INSERT INTO \"person\" (\"id\", \"first_name\", \"last_name\") VALUES (105, 'Jane', 'SMITH')");
+        personNameIndex.rebuild();
+
+        // The old LIKE query matched "Smith" within "Smithson".
+        assertEquals(Set.of(111L, 114L), oldMatches(PER, 101, DEC));
+        assertEquals(Set.of(111L), fuzzyMatches(PER, 101, DEC));
+        // Both ignore case.
+        assertEquals(Set.of(111L), fuzzyMatches(PER, 105, DEC));
+        assertEquals(Set.of(101L, 102L, 105L), fuzzyMatches(DEC, 111, PER));
+    }
+
+}
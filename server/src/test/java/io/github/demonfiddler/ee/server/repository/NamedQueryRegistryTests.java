@@ -0,0 +1,100 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class NamedQueryRegistryTests {
+
+    private static final int THREADS = 8;
+
+    private final NamedQueryRegistry registry = new NamedQueryRegistry();
+
+    @Test
+    void definesOnceUnderContention() throws Exception {
+        AtomicInteger definitions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Runnable definer = () -> {
+            definitions.incrementAndGet();
+            try {
+                // Give the other callers time to arrive while the query is being defined.
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return registry.define("query", definer);
+                }));
+            }
+            start.countDown();
+            int defined = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(10, TimeUnit.SECONDS))
+                    defined++;
+            }
+
+            assertEquals(1, definitions.get());
+            assertEquals(1, defined);
+            assertEquals(1, registry.getMissCount());
+            assertEquals(THREADS - 1, registry.getHitCount());
+            assertTrue(registry.contains("query"));
+            assertEquals(1, registry.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void retriesFailedDefinition() {
+        assertThrows(IllegalStateException.class, () -> registry.define("query", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertFalse(registry.contains("query"));
+        assertEquals(0, registry.size());
+
+        assertTrue(registry.define("query", () -> {}));
+        assertFalse(registry.define("query", () -> {}));
+        assertTrue(registry.contains("query"));
+        assertEquals(1, registry.getMissCount());
+        assertEquals(1, registry.getHitCount());
+    }
+
+}
@@ -0,0 +1,71 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.repository;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+/**
+ * A stand-in {@code EntityManager} whose native queries run directly against a JDBC data source, so that a custom
+ * repository's SQL can be exercised without bootstrapping JPA. Only the query methods used by the custom repositories
+ * are supported.
+ */
+final class NativeQueryEntityManager {
+
+    private NativeQueryEntityManager() {
+    }
+
+    /**
+     * Creates an entity manager whose native queries are executed by a JDBC template.
+     * @param jdbc The JDBC template.
+     * @return The entity manager.
+     */
+    static EntityManager of(NamedParameterJdbcTemplate jdbc) {
+        EntityManager em = mock(EntityManager.class);
+        when(em.createNativeQuery(anyString())).thenAnswer(i -> query(jdbc, i.getArgument(0), Object.class));
+        when(em.createNativeQuery(anyString(), any(Class.class)))
+            .thenAnswer(i -> query(jdbc, i.getArgument(0), i.getArgument(1)));
+        return em;
+    }
+
+    private static Query query(NamedParameterJdbcTemplate jdbc, String sql, Class<?> resultClass) {
+        Map<String, Object> params = new HashMap<>();
+        Query query = mock(Query.class);
+        when(query.setParameter(anyString(), any())).thenAnswer(i -> {
+            params.put(i.getArgument(0), i.getArgument(1));
+            return query;
+        });
+        when(query.executeUpdate()).thenAnswer(_ -> jdbc.update(sql, params));
+        when(query.getResultList()).thenAnswer(_ -> jdbc.queryForList(sql, params, resultClass));
+        when(query.getSingleResult()).thenAnswer(_ -> jdbc.queryForObject(sql, params, resultClass));
+        return query;
+    }
+
+}
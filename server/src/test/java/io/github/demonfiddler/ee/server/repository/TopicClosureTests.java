@@ -0,0 +1,157 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import io.github.demonfiddler.ee.server.TestDatabase;
+
+/**
+ * Checks that the incremental topic closure maintenance agrees with the topic hierarchy, and hence with a full
+ * rebuild, as topics are created, re-parented and deleted.
+ */
+class TopicClosureTests {
+
+    // Topic IDs.
+    private static final long T1 = TestDatabase.FIRST_ID + 1;
+    private static final long T2 = TestDatabase.FIRST_ID + 2;
+    private static final long T3 = TestDatabase.FIRST_ID + 3;
+    private static final long T4 = TestDatabase.FIRST_ID + 4;
+    private static final long T5 = TestDatabase.FIRST_ID + 5;
+
+    private DriverManagerDataSource dataSource;
+    private NamedParameterJdbcTemplate jdbc;
+    private CustomTopicRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = TestDatabase.create("topic_closure");
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        repository = new CustomTopicRepositoryImpl(null, null, null);
+        repository.em = NativeQueryEntityManager.of(jdbc);
+
+        // T1 -> T2 -> T3 -> T4, T5
+        createTopic(T1, null);
+        createTopic(T2, T1);
+        createTopic(T3, T2);
+        createTopic(T4, T3);
+        createTopic(T5, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.shutdown(dataSource);
+    }
+
+    @Test
+    void createAddsPathsToAllAncestors() {
+        assertEquals(Map.of(T4, 0, T3, 1, T2, 2, T1, 3), getAncestors(T4));
+        assertEquals(Map.of(T1, 0, T2, 1, T3, 2, T4, 3), getDescendants(T1));
+        assertEquals(Map.of(T5, 0), getDescendants(T5));
+        assertClosureMatchesRebuild();
+    }
+
+    @Test
+    void reparentMovesSubtree() {
+        moveTopic(T3, T5);
+
+        assertEquals(Map.of(T4, 0, T3, 1, T5, 2), getAncestors(T4));
+        assertEquals(Map.of(T1, 0, T2, 1), getDescendants(T1));
+        assertEquals(Map.of(T5, 0, T3, 1, T4, 2), getDescendants(T5));
+        assertClosureMatchesRebuild();
+    }
+
+    @Test
+    void reparentToRootDetachesSubtree() {
+        moveTopic(T2, null);
+
+        assertEquals(Map.of(T4, 0, T3, 1, T2, 2), getAncestors(T4));
+        assertEquals(Map.of(T1, 0), getDescendants(T1));
+        assertClosureMatchesRebuild();
+    }
+
+    @Test
+    void deleteRemovesSubtreePaths() {
+        jdbc.update("DELETE FROM \"topic\" WHERE \"id\" = :id", Map.of("id", T3));
+
+        assertEquals(Map.of(T1, 0, T2, 1), getDescendants(T1));
+        assertEquals(Map.of(), getAncestors(T4));
+        assertClosureMatchesRebuild();
+    }
+
+    private void createTopic(Long id, Long parentId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("parentId", parentId);
+        params.put("label", "Topic " + id);
+        TestDatabase.insertEntities(jdbc.getJdbcOperations(), "TOP", "PUB", id);
+        jdbc.update("INSERT INTO \"topic\" (\"id\", \"label\", \"parent_id\") VALUES (:id, :label, :parentId)",
+            params);
+        repository.insertClosure(id, parentId);
+    }
+
+    private void moveTopic(Long id, Long parentId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("parentId", parentId);
+        jdbc.update("UPDATE \"topic\" SET \"parent_id\" = :parentId WHERE \"id\" = :id", params);
+        repository.updateClosure(id, parentId);
+    }
+
+    private Map<Long, Integer> getAncestors(Long id) {
+        return getPaths("SELECT \"ancestor_id\", \"depth\" FROM \"topic_closure\" WHERE \"descendant_id\" = :id", id);
+    }
+
+    private Map<Long, Integer> getDescendants(Long id) {
+        return getPaths("SELECT \"descendant_id\", \"depth\" FROM \"topic_closure\" WHERE \"ancestor_id\" = :id", id);
+    }
+
+    private Map<Long, Integer> getPaths(String sql, Long id) {
+        Map<Long, Integer> paths = new HashMap<>();
+        jdbc.query(sql, Map.of("id", id), rs -> {
+            paths.put(rs.getLong(1), rs.getInt(2));
+        });
+        return paths;
+    }
+
+    private Map<String, Integer> getClosure() {
+        Map<String, Integer> closure = new HashMap<>();
+        jdbc.query("SELECT \"ancestor_id\", \"descendant_id\", \"depth\" FROM \"topic_closure\"", rs -> {
+            closure.put(rs.getLong(1) + "->" + rs.getLong(2), rs.getInt(3));
+        });
+        return closure;
+    }
+
+    private void assertClosureMatchesRebuild() {
+        Map<String, Integer> incremental = getClosure();
+        repository.rebuildClosure();
+        assertEquals(incremental, getClosure());
+    }
+
+}
@@ -0,0 +1,171 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.api;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import io.github.demonfiddler.ee.server.model.Claim;
+import io.github.demonfiddler.ee.server.model.EntityAudit;
+import io.github.demonfiddler.ee.server.model.ITrackedEntity;
+import io.github.demonfiddler.ee.server.model.SeekRequest;
+import io.github.demonfiddler.ee.server.repository.ClaimRepository;
+import io.github.demonfiddler.ee.server.repository.DeclarationRepository;
+import io.github.demonfiddler.ee.server.repository.JournalRepository;
+import io.github.demonfiddler.ee.server.repository.PersonRepository;
+import io.github.demonfiddler.ee.server.repository.PublicationRepository;
+import io.github.demonfiddler.ee.server.repository.PublisherRepository;
+import io.github.demonfiddler.ee.server.repository.QuotationRepository;
+import io.github.demonfiddler.ee.server.repository.TopicRepository;
+import io.github.demonfiddler.ee.server.util.AuditUtils;
+import jakarta.persistence.EntityManager;
+
+class AuditApiControllerTests {
+
+    private ClaimRepository claimRepository;
+    private AuditUtils auditUtils;
+    private AuditApiController controller;
+
+    @BeforeEach
+    void setUp() {
+        claimRepository = mock(ClaimRepository.class);
+        auditUtils = mock(AuditUtils.class);
+        // Odd-numbered records fail the audit.
+        when(auditUtils.audit(anyList())).thenAnswer(i -> {
+            List<EntityAudit> audits = new ArrayList<>();
+            for (ITrackedEntity entity : i.<List<? extends ITrackedEntity>> getArgument(0)) {
+                audits.add(EntityAudit.builder() //
+                    .withEntity(entity) //
+                    .withPass(entity.getId() % 2 == 0) //
+                    .build());
+            }
+            return audits;
+        });
+        controller = new AuditApiController(null, auditUtils, claimRepository, mock(DeclarationRepository.class),
+            mock(JournalRepository.class), mock(PersonRepository.class), mock(PublicationRepository.class),
+            mock(PublisherRepository.class), mock(QuotationRepository.class), mock(TopicRepository.class),
+            mock(PlatformTransactionManager.class));
+        controller.em = mock(EntityManager.class);
+    }
+
+    private static List<Claim> claims(long fromId, long toId) {
+        List<Claim> claims = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) {
+            Claim claim = new Claim();
+            claim.setId(id);
+            claim.setStatus("DRA");
+            claims.add(claim);
+        }
+        return claims;
+    }
+
+    private static String write(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingResponseBody body = response.getBody();
+        assertNotNull(body);
+        body.writeTo(out);
+        return out.toString(UTF_8);
+    }
+
+    @Test
+    void invalidStatusIsBadRequest() throws IOException {
+        ResponseEntity<StreamingResponseBody> response =
+            controller.audit("claims", null, null, null, "XYZ", null, null, false);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertTrue(write(response).contains("XYZ"));
+        verifyNoInteractions(claimRepository);
+    }
+
+    @Test
+    void unsupportedRecordKindIsBadRequest() throws IOException {
+        ResponseEntity<StreamingResponseBody> response =
+            controller.audit("logs", null, null, null, null, null, null, false);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertTrue(write(response).contains("logs"));
+    }
+
+    @Test
+    void chunksSeekPastLastId() throws IOException {
+        int chunkSize = AuditApiController.CHUNK_SIZE;
+        when(claimRepository.findByFilter(any(), any(), anyBoolean())) //
+            .thenReturn(new PageImpl<>(claims(1, chunkSize))) //
+            .thenReturn(new PageImpl<>(claims(chunkSize + 1, chunkSize + 1)));
+
+        ResponseEntity<StreamingResponseBody> response =
+            controller.audit("claims", null, null, null, "DRA", null, null, false);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String[] rows = write(response).split("\r\n");
+
+        assertEquals(chunkSize + 2, rows.length);
+        assertEquals("id,entityKind,status,pass,failedFields,failedLinks", rows[0]);
+        assertEquals("1,CLA,DRA,false,,", rows[1]);
+        assertEquals((chunkSize + 1) + ",CLA,DRA,false,,", rows[chunkSize + 1]);
+
+        ArgumentCaptor<Pageable> pageables = ArgumentCaptor.forClass(Pageable.class);
+        verify(claimRepository, times(2)).findByFilter(any(), pageables.capture(), anyBoolean());
+        assertFalse(pageables.getAllValues().get(0) instanceof SeekRequest);
+        SeekRequest seekRequest = assertInstanceOf(SeekRequest.class, pageables.getAllValues().get(1));
+        assertEquals((long)chunkSize, seekRequest.getAfterId());
+        assertEquals(0, seekRequest.getOffset());
+        // Each chunk is evicted from the persistence context once written.
+        verify(controller.em, times(2)).clear();
+    }
+
+    @Test
+    void failedOnlyOmitsPassingRecords() throws IOException {
+        when(claimRepository.findByFilter(any(), any(), anyBoolean())).thenReturn(new PageImpl<>(claims(1, 4)));
+
+        String csv = write(controller.audit("claims", null, null, null, null, null, null, true));
+
+        assertEquals("id,entityKind,status,pass,failedFields,failedLinks\r\n" //
+            + "1,CLA,DRA,false,,\r\n" //
+            + "3,CLA,DRA,false,,\r\n", csv);
+    }
+
+}
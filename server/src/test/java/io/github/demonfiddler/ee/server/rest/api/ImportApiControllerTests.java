@@ -0,0 +1,293 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.api;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.access.AccessDeniedException;
+
+import io.github.demonfiddler.ee.server.controller.MutationController;
+import io.github.demonfiddler.ee.server.model.AuthorityKind;
+import io.github.demonfiddler.ee.server.model.Claim;
+import io.github.demonfiddler.ee.server.model.Publication;
+import io.github.demonfiddler.ee.server.model.PublicationInput;
+import io.github.demonfiddler.ee.server.model.Topic;
+import io.github.demonfiddler.ee.server.repository.JournalRepository;
+import io.github.demonfiddler.ee.server.repository.LinkableEntityRepository;
+import io.github.demonfiddler.ee.server.repository.PublicationRepository;
+import io.github.demonfiddler.ee.server.repository.PublicationRepository.PublicationKeys;
+import io.github.demonfiddler.ee.server.repository.PublisherRepository;
+import io.github.demonfiddler.ee.server.rest.model.ImportMessage;
+import io.github.demonfiddler.ee.server.rest.model.ImportedRecord;
+import io.github.demonfiddler.ee.server.rest.model.ImportedRecord.ResultEnum;
+import io.github.demonfiddler.ee.server.rest.util.ImportBatchWriter;
+import io.github.demonfiddler.ee.server.rest.util.ImportBatchWriter.InsertedPublication;
+import io.github.demonfiddler.ee.server.rest.util.Iso4Utils;
+import io.github.demonfiddler.ee.server.util.EntityUtils;
+import io.github.demonfiddler.ee.server.util.SecurityUtils;
+
+class ImportApiControllerTests {
+
+    private static final long TOPIC_ID = 10L;
+    private static final long PUBLICATION_ID = 20L;
+    private static final long CLAIM_ID = 30L;
+    private static final String RIS = """
+        TY  - JOUR
+        TI  - First publication
+        PY  - 2020
+        DO  - 10.1000/first
+        ER  -
+
+        TY  - JOUR
+        TI  - Second publication
+        PY  - 2021
+        DO  - 10.1000/second
+        ER  -
+        """;
+
+    private MutationController mutationController;
+    private LinkableEntityRepository linkableEntityRepository;
+    private PublicationRepository publicationRepository;
+    private ImportBatchWriter importBatchWriter;
+    private SecurityUtils securityUtils;
+    private ImportApiController controller;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        mutationController = mock(MutationController.class);
+        linkableEntityRepository = mock(LinkableEntityRepository.class);
+        publicationRepository = mock(PublicationRepository.class);
+        importBatchWriter = mock(ImportBatchWriter.class);
+        securityUtils = mock(SecurityUtils.class);
+        when(linkableEntityRepository.existsById(TOPIC_ID)).thenReturn(true);
+        Topic topic = new Topic();
+        topic.setId(TOPIC_ID);
+        when(linkableEntityRepository.findById(TOPIC_ID)).thenReturn(Optional.of(topic));
+        Publication masterPublication = new Publication();
+        masterPublication.setId(PUBLICATION_ID);
+        when(linkableEntityRepository.existsById(PUBLICATION_ID)).thenReturn(true);
+        when(linkableEntityRepository.findById(PUBLICATION_ID)).thenReturn(Optional.of(masterPublication));
+        Claim claim = new Claim();
+        claim.setId(CLAIM_ID);
+        when(linkableEntityRepository.existsById(CLAIM_ID)).thenReturn(true);
+        when(linkableEntityRepository.findById(CLAIM_ID)).thenReturn(Optional.of(claim));
+        when(mutationController.createPublication(isNull(), any())).thenAnswer(invocation -> {
+            PublicationInput input = invocation.getArgument(1);
+            Publication publication = new Publication();
+            publication.setId(nextId++);
+            publication.setTitle(input.getTitle());
+            return publication;
+        });
+        controller = new ImportApiController(null, mutationController, linkableEntityRepository,
+            mock(PublisherRepository.class), mock(JournalRepository.class), publicationRepository,
+            mock(Iso4Utils.class), new EntityUtils(securityUtils), importBatchWriter, securityUtils, 500);
+    }
+
+    private List<ImportedRecord> callImport(Long masterTopicId) {
+        List<ImportedRecord> results = callImport(RIS, masterTopicId);
+        assertEquals(2, results.size());
+        return results;
+    }
+
+    private List<ImportedRecord> callImport(String ris, Long masterTopicId) {
+        return callImport(ris, masterTopicId, null).getBody();
+    }
+
+    private ResponseEntity<List<ImportedRecord>> callImport(String ris, Long masterTopicId, Long masterRecordId) {
+        MockMultipartFile file = new MockMultipartFile("file", "import.ris", "application/x-research-info-systems",
+            ris.getBytes(UTF_8));
+        return controller.callImport("publications", masterTopicId, masterRecordId, file);
+    }
+
+    private boolean hasMessage(ImportedRecord importedRecord, String text) {
+        return importedRecord.getMessages().stream().map(ImportMessage::getText).anyMatch(t -> t.startsWith(text));
+    }
+
+    @Test
+    void batchesUnlinkedRecords() {
+        when(importBatchWriter.insertPublications(anyList(), isNull(), isNull(), isNull())) //
+            .thenReturn(List.of(new InsertedPublication(1, null, null), new InsertedPublication(2, null, null)));
+
+        List<ImportedRecord> results = callImport(null);
+
+        assertEquals(List.of(1L, 2L), results.stream().map(ImportedRecord::getId).toList());
+        assertEquals(List.of(ResultEnum.IMPORTED, ResultEnum.IMPORTED),
+            results.stream().map(ImportedRecord::getResult).toList());
+        verify(mutationController, never()).createPublication(any(), any());
+        // Batching needs no LNK authority when there is nothing to link.
+        verify(securityUtils, never()).hasAuthority(AuthorityKind.LNK);
+    }
+
+    @Test
+    void batchesLinkedRecordsForLinker() {
+        when(securityUtils.hasAuthority(AuthorityKind.LNK)).thenReturn(true);
+        when(importBatchWriter.insertPublications(anyList(), eq(TOPIC_ID), isNull(), isNull())) //
+            .thenReturn(List.of(new InsertedPublication(1, 11L, null), new InsertedPublication(2, 12L, null)));
+
+        List<ImportedRecord> results = callImport(TOPIC_ID);
+
+        assertTrue(hasMessage(results.get(0), "Linked to Topic#10 by RecordLink#11"));
+        assertTrue(hasMessage(results.get(1), "Linked to Topic#10 by RecordLink#12"));
+        verify(mutationController, never()).createPublication(any(), any());
+        verify(mutationController, never()).createEntityLink(any(), any());
+    }
+
+    @Test
+    void linksThroughMutationsWithoutLnkAuthority() {
+        when(securityUtils.hasAuthority(AuthorityKind.LNK)).thenReturn(false);
+        // As the mutation's @PreAuthorize("hasAuthority('LNK')") would.
+        when(mutationController.createEntityLink(isNull(), any()))
+            .thenThrow(new AccessDeniedException("Access Denied"));
+
+        List<ImportedRecord> results = callImport(TOPIC_ID);
+
+        verify(importBatchWriter, never()).insertPublications(anyList(), any(), any(), any());
+        verify(mutationController, times(2)).createPublication(isNull(), any());
+        verify(mutationController, times(2)).createEntityLink(isNull(), any());
+        for (ImportedRecord importedRecord : results) {
+            assertEquals(ResultEnum.IMPORTED, importedRecord.getResult());
+            assertTrue(hasMessage(importedRecord, "Error creating Topic link: Access Denied"));
+        }
+    }
+
+    @Test
+    void batchesLinksToMasterRecord() {
+        when(securityUtils.hasAuthority(AuthorityKind.LNK)).thenReturn(true);
+        when(importBatchWriter.insertPublications(anyList(), isNull(), eq(CLAIM_ID), isNull())) //
+            .thenReturn(List.of(new InsertedPublication(1, null, 11L), new InsertedPublication(2, null, 12L)));
+
+        ResponseEntity<List<ImportedRecord>> response = callImport(RIS, null, CLAIM_ID);
+
+        // A Claim must be the 'from' entity of a link to a Publication.
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(hasMessage(response.getBody().get(0), "Linked to record#30 by RecordLink#11"));
+        verify(mutationController, never()).createEntityLink(any(), any());
+    }
+
+    @Test
+    void rejectsIllegalMasterTopicLink() {
+        when(securityUtils.hasAuthority(AuthorityKind.LNK)).thenReturn(true);
+        // As the createEntityLink mutation's linkage rule check would.
+        when(mutationController.createEntityLink(isNull(), any()))
+            .thenThrow(new IllegalArgumentException("Cannot link two entities of the same kind: Publication"));
+
+        List<ImportedRecord> results = callImport(PUBLICATION_ID);
+
+        // The master 'topic' is a Publication, so the links must not be batched.
+        verify(importBatchWriter, never()).insertPublications(anyList(), any(), any(), any());
+        verify(mutationController, times(2)).createEntityLink(isNull(), any());
+        for (ImportedRecord importedRecord : results) {
+            assertEquals(ResultEnum.IMPORTED, importedRecord.getResult());
+            assertTrue(hasMessage(importedRecord,
+                "Error creating Topic link: Cannot link two entities of the same kind: Publication"));
+        }
+    }
+
+    @Test
+    void rejectsMasterRecordThatCannotBeLinked() {
+        when(securityUtils.hasAuthority(AuthorityKind.LNK)).thenReturn(true);
+
+        ResponseEntity<List<ImportedRecord>> response = callImport(RIS, null, PUBLICATION_ID);
+
+        // Publications cannot be linked to each other.
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(importBatchWriter, never()).insertPublications(anyList(), any(), any(), any());
+        verify(mutationController, never()).createPublication(any(), any());
+    }
+
+    @Test
+    void retriesFailedBatchOneAtATime() {
+        when(importBatchWriter.insertPublications(anyList(), isNull(), isNull(), isNull()))
+            .thenThrow(new DuplicateKeyException("Duplicate entry '10.1000/second' for key 'publication_doi'"));
+        doAnswer(invocation -> {
+            PublicationInput input = invocation.getArgument(1);
+            if (input.getDoi().equals("10.1000/second"))
+                throw new DuplicateKeyException("Duplicate entry '10.1000/second' for key 'publication_doi'");
+            Publication publication = new Publication();
+            publication.setId(1L);
+            publication.setTitle(input.getTitle());
+            return publication;
+        }).when(mutationController).createPublication(isNull(), any());
+
+        List<ImportedRecord> results = callImport(null);
+
+        verify(mutationController, times(2)).createPublication(isNull(), any());
+        assertEquals(ResultEnum.IMPORTED, results.get(0).getResult());
+        assertEquals(1L, results.get(0).getId());
+        assertEquals(ResultEnum.DUPLICATE, results.get(1).getResult());
+        assertTrue(hasMessage(results.get(1), "Imported record duplicates an existing Publication"));
+    }
+
+    @Test
+    void skipsDuplicates() {
+        PublicationKeys existing = mock(PublicationKeys.class);
+        when(existing.getId()).thenReturn(99L);
+        when(existing.getDoi()).thenReturn("https://doi.org/10.1000/FIRST");
+        when(existing.getTitle()).thenReturn("Existing publication");
+        when(publicationRepository.findAllKeys()).thenReturn(List.of(existing));
+        when(importBatchWriter.insertPublications(anyList(), isNull(), isNull(), isNull())) //
+            .thenReturn(List.of(new InsertedPublication(1, null, null)));
+        String ris = RIS + """
+
+            TY  - JOUR
+            TI  - Second Publication!
+            PY  - 2021
+            ER  -
+            """;
+
+        List<ImportedRecord> results = callImport(ris, null);
+
+        assertEquals(List.of(ResultEnum.DUPLICATE, ResultEnum.IMPORTED, ResultEnum.DUPLICATE),
+            results.stream().map(ImportedRecord::getResult).toList());
+        // Matched on the normalized DOI.
+        assertEquals(99L, results.get(0).getId());
+        assertTrue(hasMessage(results.get(0), "Skipping record with the same DOI as existing Publication#99"));
+        // Matched on the normalized title and year.
+        assertTrue(hasMessage(results.get(2), "Skipping record with the same title and year as the record ending at"));
+        ArgumentCaptor<List<PublicationInput>> inputs = ArgumentCaptor.captor();
+        verify(importBatchWriter).insertPublications(inputs.capture(), isNull(), isNull(), isNull());
+        assertEquals(List.of("Second publication"),
+            inputs.getValue().stream().map(PublicationInput::getTitle).toList());
+    }
+
+}
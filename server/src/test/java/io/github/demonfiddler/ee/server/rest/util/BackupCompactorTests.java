@@ -0,0 +1,173 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import io.github.demonfiddler.ee.server.TestDatabase;
+import io.github.demonfiddler.ee.server.rest.util.BackupCompactor.CompactedSet;
+import io.github.demonfiddler.ee.server.rest.util.BackupUtils.ManifestEntry;
+
+class BackupCompactorTests {
+
+    @TempDir
+    Path tmpdir;
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private BackupReader backupReader;
+    private BackupWriter backupWriter;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = TestDatabase.create("backup_compactor", "MODE=MySQL");
+        jdbcTemplate = new H2BackupJdbcTemplate(dataSource);
+        backupReader = new BackupReader(jdbcTemplate, new BackupUtils(), 3);
+        backupWriter = new BackupWriter(jdbcTemplate, 1, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.shutdown(dataSource);
+    }
+
+    /**
+     * Writes a backup set containing the {@code config} and {@code abbreviation} tables.
+     * @param backupNumber The set's number within its series.
+     * @param chain The manifest checksums of the preceding sets in the series.
+     * @param abbreviations The {@code abbreviation} table's rows, as word/abbreviation pairs.
+     * @return The manifest checksum.
+     */
+    private String backupSet(int backupNumber, List<String> chain, String... abbreviations) throws IOException {
+        Path dir = Files.createDirectories(tmpdir.resolve("set-" + backupNumber));
+        StringBuilder config = new StringBuilder("\"property\",\"subscript\",\"value\"\n") //
+            .append("\"backup_id\",\"0\",\"series-1\"\n") //
+            .append("\"backup_number\",\"0\",\"").append(backupNumber).append("\"\n") //
+            .append("\"backup_timestamp\",\"0\",\"2026-01-0").append(backupNumber + 1).append(" 00:00:00\"\n");
+        StringBuilder abbreviation = new StringBuilder("\"word\",\"abbreviation\"\n");
+        for (int i = 0; i < abbreviations.length; i += 2) {
+            abbreviation.append('"').append(abbreviations[i]).append("\",\"").append(abbreviations[i + 1])
+                .append("\"\n");
+        }
+        Path configCsv = Files.writeString(dir.resolve("config.csv"), config, UTF_8);
+        Path abbreviationCsv = Files.writeString(dir.resolve("abbreviation.csv"), abbreviation, UTF_8);
+
+        Path zipFile = tmpdir.resolve(setName(backupNumber));
+        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            List<ManifestEntry> manifest = new ArrayList<>();
+            manifest.add(backupWriter.addZipEntry(abbreviationCsv, abbreviations.length / 2, zipOut));
+            manifest.add(backupWriter.addZipEntry(configCsv, 3, zipOut));
+            return backupWriter.finishBackupSet(manifest, chain, zipOut);
+        }
+    }
+
+    private String setName(int backupNumber) {
+        return "backup-" + backupNumber + ".zip";
+    }
+
+    /**
+     * Compacts the backup sets written so far.
+     * @param partitionSize The compactor's partition size.
+     * @param backupCount The number of backup sets.
+     * @return The compacted set's {@code abbreviation} rows, keyed by word.
+     */
+    private Map<String, String> compact(long partitionSize, int backupCount) throws IOException {
+        List<FileSystemResource> sources = new ArrayList<>();
+        for (int i = 0; i < backupCount; i++)
+            sources.add(new FileSystemResource(tmpdir.resolve(setName(i))));
+        Path spoolDir = Files.createDirectories(tmpdir.resolve("spool-" + partitionSize));
+        Path zipFile = tmpdir.resolve("compacted-" + partitionSize + ".zip");
+        BackupCompactor backupCompactor = new BackupCompactor(jdbcTemplate, backupReader, backupWriter, partitionSize);
+        CompactedSet set = backupCompactor.compact(sources, spoolDir, zipFile);
+
+        assertEquals(backupCount - 1, set.backupNumber());
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            assertEquals(List.of(), files.toList(), "spool files left behind");
+        }
+        Map<String, String> abbreviations = new TreeMap<>();
+        try (ZipInputStream zipIn = new ZipInputStream(Files.newInputStream(zipFile))) {
+            ZipEntry entry;
+            while ((entry = zipIn.getNextEntry()) != null) {
+                if (!entry.getName().equals("abbreviation.csv"))
+                    continue;
+                CsvParser csv = new CsvParser(new InputStreamReader(zipIn, UTF_8));
+                assertEquals(List.of("word", "abbreviation"), List.of(csv.next()));
+                String[] row;
+                while ((row = csv.next()) != null)
+                    assertEquals(null, abbreviations.put(row[0], row[1]), "duplicate key " + row[0]);
+            }
+        }
+        return abbreviations;
+    }
+
+    @Test
+    void keepsNewestRowForEachKey() throws IOException {
+        String sha0 = backupSet(0, List.of(), "J", "J0", "Rev", "R0", "Sci", "S0");
+        String sha1 = backupSet(1, List.of(sha0), "Rev", "R1", "Nat", "N1");
+        backupSet(2, List.of(sha0, sha1), "Sci", "S2", "Rev", "R2");
+
+        assertEquals(Map.of("J", "J0", "Nat", "N1", "Rev", "R2", "Sci", "S2"), compact(100000, 3));
+    }
+
+    @Test
+    void partitionsLargeTables() throws IOException {
+        List<String> full = new ArrayList<>();
+        List<String> incremental = new ArrayList<>();
+        Map<String, String> expected = new TreeMap<>();
+        for (int i = 0; i < 50; i++) {
+            full.add("w" + i);
+            full.add("a" + i);
+            expected.put("w" + i, "a" + i);
+        }
+        for (int i = 0; i < 60; i += 3) {
+            incremental.add("w" + i);
+            incremental.add("b" + i);
+            expected.put("w" + i, "b" + i);
+        }
+        String sha0 = backupSet(0, List.of(), full.toArray(String[]::new));
+        backupSet(1, List.of(sha0), incremental.toArray(String[]::new));
+
+        // 70 rows with a partition size of 4 gives 18 partitions, each de-duplicated separately.
+        assertEquals(expected, compact(4, 2));
+        assertEquals(expected, compact(100000, 2));
+    }
+
+}
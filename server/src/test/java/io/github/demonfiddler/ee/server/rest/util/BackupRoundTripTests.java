@@ -0,0 +1,292 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.demonfiddler.ee.server.TestDatabase;
+import io.github.demonfiddler.ee.server.rest.model.BackupKind;
+import io.github.demonfiddler.ee.server.rest.util.BackupCompactor.CompactedSet;
+import io.github.demonfiddler.ee.server.rest.util.BackupReader.BackupSetContents;
+import io.github.demonfiddler.ee.server.rest.util.BackupUtils.ManifestEntry;
+import io.github.demonfiddler.ee.server.rest.util.BackupUtils.TableDescriptor;
+
+class BackupRoundTripTests {
+
+    private static final TableDescriptor[] TABLES =
+        { TableDescriptor.untracked("abbreviation"), TableDescriptor.untracked("config") };
+    private static final String SELECT_ABBREVIATIONS = """
+        SELECT "word", "abbreviation"
+        FROM "abbreviation"
+        ORDER BY "word";
+        """;
+    private static final String INSERT_ABBREVIATION =
+        "INSERT INTO \"abbreviation\" (\"word\", \"abbreviation\", \"languages\") VALUES (?, ?, 'eng')";
+
+    @TempDir
+    Path tmpdir;
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private BackupWriter backupWriter;
+    private BackupReader backupReader;
+    private BackupCompactor backupCompactor;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = TestDatabase.create("backup_round_trip", "MODE=MySQL");
+        jdbcTemplate = new H2BackupJdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+            INSERT INTO "abbreviation" ("word", "abbreviation", "languages") VALUES
+              ('Journal', 'J.', 'eng'), ('Review', 'Rev.', 'eng'), ('Science', NULL, 'eng');
+            INSERT INTO "config" VALUES ('backup_id', 0, 'series-1'), ('backup_timestamp', 0, '2026-01-01 00:00:00');
+            """);
+        backupWriter = new BackupWriter(jdbcTemplate, 2, 100);
+        backupReader = new BackupReader(jdbcTemplate, new BackupUtils(), 100);
+        backupCompactor = new BackupCompactor(jdbcTemplate, backupReader, backupWriter, 100000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.shutdown(dataSource);
+    }
+
+    /**
+     * Writes a backup set of the current database.
+     * @param backupNumber The set's number within its series.
+     * @param chain The manifest checksums of the preceding sets in the series.
+     * @return The backup set file.
+     */
+    private Path backup(int backupNumber, List<String> chain) throws IOException {
+        jdbcTemplate.update("DELETE FROM \"config\" WHERE \"property\" = 'backup_number'");
+        jdbcTemplate.update("INSERT INTO \"config\" VALUES ('backup_number', 0, ?)", String.valueOf(backupNumber));
+        Path spoolDir = Files.createDirectories(tmpdir.resolve("spool-" + backupNumber));
+        Path zipFile = tmpdir.resolve("backup-" + backupNumber + ".zip");
+        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            List<ManifestEntry> manifest = new ArrayList<>();
+            backupWriter.backupTables(TABLES, spoolDir.toFile(), backupNumber == 0 ? BackupKind.FULL
+                : BackupKind.INCREMENTAL, null, zipOut, manifest);
+            backupWriter.finishBackupSet(manifest, chain, zipOut);
+        }
+        return zipFile;
+    }
+
+    private BackupSetContents scan(Path zipFile) throws IOException {
+        return backupReader.scan(Files.newInputStream(zipFile));
+    }
+
+    private void restore(Path zipFile) throws IOException {
+        jdbcTemplate.execute("DELETE FROM \"abbreviation\"; DELETE FROM \"config\"");
+        try (InputStream in = Files.newInputStream(zipFile)) {
+            backupReader.restoreTables(in, List.of(TABLES), scan(zipFile).manifest(), false);
+        }
+    }
+
+    /**
+     * Copies a backup set, rewriting one of its entries.
+     * @param zipFile The backup set.
+     * @param entryName The name of the entry to rewrite.
+     * @param rewriter Rewrites the entry's content.
+     * @return The copy.
+     */
+    private Path rewrite(Path zipFile, String entryName, UnaryOperator<String> rewriter) throws IOException {
+        Path copy = tmpdir.resolve("rewritten-" + zipFile.getFileName());
+        try (ZipInputStream zipIn = new ZipInputStream(Files.newInputStream(zipFile));
+            ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(copy))) {
+
+            ZipEntry entry;
+            while ((entry = zipIn.getNextEntry()) != null) {
+                byte[] content = zipIn.readAllBytes();
+                if (entry.getName().equals(entryName))
+                    content = rewriter.apply(new String(content, UTF_8)).getBytes(UTF_8);
+                zipOut.putNextEntry(new ZipEntry(entry.getName()));
+                zipOut.write(content);
+                zipOut.closeEntry();
+            }
+        }
+        return copy;
+    }
+
+    private List<Map<String, Object>> selectAbbreviations() {
+        return jdbcTemplate.queryForList(SELECT_ABBREVIATIONS);
+    }
+
+    @Test
+    void restoresBackup() throws IOException {
+        List<Map<String, Object>> expected = selectAbbreviations();
+        Path zipFile = backup(0, List.of());
+
+        BackupSetContents contents = scan(zipFile);
+        assertEquals(0, contents.backupNumber());
+        assertEquals("series-1", contents.config().get(DatabaseUtils.PROP_BACKUP_ID));
+        assertEquals(3, contents.manifest().get("abbreviation.csv").rows());
+
+        restore(zipFile);
+
+        assertEquals(expected, selectAbbreviations());
+        assertEquals("0", jdbcTemplate.queryForObject(
+            "SELECT \"value\" FROM \"config\" WHERE \"property\" = 'backup_number'", String.class));
+    }
+
+    @Test
+    void fullBackupReadsCallerSnapshot() throws IOException {
+        // A full backup reads every table within the caller's transaction, so it sees the transaction's uncommitted
+        // changes, which a separate connection would not.
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        Path zipFile = txTemplate.execute(status -> {
+            status.setRollbackOnly();
+            jdbcTemplate.update(INSERT_ABBREVIATION, "Uncommitted", "Uncommit.");
+            try {
+                return backup(0, List.of());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        assertEquals(4, scan(zipFile).manifest().get("abbreviation.csv").rows());
+        assertEquals(3, selectAbbreviations().size());
+    }
+
+    @Test
+    void rejectsEntryThatDoesNotMatchManifest() throws IOException {
+        Path zipFile = backup(0, List.of());
+        Path tampered = rewrite(zipFile, "abbreviation.csv", csv -> csv.replace("\"Rev.\"", "\"Rv.\""));
+
+        jdbcTemplate.execute("DELETE FROM \"abbreviation\"");
+        try (InputStream in = Files.newInputStream(tampered)) {
+            IOException e = assertThrows(IOException.class,
+                () -> backupReader.restoreTables(in, List.of(TABLES), scan(zipFile).manifest(), false));
+            assertTrue(e.getMessage().contains("does not match the manifest"), e.getMessage());
+        }
+        // The entry's only batch is its last, which is not loaded unless the entry is verified.
+        assertEquals(List.of(), selectAbbreviations());
+    }
+
+    @Test
+    void rejectsUnknownColumn() throws IOException {
+        Path zipFile = rewrite(backup(0, List.of()), "abbreviation.csv", csv -> csv.replaceFirst(
+            "\"languages\"\n", "\"languages\"\"); DROP TABLE \"\"config\"\"; --\"\n"));
+
+        try (InputStream in = Files.newInputStream(zipFile)) {
+            IOException e = assertThrows(IOException.class,
+                () -> backupReader.restoreTables(in, List.of(TABLES), null, false));
+            assertTrue(e.getMessage().contains("unknown column"), e.getMessage());
+        }
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"config\" WHERE \"subscript\" = 0 "
+            + "AND \"property\" IN ('backup_id', 'backup_timestamp')", Integer.class));
+    }
+
+    @Test
+    void rejectsUnknownTable() throws IOException {
+        jdbcTemplate.execute("CREATE TABLE \"secret\" (\"id\" INT PRIMARY KEY)");
+        Path zipFile = tmpdir.resolve("secret.zip");
+        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            zipOut.putNextEntry(new ZipEntry("secret.csv"));
+            zipOut.write("\"id\"\n\"1\"\n".getBytes(UTF_8));
+            zipOut.closeEntry();
+        }
+
+        try (InputStream in = Files.newInputStream(zipFile)) {
+            IOException e = assertThrows(IOException.class,
+                () -> backupReader.restoreTables(in, List.of(TableDescriptor.untracked("secret")), null, false));
+            assertTrue(e.getMessage().contains("not a known table"), e.getMessage());
+        }
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"secret\"", Integer.class));
+    }
+
+    @Test
+    void compactsChain() throws IOException {
+        Path full = backup(0, List.of());
+        String fullSha256 = scan(full).manifestSha256();
+        jdbcTemplate.update("UPDATE \"abbreviation\" SET \"abbreviation\" = 'Sci.' WHERE \"word\" = 'Science'");
+        jdbcTemplate.update(INSERT_ABBREVIATION, "Nature", "Nat.");
+        Path incremental = backup(1, List.of(fullSha256));
+        List<Map<String, Object>> expected = selectAbbreviations();
+
+        Path compacted = tmpdir.resolve("compacted.zip");
+        Path spoolDir = Files.createDirectories(tmpdir.resolve("compact"));
+        CompactedSet set = backupCompactor.compact(
+            List.of(new FileSystemResource(incremental), new FileSystemResource(full)), spoolDir, compacted);
+
+        assertEquals("series-1", set.backupId());
+        assertEquals(1, set.backupNumber());
+        BackupSetContents contents = scan(compacted);
+        assertTrue(contents.isCompacted());
+        assertEquals(List.of(fullSha256, scan(incremental).manifestSha256()), contents.chain());
+        assertEquals(set.manifestSha256(), contents.manifestSha256());
+        // Each key appears once, with its newest values.
+        assertEquals(4, contents.manifest().get("abbreviation.csv").rows());
+
+        restore(compacted);
+
+        assertEquals(expected, selectAbbreviations());
+    }
+
+    @Test
+    void compactionRejectsBrokenChain() throws IOException {
+        Path full = backup(0, List.of());
+        Path incremental = backup(1, List.of("0".repeat(64)));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> backupCompactor.compact(List.of(new FileSystemResource(full), new FileSystemResource(incremental)),
+                Files.createDirectories(tmpdir.resolve("compact")), tmpdir.resolve("compacted.zip")));
+        assertTrue(e.getMessage().contains("does not follow on"), e.getMessage());
+    }
+
+    @Test
+    void compactionRejectsTamperedManifest() throws IOException {
+        Path full = backup(0, List.of());
+        Path incremental = backup(1, List.of(scan(full).manifestSha256()));
+        // Rewriting the full set's manifest changes its checksum, which no longer matches the incremental set's chain.
+        Path tampered = rewrite(full, BackupUtils.MANIFEST_ENTRY, manifest -> manifest + "\"extra.csv\",\"0\",\"\"\n");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> backupCompactor.compact(
+                List.of(new FileSystemResource(tampered), new FileSystemResource(incremental)),
+                Files.createDirectories(tmpdir.resolve("compact")), tmpdir.resolve("compacted.zip")));
+        assertTrue(e.getMessage().contains("does not follow on"), e.getMessage());
+    }
+
+}
@@ -0,0 +1,150 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import io.github.demonfiddler.ee.server.rest.util.ExportCache.OpenEntry;
+import io.github.demonfiddler.ee.server.util.DataVersion;
+
+class ExportCacheTests {
+
+    @TempDir
+    Path tmpdir;
+    private DataVersion dataVersion;
+    private ExportCache exportCache;
+
+    @BeforeEach
+    void setUp() {
+        dataVersion = new DataVersion();
+        exportCache = new ExportCache(dataVersion, tmpdir.toString(), 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private String render(String key, String content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportCache.caching(key, key + ".csv", "text/csv", o -> o.write(content.getBytes(UTF_8))).writeTo(out);
+        return out.toString(UTF_8);
+    }
+
+    private static String read(OpenEntry entry) throws IOException {
+        try (entry) {
+            return new String(entry.in().readAllBytes(), UTF_8);
+        }
+    }
+
+    @Test
+    void servesCachedExport() throws IOException {
+        String key = exportCache.key("claims", "text/csv");
+        assertNull(exportCache.open(key));
+
+        assertEquals("id\r\n", render(key, "id\r\n"));
+
+        OpenEntry entry = exportCache.open(key);
+        assertNotNull(entry);
+        assertEquals(key + ".csv", entry.entry().fileName());
+        assertEquals(4, entry.entry().length());
+        assertEquals("id\r\n", read(entry));
+    }
+
+    @Test
+    void evictionDoesNotAffectOpenExport() throws IOException {
+        exportCache = new ExportCache(dataVersion, tmpdir.toString(), 1);
+        String key1 = exportCache.key("claims");
+        render(key1, "claims");
+        OpenEntry entry = exportCache.open(key1);
+        assertNotNull(entry);
+
+        // The cache holds a single entry, so this evicts the first, deleting its file.
+        String key2 = exportCache.key("persons");
+        render(key2, "persons");
+
+        assertNull(exportCache.open(key1));
+        assertFalse(Files.exists(entry.entry().path()));
+        assertEquals("claims", read(entry));
+    }
+
+    @Test
+    void invalidatesAfterCommit() throws IOException {
+        String key = exportCache.key("claims");
+        render(key, "claims");
+
+        // Within a transaction, the data version only changes once the transaction commits.
+        TransactionSynchronizationManager.initSynchronization();
+        dataVersion.increment();
+        assertEquals(key, exportCache.key("claims"));
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+            TransactionSynchronization.STATUS_COMMITTED);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        String newKey = exportCache.key("claims");
+        assertNotEquals(key, newKey);
+        assertNull(exportCache.open(newKey));
+
+        // Caching an export from the new data version discards the stale entry.
+        Path stalePath;
+        try (OpenEntry entry = exportCache.open(key)) {
+            stalePath = entry.entry().path();
+        }
+        render(newKey, "claims");
+        assertNull(exportCache.open(key));
+        assertFalse(Files.exists(stalePath));
+    }
+
+    @Test
+    void rollbackDoesNotInvalidate() throws IOException {
+        String key = exportCache.key("claims");
+        render(key, "claims");
+
+        TransactionSynchronizationManager.initSynchronization();
+        dataVersion.increment();
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+            TransactionSynchronization.STATUS_ROLLED_BACK);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertEquals(key, exportCache.key("claims"));
+        assertEquals("claims", read(exportCache.open(key)));
+    }
+
+}
@@ -0,0 +1,135 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.demonfiddler.ee.server.rest.model.ExportJob;
+import io.github.demonfiddler.ee.server.rest.model.ExportJob.StatusEnum;
+import io.github.demonfiddler.ee.server.rest.util.ExportJobManager.ExportFile;
+import io.github.demonfiddler.ee.server.rest.util.ExportJobManager.ExportResult;
+import io.github.demonfiddler.ee.server.util.SecurityUtils;
+
+class ExportJobManagerTests {
+
+    @TempDir
+    Path tmpdir;
+    private ExportJobManager jobManager;
+
+    @BeforeEach
+    void setUp() {
+        SecurityUtils securityUtils = mock(SecurityUtils.class);
+        when(securityUtils.getCurrentUsername()).thenReturn("user");
+        // A zero retention period means that finished jobs expire immediately.
+        jobManager = new ExportJobManager(securityUtils, tmpdir.toString(), 1, 1, 0, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobManager.shutdown();
+    }
+
+    private ExportJob awaitJob(String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            ExportJob job = jobManager.getJob(id);
+            if (job.getStatus() == StatusEnum.COMPLETED || job.getStatus() == StatusEnum.FAILED)
+                return job;
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Export job " + id + " did not finish");
+    }
+
+    private static ExportResult await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Export interrupted");
+        }
+        return new ExportResult("claims.csv", "text/csv");
+    }
+
+    @Test
+    void purgeDiscardsExpiredJobsAndFiles() throws Exception {
+        ExportJob job = jobManager.submit("claims", "text/csv", (progress, out) -> {
+            out.write("id\r\n1\r\n".getBytes(UTF_8));
+            progress.increment();
+            return new ExportResult("claims.csv", "text/csv");
+        });
+        assertEquals(StatusEnum.COMPLETED, awaitJob(job.getId()).getStatus());
+        ExportFile file = jobManager.getFile(job.getId());
+        assertNotNull(file);
+        assertTrue(Files.exists(file.path()));
+
+        // The scheduled purge must discard the job without waiting for another submission.
+        jobManager.purgeExpiredJobs();
+
+        assertNull(jobManager.getJob(job.getId()));
+        assertFalse(Files.exists(file.path()));
+    }
+
+    @Test
+    void purgeRetainsUnfinishedJobs() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        ExportJob job = jobManager.submit("claims", "text/csv", (_, _) -> await(latch));
+
+        jobManager.purgeExpiredJobs();
+
+        assertNotNull(jobManager.getJob(job.getId()));
+        latch.countDown();
+        assertEquals(StatusEnum.COMPLETED, awaitJob(job.getId()).getStatus());
+    }
+
+    @Test
+    void shutdownStopsExecutor() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        // The job blocks until interrupted by the shutdown.
+        ExportJob job = jobManager.submit("claims", "text/csv", (_, _) -> await(latch));
+        while (jobManager.getJob(job.getId()).getStatus() == StatusEnum.QUEUED)
+            TimeUnit.MILLISECONDS.sleep(10);
+
+        jobManager.shutdown();
+
+        assertEquals(StatusEnum.FAILED, awaitJob(job.getId()).getStatus());
+        assertThrows(RejectedExecutionException.class, () -> jobManager.submit("claims", "text/csv",
+            (_, _) -> new ExportResult("claims.csv", "text/csv")));
+    }
+
+}
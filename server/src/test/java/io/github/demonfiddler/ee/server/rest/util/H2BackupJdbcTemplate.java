@@ -0,0 +1,70 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.SELECT_PRIMARY_KEY_COLUMNS;
+import static io.github.demonfiddler.ee.server.rest.util.BackupUtils.SELECT_TABLE_COLUMNS;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * A {@code JdbcTemplate} for an H2 database, which answers the backup utilities' MariaDB information schema queries
+ * from H2's own information schema. All other statements are executed as given.
+ */
+final class H2BackupJdbcTemplate extends JdbcTemplate {
+
+    private static final String H2_SELECT_TABLE_COLUMNS = """
+        SELECT COLUMN_NAME, LOWER(DATA_TYPE)
+        FROM INFORMATION_SCHEMA.COLUMNS
+        WHERE TABLE_SCHEMA = CURRENT_SCHEMA
+        AND TABLE_NAME = ?
+        ORDER BY ORDINAL_POSITION;
+        """;
+    private static final String H2_SELECT_PRIMARY_KEY_COLUMNS = """
+        SELECT k.COLUMN_NAME
+        FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS c
+        JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE k
+        ON k.CONSTRAINT_SCHEMA = c.CONSTRAINT_SCHEMA
+            AND k.CONSTRAINT_NAME = c.CONSTRAINT_NAME
+        WHERE c.TABLE_SCHEMA = CURRENT_SCHEMA
+        AND c.TABLE_NAME = ?
+        AND c.CONSTRAINT_TYPE = 'PRIMARY KEY'
+        ORDER BY k.ORDINAL_POSITION;
+        """;
+
+    H2BackupJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) throws DataAccessException {
+        if (sql.equals(SELECT_TABLE_COLUMNS))
+            sql = H2_SELECT_TABLE_COLUMNS;
+        else if (sql.equals(SELECT_PRIMARY_KEY_COLUMNS))
+            sql = H2_SELECT_PRIMARY_KEY_COLUMNS;
+        super.query(sql, pss, rch);
+    }
+
+}
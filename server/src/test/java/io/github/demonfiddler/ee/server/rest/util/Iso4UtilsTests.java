@@ -0,0 +1,190 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.rest.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.demonfiddler.ee.server.TestDatabase;
+import io.github.demonfiddler.ee.server.model.Abbreviation;
+import io.github.demonfiddler.ee.server.repository.AbbreviationRepository;
+
+/**
+ * Checks that matching words against the in-memory LTWA tries gives the same results as the {@code LIKE} query it
+ * replaced, and that the LTWA is reloaded when a change to the {@code abbreviation} table commits.
+ */
+class Iso4UtilsTests {
+
+    private static final String DATA = """
+        INSERT INTO "abbreviation" ("word", "is_prefix", "is_suffix", "abbreviation", "languages") VALUES
+          ('journal', FALSE, FALSE, 'j.', 'eng'),
+          ('review', FALSE, FALSE, 'rev.', 'eng'),
+          ('nature', FALSE, FALSE, NULL, 'eng'),
+          ('scienc-', TRUE, FALSE, 'sci.', 'eng'),
+          ('internation-', TRUE, FALSE, 'int.', 'eng'),
+          ('international', FALSE, FALSE, 'int.', 'eng'),
+          ('-shire', FALSE, TRUE, '-sh.', 'eng'),
+          ('-logy', FALSE, TRUE, '-l.', 'eng'),
+          ('-graph-', TRUE, TRUE, '-gr.', 'eng');
+        """;
+    private static final String INSERT_ABBREVIATION = """
+        INSERT INTO "abbreviation" ("word", "is_prefix", "is_suffix", "abbreviation", "languages")
+        VALUES (?, ?, ?, ?, 'eng');
+        """;
+    private static final String SELECT_ABBREVIATIONS = """
+        SELECT "word", "is_prefix", "is_suffix", "abbreviation", "languages"
+        FROM "abbreviation";
+        """;
+    /** The query which {@code AbbreviationRepository.findByWord()} used to run. */
+    private static final String SELECT_BY_WORD = """
+        SELECT "word" FROM "abbreviation"
+        WHERE LOWER("word") = :word
+        OR "is_prefix" AND LOWER(:word) LIKE CONCAT(LOWER(SUBSTRING("word", 1, LENGTH("word") - 1)), '%')
+        OR "is_suffix" AND LOWER(:word) LIKE CONCAT('%', LOWER(SUBSTRING("word", 2)));
+        """;
+
+    private DriverManagerDataSource dataSource;
+    private NamedParameterJdbcTemplate jdbc;
+    private TransactionTemplate txTemplate;
+    private Iso4Utils iso4Utils;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = TestDatabase.create("iso4_utils");
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        JdbcTemplate jdbcTemplate = jdbc.getJdbcTemplate();
+        jdbcTemplate.execute(DATA);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        AbbreviationRepository abbreviationRepository = mock(AbbreviationRepository.class);
+        when(abbreviationRepository.findAll()).thenAnswer(_ -> jdbcTemplate.query(SELECT_ABBREVIATIONS, (rs, _) -> {
+            Abbreviation abbreviation = new Abbreviation();
+            abbreviation.setWord(rs.getString(1));
+            abbreviation.setPrefix(rs.getBoolean(2));
+            abbreviation.setSuffix(rs.getBoolean(3));
+            abbreviation.setAbbreviation(rs.getString(4));
+            abbreviation.setLanguages(rs.getString(5));
+            return abbreviation;
+        }));
+        iso4Utils = new Iso4Utils(abbreviationRepository);
+        iso4Utils.onContextRefreshed();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.shutdown(dataSource);
+    }
+
+    private Set<String> matches(String word) {
+        return new TreeSet<>(iso4Utils.findByWord(word).stream().map(Abbreviation::getWord).toList());
+    }
+
+    private Set<String> oldMatches(String word) {
+        // The old query relied on the database's case-insensitive collation to compare the word as given.
+        Map<String, String> params = Map.of("word", word.toLowerCase(Locale.ROOT));
+        return new TreeSet<>(jdbc.queryForList(SELECT_BY_WORD, params, String.class));
+    }
+
+    private void insertAbbreviation(String word, boolean isPrefix, boolean isSuffix, String abbreviation) {
+        jdbc.getJdbcTemplate().update(INSERT_ABBREVIATION, word, isPrefix, isSuffix, abbreviation);
+    }
+
+    @Test
+    void matchesOldQuery() {
+        int matches = 0;
+        for (String word : List.of("Journal", "journal", "Journals", "Review", "Reviews", "Nature", "Natural",
+            "Science", "Sciences", "Scienc", "Scientific", "International", "Internationale", "Nation", "Dorsetshire",
+            "Shire", "shire", "Geology", "Biology", "Logy", "Photograph", "Graph", "Cartographic", "Xyz")) {
+
+            Set<String> expected = oldMatches(word);
+            assertEquals(expected, matches(word), word);
+            matches += expected.size();
+        }
+        assertTrue(matches > 0, "no matches");
+    }
+
+    @Test
+    void matchesExactPrefixAndSuffixEntries() {
+        assertEquals(Set.of("journal"), matches("Journal"));
+        assertEquals(Set.of("scienc-"), matches("Sciences"));
+        assertEquals(Set.of("internation-", "international"), matches("International"));
+        assertEquals(Set.of("internation-"), matches("Internationale"));
+        assertEquals(Set.of("-shire"), matches("Dorsetshire"));
+        assertEquals(Set.of("-logy"), matches("Geology"));
+        // A prefix or suffix entry must match in full.
+        assertEquals(Set.of(), matches("Scientific"));
+        assertEquals(Set.of(), matches("Nation"));
+        assertEquals(Set.of(), matches("Journals"));
+        // Matching folds case and diacritics, as the database collation does.
+        assertEquals(Set.of("scienc-"), matches("SCIÉNCE"));
+    }
+
+    @Test
+    void abbreviatesTitles() {
+        assertEquals("J. Sci.", iso4Utils.abbreviate("Journal of Science"));
+        assertEquals("Int. Rev.", iso4Utils.abbreviate("International Review"));
+        assertEquals("Dorsetsh. Nature", iso4Utils.abbreviate("Dorsetshire Nature"));
+        assertEquals("J. Sci.", iso4Utils.normalizeAbbreviation("j sci"));
+    }
+
+    @Test
+    void reloadsAfterCommit() {
+        assertEquals(Set.of(), matches("Natural"));
+        txTemplate.executeWithoutResult(_ -> {
+            insertAbbreviation("natur-", true, false, "nat.");
+            iso4Utils.invalidate();
+            // Until the transaction commits, the committed LTWA remains in use.
+            assertEquals(Set.of(), matches("Natural"));
+        });
+
+        assertEquals(oldMatches("Natural"), matches("Natural"));
+        assertEquals(Set.of("natur-"), matches("Natural"));
+        assertEquals("Nat. Rev.", iso4Utils.abbreviate("Natural Review"));
+    }
+
+    @Test
+    void ignoresRolledBackChanges() {
+        txTemplate.executeWithoutResult(status -> {
+            insertAbbreviation("natur-", true, false, "nat.");
+            iso4Utils.invalidate();
+            status.setRollbackOnly();
+        });
+
+        assertEquals(Set.of(), matches("Natural"));
+        assertEquals("Natural Rev.", iso4Utils.abbreviate("Natural Review"));
+    }
+
+}
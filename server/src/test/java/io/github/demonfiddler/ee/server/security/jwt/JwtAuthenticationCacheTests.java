@@ -0,0 +1,125 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.security.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+class JwtAuthenticationCacheTests {
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = mock(JwtUtils.class);
+        when(jwtUtils.getAuthorityClaim()).thenReturn("authorities");
+    }
+
+    /**
+     * Stubs token verification.
+     * @param token The token.
+     * @param expiresAt When the token expires, or {@code null} if it does not.
+     */
+    private void stubToken(String token, Instant expiresAt) {
+        Claim authorities = mock(Claim.class);
+        when(authorities.asList(String.class)).thenReturn(List.of("CRE", "UPD"));
+        DecodedJWT jwt = mock(DecodedJWT.class);
+        when(jwt.getSubject()).thenReturn("user-" + token);
+        when(jwt.getClaim("authorities")).thenReturn(authorities);
+        when(jwt.getExpiresAt()).thenReturn(expiresAt != null ? Date.from(expiresAt) : null);
+        when(jwtUtils.validateToken(token)).thenReturn(jwt);
+    }
+
+    @Test
+    void cachesUntilTokenExpires() throws InterruptedException {
+        JwtAuthenticationCache cache = new JwtAuthenticationCache(jwtUtils, 10);
+        Instant expiresAt = Instant.now().plusSeconds(1);
+        stubToken("a", expiresAt);
+
+        Authentication authentication = cache.authenticate("a");
+        assertEquals("user-a", authentication.getName());
+        assertEquals(List.of("CRE", "UPD"),
+            authentication.getAuthorities().stream().map(a -> a.getAuthority()).toList());
+        assertSame(authentication, cache.authenticate("a"));
+        verify(jwtUtils, times(1)).validateToken("a");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Once the token has expired, it must be verified again, which now rejects it.
+        while (!Instant.now().isAfter(expiresAt))
+            Thread.sleep(50);
+        when(jwtUtils.validateToken("a")).thenThrow(new TokenExpiredException("The Token has expired", expiresAt));
+        assertThrows(TokenExpiredException.class, () -> cache.authenticate("a"));
+        verify(jwtUtils, times(2)).validateToken("a");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void doesNotCacheTokenWithoutExpiry() {
+        JwtAuthenticationCache cache = new JwtAuthenticationCache(jwtUtils, 10);
+        stubToken("a", null);
+
+        cache.authenticate("a");
+        cache.authenticate("a");
+
+        verify(jwtUtils, times(2)).validateToken("a");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        JwtAuthenticationCache cache = new JwtAuthenticationCache(jwtUtils, 2);
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        for (String token : List.of("a", "b", "c"))
+            stubToken(token, expiresAt);
+
+        cache.authenticate("a");
+        cache.authenticate("b");
+        cache.authenticate("a");
+        cache.authenticate("c");
+        assertEquals(2, cache.size());
+
+        // "b" was the least recently used, so it was evicted; "a" is still cached.
+        cache.authenticate("a");
+        cache.authenticate("b");
+        verify(jwtUtils, times(1)).validateToken("a");
+        verify(jwtUtils, times(2)).validateToken("b");
+    }
+
+}
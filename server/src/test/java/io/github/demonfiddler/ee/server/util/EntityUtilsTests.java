@@ -0,0 +1,225 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Order;
+
+import io.github.demonfiddler.ee.server.model.Claim;
+import io.github.demonfiddler.ee.server.model.ClaimPage;
+import io.github.demonfiddler.ee.server.model.Comment;
+import io.github.demonfiddler.ee.server.model.CommentPage;
+import io.github.demonfiddler.ee.server.model.CommentQueryFilter;
+import io.github.demonfiddler.ee.server.model.DirectionKind;
+import io.github.demonfiddler.ee.server.model.LinkableEntityQueryFilter;
+import io.github.demonfiddler.ee.server.model.OrderInput;
+import io.github.demonfiddler.ee.server.model.PageableInput;
+import io.github.demonfiddler.ee.server.model.SeekRequest;
+import io.github.demonfiddler.ee.server.model.SortInput;
+import io.github.demonfiddler.ee.server.repository.ClaimRepository;
+import io.github.demonfiddler.ee.server.repository.CommentRepository;
+
+class EntityUtilsTests {
+
+    private SecurityUtils securityUtils;
+    private EntityUtils entityUtils;
+
+    @BeforeEach
+    void setUp() {
+        securityUtils = mock(SecurityUtils.class);
+        when(securityUtils.getAccessContext(any())).thenReturn(new AccessContext(false, "user", Set.of()));
+        entityUtils = new EntityUtils(securityUtils);
+    }
+
+    @Test
+    void cursorRoundTrip() {
+        String cursor = entityUtils.encodeCursor(12345L);
+        assertEquals(12345L, entityUtils.decodeCursor(cursor));
+    }
+
+    @Test
+    void invalidCursorsAreRejected() {
+        String unprefixed = Base64.getUrlEncoder().encodeToString("12345".getBytes(StandardCharsets.US_ASCII));
+        String nonNumeric = Base64.getUrlEncoder().encodeToString("id:abc".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IllegalArgumentException.class, () -> entityUtils.decodeCursor("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> entityUtils.decodeCursor(unprefixed));
+        assertThrows(IllegalArgumentException.class, () -> entityUtils.decodeCursor(nonNumeric));
+    }
+
+    @Test
+    void afterYieldsSeekRequest() {
+        PageableInput pageSort = PageableInput.builder() //
+            .withPageNumber(3) //
+            .withPageSize(20) //
+            .withAfter(entityUtils.encodeCursor(42L)) //
+            .build();
+        Pageable pageable = entityUtils.toPageable(pageSort);
+        SeekRequest seekRequest = assertInstanceOf(SeekRequest.class, pageable);
+        assertEquals(42L, seekRequest.getAfterId());
+        assertEquals(3, seekRequest.getPageNumber());
+        assertEquals(20, seekRequest.getPageSize());
+    }
+
+    @Test
+    void relevanceDefaultsToDescending() {
+        PageableInput pageSort = PageableInput.builder() //
+            .withSort(SortInput.builder() //
+                .withOrders(List.of( //
+                    OrderInput.builder().withProperty(EntityUtils.RELEVANCE).build(),
+                    OrderInput.builder().withProperty("title").build(),
+                    OrderInput.builder().withProperty(EntityUtils.RELEVANCE).withDirection(DirectionKind.ASC).build()))
+                .build()) //
+            .build();
+        Sort sort = entityUtils.toPageable(pageSort).getSort();
+        assertEquals(List.of(Order.desc(EntityUtils.RELEVANCE), Order.asc("title"), Order.asc(EntityUtils.RELEVANCE)),
+            sort.toList());
+    }
+
+    @Test
+    void seekPredicateOnIdOnly() {
+        StringBuilder sql = new StringBuilder();
+        entityUtils.appendSeekPredicate(sql, Sort.by("id"), "e.", "ee.", "cbu.", "ubu.", "k");
+        assertEquals("(e.\"id\" > ke.\"id\")", sql.toString());
+    }
+
+    @Test
+    void seekPredicateAscendingWithTieBreaker() {
+        StringBuilder sql = new StringBuilder();
+        entityUtils.appendSeekPredicate(sql, Sort.by("title", "id"), "e.", "ee.", "cbu.", "ubu.", "k");
+        assertEquals("((ee.\"title\" > kee.\"title\" OR kee.\"title\" IS NULL AND ee.\"title\" IS NOT NULL)" //
+            + " OR (ee.\"title\" = kee.\"title\" OR ee.\"title\" IS NULL AND kee.\"title\" IS NULL)" //
+            + " AND (e.\"id\" > ke.\"id\"))", sql.toString());
+    }
+
+    @Test
+    void seekPredicateDescendingIgnoreCase() {
+        StringBuilder sql = new StringBuilder();
+        Sort sort = Sort.by(Order.desc("title").ignoreCase(), Order.asc("id"));
+        entityUtils.appendSeekPredicate(sql, sort, "e.", "ee.", "cbu.", "ubu.", "k");
+        assertEquals("((LOWER(ee.\"title\") < LOWER(kee.\"title\")" //
+            + " OR LOWER(ee.\"title\") IS NULL AND LOWER(kee.\"title\") IS NOT NULL)" //
+            + " OR (LOWER(ee.\"title\") = LOWER(kee.\"title\")" //
+            + " OR LOWER(ee.\"title\") IS NULL AND LOWER(kee.\"title\") IS NULL)" //
+            + " AND (e.\"id\" > ke.\"id\"))", sql.toString());
+    }
+
+    @Test
+    void endCursorResumesAfterLastRecord() {
+        Claim claim1 = new Claim();
+        claim1.setId(1L);
+        Claim claim2 = new Claim();
+        claim2.setId(2L);
+        ClaimRepository repository = mock(ClaimRepository.class);
+        when(repository.findByFilter(any(), any(), anyBoolean()))
+            .thenReturn(new PageImpl<>(List.of(claim1, claim2), PageRequest.of(0, 2), 5));
+        PageableInput pageSort = PageableInput.builder().withPageSize(2).build();
+
+        ClaimPage page = entityUtils.findByFilter(null, new LinkableEntityQueryFilter(), pageSort, repository,
+            ClaimPage::new);
+
+        assertNotNull(page.getEndCursor());
+        PageableInput nextPageSort = PageableInput.builder() //
+            .withPageNumber(1) //
+            .withPageSize(2) //
+            .withAfter(page.getEndCursor()) //
+            .build();
+        SeekRequest seekRequest = assertInstanceOf(SeekRequest.class, entityUtils.toPageable(nextPageSort));
+        assertEquals(2L, seekRequest.getAfterId());
+    }
+
+    @Test
+    void relevancePagesAreWalkedByPageNumber() {
+        List<Claim> claims = LongStream.rangeClosed(1, 4).mapToObj(id -> {
+            Claim claim = new Claim();
+            claim.setId(id);
+            return claim;
+        }).toList();
+        ClaimRepository repository = mock(ClaimRepository.class);
+        when(repository.findByFilter(any(), any(), anyBoolean())).thenAnswer(i -> {
+            // A relevance-sorted query cannot seek, so each page must be requested by offset.
+            Pageable pageable = assertInstanceOf(PageRequest.class, i.getArgument(1));
+            int offset = (int)pageable.getOffset();
+            return new PageImpl<>(claims.subList(offset, offset + pageable.getPageSize()), pageable, claims.size());
+        });
+        LinkableEntityQueryFilter filter =
+            LinkableEntityQueryFilter.builderForLinkableEntityQueryFilter().withText("climate").build();
+        SortInput sort = SortInput.builder() //
+            .withOrders(List.of(OrderInput.builder().withProperty(EntityUtils.RELEVANCE).build())) //
+            .build();
+
+        PageableInput pageSort = PageableInput.builder().withPageSize(2).withSort(sort).build();
+        ClaimPage page = entityUtils.findByFilter(null, filter, pageSort, repository, ClaimPage::new);
+
+        assertEquals(List.of(1L, 2L), page.getContent().stream().map(Claim::getId).toList());
+        assertTrue(page.getHasNext());
+        assertNull(page.getEndCursor());
+
+        PageableInput nextPageSort = PageableInput.builder() //
+            .withPageNumber(page.getNumber() + 1) //
+            .withPageSize(2) //
+            .withSort(sort) //
+            .build();
+        ClaimPage nextPage = entityUtils.findByFilter(null, filter, nextPageSort, repository, ClaimPage::new);
+
+        assertEquals(List.of(3L, 4L), nextPage.getContent().stream().map(Claim::getId).toList());
+        assertFalse(nextPage.getHasNext());
+        assertNull(nextPage.getEndCursor());
+    }
+
+    @Test
+    void noEndCursorWhereSeekIsUnsupported() {
+        Comment comment = new Comment();
+        comment.setId(1L);
+        CommentRepository repository = mock(CommentRepository.class);
+        when(repository.findByFilter(any(), any(), anyBoolean()))
+            .thenReturn(new PageImpl<>(List.of(comment), PageRequest.of(0, 2), 1));
+        PageableInput pageSort = PageableInput.builder().withPageSize(2).build();
+
+        CommentPage page =
+            entityUtils.findByFilter(null, new CommentQueryFilter(), pageSort, repository, CommentPage::new);
+
+        assertEquals(1, page.getContent().size());
+        assertNull(page.getEndCursor());
+    }
+
+}
@@ -0,0 +1,152 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import io.github.demonfiddler.ee.server.TestDatabase;
+import io.github.demonfiddler.ee.server.model.EntityKind;
+
+class SearchIndexTests {
+
+    private static final String INSERT_TOPIC =
+        "INSERT INTO \"topic\" (\"id\", \"label\", \"description\") VALUES (?, ?, ?)";
+
+    @TempDir
+    Path indexDirectory;
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private SearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = TestDatabase.create("search_index");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // Only topics are populated.
+        TestDatabase.insertEntities(jdbcTemplate, "TOP", "PUB", 101, 102, 103, 104, 105);
+        jdbcTemplate.update(INSERT_TOPIC, 101, "Climate change", "Climate");
+        jdbcTemplate.update(INSERT_TOPIC, 102, "Climate models", null);
+        jdbcTemplate.update(INSERT_TOPIC, 103, "Ocean warming", "Heat uptake by the oceans");
+        jdbcTemplate.update(INSERT_TOPIC, 104, "Solar variability",
+            "Whether changes in solar output drive the climate over decades and centuries");
+        jdbcTemplate.update(INSERT_TOPIC, 105, "Café society", null);
+        searchIndex = createSearchIndex(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        searchIndex.close();
+        TestDatabase.shutdown(dataSource);
+    }
+
+    private SearchIndex createSearchIndex(int maxHits) {
+        SearchIndex searchIndex = new SearchIndex(jdbcTemplate, true, maxHits, indexDirectory);
+        searchIndex.onContextRefreshed();
+        return searchIndex;
+    }
+
+    private List<Long> search(String text, boolean isAdvanced) {
+        return searchIndex.search("topic", text, isAdvanced);
+    }
+
+    @Test
+    void ranksByBm25() {
+        // Topic 101 has the term twice, topic 102 is shorter than topic 104, and topic 103 lacks it.
+        assertEquals(List.of(101L, 102L, 104L), search("climate", false));
+        // The rarer term 'solar' outweighs the common 'climate', and topic 104 has both.
+        assertEquals(List.of(104L, 101L, 102L), search("climate solar", false));
+        assertEquals(List.of(), search("glaciers", false));
+    }
+
+    @Test
+    void foldsCaseAndDiacritics() {
+        assertEquals(List.of(105L), search("CAFE", false));
+        assertEquals(List.of(105L), search("café", true));
+    }
+
+    @Test
+    void appliesBooleanOperators() {
+        // '+' requires a word, '-' excludes one.
+        assertEquals(List.of(104L), search("+climate +solar", true));
+        assertEquals(List.of(101L, 104L), search("+climate -models", true));
+        assertEquals(List.of(104L, 101L, 102L), search("+climate solar", true));
+        assertEquals(List.of(103L), search("-climate ocean", true));
+        // '*' matches words by prefix, but only in boolean mode.
+        assertEquals(List.of(101L, 104L), search("chang*", true));
+        assertEquals(List.of(103L), search("+ocean* -climate", true));
+        assertEquals(List.of(), search("chang*", false));
+        // A quoted phrase matches its words in sequence.
+        assertEquals(List.of(102L), search("+\"climate models\"", true));
+        assertEquals(List.of(), search("+\"models climate\"", true));
+        assertEquals(List.of(104L), search("\"the climate\"", true));
+    }
+
+    @Test
+    void reindexesUpdatedRows() {
+        jdbcTemplate.update("UPDATE \"topic\" SET \"label\" = 'Glaciers' WHERE \"id\" = 102");
+        TestDatabase.insertEntities(jdbcTemplate, "TOP", "PUB", 106);
+        jdbcTemplate.update(INSERT_TOPIC, 106, "Glacier retreat", "Glaciers and the climate");
+        jdbcTemplate.update("DELETE FROM \"topic\" WHERE \"id\" = 101");
+        searchIndex.update(EntityKind.TOP.name(), List.of(101L, 102L, 106L));
+
+        assertEquals(List.of(102L, 106L), search("glaciers", false));
+        assertEquals(List.of(106L, 104L), search("climate", false));
+    }
+
+    @Test
+    void rebuildsOnInvalidation() {
+        jdbcTemplate.update("UPDATE \"topic\" SET \"description\" = 'Glaciers' WHERE \"id\" = 103");
+        assertEquals(List.of(), search("glaciers", false));
+
+        searchIndex.invalidate();
+
+        assertEquals(List.of(103L), search("glaciers", false));
+        assertEquals(List.of(101L, 102L, 104L), search("climate", false));
+    }
+
+    @Test
+    void truncatesToMaxHits() {
+        searchIndex.close();
+        searchIndex = createSearchIndex(2);
+
+        // Only the most relevant matches are returned.
+        assertEquals(List.of(101L, 102L), search("climate", false));
+    }
+
+    @Test
+    void formatsAndParsesHits() {
+        assertEquals("[104,101,102]", SearchIndex.formatHits(List.of(104L, 101L, 102L)));
+        assertEquals("[]", SearchIndex.formatHits(List.of()));
+        assertArrayEquals(new Long[] { 104L, 101L, 102L }, SearchIndex.parseHits("[104,101,102]"));
+        assertArrayEquals(new Long[0], SearchIndex.parseHits("[]"));
+    }
+
+}
@@ -0,0 +1,57 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.junit.jupiter.api.Test;
+
+import graphql.GraphQLContext;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingEnvironmentImpl;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+
+class SecurityUtilsTests {
+
+    private final SecurityUtils securityUtils = new SecurityUtils();
+
+    @Test
+    void dataFetchersAndRepositoriesShareExecutionAccessContext() throws Exception {
+        AccessContext accessContext = new AccessContext(false, "editor", Set.of("REA"));
+        GraphQLContext graphQLContext =
+            GraphQLContext.newContext().of(AccessContextAccessor.KEY, accessContext).build();
+        DataFetchingEnvironment dataFetchingEnvironment =
+            DataFetchingEnvironmentImpl.newDataFetchingEnvironment().graphQLContext(graphQLContext).build();
+
+        // Spring for GraphQL calls each data fetcher with the values from its GraphQLContext restored like this.
+        ContextSnapshot snapshot = ContextSnapshotFactory.builder().build().captureFrom(graphQLContext);
+        Callable<AccessContext> repository = securityUtils::getAccessContext;
+
+        assertSame(accessContext, securityUtils.getAccessContext(dataFetchingEnvironment));
+        assertSame(accessContext, snapshot.wrap(repository).call());
+        // Outside the execution, there is no authentication.
+        assertSame(AccessContext.ANONYMOUS, securityUtils.getAccessContext());
+    }
+
+}
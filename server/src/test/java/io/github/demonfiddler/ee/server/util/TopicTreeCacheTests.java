@@ -0,0 +1,112 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.demonfiddler.ee.server.TestDatabase;
+
+class TopicTreeCacheTests {
+
+    private static final String INSERT_TOPIC =
+        "INSERT INTO \"topic\" (\"id\", \"label\", \"parent_id\") VALUES (?, ?, ?)";
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate txTemplate;
+    private TopicTreeCache cache;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = TestDatabase.create("topic_tree_cache");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestDatabase.insertEntities(jdbcTemplate, "TOP", "PUB", 101, 102);
+        jdbcTemplate.update(INSERT_TOPIC, 101, "Topic 101", null);
+        jdbcTemplate.update(INSERT_TOPIC, 102, "Topic 102", 101);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        cache = new TopicTreeCache(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.shutdown(dataSource);
+    }
+
+    @Test
+    void loadsOnFirstUse() {
+        TopicTree tree = cache.get();
+        assertArrayEquals(new long[] { 101, 102 }, tree.getIds());
+        assertArrayEquals(new long[] { 102 }, tree.getChildIds(101));
+        assertSame(tree, cache.get(), "An unchanged tree should be reused");
+    }
+
+    @Test
+    void refreshesAfterCommit() {
+        TopicTree before = cache.get();
+        txTemplate.executeWithoutResult(_ -> {
+            TestDatabase.insertEntities(jdbcTemplate, "TOP", "DRA", 103);
+            jdbcTemplate.update(INSERT_TOPIC, 103, "Topic 103", 102);
+            cache.invalidate();
+            // Until the transaction commits, other readers must continue to see the committed hierarchy.
+            assertSame(before, cache.get());
+        });
+
+        TopicTree after = cache.get();
+        assertTrue(after.getVersion() > before.getVersion());
+        assertArrayEquals(new long[] { 103 }, after.getChildIds(102));
+        assertEquals("DRA", after.getStatus(103));
+    }
+
+    @Test
+    void ignoresRolledBackChanges() {
+        TopicTree before = cache.get();
+        txTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE \"topic\" SET \"parent_id\" = NULL WHERE \"id\" = 102");
+            cache.invalidate();
+            status.setRollbackOnly();
+        });
+
+        assertSame(before, cache.get());
+        assertEquals(101L, cache.get().getParentId(102));
+        assertFalse(cache.get().contains(103));
+    }
+
+    @Test
+    void refreshesImmediatelyOutsideTransaction() {
+        TopicTree before = cache.get();
+        jdbcTemplate.update("UPDATE \"entity\" SET \"status\" = 'DEL' WHERE \"id\" = 102");
+        cache.invalidate();
+        assertTrue(cache.get().getVersion() > before.getVersion());
+        assertEquals("DEL", cache.get().getStatus(102));
+    }
+
+}
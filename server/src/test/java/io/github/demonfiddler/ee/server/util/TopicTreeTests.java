@@ -0,0 +1,91 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import static io.github.demonfiddler.ee.server.util.TopicTree.NO_ID;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TopicTreeTests {
+
+    // 1 -> (2 -> 4 -> 6), 3; 5; 7 -> (missing 99)
+    private static final TopicTree TREE = new TopicTree(1L, //
+        new long[] { 1, 2, 3, 4, 5, 6, 7 }, //
+        new long[] { NO_ID, 1, 1, 2, NO_ID, 4, 99 }, //
+        new String[] { "PUB", "PUB", "DRA", "PUB", "DEL", "PUB", "PUB" });
+
+    @Test
+    void roots() {
+        assertEquals(7, TREE.size());
+        // A topic whose parent is not in the tree is treated as a root.
+        assertArrayEquals(new long[] { 1, 5, 7 }, TREE.getRootIds());
+    }
+
+    @Test
+    void parentsAndChildren() {
+        assertEquals(2L, TREE.getParentId(4));
+        assertEquals(NO_ID, TREE.getParentId(1));
+        assertArrayEquals(new long[] { 2, 3 }, TREE.getChildIds(1));
+        assertArrayEquals(new long[] { 6 }, TREE.getChildIds(4));
+        assertArrayEquals(new long[0], TREE.getChildIds(6));
+        assertEquals("DEL", TREE.getStatus(5));
+    }
+
+    @Test
+    void ancestorsAndDescendants() {
+        assertArrayEquals(new long[] { 4, 2, 1 }, TREE.getAncestorIds(6));
+        assertArrayEquals(new long[0], TREE.getAncestorIds(1));
+        assertArrayEquals(new long[] { 2, 4, 6, 3 }, TREE.getDescendantIds(1));
+        assertArrayEquals(new long[0], TREE.getDescendantIds(5));
+        assertTrue(TREE.isDescendant(6, 1));
+        assertTrue(TREE.isDescendant(6, 4));
+        assertFalse(TREE.isDescendant(3, 2));
+        assertFalse(TREE.isDescendant(1, 6));
+    }
+
+    @Test
+    void unknownTopic() {
+        assertFalse(TREE.contains(42));
+        assertEquals(NO_ID, TREE.getParentId(42));
+        assertNull(TREE.getStatus(42));
+        assertArrayEquals(new long[0], TREE.getChildIds(42));
+        assertArrayEquals(new long[0], TREE.getDescendantIds(42));
+    }
+
+    @Test
+    void cyclicHierarchyTerminates() {
+        TopicTree cyclic = new TopicTree(1L, new long[] { 1, 2 }, new long[] { 2, 1 }, new String[] { "PUB", "PUB" });
+        assertEquals(2, cyclic.getAncestorIds(1).length);
+        assertArrayEquals(new long[0], cyclic.getRootIds());
+    }
+
+    @Test
+    void mismatchedArraysAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new TopicTree(1L, new long[] { 1, 2 }, new long[] { NO_ID }, new String[] { "PUB", "PUB" }));
+    }
+
+}
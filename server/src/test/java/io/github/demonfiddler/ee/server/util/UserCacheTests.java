@@ -0,0 +1,130 @@
+/*----------------------------------------------------------------------------------------------------------------------
+ * Evidence Engine: A system for managing evidence on arbitrary scientific topics.
+ * Comprises an SQL database, GraphQL public API, Java app server, Java and web clients.
+ * Copyright © 2024-26 Adrian Price. All rights reserved.
+ *
+ * This file is part of Evidence Engine.
+ *
+ * Evidence Engine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * Evidence Engine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with Evidence Engine.
+ * If not, see <https://www.gnu.org/licenses/>. 
+ *--------------------------------------------------------------------------------------------------------------------*/
+
+package io.github.demonfiddler.ee.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import io.github.demonfiddler.ee.server.model.User;
+import io.github.demonfiddler.ee.server.repository.UserRepository;
+
+class UserCacheTests {
+
+    private UserRepository userRepository;
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findAllById(any())).thenAnswer(i -> {
+            List<User> users = new ArrayList<>();
+            for (Long id : i.<Iterable<Long>> getArgument(0)) {
+                User user = new User();
+                user.setId(id);
+                users.add(user);
+            }
+            return users;
+        });
+        userCache = new UserCache(userRepository, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void servesRepeatLookupsFromCache() {
+        Map<Long, User> first = userCache.findAllById(List.of(1L, 2L));
+        Map<Long, User> second = userCache.findAllById(List.of(2L, 1L));
+
+        assertEquals(2, second.size());
+        assertSame(first.get(1L), second.get(1L));
+        verify(userRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        userCache.findAllById(List.of(1L, 2L));
+        userCache.findAllById(List.of(1L));
+        userCache.findAllById(List.of(3L)); // evicts 2, the least recently used
+        userCache.findAllById(List.of(1L, 3L));
+        verify(userRepository, times(2)).findAllById(any());
+
+        userCache.findAllById(List.of(2L));
+        verify(userRepository, times(3)).findAllById(any());
+    }
+
+    @Test
+    void clearsOnlyAfterCommit() {
+        User before = userCache.findAllById(List.of(1L)).get(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        userCache.invalidate();
+        // Until the transaction commits, other readers must continue to see the committed user.
+        assertSame(before, userCache.findAllById(List.of(1L)).get(1L));
+        verify(userRepository, times(1)).findAllById(any());
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationManager.clearSynchronization();
+        userCache.findAllById(List.of(1L));
+        verify(userRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void keepsEntriesAfterRollback() {
+        userCache.findAllById(List.of(1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        userCache.invalidate();
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+            TransactionSynchronization.STATUS_ROLLED_BACK);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        userCache.findAllById(List.of(1L));
+        verify(userRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void clearsImmediatelyOutsideTransaction() {
+        userCache.findAllById(List.of(1L));
+        userCache.invalidate();
+        userCache.findAllById(List.of(1L));
+        verify(userRepository, times(2)).findAllById(any());
+    }
+
+}
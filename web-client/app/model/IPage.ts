@@ -31,5 +31,6 @@ export default interface IPage<T> {
   isLast: boolean
   hasNext: boolean
   hasPrevious: boolean
+  endCursor?: string
   content: T[]
 }
\ No newline at end of file